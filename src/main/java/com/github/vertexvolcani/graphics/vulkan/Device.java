@@ -19,15 +19,33 @@ import org.lwjgl.vulkan.*;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static org.lwjgl.system.MemoryUtil.NULL;
+import static org.lwjgl.vulkan.EXTDescriptorIndexing.VK_EXT_DESCRIPTOR_INDEXING_EXTENSION_NAME;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState2.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState3.*;
+import static org.lwjgl.vulkan.EXTGraphicsPipelineLibrary.VK_EXT_GRAPHICS_PIPELINE_LIBRARY_EXTENSION_NAME;
+import static org.lwjgl.vulkan.EXTPipelineCreationFeedback.VK_EXT_PIPELINE_CREATION_FEEDBACK_EXTENSION_NAME;
 import static org.lwjgl.vulkan.KHRCreateRenderpass2.VK_KHR_CREATE_RENDERPASS_2_EXTENSION_NAME;
 import static org.lwjgl.vulkan.KHRDepthStencilResolve.VK_KHR_DEPTH_STENCIL_RESOLVE_EXTENSION_NAME;
 import static org.lwjgl.vulkan.KHRDynamicRendering.VK_KHR_DYNAMIC_RENDERING_EXTENSION_NAME;
+import static org.lwjgl.vulkan.KHRPipelineLibrary.VK_KHR_PIPELINE_LIBRARY_EXTENSION_NAME;
 import static org.lwjgl.vulkan.KHRSwapchain.VK_KHR_SWAPCHAIN_EXTENSION_NAME;
 import static org.lwjgl.vulkan.KHRSynchronization2.VK_KHR_SYNCHRONIZATION_2_EXTENSION_NAME;
+import static org.lwjgl.vulkan.KHRTimelineSemaphore.*;
 import static org.lwjgl.vulkan.VK10.*;
 import static org.lwjgl.vulkan.VK11.VK_ERROR_OUT_OF_POOL_MEMORY;
+import static org.lwjgl.vulkan.VK11.vkCreateDescriptorUpdateTemplate;
+import static org.lwjgl.vulkan.VK11.vkDestroyDescriptorUpdateTemplate;
+import static org.lwjgl.vulkan.VK11.vkGetPhysicalDeviceFeatures2;
+import static org.lwjgl.vulkan.VK11.vkGetPhysicalDeviceProperties2;
+import static org.lwjgl.vulkan.VK11.vkUpdateDescriptorSetWithTemplate;
 
 public class Device extends LibCleanable {
     private final VkDevice device;
@@ -37,7 +55,35 @@ public class Device extends LibCleanable {
     @Nullable
     private final  DeviceFeaturesToEnabled features;
     private int graphics_index;
-    private int result = VK_SUCCESS;
+    private int compute_index;
+    private int transfer_index;
+    /**
+     * The names of every extension the physical device supports.
+     */
+    private final Set<String> available_extensions = new HashSet<>();
+    private boolean timeline_semaphore_enabled = false;
+    private boolean synchronization2_enabled = false;
+    private boolean pipeline_creation_feedback_enabled = false;
+    /**
+     * The dynamic states added by the enabled extended dynamic state features, sorted.
+     */
+    private int[] extended_dynamic_states = new int[0];
+    private boolean graphics_pipeline_library_enabled = false;
+    private boolean graphics_pipeline_library_fast_linking = false;
+    private boolean descriptor_indexing_enabled = false;
+    /**
+     * The most sampled images and storage buffers one update after bind set can hold, 0 without descriptor indexing.
+     */
+    private int max_bindless_sampled_images = 0;
+    private int max_bindless_storage_buffers = 0;
+    /**
+     * The result of the last call made by each thread, kept per thread so wrappers can be called concurrently.
+     */
+    private final ThreadLocal<int[]> result = ThreadLocal.withInitial(() -> new int[]{VK_SUCCESS});
+    /**
+     * Destroy callbacks waiting for the GPU to finish with their resources.
+     */
+    private final RetirementQueue retirement_queue = new RetirementQueue();
 
     public Device(@Nonnull Instance instance, @Nullable DeviceFeaturesToEnabled features_in) {
         debug = instance.getDebug();
@@ -82,6 +128,7 @@ public class Device extends LibCleanable {
 
                 for (int i = 0; i < ip.get(0); i++) {
                     device_extensions.position(i);
+                    available_extensions.add(device_extensions.extensionNameString());
                     if (VK_KHR_SWAPCHAIN_EXTENSION_NAME.equals(device_extensions.extensionNameString())) {
                         found_swapchain = true;
                         extension_names.put(KHR_swap_chain);
@@ -94,6 +141,135 @@ public class Device extends LibCleanable {
                 extension_names.put(stack.UTF8(VK_KHR_SYNCHRONIZATION_2_EXTENSION_NAME));
                 extension_names.put(stack.UTF8(VK_KHR_CREATE_RENDERPASS_2_EXTENSION_NAME));
                 extension_names.put(stack.UTF8(VK_KHR_DEPTH_STENCIL_RESOLVE_EXTENSION_NAME));
+                // the synchronization2 extension is always enabled alongside dynamic rendering, its feature only if supported
+                VkPhysicalDeviceSynchronization2FeaturesKHR supported_sync2 = VkPhysicalDeviceSynchronization2FeaturesKHR.calloc(stack).sType$Default();
+                vkGetPhysicalDeviceFeatures2(physical_device, VkPhysicalDeviceFeatures2.calloc(stack).sType$Default().pNext(supported_sync2));
+                synchronization2_enabled = supported_sync2.synchronization2();
+            }
+
+            if (features != null && features.timeline_semaphore) {
+                VkPhysicalDeviceTimelineSemaphoreFeaturesKHR supported_timeline = VkPhysicalDeviceTimelineSemaphoreFeaturesKHR.calloc(stack).sType$Default();
+                vkGetPhysicalDeviceFeatures2(physical_device, VkPhysicalDeviceFeatures2.calloc(stack).sType$Default().pNext(supported_timeline));
+                if (isExtensionSupported(VK_KHR_TIMELINE_SEMAPHORE_EXTENSION_NAME) && supported_timeline.timelineSemaphore()) {
+                    extension_names.put(stack.UTF8(VK_KHR_TIMELINE_SEMAPHORE_EXTENSION_NAME));
+                    timeline_semaphore_enabled = true;
+                } else {
+                    Log.print(Log.Severity.WARNING, "Vulkan: timeline semaphores requested but not supported by the device");
+                }
+            }
+
+            // creation feedback only reports cache hits and timings, so it is enabled whenever it is available
+            if (isExtensionSupported(VK_EXT_PIPELINE_CREATION_FEEDBACK_EXTENSION_NAME)) {
+                extension_names.put(stack.UTF8(VK_EXT_PIPELINE_CREATION_FEEDBACK_EXTENSION_NAME));
+                pipeline_creation_feedback_enabled = true;
+            }
+
+            // each extended dynamic state level is enabled with every feature of it the device supports
+            @Nullable VkPhysicalDeviceExtendedDynamicStateFeaturesEXT dynamic_state_features = null;
+            @Nullable VkPhysicalDeviceExtendedDynamicState2FeaturesEXT dynamic_state2_features = null;
+            @Nullable VkPhysicalDeviceExtendedDynamicState3FeaturesEXT dynamic_state3_features = null;
+            if (features != null && features.extended_dynamic_state) {
+                VkPhysicalDeviceExtendedDynamicStateFeaturesEXT supported_eds = VkPhysicalDeviceExtendedDynamicStateFeaturesEXT.calloc(stack).sType$Default();
+                VkPhysicalDeviceExtendedDynamicState2FeaturesEXT supported_eds2 = VkPhysicalDeviceExtendedDynamicState2FeaturesEXT.calloc(stack).sType$Default();
+                VkPhysicalDeviceExtendedDynamicState3FeaturesEXT supported_eds3 = VkPhysicalDeviceExtendedDynamicState3FeaturesEXT.calloc(stack).sType$Default();
+                long query_chain = NULL;
+                if (isExtensionSupported(VK_EXT_EXTENDED_DYNAMIC_STATE_EXTENSION_NAME)) {
+                    query_chain = supported_eds.pNext(query_chain).address();
+                }
+                if (isExtensionSupported(VK_EXT_EXTENDED_DYNAMIC_STATE_2_EXTENSION_NAME)) {
+                    query_chain = supported_eds2.pNext(query_chain).address();
+                }
+                if (isExtensionSupported(VK_EXT_EXTENDED_DYNAMIC_STATE_3_EXTENSION_NAME)) {
+                    query_chain = supported_eds3.pNext(query_chain).address();
+                }
+                vkGetPhysicalDeviceFeatures2(physical_device, VkPhysicalDeviceFeatures2.calloc(stack).sType$Default().pNext(query_chain));
+                List<Integer> states = new ArrayList<>();
+                if (supported_eds.extendedDynamicState()) {
+                    extension_names.put(stack.UTF8(VK_EXT_EXTENDED_DYNAMIC_STATE_EXTENSION_NAME));
+                    dynamic_state_features = supported_eds.pNext(NULL);
+                    states.addAll(List.of(VK_DYNAMIC_STATE_CULL_MODE_EXT, VK_DYNAMIC_STATE_FRONT_FACE_EXT, VK_DYNAMIC_STATE_PRIMITIVE_TOPOLOGY_EXT,
+                            VK_DYNAMIC_STATE_VIEWPORT_WITH_COUNT_EXT, VK_DYNAMIC_STATE_SCISSOR_WITH_COUNT_EXT, VK_DYNAMIC_STATE_VERTEX_INPUT_BINDING_STRIDE_EXT,
+                            VK_DYNAMIC_STATE_DEPTH_TEST_ENABLE_EXT, VK_DYNAMIC_STATE_DEPTH_WRITE_ENABLE_EXT, VK_DYNAMIC_STATE_DEPTH_COMPARE_OP_EXT,
+                            VK_DYNAMIC_STATE_DEPTH_BOUNDS_TEST_ENABLE_EXT, VK_DYNAMIC_STATE_STENCIL_TEST_ENABLE_EXT, VK_DYNAMIC_STATE_STENCIL_OP_EXT));
+                }
+                if (supported_eds2.extendedDynamicState2()) {
+                    extension_names.put(stack.UTF8(VK_EXT_EXTENDED_DYNAMIC_STATE_2_EXTENSION_NAME));
+                    dynamic_state2_features = supported_eds2.pNext(NULL);
+                    states.addAll(List.of(VK_DYNAMIC_STATE_RASTERIZER_DISCARD_ENABLE_EXT, VK_DYNAMIC_STATE_DEPTH_BIAS_ENABLE_EXT, VK_DYNAMIC_STATE_PRIMITIVE_RESTART_ENABLE_EXT));
+                    if (supported_eds2.extendedDynamicState2LogicOp()) {
+                        states.add(VK_DYNAMIC_STATE_LOGIC_OP_EXT);
+                    }
+                    if (supported_eds2.extendedDynamicState2PatchControlPoints()) {
+                        states.add(VK_DYNAMIC_STATE_PATCH_CONTROL_POINTS_EXT);
+                    }
+                }
+                if (isExtensionSupported(VK_EXT_EXTENDED_DYNAMIC_STATE_3_EXTENSION_NAME)) {
+                    final int before = states.size();
+                    addIf(states, supported_eds3.extendedDynamicState3DepthClampEnable(), VK_DYNAMIC_STATE_DEPTH_CLAMP_ENABLE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3PolygonMode(), VK_DYNAMIC_STATE_POLYGON_MODE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3RasterizationSamples(), VK_DYNAMIC_STATE_RASTERIZATION_SAMPLES_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3SampleMask(), VK_DYNAMIC_STATE_SAMPLE_MASK_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3AlphaToCoverageEnable(), VK_DYNAMIC_STATE_ALPHA_TO_COVERAGE_ENABLE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3AlphaToOneEnable(), VK_DYNAMIC_STATE_ALPHA_TO_ONE_ENABLE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3LogicOpEnable(), VK_DYNAMIC_STATE_LOGIC_OP_ENABLE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3ColorBlendEnable(), VK_DYNAMIC_STATE_COLOR_BLEND_ENABLE_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3ColorBlendEquation(), VK_DYNAMIC_STATE_COLOR_BLEND_EQUATION_EXT);
+                    addIf(states, supported_eds3.extendedDynamicState3ColorWriteMask(), VK_DYNAMIC_STATE_COLOR_WRITE_MASK_EXT);
+                    if (states.size() > before) {
+                        extension_names.put(stack.UTF8(VK_EXT_EXTENDED_DYNAMIC_STATE_3_EXTENSION_NAME));
+                        dynamic_state3_features = supported_eds3.pNext(NULL);
+                    }
+                }
+                if (states.isEmpty()) {
+                    Log.print(Log.Severity.WARNING, "Vulkan: extended dynamic state requested but not supported by the device");
+                }
+                extended_dynamic_states = states.stream().mapToInt(Integer::intValue).sorted().toArray();
+            }
+
+            @Nullable VkPhysicalDeviceGraphicsPipelineLibraryFeaturesEXT pipeline_library_features = null;
+            if (features != null && features.graphics_pipeline_library) {
+                VkPhysicalDeviceGraphicsPipelineLibraryFeaturesEXT supported_gpl = VkPhysicalDeviceGraphicsPipelineLibraryFeaturesEXT.calloc(stack).sType$Default();
+                if (isExtensionSupported(VK_EXT_GRAPHICS_PIPELINE_LIBRARY_EXTENSION_NAME) && isExtensionSupported(VK_KHR_PIPELINE_LIBRARY_EXTENSION_NAME)) {
+                    vkGetPhysicalDeviceFeatures2(physical_device, VkPhysicalDeviceFeatures2.calloc(stack).sType$Default().pNext(supported_gpl));
+                }
+                if (supported_gpl.graphicsPipelineLibrary()) {
+                    extension_names.put(stack.UTF8(VK_KHR_PIPELINE_LIBRARY_EXTENSION_NAME));
+                    extension_names.put(stack.UTF8(VK_EXT_GRAPHICS_PIPELINE_LIBRARY_EXTENSION_NAME));
+                    pipeline_library_features = supported_gpl.pNext(NULL);
+                    graphics_pipeline_library_enabled = true;
+                    VkPhysicalDeviceGraphicsPipelineLibraryPropertiesEXT library_properties = VkPhysicalDeviceGraphicsPipelineLibraryPropertiesEXT.calloc(stack).sType$Default();
+                    vkGetPhysicalDeviceProperties2(physical_device, VkPhysicalDeviceProperties2.calloc(stack).sType$Default().pNext(library_properties));
+                    graphics_pipeline_library_fast_linking = library_properties.graphicsPipelineLibraryFastLinking();
+                } else {
+                    Log.print(Log.Severity.WARNING, "Vulkan: graphics pipeline library requested but not supported by the device");
+                }
+            }
+
+            // bindless needs runtime arrays that may be partially bound and updated while in use
+            @Nullable VkPhysicalDeviceDescriptorIndexingFeaturesEXT descriptor_indexing_features = null;
+            if (features != null && features.descriptor_indexing) {
+                VkPhysicalDeviceDescriptorIndexingFeaturesEXT supported_indexing = VkPhysicalDeviceDescriptorIndexingFeaturesEXT.calloc(stack).sType$Default();
+                if (isExtensionSupported(VK_EXT_DESCRIPTOR_INDEXING_EXTENSION_NAME)) {
+                    vkGetPhysicalDeviceFeatures2(physical_device, VkPhysicalDeviceFeatures2.calloc(stack).sType$Default().pNext(supported_indexing));
+                }
+                if (supported_indexing.runtimeDescriptorArray() && supported_indexing.descriptorBindingPartiallyBound()
+                        && supported_indexing.descriptorBindingUpdateUnusedWhilePending()
+                        && supported_indexing.descriptorBindingSampledImageUpdateAfterBind()
+                        && supported_indexing.descriptorBindingStorageBufferUpdateAfterBind()) {
+                    extension_names.put(stack.UTF8(VK_EXT_DESCRIPTOR_INDEXING_EXTENSION_NAME));
+                    descriptor_indexing_features = supported_indexing.pNext(NULL);
+                    descriptor_indexing_enabled = true;
+                    VkPhysicalDeviceDescriptorIndexingPropertiesEXT indexing_properties = VkPhysicalDeviceDescriptorIndexingPropertiesEXT.calloc(stack).sType$Default();
+                    vkGetPhysicalDeviceProperties2(physical_device, VkPhysicalDeviceProperties2.calloc(stack).sType$Default().pNext(indexing_properties));
+                    // a combined image sampler counts against the sampler limits too
+                    max_bindless_sampled_images = Math.min(Math.min(indexing_properties.maxPerStageDescriptorUpdateAfterBindSampledImages(),
+                            indexing_properties.maxDescriptorSetUpdateAfterBindSampledImages()), Math.min(
+                            indexing_properties.maxPerStageDescriptorUpdateAfterBindSamplers(), indexing_properties.maxDescriptorSetUpdateAfterBindSamplers()));
+                    max_bindless_storage_buffers = Math.min(indexing_properties.maxPerStageDescriptorUpdateAfterBindStorageBuffers(),
+                            indexing_properties.maxDescriptorSetUpdateAfterBindStorageBuffers());
+                } else {
+                    Log.print(Log.Severity.WARNING, "Vulkan: descriptor indexing requested but not supported by the device");
+                }
             }
 
             if (!found_swapchain) {
@@ -126,12 +302,36 @@ public class Device extends LibCleanable {
                 throw new IllegalStateException("Could not find a graphics queue index");
             }
 
-            VkDeviceQueueCreateInfo.Buffer queue = VkDeviceQueueCreateInfo.malloc(1, stack)
-                    .sType$Default()
-                    .pNext(NULL)
-                    .flags(0)
-                    .queueFamilyIndex(graphics_index)
-                    .pQueuePriorities(stack.floats(0.0f));
+            // prefer families without graphics so uploads and compute can run beside rendering
+            compute_index = findQueueFamily(queue_family_properties, VK_QUEUE_COMPUTE_BIT, VK_QUEUE_GRAPHICS_BIT);
+            if (compute_index == Integer.MAX_VALUE) {
+                compute_index = graphics_index;
+            }
+            transfer_index = findQueueFamily(queue_family_properties, VK_QUEUE_TRANSFER_BIT, VK_QUEUE_GRAPHICS_BIT | VK_QUEUE_COMPUTE_BIT);
+            if (transfer_index == Integer.MAX_VALUE) {
+                transfer_index = findQueueFamily(queue_family_properties, VK_QUEUE_TRANSFER_BIT, VK_QUEUE_GRAPHICS_BIT);
+            }
+            if (transfer_index == Integer.MAX_VALUE) {
+                transfer_index = graphics_index;
+            }
+            Log.print(Log.Severity.DEBUG, "Vulkan: queue families graphics " + graphics_index + ", compute " + compute_index + ", transfer " + transfer_index);
+
+            int queue_count = 1;
+            if (compute_index != graphics_index) {
+                queue_count++;
+            }
+            if (transfer_index != graphics_index && transfer_index != compute_index) {
+                queue_count++;
+            }
+            VkDeviceQueueCreateInfo.Buffer queue = VkDeviceQueueCreateInfo.calloc(queue_count, stack);
+            queue.get(0).sType$Default().queueFamilyIndex(graphics_index).pQueuePriorities(stack.floats(0.0f));
+            int queue_slot = 1;
+            if (compute_index != graphics_index) {
+                queue.get(queue_slot++).sType$Default().queueFamilyIndex(compute_index).pQueuePriorities(stack.floats(0.0f));
+            }
+            if (transfer_index != graphics_index && transfer_index != compute_index) {
+                queue.get(queue_slot).sType$Default().queueFamilyIndex(transfer_index).pQueuePriorities(stack.floats(0.0f));
+            }
 
             VkPhysicalDeviceFeatures features_ = VkPhysicalDeviceFeatures.calloc(stack);
             if (gpu_features.shaderClipDistance()) {
@@ -151,11 +351,36 @@ public class Device extends LibCleanable {
                     .sType$Default()
                     .dynamicRendering(true);
 
+            // every enabled feature struct is pushed onto the front of the chain
+            long feature_chain = NULL;
             if(features != null && features.dynamic_rendering){
-                pCreateInfo.pNext(dynamicRenderingFeatures);
-            } else {
-                pCreateInfo.pNext(VK_NULL_HANDLE);
+                dynamicRenderingFeatures.pNext(feature_chain);
+                feature_chain = dynamicRenderingFeatures.address();
+            }
+            if (synchronization2_enabled) {
+                feature_chain = VkPhysicalDeviceSynchronization2FeaturesKHR.calloc(stack).sType$Default()
+                        .synchronization2(true).pNext(feature_chain).address();
+            }
+            if (timeline_semaphore_enabled) {
+                feature_chain = VkPhysicalDeviceTimelineSemaphoreFeaturesKHR.calloc(stack).sType$Default()
+                        .timelineSemaphore(true).pNext(feature_chain).address();
+            }
+            if (dynamic_state_features != null) {
+                feature_chain = dynamic_state_features.pNext(feature_chain).address();
             }
+            if (dynamic_state2_features != null) {
+                feature_chain = dynamic_state2_features.pNext(feature_chain).address();
+            }
+            if (dynamic_state3_features != null) {
+                feature_chain = dynamic_state3_features.pNext(feature_chain).address();
+            }
+            if (pipeline_library_features != null) {
+                feature_chain = pipeline_library_features.pNext(feature_chain).address();
+            }
+            if (descriptor_indexing_features != null) {
+                feature_chain = descriptor_indexing_features.pNext(feature_chain).address();
+            }
+            pCreateInfo.pNext(feature_chain);
 
             vkGetPhysicalDeviceProperties(physical_device, properties);
             // Create Vulkan device
@@ -199,6 +424,21 @@ public class Device extends LibCleanable {
         }
     }
 
+    /**
+     * Finds the first queue family with all the required flags and none of the excluded ones.
+     *
+     * @return The family index, or {@code Integer.MAX_VALUE} if none matches.
+     */
+    private static int findQueueFamily(@Nonnull VkQueueFamilyProperties.Buffer families, int required, int excluded) {
+        for (int i = 0; i < families.capacity(); i++) {
+            final int flags = families.get(i).queueFlags();
+            if ((flags & required) == required && (flags & excluded) == 0) {
+                return i;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
     private int getDeviceType(@Nonnull VkPhysicalDevice physicalDevice) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             int device_modifier = 0;
@@ -215,12 +455,17 @@ public class Device extends LibCleanable {
         }
     }
 
+    /**
+     * Gets the result of the last call the current thread made through this device.
+     *
+     * @return The Vulkan result code.
+     */
     public int getResult() {
-        return result;
+        return result.get()[0];
     }
 
     public boolean didErrorOccur() {
-        return result != VK_SUCCESS;
+        return result.get()[0] != VK_SUCCESS;
     }
 
     public VkDevice getDevice() {
@@ -235,6 +480,35 @@ public class Device extends LibCleanable {
         return graphics_index;
     }
 
+    /**
+     * Gets the queue family used for compute work, a compute only family when the device has one, otherwise the
+     * graphics family.
+     *
+     * @return The compute queue family index.
+     */
+    public int getComputeIndex() {
+        return compute_index;
+    }
+
+    /**
+     * Gets the queue family used for uploads, a transfer only family when the device has one, otherwise a family
+     * without graphics, otherwise the graphics family. Transfer only families may have a coarse
+     * {@code minImageTransferGranularity}, so image copies must cover whole mip levels.
+     *
+     * @return The transfer queue family index.
+     */
+    public int getTransferIndex() {
+        return transfer_index;
+    }
+
+    public boolean hasDedicatedComputeQueue() {
+        return compute_index != graphics_index;
+    }
+
+    public boolean hasDedicatedTransferQueue() {
+        return transfer_index != graphics_index;
+    }
+
     public VkQueue getDeviceQueue(int queueFamilyIndex, int queueIndex) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             PointerBuffer pQueue = stack.mallocPointer(1);
@@ -244,15 +518,15 @@ public class Device extends LibCleanable {
     }
 
     public void flushMappedMemoryRanges(@NativeType("VkMappedMemoryRange const *") VkMappedMemoryRange.Buffer pMemoryRanges) {
-        result = vkFlushMappedMemoryRanges(device, pMemoryRanges);
+        result.get()[0] = vkFlushMappedMemoryRanges(device, pMemoryRanges);
     }
 
     public void invalidateMappedMemoryRanges(@NativeType("VkMappedMemoryRange const *") VkMappedMemoryRange.Buffer pMemoryRanges) {
-        result = vkInvalidateMappedMemoryRanges(device, pMemoryRanges);
+        result.get()[0] = vkInvalidateMappedMemoryRanges(device, pMemoryRanges);
     }
 
     public void invalidateMappedMemoryRanges(@NativeType("VkMappedMemoryRange const *") VkMappedMemoryRange pMemoryRange) {
-        result = vkInvalidateMappedMemoryRanges(device, pMemoryRange);
+        result.get()[0] = vkInvalidateMappedMemoryRanges(device, pMemoryRange);
     }
 
     public void getBufferMemoryRequirements(DeviceHandle buffer, @NativeType("VkMemoryRequirements *") VkMemoryRequirements pMemoryRequirements) {
@@ -266,7 +540,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createFence(@NativeType("VkFenceCreateInfo const *") VkFenceCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateFence(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateFence(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
         }
     }
@@ -276,21 +550,21 @@ public class Device extends LibCleanable {
     }
 
     public void resetFences(DeviceHandle pFences) {
-        result = vkResetFences(device, pFences.handle());
+        result.get()[0] = vkResetFences(device, pFences.handle());
     }
 
     public void getFenceStatus(DeviceHandle fence) {
-        result = vkGetFenceStatus(device, fence.handle());
+        result.get()[0] = vkGetFenceStatus(device, fence.handle());
     }
 
     public void waitForFences(DeviceHandle pFences, boolean waitAll, @NativeType("uint64_t") long timeout) {
-        result = vkWaitForFences(device, pFences.handle(), waitAll, timeout);
+        result.get()[0] = vkWaitForFences(device, pFences.handle(), waitAll, timeout);
     }
 
     public DeviceHandle createSemaphore(@NativeType("VkSemaphoreCreateInfo const *") VkSemaphoreCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateSemaphore(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateSemaphore(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
         }
     }
@@ -299,10 +573,26 @@ public class Device extends LibCleanable {
         vkDestroySemaphore(device, semaphore.handle(), null);
     }
 
+    public long getSemaphoreCounterValue(DeviceHandle semaphore) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            LongBuffer pValue = stack.mallocLong(1);
+            result.get()[0] = vkGetSemaphoreCounterValueKHR(device, semaphore.handle(), pValue);
+            return pValue.get(0);
+        }
+    }
+
+    public void waitSemaphores(@NativeType("VkSemaphoreWaitInfo const *") VkSemaphoreWaitInfo pWaitInfo, @NativeType("uint64_t") long timeout) {
+        result.get()[0] = vkWaitSemaphoresKHR(device, pWaitInfo, timeout);
+    }
+
+    public void signalSemaphore(@NativeType("VkSemaphoreSignalInfo const *") VkSemaphoreSignalInfo pSignalInfo) {
+        result.get()[0] = vkSignalSemaphoreKHR(device, pSignalInfo);
+    }
+
     public DeviceHandle createEvent(@NativeType("VkEventCreateInfo const *") VkEventCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateEvent(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateEvent(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -313,21 +603,21 @@ public class Device extends LibCleanable {
     }
 
     public void getEventStatus(DeviceHandle event) {
-        result = vkGetEventStatus(device, event.handle());
+        result.get()[0] = vkGetEventStatus(device, event.handle());
     }
 
     public void setEvent(DeviceHandle event) {
-        result = vkSetEvent(device, event.handle());
+        result.get()[0] = vkSetEvent(device, event.handle());
     }
 
     public void resetEvent(DeviceHandle event) {
-        result = vkResetEvent(device, event.handle());
+        result.get()[0] = vkResetEvent(device, event.handle());
     }
 
     public DeviceHandle createQueryPool(@NativeType("VkQueryPoolCreateInfo const *") VkQueryPoolCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateQueryPool(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateQueryPool(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -338,17 +628,17 @@ public class Device extends LibCleanable {
     }
 
     public void getQueryPoolResults(DeviceHandle queryPool, int firstQuery, int queryCount, @NativeType("void *") ByteBuffer pData, @NativeType("VkDeviceSize") long stride, @NativeType("VkQueryResultFlags") int flags) {
-        result = vkGetQueryPoolResults(device, queryPool.handle(), firstQuery, queryCount, pData, stride, flags);
+        result.get()[0] = vkGetQueryPoolResults(device, queryPool.handle(), firstQuery, queryCount, pData, stride, flags);
     }
 
     public void getQueryPoolResults(DeviceHandle queryPool, int firstQuery, int queryCount, @NativeType("void *") int[] pData, @NativeType("VkDeviceSize") long stride, @NativeType("VkQueryResultFlags") int flags) {
-        result = vkGetQueryPoolResults(device, queryPool.handle(), firstQuery, queryCount, pData, stride, flags);
+        result.get()[0] = vkGetQueryPoolResults(device, queryPool.handle(), firstQuery, queryCount, pData, stride, flags);
     }
 
     public DeviceHandle createBufferView(@NativeType("VkBufferViewCreateInfo const *") VkBufferViewCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateBufferView(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateBufferView(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -361,7 +651,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createImage(@NativeType("VkImageCreateInfo const *") VkImageCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateImage(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateImage(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -378,7 +668,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createImageView(@NativeType("VkImageViewCreateInfo const *") VkImageViewCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateImageView(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateImageView(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -391,7 +681,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createShaderModule(@NativeType("VkShaderModuleCreateInfo const *") VkShaderModuleCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateShaderModule(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateShaderModule(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -404,7 +694,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createPipelineCache(@NativeType("VkPipelineCacheCreateInfo const *") VkPipelineCacheCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreatePipelineCache(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreatePipelineCache(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -415,11 +705,11 @@ public class Device extends LibCleanable {
     }
 
     public void getPipelineCacheData(DeviceHandle pipelineCache, @NativeType("size_t *") PointerBuffer pDataSize, @Nullable @NativeType("void *") ByteBuffer pData) {
-        result = vkGetPipelineCacheData(device, pipelineCache.handle(), pDataSize, pData);
+        result.get()[0] = vkGetPipelineCacheData(device, pipelineCache.handle(), pDataSize, pData);
     }
 
     public void mergePipelineCaches(DeviceHandle dstCache, @NativeType("VkPipelineCache const *") @Nonnull long[] pSrcCaches) {
-        result = vkMergePipelineCaches(device, dstCache.handle(), pSrcCaches);
+        result.get()[0] = vkMergePipelineCaches(device, dstCache.handle(), pSrcCaches);
     }
 
     public void createGraphicsPipelines(@Nullable DeviceHandle pipelineCache, @NativeType("VkGraphicsPipelineCreateInfo const *") VkGraphicsPipelineCreateInfo.Buffer pCreateInfos, long[] handle) {
@@ -446,7 +736,7 @@ public class Device extends LibCleanable {
         }
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(pCreateInfos.remaining());
-            result = vkCreateGraphicsPipelines(device, pipelineCache == null ? VK_NULL_HANDLE : pipelineCache.handle(), pCreateInfos, null, pBuffer);
+            result.get()[0] = vkCreateGraphicsPipelines(device, pipelineCache == null ? VK_NULL_HANDLE : pipelineCache.handle(), pCreateInfos, null, pBuffer);
             for (int i = 0; i < pBuffer.remaining(); i++) {
                 handle[i] = pBuffer.get(i);
             }
@@ -457,7 +747,7 @@ public class Device extends LibCleanable {
     public void createComputePipelines(@Nullable DeviceHandle pipelineCache, @NativeType("VkComputePipelineCreateInfo const *") VkComputePipelineCreateInfo.Buffer pCreateInfos, long[] handle) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(pCreateInfos.remaining());
-            result = vkCreateComputePipelines(device, pipelineCache == null ? VK_NULL_HANDLE : pipelineCache.handle(), pCreateInfos, null, pBuffer);
+            result.get()[0] = vkCreateComputePipelines(device, pipelineCache == null ? VK_NULL_HANDLE : pipelineCache.handle(), pCreateInfos, null, pBuffer);
             for (int i = 0; i < pBuffer.remaining(); i++) {
                 handle[i] = pBuffer.get(i);
             }
@@ -471,7 +761,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createPipelineLayout(@NativeType("VkPipelineLayoutCreateInfo const *") VkPipelineLayoutCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreatePipelineLayout(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreatePipelineLayout(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -484,7 +774,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createSampler(@NativeType("VkSamplerCreateInfo const *") VkSamplerCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateSampler(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateSampler(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -497,7 +787,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createDescriptorSetLayout(@NativeType("VkDescriptorSetLayoutCreateInfo const *") VkDescriptorSetLayoutCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateDescriptorSetLayout(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateDescriptorSetLayout(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -510,7 +800,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createDescriptorPool(@NativeType("VkDescriptorPoolCreateInfo const *") VkDescriptorPoolCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateDescriptorPool(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateDescriptorPool(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -521,16 +811,16 @@ public class Device extends LibCleanable {
     }
 
     public void resetDescriptorPool(DeviceHandle descriptorPool, int flags) {
-        result = vkResetDescriptorPool(device, descriptorPool.handle(), flags);
+        result.get()[0] = vkResetDescriptorPool(device, descriptorPool.handle(), flags);
     }
 
     public void allocateDescriptorSets(@NativeType("VkDescriptorSetAllocateInfo const *") VkDescriptorSetAllocateInfo pCreateInfo, long[] handle) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(pCreateInfo.descriptorSetCount());
-            result = vkAllocateDescriptorSets(device, pCreateInfo, pBuffer);
-            if(result == VK_ERROR_OUT_OF_POOL_MEMORY) {
-                Log.print(Log.Severity.ERROR, "Vulkan: Failed to allocate descriptor sets due to out of pool memory");
-                throw new IllegalStateException("Failed to allocate descriptor sets due to out of pool memory");
+            result.get()[0] = vkAllocateDescriptorSets(device, pCreateInfo, pBuffer);
+            // a full pool is not fatal, the caller checks the result and can move on to another pool
+            if (result.get()[0] != VK_SUCCESS) {
+                return;
             }
             for (int i = 0; i < pCreateInfo.descriptorSetCount(); i++) {
                 handle[i] = pBuffer.get(i);
@@ -540,17 +830,46 @@ public class Device extends LibCleanable {
     }
 
     public void freeDescriptorSets(DeviceHandle descriptorPool, DeviceHandle pDescriptorSets) {
-        result = vkFreeDescriptorSets(device, descriptorPool.handle(), pDescriptorSets.handle());
+        result.get()[0] = vkFreeDescriptorSets(device, descriptorPool.handle(), pDescriptorSets.handle());
+    }
+
+    public void freeDescriptorSets(DeviceHandle descriptorPool, long[] pDescriptorSets) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            result.get()[0] = vkFreeDescriptorSets(device, descriptorPool.handle(), stack.longs(pDescriptorSets));
+        }
     }
 
     public void updateDescriptorSets(@Nonnull @NativeType("VkWriteDescriptorSet const *") VkWriteDescriptorSet.Buffer pDescriptorWrites, @Nullable @NativeType("VkCopyDescriptorSet const *") VkCopyDescriptorSet.Buffer pDescriptorCopies) {
         vkUpdateDescriptorSets(device, pDescriptorWrites, pDescriptorCopies);
     }
 
+    public DeviceHandle createDescriptorUpdateTemplate(@NativeType("VkDescriptorUpdateTemplateCreateInfo const *") VkDescriptorUpdateTemplateCreateInfo pCreateInfo) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            LongBuffer pBuffer = stack.mallocLong(1);
+            result.get()[0] = vkCreateDescriptorUpdateTemplate(device, pCreateInfo, null, pBuffer);
+            return new DeviceHandle(this, pBuffer.get(0));
+        }
+    }
+
+    public void destroyDescriptorUpdateTemplate(DeviceHandle descriptorUpdateTemplate) {
+        vkDestroyDescriptorUpdateTemplate(device, descriptorUpdateTemplate.handle(), null);
+    }
+
+    /**
+     * Writes a descriptor set from packed data laid out as the template describes.
+     *
+     * @param descriptorSet            The descriptor set handle.
+     * @param descriptorUpdateTemplate The update template.
+     * @param pData                    The address of the packed data.
+     */
+    public void updateDescriptorSetWithTemplate(long descriptorSet, @Nonnull DeviceHandle descriptorUpdateTemplate, @NativeType("void const *") long pData) {
+        vkUpdateDescriptorSetWithTemplate(device, descriptorSet, descriptorUpdateTemplate.handle(), pData);
+    }
+
     public DeviceHandle createFramebuffer(@NativeType("VkFramebufferCreateInfo const *") VkFramebufferCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateFramebuffer(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateFramebuffer(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -563,7 +882,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createRenderPass(@NativeType("VkRenderPassCreateInfo const *") VkRenderPassCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateRenderPass(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateRenderPass(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
         }
     }
@@ -579,7 +898,7 @@ public class Device extends LibCleanable {
     public DeviceHandle createCommandPool(@NativeType("VkCommandPoolCreateInfo const *") VkCommandPoolCreateInfo pCreateInfo) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer pBuffer = stack.mallocLong(1);
-            result = vkCreateCommandPool(device, pCreateInfo, null, pBuffer);
+            result.get()[0] = vkCreateCommandPool(device, pCreateInfo, null, pBuffer);
             return new DeviceHandle(this, pBuffer.get(0));
 
         }
@@ -590,11 +909,11 @@ public class Device extends LibCleanable {
     }
 
     public void resetCommandPool(DeviceHandle commandPool, int flags) {
-        result = vkResetCommandPool(device, commandPool.handle(), flags);
+        result.get()[0] = vkResetCommandPool(device, commandPool.handle(), flags);
     }
 
     public void allocateCommandBuffers(@NativeType("VkCommandBufferAllocateInfo const *") VkCommandBufferAllocateInfo pAllocateInfo, @NativeType("VkCommandBuffer *") PointerBuffer pCommandBuffers) {
-        result = vkAllocateCommandBuffers(device, pAllocateInfo, pCommandBuffers);
+        result.get()[0] = vkAllocateCommandBuffers(device, pAllocateInfo, pCommandBuffers);
     }
 
     public void freeCommandBuffers(DeviceHandle commandPool, @NativeType("VkCommandBuffer const *") VkCommandBuffer pCommandBuffers) {
@@ -602,25 +921,210 @@ public class Device extends LibCleanable {
     }
 
     public void waitIdle() {
-        result = vkDeviceWaitIdle(device);
+        result.get()[0] = vkDeviceWaitIdle(device);
     }
 
     public boolean isDebug() {
         return debug;
     }
 
+    /**
+     * Checks whether the physical device supports an extension, whether or not it was enabled.
+     *
+     * @param name The extension name.
+     * @return {@code true} if the extension is supported.
+     */
+    public boolean isExtensionSupported(@Nonnull String name) {
+        return available_extensions.contains(name);
+    }
+
+    /**
+     * Checks whether timeline semaphores were requested and are supported, {@link com.github.vertexvolcani.graphics.vulkan.pipeline.TimelineSemaphore}
+     * can only be created when this is {@code true}.
+     *
+     * @return {@code true} if timeline semaphores are enabled.
+     */
+    public boolean isTimelineSemaphoreEnabled() {
+        return timeline_semaphore_enabled;
+    }
+
+    /**
+     * Checks whether the synchronization2 feature is enabled, which allows {@code vkQueueSubmit2KHR} and the 64 bit
+     * stage and access masks. It is enabled together with dynamic rendering when the device supports it.
+     *
+     * @return {@code true} if synchronization2 is enabled.
+     */
+    public boolean isSynchronization2Enabled() {
+        return synchronization2_enabled;
+    }
+
+    /**
+     * Checks whether {@code VK_EXT_pipeline_creation_feedback} is enabled, which lets pipeline creation report
+     * whether it was served from a {@link com.github.vertexvolcani.graphics.vulkan.pipeline.PipelineCache}.
+     *
+     * @return {@code true} if pipeline creation feedback is enabled.
+     */
+    public boolean isPipelineCreationFeedbackEnabled() {
+        return pipeline_creation_feedback_enabled;
+    }
+
+    /**
+     * Checks whether a dynamic state can be used in pipelines and set on command buffers. The Vulkan 1.0 states are
+     * always available, the extended ones only when {@link DeviceFeaturesToEnabled#extended_dynamic_state} was
+     * requested and the device supports the feature adding them.
+     *
+     * @param dynamic_state The {@code VK_DYNAMIC_STATE_*} value.
+     * @return {@code true} if the dynamic state is available.
+     */
+    public boolean isDynamicStateEnabled(int dynamic_state) {
+        return (dynamic_state >= VK_DYNAMIC_STATE_VIEWPORT && dynamic_state <= VK_DYNAMIC_STATE_STENCIL_REFERENCE)
+                || Arrays.binarySearch(extended_dynamic_states, dynamic_state) >= 0;
+    }
+
+    /**
+     * Checks whether {@code VK_EXT_graphics_pipeline_library} is enabled, which lets graphics pipelines be linked
+     * from separately compiled parts.
+     *
+     * @return {@code true} if graphics pipeline libraries are enabled.
+     */
+    public boolean isGraphicsPipelineLibraryEnabled() {
+        return graphics_pipeline_library_enabled;
+    }
+
+    /**
+     * Checks whether linking pipeline libraries without link time optimization is fast enough to do on the render
+     * thread.
+     *
+     * @return {@code true} if the implementation reports fast linking.
+     */
+    public boolean isGraphicsPipelineLibraryFastLinking() {
+        return graphics_pipeline_library_fast_linking;
+    }
+
+    /**
+     * Checks whether {@code VK_EXT_descriptor_indexing} is enabled with runtime descriptor arrays, partially bound
+     * bindings and update after bind for sampled images and storage buffers, which a
+     * {@link com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.BindlessHeap} needs.
+     *
+     * @return {@code true} if descriptor indexing is enabled.
+     */
+    public boolean isDescriptorIndexingEnabled() {
+        return descriptor_indexing_enabled;
+    }
+
+    public int getMaxBindlessSampledImages() {
+        return max_bindless_sampled_images;
+    }
+
+    public int getMaxBindlessStorageBuffers() {
+        return max_bindless_storage_buffers;
+    }
+
+    /**
+     * Destroys a resource once the GPU has passed the current retirement value. Until a frame or timeline value has
+     * been provided with {@link #setRetirementValue(long)} the device is waited on and the resource is destroyed
+     * immediately.
+     *
+     * @param bytes   The memory the resource holds, used for the pending bytes counter.
+     * @param destroy The callback destroying the resource.
+     */
+    public void retire(long bytes, @Nonnull Runnable destroy) {
+        if (!retirement_queue.isTracking()) {
+            waitIdle();
+            destroy.run();
+            return;
+        }
+        retirement_queue.retire(bytes, destroy);
+    }
+
+    /**
+     * Sets the frame or timeline value the next submission will signal, resources retired from now on are kept alive
+     * until that value completes.
+     *
+     * @param value The retirement value, it must never decrease.
+     */
+    public void setRetirementValue(long value) {
+        retirement_queue.setCurrentValue(value);
+    }
+
+    /**
+     * Destroys every retired resource whose frame or timeline value the GPU has finished.
+     *
+     * @param completed_value The highest value the GPU has completed.
+     * @return The number of resources destroyed.
+     */
+    public int collectRetired(long completed_value) {
+        return retirement_queue.collect(completed_value);
+    }
+
+    /**
+     * Waits for the device and destroys every retired resource.
+     */
+    public void drainRetired() {
+        waitIdle();
+        retirement_queue.drain();
+    }
+
+    public RetirementQueue getRetirementQueue() {
+        return retirement_queue;
+    }
+
     @Override
     protected final void free() {
         waitIdle();
+        retirement_queue.drain();
         properties.free();
         vkDestroyDevice(device, null);
         Log.print(Log.Severity.DEBUG, "Vulkan: device free memory done");
     }
 
+    /**
+     * Gets the properties of the physical device, including the vendor, device and pipeline cache ids.
+     *
+     * @return The physical device properties, owned by the device.
+     */
+    public VkPhysicalDeviceProperties getProperties() {
+        return properties;
+    }
+
     public VkPhysicalDeviceLimits getLimits() {
         return properties.limits();
     }
 
 
-    public record DeviceFeaturesToEnabled(boolean dynamic_rendering) { }
+    private static void addIf(@Nonnull List<Integer> states, boolean supported, int dynamic_state) {
+        if (supported) {
+            states.add(dynamic_state);
+        }
+    }
+
+    /**
+     * The optional device features to enable, each is only enabled if the device supports it.
+     *
+     * @param dynamic_rendering      Enables {@code VK_KHR_dynamic_rendering}.
+     * @param timeline_semaphore     Enables {@code VK_KHR_timeline_semaphore}.
+     * @param extended_dynamic_state Enables {@code VK_EXT_extended_dynamic_state} 1, 2 and 3, check each state with
+     *                               {@link #isDynamicStateEnabled(int)}.
+     * @param graphics_pipeline_library Enables {@code VK_EXT_graphics_pipeline_library}.
+     * @param descriptor_indexing    Enables {@code VK_EXT_descriptor_indexing} for bindless descriptors.
+     */
+    public record DeviceFeaturesToEnabled(boolean dynamic_rendering, boolean timeline_semaphore, boolean extended_dynamic_state,
+                                          boolean graphics_pipeline_library, boolean descriptor_indexing) {
+        public DeviceFeaturesToEnabled(boolean dynamic_rendering) {
+            this(dynamic_rendering, false, false, false, false);
+        }
+
+        public DeviceFeaturesToEnabled(boolean dynamic_rendering, boolean timeline_semaphore) {
+            this(dynamic_rendering, timeline_semaphore, false, false, false);
+        }
+
+        public DeviceFeaturesToEnabled(boolean dynamic_rendering, boolean timeline_semaphore, boolean extended_dynamic_state) {
+            this(dynamic_rendering, timeline_semaphore, extended_dynamic_state, false, false);
+        }
+
+        public DeviceFeaturesToEnabled(boolean dynamic_rendering, boolean timeline_semaphore, boolean extended_dynamic_state,
+                                       boolean graphics_pipeline_library) {
+            this(dynamic_rendering, timeline_semaphore, extended_dynamic_state, graphics_pipeline_library, false);
+        }
+    }
 }
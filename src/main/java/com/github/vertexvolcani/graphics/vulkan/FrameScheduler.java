@@ -0,0 +1,286 @@
+package com.github.vertexvolcani.graphics.vulkan;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.buffer.CommandBuffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.CommandPool;
+import com.github.vertexvolcani.graphics.vulkan.buffer.FrameRingAllocator;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Fence;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Queue;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Semaphore;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.SubmitBatch;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.NativeType;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.vulkan.KHRSwapchain.VK_ERROR_OUT_OF_DATE_KHR;
+import static org.lwjgl.vulkan.KHRSwapchain.VK_SUBOPTIMAL_KHR;
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Drives a render loop with a fixed number of frames in flight so CPU recording of one frame overlaps GPU
+ * execution of the previous ones.
+ * <p>
+ * Each frame owns a fence, an image acquired semaphore, a command pool with one primary command buffer and a slice
+ * of a {@link FrameRingAllocator}. The render complete semaphores belong to the swap chain images instead, as a
+ * present may still wait on one when fewer frames than images are in flight. {@link #beginFrame()} waits only on the fence of the
+ * frame that last used the same slot, acquires a swap chain image and hands back a {@link Frame} ready for
+ * recording; {@link #endFrame()} submits and presents it. The scheduler also drives the device's
+ * {@link RetirementQueue} with the frame number, so resources closed while recording are destroyed once the GPU
+ * has finished every frame that could use them.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class FrameScheduler extends LibCleanable {
+    /**
+     * The frame count used by most renderers, one frame recording while one executes.
+     */
+    public static final int DEFAULT_FRAMES_IN_FLIGHT = 2;
+    private final Device device;
+    private final SwapChain swap_chain;
+    private final Queue queue;
+    private final Frame[] frames;
+    @Nullable
+    private final FrameRingAllocator ring;
+    private final IntBuffer pImageIndex = MemoryUtil.memCallocInt(1);
+    private final SubmitBatch submit_batch;
+    /**
+     * The render complete semaphore of each swap chain image, each in its own array for presenting, grown if a
+     * recreated swap chain has more images.
+     */
+    private Semaphore[][] render_complete = new Semaphore[0][];
+    /**
+     * The number of the frame being recorded, starting at 1 so 0 means nothing has completed.
+     */
+    private long frame_number = 1;
+    @Nullable
+    private Frame current = null;
+
+    /**
+     * Constructs a new FrameScheduler.
+     *
+     * @param device_in          The Vulkan device.
+     * @param swap_chain_in      The swap chain frames are presented to.
+     * @param queue_in           The queue used for submission and presentation.
+     * @param queue_family       The queue family index of {@code queue_in}, used for the per frame command pools.
+     * @param frames_in_flight   The number of frames the CPU may run ahead of the GPU.
+     * @param ring_in            An optional transient allocator with at least {@code frames_in_flight} frames.
+     */
+    public FrameScheduler(@Nonnull Device device_in, @Nonnull SwapChain swap_chain_in, @Nonnull Queue queue_in, int queue_family, int frames_in_flight, @Nullable FrameRingAllocator ring_in) {
+        if (frames_in_flight <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: frame scheduler needs at least one frame in flight");
+            throw new IllegalStateException("frame scheduler needs at least one frame in flight");
+        }
+        if (ring_in != null && ring_in.getFrameCount() < frames_in_flight) {
+            Log.print(Log.Severity.ERROR, "Vulkan: frame ring allocator has fewer frames than the scheduler");
+            throw new IllegalStateException("frame ring allocator has fewer frames than the scheduler");
+        }
+        device = device_in;
+        swap_chain = swap_chain_in;
+        queue = queue_in;
+        ring = ring_in;
+        submit_batch = new SubmitBatch(device, 1, 1, 1);
+        frames = new Frame[frames_in_flight];
+        for (int i = 0; i < frames_in_flight; i++) {
+            frames[i] = new Frame(i, queue_family);
+        }
+        renderComplete(swap_chain.getImages().length - 1);
+        device.setRetirementValue(frame_number);
+        Log.print(Log.Severity.DEBUG, "Vulkan: created frame scheduler with " + frames_in_flight + " frames in flight");
+    }
+
+    /**
+     * Waits for the frame slot to be free, acquires the next swap chain image and begins recording.
+     *
+     * @return The frame to record into, or {@code null} if the swap chain is out of date and must be recreated.
+     */
+    @Nullable
+    public Frame beginFrame() {
+        if (current != null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: beginFrame called twice without endFrame");
+            throw new IllegalStateException("beginFrame called twice without endFrame");
+        }
+        final Frame frame = frames[(int) (frame_number % frames.length)];
+        frame.fence.waitFor();
+        // the slot's fence covers the frame recorded frames.length ago and every frame before it
+        device.collectRetired(frame_number - frames.length);
+        final int result = swap_chain.acquireNextImage(null, frame.image_acquired, pImageIndex);
+        if (result == VK_ERROR_OUT_OF_DATE_KHR) {
+            return null;
+        }
+        if (result != VK_SUCCESS && result != VK_SUBOPTIMAL_KHR) {
+            Log.print(Log.Severity.ERROR, "Vulkan: Failed to acquire swap chain image");
+            throw new IllegalStateException("Failed to acquire swap chain image");
+        }
+        frame.fence.reset();
+        frame.command_pool.reset(0);
+        if (frame.command_buffer.begin(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT) != VK_SUCCESS) {
+            Log.print(Log.Severity.ERROR, "Vulkan: Failed to begin frame command buffer");
+            throw new IllegalStateException("Failed to begin frame command buffer");
+        }
+        if (ring != null) {
+            ring.beginFrame(frame.index);
+        }
+        frame.image_index = pImageIndex.get(0);
+        frame.number = frame_number;
+        current = frame;
+        return frame;
+    }
+
+    /**
+     * Ends recording, submits the frame and presents its swap chain image.
+     *
+     * @return The present result, {@code VK_SUBOPTIMAL_KHR} or {@code VK_ERROR_OUT_OF_DATE_KHR} mean the swap
+     * chain should be recreated.
+     */
+    @NativeType("VkResult")
+    public int endFrame() {
+        final Frame frame = current;
+        if (frame == null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: endFrame called without beginFrame");
+            throw new IllegalStateException("endFrame called without beginFrame");
+        }
+        current = null;
+        if (frame.command_buffer.end() != VK_SUCCESS) {
+            Log.print(Log.Severity.ERROR, "Vulkan: Failed to end frame command buffer");
+            throw new IllegalStateException("Failed to end frame command buffer");
+        }
+        submit_batch.next().waitSemaphore(frame.image_acquired, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT)
+                .commandBuffer(frame.command_buffer).signalSemaphore(renderComplete(frame.image_index)[0]);
+        if (submit_batch.flush(queue, frame.fence) != VK_SUCCESS) {
+            Log.print(Log.Severity.ERROR, "Vulkan: Failed to submit frame");
+            throw new IllegalStateException("Failed to submit frame");
+        }
+        frame_number++;
+        device.setRetirementValue(frame_number);
+        pImageIndex.put(0, frame.image_index);
+        return swap_chain.queuePresent(queue.getQueue(), renderComplete(frame.image_index), pImageIndex);
+    }
+
+    private Semaphore[] renderComplete(int image_index) {
+        if (image_index >= render_complete.length) {
+            final int old_length = render_complete.length;
+            render_complete = Arrays.copyOf(render_complete, image_index + 1);
+            for (int i = old_length; i < render_complete.length; i++) {
+                render_complete[i] = new Semaphore[]{new Semaphore(device)};
+            }
+        }
+        return render_complete[image_index];
+    }
+
+    /**
+     * Waits for every frame in flight, e.g. before recreating the swap chain.
+     */
+    public void waitAll() {
+        for (Frame frame : frames) {
+            frame.fence.waitFor();
+        }
+        device.collectRetired(frame_number - 1);
+    }
+
+    public int getFramesInFlight() {
+        return frames.length;
+    }
+
+    /**
+     * Gets the number of the frame being recorded, frame numbers are also the device's retirement values.
+     *
+     * @return The current frame number.
+     */
+    public long getFrameNumber() {
+        return frame_number;
+    }
+
+    @Nullable
+    public FrameRingAllocator getRing() {
+        return ring;
+    }
+
+    /**
+     * Waits for every frame and cleans up the per frame objects.
+     */
+    @Override
+    protected void free() {
+        waitAll();
+        for (Frame frame : frames) {
+            frame.free();
+        }
+        for (Semaphore[] semaphore : render_complete) {
+            semaphore[0].close();
+        }
+        submit_batch.close();
+        MemoryUtil.memFree(pImageIndex);
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing frame scheduler");
+    }
+
+    /**
+     * The per frame objects handed out by {@link #beginFrame()}.
+     */
+    public final class Frame {
+        private final int index;
+        private final Fence fence;
+        private final Semaphore image_acquired;
+        private final CommandPool command_pool;
+        private final CommandBuffer command_buffer;
+        private int image_index = 0;
+        private long number = 0;
+
+        private Frame(int index_in, int queue_family) {
+            index = index_in;
+            fence = new Fence(device, true);
+            image_acquired = new Semaphore(device);
+            command_pool = new CommandPool(device, queue_family, true);
+            command_buffer = CommandBuffer.createPrimeryCommandBuffer(device, command_pool);
+        }
+
+        /**
+         * Gets the frame slot, in the range {@code [0, getFramesInFlight())}, use it to index per frame resources.
+         *
+         * @return The frame slot index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the swap chain image acquired for this frame.
+         *
+         * @return The swap chain image index.
+         */
+        public int getImageIndex() {
+            return image_index;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        public CommandBuffer getCommandBuffer() {
+            return command_buffer;
+        }
+
+        public Fence getFence() {
+            return fence;
+        }
+
+        private void free() {
+            command_buffer.close();
+            command_pool.close();
+            image_acquired.close();
+            fence.close();
+        }
+    }
+}
@@ -5,8 +5,10 @@ package com.github.vertexvolcani.graphics.vulkan;
  *
  * Copyright Luke Shore (c) 2023, 2024
  */
+import com.github.vertexvolcani.util.CloseListeners;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
@@ -54,6 +56,10 @@ public class Image extends LibCleanable {
      * stores the data object count;
      */
     private final long size;
+    /**
+     * The callbacks run when the image is closed.
+     */
+    private final CloseListeners close_listeners = new CloseListeners();
 
     /**
      * Constructs a new Image instance.
@@ -229,6 +235,15 @@ public class Image extends LibCleanable {
         return handle.handle();
     }
 
+    /**
+     * returns the image handle paired with its device
+     *
+     * @return VkImage handle of the vulkan object
+     */
+    public DeviceHandle getImageHandle() {
+        return handle;
+    }
+
     /**
      * returns the image view handle
      *
@@ -238,16 +253,31 @@ public class Image extends LibCleanable {
         return view;
     }
 
+    /**
+     * Adds a callback run when the image is closed, before it is retired.
+     *
+     * @param listener The callback.
+     */
+    public void addCloseListener(@Nonnull Runnable listener) {
+        close_listeners.add(listener);
+    }
+
+    public void removeCloseListener(@Nonnull Runnable listener) {
+        close_listeners.remove(listener);
+    }
+
     /**
      * Cleans up resources associated with the image.
      */
     @Override
     public final void free() {
-        handle.device().waitIdle();
-        handle.device().destroyImageView(view);
-        if (allocation != VK_NULL_HANDLE && owned) {
-            vmaDestroyImage(allocator.getVmaAllocator(), handle.handle(), allocation);
-        }
+        close_listeners.fire();
+        handle.device().retire(owned ? size : 0, () -> {
+            handle.device().destroyImageView(view);
+            if (allocation != VK_NULL_HANDLE && owned) {
+                vmaDestroyImage(allocator.getVmaAllocator(), handle.handle(), allocation);
+            }
+        });
     }
 
     /**
@@ -0,0 +1,129 @@
+package com.github.vertexvolcani.graphics.vulkan;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+
+import java.util.ArrayDeque;
+
+/**
+ * A queue of destroy callbacks that only run once the GPU has finished with the resources they destroy.
+ * <p>
+ * Every retired resource is tagged with the current retirement value, the frame number or timeline semaphore value
+ * that the next submission will signal. {@link #collect(long)} runs every callback whose value the GPU has passed,
+ * in the order the resources were retired, so freeing a resource mid session never stalls the device.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class RetirementQueue {
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    /**
+     * The value new retirements are tagged with.
+     */
+    private long current_value = 0;
+    /**
+     * The last value reported complete by {@link #collect(long)}.
+     */
+    private long completed_value = 0;
+    /**
+     * set once a frame or timeline value has been provided, until then retirement is immediate.
+     */
+    private boolean tracking = false;
+    private long pending_bytes = 0;
+
+    /**
+     * Queues a destroy callback tagged with the current retirement value.
+     *
+     * @param bytes   The memory the resource holds, used for the pending bytes counter.
+     * @param destroy The callback destroying the resource.
+     */
+    public synchronized void retire(long bytes, @Nonnull Runnable destroy) {
+        pending.addLast(new Entry(current_value, bytes, destroy));
+        pending_bytes += bytes;
+    }
+
+    /**
+     * Sets the value retired resources are tagged with, normally the frame or timeline value the next submission
+     * signals. The first call enables tracking.
+     *
+     * @param value The retirement value, it must never decrease.
+     */
+    public synchronized void setCurrentValue(long value) {
+        tracking = true;
+        current_value = value;
+    }
+
+    /**
+     * Destroys every resource whose retirement value the GPU has completed.
+     *
+     * @param completed The highest frame or timeline value the GPU has finished.
+     * @return The number of resources destroyed.
+     */
+    public synchronized int collect(long completed) {
+        completed_value = Math.max(completed_value, completed);
+        int count = 0;
+        while (!pending.isEmpty() && pending.peekFirst().value() <= completed_value) {
+            release(pending.pollFirst());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Destroys every pending resource regardless of its value, the caller must make sure the device is idle.
+     */
+    public synchronized void drain() {
+        if (!pending.isEmpty()) {
+            Log.print(Log.Severity.DEBUG, "Vulkan: draining " + pending.size() + " retired resources holding " + pending_bytes + " bytes");
+        }
+        while (!pending.isEmpty()) {
+            release(pending.pollFirst());
+        }
+    }
+
+    public synchronized boolean isTracking() {
+        return tracking;
+    }
+
+    public synchronized long getCurrentValue() {
+        return current_value;
+    }
+
+    public synchronized long getCompletedValue() {
+        return completed_value;
+    }
+
+    /**
+     * Gets the memory held by resources waiting for the GPU.
+     *
+     * @return The pending size in bytes.
+     */
+    public synchronized long getPendingBytes() {
+        return pending_bytes;
+    }
+
+    /**
+     * Gets the number of resources waiting for the GPU.
+     *
+     * @return The pending handle count.
+     */
+    public synchronized int getPendingHandles() {
+        return pending.size();
+    }
+
+    private void release(Entry entry) {
+        pending_bytes -= entry.bytes();
+        entry.destroy().run();
+    }
+
+    private record Entry(long value, long bytes, Runnable destroy) {
+    }
+}
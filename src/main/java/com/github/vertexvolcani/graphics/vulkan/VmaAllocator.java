@@ -47,6 +47,8 @@ public class VmaAllocator extends LibCleanable {
 
     @Override
     public final void free() {
+        // retired buffers and images still reference this allocator
+        handle.device().drainRetired();
         vmaDestroyAllocator(handle.handle());
         Log.print(Log.Severity.DEBUG,"Vulkan: done freeing vma allocator");
     }
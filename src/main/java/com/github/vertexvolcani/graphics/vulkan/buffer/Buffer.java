@@ -7,21 +7,24 @@ package com.github.vertexvolcani.graphics.vulkan.buffer;
  */
 import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
 import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.util.CloseListeners;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.system.NativeType;
 import org.lwjgl.util.vma.VmaAllocationCreateInfo;
+import org.lwjgl.util.vma.VmaAllocationInfo;
 import org.lwjgl.vulkan.VkBufferCreateInfo;
-import org.lwjgl.vulkan.VkMemoryRequirements;
 
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
+import static org.lwjgl.system.MemoryUtil.NULL;
 import static org.lwjgl.util.vma.Vma.*;
 import static org.lwjgl.vulkan.VK10.*;
 /**
@@ -49,9 +52,21 @@ public class Buffer extends LibCleanable {
      *  stores the data object count;
      */
     private final long size;
+    /**
+     * The size of the memory allocation backing the buffer, cached at creation.
+     */
+    private final long memory_size;
+    /**
+     * The host address of the persistently mapped memory, or {@code NULL} if the buffer is mapped on demand.
+     */
+    private final long mapped_address;
+    /**
+     * The callbacks run when the buffer is closed.
+     */
+    private final CloseListeners close_listeners = new CloseListeners();
 
     /**
-     * Constructs a new ABuffer instance.
+     * Constructs a new Buffer, mapped on demand.
      * @param allocator_in The Vulkan Memory Allocator.
      * @param size_in         The size of the buffer.
      * @param sharing_mode        The sharing mode.
@@ -59,6 +74,19 @@ public class Buffer extends LibCleanable {
      * @param vma_usage    The vma usage flags.
      */
     public Buffer(VmaAllocator allocator_in, @NativeType("VkDeviceSize") long size_in, boolean sharing_mode, @NativeType("VkBufferUsageFlags") int usage, @NativeType("VmaMemoryUsage") int vma_usage) {
+        this(allocator_in, size_in, sharing_mode, usage, vma_usage, false);
+    }
+
+    /**
+     * Constructs a new Buffer that can stay persistently mapped.
+     * @param allocator_in      The Vulkan Memory Allocator.
+     * @param size_in           The size of the buffer.
+     * @param sharing_mode      The sharing mode.
+     * @param usage             The buffer usage flags.
+     * @param vma_usage         The vma usage flags.
+     * @param persistent_mapped should the buffer stay mapped for its whole lifetime, the memory must be host visible.
+     */
+    public Buffer(VmaAllocator allocator_in, @NativeType("VkDeviceSize") long size_in, boolean sharing_mode, @NativeType("VkBufferUsageFlags") int usage, @NativeType("VmaMemoryUsage") int vma_usage, boolean persistent_mapped) {
         allocator = allocator_in;
         size = size_in;
         try (MemoryStack stack = MemoryStack.stackPush()) {
@@ -71,64 +99,146 @@ public class Buffer extends LibCleanable {
 
             VmaAllocationCreateInfo allocation_create_info = VmaAllocationCreateInfo.calloc(stack);
             allocation_create_info.usage(vma_usage);
+            if (persistent_mapped) {
+                allocation_create_info.flags(VMA_ALLOCATION_CREATE_MAPPED_BIT | VMA_ALLOCATION_CREATE_HOST_ACCESS_SEQUENTIAL_WRITE_BIT);
+            }
+            VmaAllocationInfo allocation_info = VmaAllocationInfo.calloc(stack);
 
-            if (vmaCreateBuffer(allocator.getVmaAllocator(), buffer_create_info, allocation_create_info, pBuffer, pAllocation, null) != VK_SUCCESS) {
+            if (vmaCreateBuffer(allocator.getVmaAllocator(), buffer_create_info, allocation_create_info, pBuffer, pAllocation, allocation_info) != VK_SUCCESS) {
                 Log.print(Log.Severity.ERROR, "Vulkan: Failed to create Vulkan buffer with VMA.");
                 throw new RuntimeException("Failed to create Vulkan buffer with VMA.");
             }
             handle = new DeviceHandle(allocator.getDev(),pBuffer.get(0));
             allocation = pAllocation.get(0);
+            memory_size = allocation_info.size();
+            mapped_address = persistent_mapped ? allocation_info.pMappedData() : NULL;
+            if (persistent_mapped && mapped_address == NULL) {
+                vmaDestroyBuffer(allocator.getVmaAllocator(), handle.handle(), allocation);
+                Log.print(Log.Severity.ERROR, "Vulkan: persistently mapped buffer requires host visible memory");
+                throw new IllegalStateException("persistently mapped buffer requires host visible memory");
+            }
         }
-        Log.print(Log.Severity.DEBUG, "Vulkan: Created buffer with VMA. Buffer size: " + size_in + " bytes");
+        Log.print(Log.Severity.DEBUG, "Vulkan: Created buffer with VMA. Buffer size: " + size_in + " bytes" + (persistent_mapped ? " (persistently mapped)" : ""));
     }
 
     /**
      * Maps the buffer memory into the application's address space.
      *
-     * @return A mapped ByteBuffer.
+     * @return The host address of the mapped memory.
      */
-    private ByteBuffer map() {
-            PointerBuffer ppData = MemoryUtil.memCallocPointer(1);
-            vmaMapMemory(allocator.getVmaAllocator(), allocation, ppData);
-            ByteBuffer buffer = ppData.getByteBuffer(0, (int) getMemorySize());
-            MemoryUtil.memFree(ppData);
-            return buffer;
+    private long map() {
+        if (mapped_address != NULL) {
+            return mapped_address;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer ppData = stack.mallocPointer(1);
+            if (vmaMapMemory(allocator.getVmaAllocator(), allocation, ppData) != VK_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "Vulkan: Failed to map buffer memory");
+                throw new IllegalStateException("Failed to map buffer memory");
+            }
+            return ppData.get(0);
+        }
     }
+
+    /**
+     * Unmaps the buffer memory, persistently mapped buffers stay mapped until they are freed.
+     */
+    private void unmap() {
+        if (mapped_address == NULL) {
+            vmaUnmapMemory(allocator.getVmaAllocator(), allocation);
+        }
+    }
+
     /**
      * transfer data to buffer
      * @param src this is the pointer to the data to be copied
      */
     public Buffer write(ByteBuffer src) {
-        final var buffer = map();
-        MemoryUtil.memCopy(MemoryUtil.memAddress(src),MemoryUtil.memAddress(buffer),src.remaining());
-        unmap();
-        return this;
+        return write(0, MemoryUtil.memAddress(src), src.remaining());
     }
     /**
      * transfer data to buffer
      * @param src this is the pointer to the data to be copied
      */
     public Buffer write(FloatBuffer src) {
-        final var buffer = map();
-        MemoryUtil.memCopy(MemoryUtil.memAddress(src),MemoryUtil.memAddress(buffer), (long) src.remaining() * Float.BYTES);
-        unmap();
-        return this;
+        return write(0, MemoryUtil.memAddress(src), (long) src.remaining() * Float.BYTES);
     }
     /**
      * transfer data to buffer
      * @param src this is the pointer to the data to be copied
      */
     public Buffer write(IntBuffer src) {
-        final var buffer = map();
-        MemoryUtil.memCopy(MemoryUtil.memAddress(src),MemoryUtil.memAddress(buffer), (long) src.remaining() * Integer.BYTES);
+        return write(0, MemoryUtil.memAddress(src), (long) src.remaining() * Integer.BYTES);
+    }
+    /**
+     * transfer data to buffer at a byte offset
+     * @param offset the byte offset into the buffer to start writing at
+     * @param src this is the pointer to the data to be copied
+     */
+    public Buffer write(@NativeType("VkDeviceSize") long offset, ByteBuffer src) {
+        return write(offset, MemoryUtil.memAddress(src), src.remaining());
+    }
+    /**
+     * transfer data to buffer at a byte offset
+     * @param offset the byte offset into the buffer to start writing at
+     * @param src this is the pointer to the data to be copied
+     */
+    public Buffer write(@NativeType("VkDeviceSize") long offset, FloatBuffer src) {
+        return write(offset, MemoryUtil.memAddress(src), (long) src.remaining() * Float.BYTES);
+    }
+    /**
+     * transfer data to buffer at a byte offset
+     * @param offset the byte offset into the buffer to start writing at
+     * @param src this is the pointer to the data to be copied
+     */
+    public Buffer write(@NativeType("VkDeviceSize") long offset, IntBuffer src) {
+        return write(offset, MemoryUtil.memAddress(src), (long) src.remaining() * Integer.BYTES);
+    }
+    /**
+     * transfer raw memory to buffer at a byte offset
+     * @param offset      the byte offset into the buffer to start writing at
+     * @param src_address the host address of the data to be copied
+     * @param bytes       the number of bytes to copy
+     */
+    public Buffer write(@NativeType("VkDeviceSize") long offset, long src_address, long bytes) {
+        if (offset < 0 || bytes < 0 || offset + bytes > size) {
+            Log.print(Log.Severity.ERROR, "Vulkan: buffer write of " + bytes + " bytes at offset " + offset + " is out of range");
+            throw new IllegalStateException("buffer write is out of range");
+        }
+        final long address = map();
+        MemoryUtil.memCopy(src_address, address + offset, bytes);
+        flush(offset, bytes);
         unmap();
         return this;
     }
+
     /**
-     * Unmaps the buffer memory.
+     * Flushes a range of host writes so they are visible to the device, this is a no-op for host coherent memory.
+     *
+     * @param offset the byte offset of the range to flush
+     * @param bytes  the size of the range to flush
      */
-    private void unmap() {
-        vmaUnmapMemory(allocator.getVmaAllocator(), allocation);
+    public void flush(@NativeType("VkDeviceSize") long offset, @NativeType("VkDeviceSize") long bytes) {
+        vmaFlushAllocation(allocator.getVmaAllocator(), allocation, offset, bytes);
+    }
+
+    /**
+     * Gets the host address of the persistently mapped memory.
+     * The address stays valid until the buffer is freed.
+     *
+     * @return The mapped address, or {@code NULL} if the buffer is not persistently mapped.
+     */
+    public long getMappedAddress() {
+        return mapped_address;
+    }
+
+    /**
+     * Checks if the buffer was created persistently mapped.
+     *
+     * @return {@code true} if the buffer memory stays mapped for the buffer lifetime.
+     */
+    public boolean isPersistentlyMapped() {
+        return mapped_address != NULL;
     }
 
     /**
@@ -137,11 +247,7 @@ public class Buffer extends LibCleanable {
      * @return The size of the buffer memory.
      */
     protected long getMemorySize() {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            VkMemoryRequirements memory_requirements = VkMemoryRequirements.calloc(stack);
-            handle.device().getBufferMemoryRequirements(handle, memory_requirements);
-            return memory_requirements.size();
-        }
+        return memory_size;
     }
 
     /**
@@ -160,13 +266,29 @@ public class Buffer extends LibCleanable {
     public DeviceHandle getBuffer() {
         return handle;
     }
+
+    /**
+     * Adds a callback run when the buffer is closed, before it is retired.
+     *
+     * @param listener The callback.
+     */
+    public void addCloseListener(@Nonnull Runnable listener) {
+        close_listeners.add(listener);
+    }
+
+    public void removeCloseListener(@Nonnull Runnable listener) {
+        close_listeners.remove(listener);
+    }
+
     /**
      * Cleans up resources associated with the buffer.
      */
     @Override
     public final void free() {
-        handle.device().waitIdle();
-        vmaDestroyBuffer(allocator.getVmaAllocator(), handle.handle(), allocation);
-        Log.print(Log.Severity.DEBUG, "Vulkan: Done freeing buffer");
+        close_listeners.fire();
+        handle.device().retire(memory_size, () -> {
+            vmaDestroyBuffer(allocator.getVmaAllocator(), handle.handle(), allocation);
+            Log.print(Log.Severity.DEBUG, "Vulkan: Done freeing buffer");
+        });
     }
 }
\ No newline at end of file
@@ -27,6 +27,9 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
+import static org.lwjgl.vulkan.EXTExtendedDynamicState.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState2.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState3.*;
 import static org.lwjgl.vulkan.KHRDynamicRendering.*;
 import static org.lwjgl.vulkan.VK10.*;
 
@@ -256,7 +259,7 @@ public final class CommandBuffer extends LibCleanable {
      * @param depthBiasSlopeFactor    The slope factor of the depth bias.
      */
     public void setDepthBias(float depthBiasConstantFactor, float depthBiasClamp, float depthBiasSlopeFactor) {
-        vkCmdSetDepthBias(handle, depthBiasConstantFactor, depthBiasClamp, depthBiasConstantFactor);
+        vkCmdSetDepthBias(handle, depthBiasConstantFactor, depthBiasClamp, depthBiasSlopeFactor);
     }
 
     /**
@@ -308,6 +311,158 @@ public final class CommandBuffer extends LibCleanable {
         vkCmdSetStencilReference(handle, faceMask, reference);
     }
 
+    /**
+     * Sets the cull mode dynamically, needs {@code VK_DYNAMIC_STATE_CULL_MODE_EXT}.
+     *
+     * @param cullMode The triangle facing directions to discard.
+     */
+    public void setCullMode(@NativeType("VkCullModeFlags") int cullMode) {
+        vkCmdSetCullModeEXT(handle, cullMode);
+    }
+
+    /**
+     * Sets the front face dynamically, needs {@code VK_DYNAMIC_STATE_FRONT_FACE_EXT}.
+     *
+     * @param frontFace The winding order of front facing triangles.
+     */
+    public void setFrontFace(@NativeType("VkFrontFace") int frontFace) {
+        vkCmdSetFrontFaceEXT(handle, frontFace);
+    }
+
+    /**
+     * Sets the primitive topology dynamically, needs {@code VK_DYNAMIC_STATE_PRIMITIVE_TOPOLOGY_EXT}. The topology must
+     * be of the same class (points, lines, triangles or patches) as the pipeline's.
+     *
+     * @param primitiveTopology The primitive topology.
+     */
+    public void setPrimitiveTopology(@NativeType("VkPrimitiveTopology") int primitiveTopology) {
+        vkCmdSetPrimitiveTopologyEXT(handle, primitiveTopology);
+    }
+
+    /**
+     * Sets whether depth testing is enabled dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_TEST_ENABLE_EXT}.
+     *
+     * @param depthTestEnable {@code true} to enable depth testing.
+     */
+    public void setDepthTestEnable(boolean depthTestEnable) {
+        vkCmdSetDepthTestEnableEXT(handle, depthTestEnable);
+    }
+
+    /**
+     * Sets whether depth writes are enabled dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_WRITE_ENABLE_EXT}.
+     *
+     * @param depthWriteEnable {@code true} to enable depth writes.
+     */
+    public void setDepthWriteEnable(boolean depthWriteEnable) {
+        vkCmdSetDepthWriteEnableEXT(handle, depthWriteEnable);
+    }
+
+    /**
+     * Sets the depth compare operation dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_COMPARE_OP_EXT}.
+     *
+     * @param depthCompareOp The depth comparison operator.
+     */
+    public void setDepthCompareOp(@NativeType("VkCompareOp") int depthCompareOp) {
+        vkCmdSetDepthCompareOpEXT(handle, depthCompareOp);
+    }
+
+    /**
+     * Sets whether the depth bounds test is enabled dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_BOUNDS_TEST_ENABLE_EXT}.
+     *
+     * @param depthBoundsTestEnable {@code true} to enable the depth bounds test.
+     */
+    public void setDepthBoundsTestEnable(boolean depthBoundsTestEnable) {
+        vkCmdSetDepthBoundsTestEnableEXT(handle, depthBoundsTestEnable);
+    }
+
+    /**
+     * Sets whether stencil testing is enabled dynamically, needs {@code VK_DYNAMIC_STATE_STENCIL_TEST_ENABLE_EXT}.
+     *
+     * @param stencilTestEnable {@code true} to enable stencil testing.
+     */
+    public void setStencilTestEnable(boolean stencilTestEnable) {
+        vkCmdSetStencilTestEnableEXT(handle, stencilTestEnable);
+    }
+
+    /**
+     * Sets the stencil operations dynamically, needs {@code VK_DYNAMIC_STATE_STENCIL_OP_EXT}.
+     *
+     * @param faceMask    The faces to update.
+     * @param failOp      The action on samples that fail the stencil test.
+     * @param passOp      The action on samples that pass both the depth and stencil tests.
+     * @param depthFailOp The action on samples that pass the stencil test and fail the depth test.
+     * @param compareOp   The stencil comparison operator.
+     */
+    public void setStencilOp(@NativeType("VkStencilFaceFlags") int faceMask, @NativeType("VkStencilOp") int failOp, @NativeType("VkStencilOp") int passOp,
+                             @NativeType("VkStencilOp") int depthFailOp, @NativeType("VkCompareOp") int compareOp) {
+        vkCmdSetStencilOpEXT(handle, faceMask, failOp, passOp, depthFailOp, compareOp);
+    }
+
+    /**
+     * Sets whether depth bias is enabled dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_BIAS_ENABLE_EXT}.
+     *
+     * @param depthBiasEnable {@code true} to enable depth bias.
+     */
+    public void setDepthBiasEnable(boolean depthBiasEnable) {
+        vkCmdSetDepthBiasEnableEXT(handle, depthBiasEnable);
+    }
+
+    /**
+     * Sets whether primitive restart is enabled dynamically, needs {@code VK_DYNAMIC_STATE_PRIMITIVE_RESTART_ENABLE_EXT}.
+     *
+     * @param primitiveRestartEnable {@code true} to enable primitive restart.
+     */
+    public void setPrimitiveRestartEnable(boolean primitiveRestartEnable) {
+        vkCmdSetPrimitiveRestartEnableEXT(handle, primitiveRestartEnable);
+    }
+
+    /**
+     * Sets whether rasterization is discarded dynamically, needs {@code VK_DYNAMIC_STATE_RASTERIZER_DISCARD_ENABLE_EXT}.
+     *
+     * @param rasterizerDiscardEnable {@code true} to discard primitives before rasterization.
+     */
+    public void setRasterizerDiscardEnable(boolean rasterizerDiscardEnable) {
+        vkCmdSetRasterizerDiscardEnableEXT(handle, rasterizerDiscardEnable);
+    }
+
+    /**
+     * Sets the polygon mode dynamically, needs {@code VK_DYNAMIC_STATE_POLYGON_MODE_EXT}.
+     *
+     * @param polygonMode The polygon rasterization mode.
+     */
+    public void setPolygonMode(@NativeType("VkPolygonMode") int polygonMode) {
+        vkCmdSetPolygonModeEXT(handle, polygonMode);
+    }
+
+    /**
+     * Sets whether depth clamping is enabled dynamically, needs {@code VK_DYNAMIC_STATE_DEPTH_CLAMP_ENABLE_EXT}.
+     *
+     * @param depthClampEnable {@code true} to clamp depth instead of clipping.
+     */
+    public void setDepthClampEnable(boolean depthClampEnable) {
+        vkCmdSetDepthClampEnableEXT(handle, depthClampEnable);
+    }
+
+    /**
+     * Sets whether blending is enabled per attachment dynamically, needs {@code VK_DYNAMIC_STATE_COLOR_BLEND_ENABLE_EXT}.
+     *
+     * @param firstAttachment   The first attachment to update.
+     * @param pColorBlendEnables One {@code VkBool32} per attachment.
+     */
+    public void setColourBlendEnable(@NativeType("uint32_t") int firstAttachment, @NativeType("VkBool32 const *") IntBuffer pColorBlendEnables) {
+        vkCmdSetColorBlendEnableEXT(handle, firstAttachment, pColorBlendEnables);
+    }
+
+    /**
+     * Sets the colour write mask per attachment dynamically, needs {@code VK_DYNAMIC_STATE_COLOR_WRITE_MASK_EXT}.
+     *
+     * @param firstAttachment  The first attachment to update.
+     * @param pColorWriteMasks One write mask per attachment.
+     */
+    public void setColourWriteMask(@NativeType("uint32_t") int firstAttachment, @NativeType("VkColorComponentFlags const *") IntBuffer pColorWriteMasks) {
+        vkCmdSetColorWriteMaskEXT(handle, firstAttachment, pColorWriteMasks);
+    }
+
     /**
      * Binds descriptor sets to a command buffer.
      *
@@ -615,6 +770,29 @@ public final class CommandBuffer extends LibCleanable {
         vkCmdPipelineBarrier(handle, srcStageMask, dstStageMask, dependencyFlags, pMemoryBarriers, pBufferMemoryBarriers, pImageMemoryBarriers);
     }
 
+    /**
+     * Records one barrier covering the whole of several buffers, e.g. between a compute dispatch writing them and the
+     * dispatch or draw reading them.
+     *
+     * @param buffers    The buffers written before the barrier.
+     * @param src_access The accesses made before the barrier, e.g. {@code VK_ACCESS_SHADER_WRITE_BIT}.
+     * @param src_stage  The stages those accesses happen in.
+     * @param dst_access The accesses made after the barrier.
+     * @param dst_stage  The stages those accesses happen in.
+     */
+    public void bufferBarrier(@Nonnull Buffer[] buffers, @NativeType("VkAccessFlags") int src_access, @NativeType("VkPipelineStageFlags") int src_stage,
+                              @NativeType("VkAccessFlags") int dst_access, @NativeType("VkPipelineStageFlags") int dst_stage) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferMemoryBarrier.Buffer barriers = VkBufferMemoryBarrier.calloc(buffers.length, stack);
+            for (int i = 0; i < buffers.length; i++) {
+                barriers.get(i).sType$Default().srcAccessMask(src_access).dstAccessMask(dst_access)
+                        .srcQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED).dstQueueFamilyIndex(VK_QUEUE_FAMILY_IGNORED)
+                        .buffer(buffers[i].getBuffer().handle()).offset(0).size(VK_WHOLE_SIZE);
+            }
+            vkCmdPipelineBarrier(handle, src_stage, dst_stage, 0, null, barriers, null);
+        }
+    }
+
     public void insertImageMemoryBarrier(Image image,
                                          int srcAccessMask,
                                          int dstAccessMask,
@@ -648,6 +826,116 @@ public final class CommandBuffer extends LibCleanable {
         }
     }
 
+    /**
+     * Records the release half of a queue family ownership transfer of a buffer range, on the source queue.
+     * The matching {@link #acquireBufferOwnership} must be recorded on the destination queue after a semaphore wait.
+     * When both families are the same no transfer is needed and a regular barrier making the writes visible to all
+     * later commands is recorded instead.
+     *
+     * @param buffer     The buffer being handed over.
+     * @param offset     The byte offset of the range.
+     * @param size       The size of the range, or {@code VK_WHOLE_SIZE}.
+     * @param src_family The queue family releasing the buffer.
+     * @param dst_family The queue family acquiring the buffer.
+     * @param src_access The accesses made on the source queue, e.g. {@code VK_ACCESS_TRANSFER_WRITE_BIT}.
+     * @param src_stage  The stages those accesses happen in.
+     */
+    public void releaseBufferOwnership(@Nonnull Buffer buffer, @NativeType("VkDeviceSize") long offset, @NativeType("VkDeviceSize") long size, int src_family, int dst_family,
+                                       @NativeType("VkAccessFlags") int src_access, @NativeType("VkPipelineStageFlags") int src_stage) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final boolean same = src_family == dst_family;
+            VkBufferMemoryBarrier.Buffer barrier = VkBufferMemoryBarrier.calloc(1, stack).sType$Default()
+                    .srcAccessMask(src_access).dstAccessMask(same ? VK_ACCESS_MEMORY_READ_BIT | VK_ACCESS_MEMORY_WRITE_BIT : 0)
+                    .srcQueueFamilyIndex(same ? VK_QUEUE_FAMILY_IGNORED : src_family)
+                    .dstQueueFamilyIndex(same ? VK_QUEUE_FAMILY_IGNORED : dst_family)
+                    .buffer(buffer.getBuffer().handle()).offset(offset).size(size);
+            vkCmdPipelineBarrier(handle, src_stage, same ? VK_PIPELINE_STAGE_ALL_COMMANDS_BIT : VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT, 0, null, barrier, null);
+        }
+    }
+
+    /**
+     * Records the acquire half of a queue family ownership transfer of a buffer range, on the destination queue.
+     * Does nothing when both families are the same, as the release already recorded a full barrier.
+     *
+     * @param buffer     The buffer being handed over.
+     * @param offset     The byte offset of the range, matching the release.
+     * @param size       The size of the range, matching the release.
+     * @param src_family The queue family releasing the buffer.
+     * @param dst_family The queue family acquiring the buffer.
+     * @param dst_access The accesses made on the destination queue, e.g. {@code VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT}.
+     * @param dst_stage  The stages those accesses happen in.
+     */
+    public void acquireBufferOwnership(@Nonnull Buffer buffer, @NativeType("VkDeviceSize") long offset, @NativeType("VkDeviceSize") long size, int src_family, int dst_family,
+                                       @NativeType("VkAccessFlags") int dst_access, @NativeType("VkPipelineStageFlags") int dst_stage) {
+        if (src_family == dst_family) {
+            return;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferMemoryBarrier.Buffer barrier = VkBufferMemoryBarrier.calloc(1, stack).sType$Default()
+                    .srcAccessMask(0).dstAccessMask(dst_access)
+                    .srcQueueFamilyIndex(src_family).dstQueueFamilyIndex(dst_family)
+                    .buffer(buffer.getBuffer().handle()).offset(offset).size(size);
+            vkCmdPipelineBarrier(handle, VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT, dst_stage, 0, null, barrier, null);
+        }
+    }
+
+    /**
+     * Records the release half of a queue family ownership transfer of an image, on the source queue. The layout
+     * transition happens once, and must be given identically to {@link #acquireImageOwnership}.
+     * When both families are the same a regular transition making the writes visible to all later commands is
+     * recorded instead.
+     *
+     * @param image      The image being handed over.
+     * @param old_layout The layout the image is in on the source queue.
+     * @param new_layout The layout the image is used in on the destination queue.
+     * @param src_family The queue family releasing the image.
+     * @param dst_family The queue family acquiring the image.
+     * @param src_access The accesses made on the source queue.
+     * @param src_stage  The stages those accesses happen in.
+     * @param range      The sub resource range being handed over.
+     */
+    public void releaseImageOwnership(@Nonnull Image image, @NativeType("VkImageLayout") int old_layout, @NativeType("VkImageLayout") int new_layout, int src_family, int dst_family,
+                                      @NativeType("VkAccessFlags") int src_access, @NativeType("VkPipelineStageFlags") int src_stage, @Nonnull ImageSubResourceRange range) {
+        final boolean same = src_family == dst_family;
+        imageOwnershipBarrier(image, old_layout, new_layout, same ? VK_QUEUE_FAMILY_IGNORED : src_family, same ? VK_QUEUE_FAMILY_IGNORED : dst_family,
+                src_access, same ? VK_ACCESS_MEMORY_READ_BIT | VK_ACCESS_MEMORY_WRITE_BIT : 0, src_stage,
+                same ? VK_PIPELINE_STAGE_ALL_COMMANDS_BIT : VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT, range);
+    }
+
+    /**
+     * Records the acquire half of a queue family ownership transfer of an image, on the destination queue.
+     * Does nothing when both families are the same, as the release already recorded the transition.
+     *
+     * @param image      The image being handed over.
+     * @param old_layout The layout given to the release.
+     * @param new_layout The layout given to the release.
+     * @param src_family The queue family releasing the image.
+     * @param dst_family The queue family acquiring the image.
+     * @param dst_access The accesses made on the destination queue.
+     * @param dst_stage  The stages those accesses happen in.
+     * @param range      The sub resource range being handed over.
+     */
+    public void acquireImageOwnership(@Nonnull Image image, @NativeType("VkImageLayout") int old_layout, @NativeType("VkImageLayout") int new_layout, int src_family, int dst_family,
+                                      @NativeType("VkAccessFlags") int dst_access, @NativeType("VkPipelineStageFlags") int dst_stage, @Nonnull ImageSubResourceRange range) {
+        if (src_family == dst_family) {
+            return;
+        }
+        imageOwnershipBarrier(image, old_layout, new_layout, src_family, dst_family, 0, dst_access, VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT, dst_stage, range);
+    }
+
+    private void imageOwnershipBarrier(Image image, int old_layout, int new_layout, int src_family, int dst_family, int src_access, int dst_access, int src_stage, int dst_stage, ImageSubResourceRange range) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkImageMemoryBarrier.Buffer barrier = VkImageMemoryBarrier.calloc(1, stack).sType$Default()
+                    .srcAccessMask(src_access).dstAccessMask(dst_access)
+                    .oldLayout(old_layout).newLayout(new_layout)
+                    .srcQueueFamilyIndex(src_family).dstQueueFamilyIndex(dst_family)
+                    .image(image.getImage());
+            barrier.subresourceRange().aspectMask(range.aspectMask()).baseMipLevel(range.baseMipLevel()).levelCount(range.levelCount())
+                    .baseArrayLayer(range.baseArrayLayer()).layerCount(range.layerCount());
+            vkCmdPipelineBarrier(handle, src_stage, dst_stage, 0, null, null, barrier);
+        }
+    }
+
     /**
      * Begins a query in the command buffer.
      *
@@ -718,6 +1006,18 @@ public final class CommandBuffer extends LibCleanable {
         vkCmdPushConstants(handle, layout.getLayout().handle(), stage.getValue(), offset, pValues);
     }
 
+    /**
+     * Pushes constants of any layout to the command buffer.
+     *
+     * @param layout  The pipeline layout.
+     * @param stage   The shader stage flags.
+     * @param offset  The offset within the push constant range.
+     * @param pValues The values to push.
+     */
+    public void pushConstants(@Nonnull PipelineLayout layout, ShaderType stage, int offset, @Nonnull ByteBuffer pValues) {
+        vkCmdPushConstants(handle, layout.getLayout().handle(), stage.getValue(), offset, pValues);
+    }
+
     /**
      * Advances to the next subpass in the current render pass.
      *
@@ -787,8 +1087,9 @@ public final class CommandBuffer extends LibCleanable {
      */
     @Override
     protected final void free() {
-        device.waitIdle();
-        device.freeCommandBuffers(command_pool.getCommandPool(), handle);
-        Log.print(Log.Severity.DEBUG, "Vulkan: Done freeing command buffer");
+        device.retire(0, () -> {
+            device.freeCommandBuffers(command_pool.getCommandPool(), handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: Done freeing command buffer");
+        });
     }
 }
\ No newline at end of file
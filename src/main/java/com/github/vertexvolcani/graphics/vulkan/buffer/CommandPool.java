@@ -68,8 +68,9 @@ public final class CommandPool extends LibCleanable {
      */
     @Override
     protected void free() {
-        handle.device().waitIdle();
-        handle.device().destroyCommandPool(handle);
-        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing command pool");
+        handle.device().retire(0, () -> {
+            handle.device().destroyCommandPool(handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: done freeing command pool");
+        });
     }
 }
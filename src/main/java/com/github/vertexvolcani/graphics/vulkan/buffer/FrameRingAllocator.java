@@ -0,0 +1,245 @@
+package com.github.vertexvolcani.graphics.vulkan.buffer;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.NativeType;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_STORAGE_BUFFER_BIT;
+import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT;
+
+/**
+ * A per-frame linear allocator for transient uniform and vertex data.
+ * <p>
+ * Each frame in flight owns one large persistently mapped {@link Buffer}. Allocations bump a head pointer and are
+ * aligned to the device's minimum offset alignment so the returned offsets can be used directly as dynamic offsets
+ * in {@link CommandBuffer#bindDescriptorSets}. The whole frame is released at once by {@link #beginFrame(int)},
+ * which must only be called once the GPU has finished with that frame.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class FrameRingAllocator extends LibCleanable {
+    /**
+     * One persistently mapped buffer per frame in flight.
+     */
+    private final Buffer[] frames;
+    /**
+     * The capacity in bytes of each frame's buffer.
+     */
+    private final int capacity;
+    /**
+     * The alignment every allocation offset is rounded up to.
+     */
+    private final int alignment;
+    /**
+     * The frame currently being allocated from.
+     */
+    private int frame_index = 0;
+    /**
+     * The next free byte in the current frame's buffer.
+     */
+    private int head = 0;
+
+    /**
+     * Constructs a new FrameRingAllocator.
+     *
+     * @param device_in          The Vulkan device, used to query offset alignment limits.
+     * @param allocator_in       The Vulkan Memory Allocator.
+     * @param frames_in_flight   The number of frames the GPU may be working on at once.
+     * @param capacity_per_frame The size in bytes of each frame's buffer.
+     * @param usage              The buffer usage flags of the backing buffers.
+     */
+    public FrameRingAllocator(@Nonnull Device device_in, @Nonnull VmaAllocator allocator_in, int frames_in_flight, int capacity_per_frame, @NativeType("VkBufferUsageFlags") int usage) {
+        if (frames_in_flight <= 0 || capacity_per_frame <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: frame ring allocator needs at least one frame and a non zero capacity");
+            throw new IllegalStateException("frame ring allocator needs at least one frame and a non zero capacity");
+        }
+        long align = 16;
+        if ((usage & VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT) != 0) {
+            align = Math.max(align, device_in.getLimits().minUniformBufferOffsetAlignment());
+        }
+        if ((usage & VK_BUFFER_USAGE_STORAGE_BUFFER_BIT) != 0) {
+            align = Math.max(align, device_in.getLimits().minStorageBufferOffsetAlignment());
+        }
+        alignment = (int) align;
+        capacity = capacity_per_frame;
+        frames = new Buffer[frames_in_flight];
+        for (int i = 0; i < frames_in_flight; i++) {
+            frames[i] = new Buffer(allocator_in, capacity, false, usage, VmaMemoryUsage.CPU_TO_GPU.getMemoryType(), true);
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: created frame ring allocator with " + frames_in_flight + " frames of " + capacity_per_frame + " bytes");
+    }
+
+    /**
+     * Starts allocating from the given frame, releasing everything previously allocated in it.
+     * The caller must make sure the GPU is no longer reading from this frame's buffer.
+     *
+     * @param frame_index_in The index of the frame in flight, in the range {@code [0, getFrameCount())}.
+     */
+    public void beginFrame(int frame_index_in) {
+        frame_index = frame_index_in % frames.length;
+        head = 0;
+    }
+
+    /**
+     * Reserves an aligned range in the current frame's buffer.
+     *
+     * @param bytes The number of bytes to reserve.
+     * @return The byte offset of the range, usable as a dynamic offset or a vertex buffer offset.
+     * @throws IllegalStateException If the frame has run out of space.
+     */
+    public int allocate(int bytes) {
+        final int offset = (head + alignment - 1) & -alignment;
+        if (bytes < 0 || offset + (long) bytes > capacity) {
+            Log.print(Log.Severity.ERROR, "Vulkan: frame ring allocator out of space, requested " + bytes + " bytes with " + (capacity - head) + " left");
+            throw new IllegalStateException("frame ring allocator out of space");
+        }
+        head = offset + bytes;
+        return offset;
+    }
+
+    /**
+     * Allocates a range in the current frame and copies the data into it.
+     *
+     * @param src The data to copy.
+     * @return The byte offset of the data in the current frame's buffer.
+     */
+    public int push(@Nonnull ByteBuffer src) {
+        return push(MemoryUtil.memAddress(src), src.remaining());
+    }
+
+    /**
+     * Allocates a range in the current frame and copies the data into it.
+     *
+     * @param src The data to copy.
+     * @return The byte offset of the data in the current frame's buffer.
+     */
+    public int push(@Nonnull FloatBuffer src) {
+        return push(MemoryUtil.memAddress(src), src.remaining() * Float.BYTES);
+    }
+
+    /**
+     * Allocates a range in the current frame and copies the data into it.
+     *
+     * @param src The data to copy.
+     * @return The byte offset of the data in the current frame's buffer.
+     */
+    public int push(@Nonnull IntBuffer src) {
+        return push(MemoryUtil.memAddress(src), src.remaining() * Integer.BYTES);
+    }
+
+    /**
+     * Allocates a range in the current frame and copies raw memory into it.
+     *
+     * @param src_address The host address of the data to copy.
+     * @param bytes       The number of bytes to copy.
+     * @return The byte offset of the data in the current frame's buffer.
+     */
+    public int push(long src_address, int bytes) {
+        final int offset = allocate(bytes);
+        frames[frame_index].write(offset, src_address, bytes);
+        return offset;
+    }
+
+    /**
+     * Gets the host address of an allocated range so it can be written in place.
+     * Writes made this way must be followed by {@link Buffer#flush(long, long)} on non coherent memory.
+     *
+     * @param offset The byte offset returned by {@link #allocate(int)}.
+     * @return The mapped host address of the range.
+     */
+    public long getAddress(int offset) {
+        return frames[frame_index].getMappedAddress() + offset;
+    }
+
+    /**
+     * Gets the buffer of the frame currently being allocated from.
+     *
+     * @return The current frame's buffer.
+     */
+    public Buffer getBuffer() {
+        return frames[frame_index];
+    }
+
+    /**
+     * Gets the buffer of a given frame, e.g. to point a dynamic descriptor at it once.
+     *
+     * @param frame_index_in The index of the frame in flight.
+     * @return The frame's buffer.
+     */
+    public Buffer getBuffer(int frame_index_in) {
+        return frames[frame_index_in];
+    }
+
+    /**
+     * Gets the number of frames in flight the allocator was created with.
+     *
+     * @return The number of frames.
+     */
+    public int getFrameCount() {
+        return frames.length;
+    }
+
+    /**
+     * Gets the index of the frame currently being allocated from.
+     *
+     * @return The current frame index.
+     */
+    public int getFrameIndex() {
+        return frame_index;
+    }
+
+    /**
+     * Gets the capacity of each frame's buffer.
+     *
+     * @return The capacity in bytes.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of bytes used in the current frame, including alignment padding.
+     *
+     * @return The used size in bytes.
+     */
+    public int getUsed() {
+        return head;
+    }
+
+    /**
+     * Gets the alignment every allocation is rounded up to.
+     *
+     * @return The alignment in bytes.
+     */
+    public int getAlignment() {
+        return alignment;
+    }
+
+    /**
+     * Cleans up the buffers of every frame.
+     */
+    @Override
+    protected void free() {
+        for (Buffer frame : frames) {
+            frame.free();
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing frame ring allocator");
+    }
+}
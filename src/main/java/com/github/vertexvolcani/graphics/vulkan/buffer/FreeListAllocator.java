@@ -0,0 +1,173 @@
+package com.github.vertexvolcani.graphics.vulkan.buffer;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A best fit free list allocator over an abstract range of units, e.g. vertices or indices of a large buffer.
+ * <p>
+ * Free ranges are tracked both by offset, to coalesce neighbours on {@link #free(long, long)}, and by size, so
+ * {@link #allocate(long)} picks the smallest range that fits. The allocator only does book keeping, it never touches
+ * GPU memory.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class FreeListAllocator {
+    /**
+     * The value returned by {@link #allocate(long)} when no free range is big enough.
+     */
+    public static final long INVALID_OFFSET = -1;
+    /**
+     * Free ranges keyed by their offset, mapping to their size.
+     */
+    private final TreeMap<Long, Long> free_by_offset = new TreeMap<>();
+    /**
+     * Free ranges ordered by size then offset, used for the best fit search.
+     */
+    private final TreeSet<Range> free_by_size = new TreeSet<>();
+    private long capacity;
+    private long used = 0;
+
+    /**
+     * Constructs a new FreeListAllocator with one free range covering the whole capacity.
+     *
+     * @param capacity_in The number of units managed by the allocator.
+     */
+    public FreeListAllocator(long capacity_in) {
+        capacity = capacity_in;
+        if (capacity > 0) {
+            insertFree(0, capacity);
+        }
+    }
+
+    /**
+     * Allocates a contiguous range using best fit.
+     *
+     * @param size The number of units to allocate.
+     * @return The offset of the range, or {@link #INVALID_OFFSET} if no free range is big enough.
+     */
+    public long allocate(long size) {
+        if (size <= 0) {
+            return INVALID_OFFSET;
+        }
+        Range best = free_by_size.ceiling(new Range(size, Long.MIN_VALUE));
+        if (best == null) {
+            return INVALID_OFFSET;
+        }
+        removeFree(best.offset(), best.size());
+        if (best.size() > size) {
+            insertFree(best.offset() + size, best.size() - size);
+        }
+        used += size;
+        return best.offset();
+    }
+
+    /**
+     * Returns a range to the allocator, merging it with any free neighbours.
+     *
+     * @param offset The offset returned by {@link #allocate(long)}.
+     * @param size   The size the range was allocated with.
+     */
+    public void free(long offset, long size) {
+        long start = offset;
+        long end = offset + size;
+        Map.Entry<Long, Long> before = free_by_offset.floorEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == start) {
+            removeFree(before.getKey(), before.getValue());
+            start = before.getKey();
+        }
+        Long after_size = free_by_offset.get(end);
+        if (after_size != null) {
+            removeFree(end, after_size);
+            end += after_size;
+        }
+        insertFree(start, end - start);
+        used -= size;
+    }
+
+    /**
+     * Adds units to the end of the managed range, merging them with a trailing free range.
+     *
+     * @param new_capacity The new capacity, it must not be smaller than the current one.
+     */
+    public void grow(long new_capacity) {
+        if (new_capacity <= capacity) {
+            return;
+        }
+        final long added = new_capacity - capacity;
+        final long old_capacity = capacity;
+        capacity = new_capacity;
+        used += added;
+        free(old_capacity, added);
+    }
+
+    /**
+     * Marks every unit free again.
+     */
+    public void reset() {
+        free_by_offset.clear();
+        free_by_size.clear();
+        used = 0;
+        if (capacity > 0) {
+            insertFree(0, capacity);
+        }
+    }
+
+    /**
+     * Gets the size of the largest free range.
+     *
+     * @return The largest allocation that can currently succeed.
+     */
+    public long getLargestFree() {
+        return free_by_size.isEmpty() ? 0 : free_by_size.last().size();
+    }
+
+    /**
+     * Gets the number of separate free ranges, a measure of fragmentation.
+     *
+     * @return The free range count.
+     */
+    public int getFreeRangeCount() {
+        return free_by_offset.size();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsed() {
+        return used;
+    }
+
+    public long getFree() {
+        return capacity - used;
+    }
+
+    private void insertFree(long offset, long size) {
+        free_by_offset.put(offset, size);
+        free_by_size.add(new Range(size, offset));
+    }
+
+    private void removeFree(long offset, long size) {
+        free_by_offset.remove(offset);
+        free_by_size.remove(new Range(size, offset));
+    }
+
+    private record Range(long size, long offset) implements Comparable<Range> {
+        @Override
+        public int compareTo(Range other) {
+            int order = Long.compare(size, other.size);
+            return order != 0 ? order : Long.compare(offset, other.offset);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.github.vertexvolcani.graphics.vulkan.buffer;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Sub-allocates meshes out of one large device local vertex buffer and one large index buffer.
+ * <p>
+ * Every mesh becomes a {@link Mesh} holding a {@code firstIndex} / {@code vertexOffset} pair into the shared
+ * buffers, so a whole scene is drawn with a single {@link #bind(CommandBuffer)} followed by many
+ * {@link #draw(CommandBuffer, Mesh, int)} calls, or one {@code drawIndexedIndirect} over commands written with
+ * {@link #writeIndirect(ByteBuffer, Mesh, int, int)}. Space is managed by a best fit {@link FreeListAllocator}
+ * per buffer; when an allocation does not fit, live meshes are packed into fresh buffers (grown if needed) and
+ * their handles are updated in place.
+ * </p>
+ * Indices are always {@code VK_INDEX_TYPE_UINT32}.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class GeometryArena extends LibCleanable {
+    /**
+     * The size in bytes of one {@code VkDrawIndexedIndirectCommand}.
+     */
+    public static final int INDIRECT_COMMAND_SIZE = 5 * Integer.BYTES;
+    private static final int VERTEX_USAGE = VK_BUFFER_USAGE_VERTEX_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_SRC_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT;
+    private static final int INDEX_USAGE = VK_BUFFER_USAGE_INDEX_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_SRC_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT;
+    private final VmaAllocator allocator;
+    private final UploadManager uploads;
+    /**
+     * The size in bytes of one vertex.
+     */
+    private final int vertex_stride;
+    private final ArrayList<Mesh> meshes = new ArrayList<>();
+    private FreeListAllocator vertex_ranges;
+    private FreeListAllocator index_ranges;
+    private Buffer vertex_buffer;
+    private Buffer index_buffer;
+
+    /**
+     * Constructs a new GeometryArena.
+     *
+     * @param allocator_in       The Vulkan Memory Allocator.
+     * @param uploads_in         The upload manager used to fill and compact the arena.
+     * @param vertex_stride_in   The size in bytes of one vertex.
+     * @param vertex_capacity    The initial number of vertices the arena can hold.
+     * @param index_capacity     The initial number of indices the arena can hold.
+     */
+    public GeometryArena(@Nonnull VmaAllocator allocator_in, @Nonnull UploadManager uploads_in, int vertex_stride_in, long vertex_capacity, long index_capacity) {
+        if (vertex_stride_in <= 0 || vertex_capacity <= 0 || index_capacity <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: geometry arena needs a non zero vertex stride and capacity");
+            throw new IllegalStateException("geometry arena needs a non zero vertex stride and capacity");
+        }
+        allocator = allocator_in;
+        uploads = uploads_in;
+        vertex_stride = vertex_stride_in;
+        vertex_ranges = new FreeListAllocator(vertex_capacity);
+        index_ranges = new FreeListAllocator(index_capacity);
+        vertex_buffer = new Buffer(allocator, vertex_capacity * vertex_stride, false, VERTEX_USAGE, VmaMemoryUsage.GPU_ONLY.getMemoryType());
+        index_buffer = new Buffer(allocator, index_capacity * Integer.BYTES, false, INDEX_USAGE, VmaMemoryUsage.GPU_ONLY.getMemoryType());
+        Log.print(Log.Severity.DEBUG, "Vulkan: created geometry arena for " + vertex_capacity + " vertices and " + index_capacity + " indices");
+    }
+
+    /**
+     * Adds a mesh to the arena, the data is queued on the upload manager and visible once its batch completes.
+     *
+     * @param vertices The vertex data, its size must be a multiple of the vertex stride.
+     * @param indices  The indices, relative to the first vertex of this mesh.
+     * @return The handle of the new mesh.
+     */
+    public Mesh add(@Nonnull FloatBuffer vertices, @Nonnull IntBuffer indices) {
+        return add(MemoryUtil.memAddress(vertices), (long) vertices.remaining() * Float.BYTES, MemoryUtil.memAddress(indices), indices.remaining());
+    }
+
+    /**
+     * Adds a mesh to the arena, the data is queued on the upload manager and visible once its batch completes.
+     *
+     * @param vertices The vertex data, its size must be a multiple of the vertex stride.
+     * @param indices  The indices, relative to the first vertex of this mesh.
+     * @return The handle of the new mesh.
+     */
+    public Mesh add(@Nonnull ByteBuffer vertices, @Nonnull IntBuffer indices) {
+        return add(MemoryUtil.memAddress(vertices), vertices.remaining(), MemoryUtil.memAddress(indices), indices.remaining());
+    }
+
+    /**
+     * Adds a mesh from raw host memory.
+     *
+     * @param vertex_address The host address of the vertex data.
+     * @param vertex_bytes   The size in bytes of the vertex data, a multiple of the vertex stride.
+     * @param index_address  The host address of the {@code uint32} indices.
+     * @param index_count    The number of indices.
+     * @return The handle of the new mesh.
+     * @throws IllegalStateException If the mesh has no vertices or no indices.
+     */
+    public Mesh add(long vertex_address, long vertex_bytes, long index_address, int index_count) {
+        if (vertex_bytes % vertex_stride != 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: mesh vertex data of " + vertex_bytes + " bytes is not a multiple of the stride " + vertex_stride);
+            throw new IllegalStateException("mesh vertex data is not a multiple of the vertex stride");
+        }
+        final int vertex_count = (int) (vertex_bytes / vertex_stride);
+        if (vertex_count <= 0 || index_count <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: mesh with " + vertex_count + " vertices and " + index_count + " indices is empty");
+            throw new IllegalStateException("mesh with " + vertex_count + " vertices and " + index_count + " indices is empty");
+        }
+        long vertex_offset = vertex_ranges.allocate(vertex_count);
+        long first_index = index_ranges.allocate(index_count);
+        if (vertex_offset == FreeListAllocator.INVALID_OFFSET || first_index == FreeListAllocator.INVALID_OFFSET) {
+            if (vertex_offset != FreeListAllocator.INVALID_OFFSET) {
+                vertex_ranges.free(vertex_offset, vertex_count);
+            }
+            if (first_index != FreeListAllocator.INVALID_OFFSET) {
+                index_ranges.free(first_index, index_count);
+            }
+            relocate(requiredCapacity(vertex_ranges, vertex_count), requiredCapacity(index_ranges, index_count));
+            vertex_offset = vertex_ranges.allocate(vertex_count);
+            first_index = index_ranges.allocate(index_count);
+            if (vertex_offset == FreeListAllocator.INVALID_OFFSET || first_index == FreeListAllocator.INVALID_OFFSET) {
+                Log.print(Log.Severity.ERROR, "Vulkan: mesh does not fit the geometry arena after growing it");
+                throw new IllegalStateException("mesh does not fit the geometry arena after growing it");
+            }
+        }
+        uploads.uploadBuffer(vertex_buffer, vertex_offset * vertex_stride, vertex_address, vertex_bytes);
+        uploads.uploadBuffer(index_buffer, first_index * Integer.BYTES, index_address, (long) index_count * Integer.BYTES);
+        Mesh mesh = new Mesh((int) first_index, (int) vertex_offset, index_count, vertex_count, meshes.size());
+        meshes.add(mesh);
+        return mesh;
+    }
+
+    /**
+     * Removes a mesh from the arena, its space is reused by later meshes.
+     * The caller must make sure the GPU is no longer drawing the mesh.
+     *
+     * @param mesh The mesh to remove.
+     */
+    public void remove(@Nonnull Mesh mesh) {
+        if (mesh.slot < 0) {
+            return;
+        }
+        vertex_ranges.free(mesh.vertex_offset, mesh.vertex_count);
+        index_ranges.free(mesh.first_index, mesh.index_count);
+        // swap remove keeps the live list dense
+        Mesh last = meshes.remove(meshes.size() - 1);
+        if (last != mesh) {
+            meshes.set(mesh.slot, last);
+            last.slot = mesh.slot;
+        }
+        mesh.slot = -1;
+    }
+
+    /**
+     * Packs every live mesh to the start of fresh buffers, removing all fragmentation.
+     * This waits for the copies to complete, so it is meant for loading screens or streaming points.
+     */
+    public void compact() {
+        relocate(vertex_ranges.getCapacity(), index_ranges.getCapacity());
+    }
+
+    /**
+     * Binds the shared vertex buffer at binding 0 and the shared index buffer.
+     *
+     * @param command_buffer The command buffer being recorded.
+     */
+    public void bind(@Nonnull CommandBuffer command_buffer) {
+        command_buffer.bindVertexBuffer(0, vertex_buffer.getBuffer(), 0);
+        command_buffer.bindIndexBuffer(index_buffer.getBuffer(), 0, VK_INDEX_TYPE_UINT32);
+    }
+
+    /**
+     * Records an indexed draw of a mesh, the arena must be bound.
+     *
+     * @param command_buffer The command buffer being recorded.
+     * @param mesh           The mesh to draw.
+     * @param instance_count The number of instances to draw.
+     */
+    public void draw(@Nonnull CommandBuffer command_buffer, @Nonnull Mesh mesh, int instance_count) {
+        command_buffer.drawIndexed(mesh.index_count, instance_count, mesh.first_index, mesh.vertex_offset, 0);
+    }
+
+    /**
+     * Writes a {@code VkDrawIndexedIndirectCommand} for a mesh at the buffer's position and advances it. The
+     * command is written in native byte order whatever the buffer's order is.
+     *
+     * @param dst            The destination, e.g. a mapped indirect buffer.
+     * @param mesh           The mesh to draw.
+     * @param instance_count The number of instances to draw.
+     * @param first_instance The first instance index.
+     */
+    public void writeIndirect(@Nonnull ByteBuffer dst, @Nonnull Mesh mesh, int instance_count, int first_instance) {
+        final ByteOrder order = dst.order();
+        dst.order(ByteOrder.nativeOrder());
+        dst.putInt(mesh.index_count).putInt(instance_count).putInt(mesh.first_index).putInt(mesh.vertex_offset).putInt(first_instance);
+        dst.order(order);
+    }
+
+    public Buffer getVertexBuffer() {
+        return vertex_buffer;
+    }
+
+    public Buffer getIndexBuffer() {
+        return index_buffer;
+    }
+
+    public int getVertexStride() {
+        return vertex_stride;
+    }
+
+    public int getMeshCount() {
+        return meshes.size();
+    }
+
+    public FreeListAllocator getVertexRanges() {
+        return vertex_ranges;
+    }
+
+    public FreeListAllocator getIndexRanges() {
+        return index_ranges;
+    }
+
+    /**
+     * Gets the capacity needed to fit an extra allocation once everything is packed, doubling to amortise growth.
+     */
+    private static long requiredCapacity(FreeListAllocator ranges, long extra) {
+        long capacity = ranges.getCapacity();
+        while (ranges.getUsed() + extra > capacity) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * Copies every live mesh packed into new buffers of the given capacities and updates the mesh handles.
+     */
+    private void relocate(long vertex_capacity, long index_capacity) {
+        // pending uploads into the old buffers must land before they are copied out
+        uploads.waitFor(uploads.flush());
+        Buffer new_vertex = new Buffer(allocator, vertex_capacity * vertex_stride, false, VERTEX_USAGE, VmaMemoryUsage.GPU_ONLY.getMemoryType());
+        Buffer new_index = new Buffer(allocator, index_capacity * Integer.BYTES, false, INDEX_USAGE, VmaMemoryUsage.GPU_ONLY.getMemoryType());
+        FreeListAllocator new_vertex_ranges = new FreeListAllocator(vertex_capacity);
+        FreeListAllocator new_index_ranges = new FreeListAllocator(index_capacity);
+        for (Mesh mesh : meshes) {
+            final long vertex_offset = new_vertex_ranges.allocate(mesh.vertex_count);
+            final long first_index = new_index_ranges.allocate(mesh.index_count);
+            uploads.copyBuffer(vertex_buffer, (long) mesh.vertex_offset * vertex_stride, new_vertex, vertex_offset * vertex_stride, (long) mesh.vertex_count * vertex_stride);
+            uploads.copyBuffer(index_buffer, (long) mesh.first_index * Integer.BYTES, new_index, first_index * Integer.BYTES, (long) mesh.index_count * Integer.BYTES);
+            mesh.vertex_offset = (int) vertex_offset;
+            mesh.first_index = (int) first_index;
+        }
+        uploads.waitFor(uploads.flush());
+        vertex_buffer.close();
+        index_buffer.close();
+        vertex_buffer = new_vertex;
+        index_buffer = new_index;
+        vertex_ranges = new_vertex_ranges;
+        index_ranges = new_index_ranges;
+        Log.print(Log.Severity.DEBUG, "Vulkan: relocated geometry arena with " + meshes.size() + " meshes");
+    }
+
+    /**
+     * Cleans up the shared buffers, every mesh handle becomes invalid.
+     */
+    @Override
+    protected void free() {
+        for (Mesh mesh : meshes) {
+            mesh.slot = -1;
+        }
+        meshes.clear();
+        vertex_buffer.close();
+        index_buffer.close();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing geometry arena");
+    }
+
+    /**
+     * A mesh living in a {@link GeometryArena}. Its offsets may change when the arena compacts or grows,
+     * so they should be read at record time rather than cached.
+     */
+    public static final class Mesh {
+        private int first_index;
+        private int vertex_offset;
+        private final int index_count;
+        private final int vertex_count;
+        /**
+         * The position of the mesh in the arena's live list, or -1 once removed.
+         */
+        private int slot;
+
+        private Mesh(int first_index_in, int vertex_offset_in, int index_count_in, int vertex_count_in, int slot_in) {
+            first_index = first_index_in;
+            vertex_offset = vertex_offset_in;
+            index_count = index_count_in;
+            vertex_count = vertex_count_in;
+            slot = slot_in;
+        }
+
+        public int getFirstIndex() {
+            return first_index;
+        }
+
+        public int getVertexOffset() {
+            return vertex_offset;
+        }
+
+        public int getIndexCount() {
+            return index_count;
+        }
+
+        public int getVertexCount() {
+            return vertex_count;
+        }
+
+        public boolean isAlive() {
+            return slot >= 0;
+        }
+    }
+}
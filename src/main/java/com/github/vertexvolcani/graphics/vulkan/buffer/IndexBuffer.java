@@ -9,6 +9,7 @@ package com.github.vertexvolcani.graphics.vulkan.buffer;
 import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
 
 import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_INDEX_BUFFER_BIT;
+import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_TRANSFER_DST_BIT;
 /**
  * A class representing a Vulkan Index buffer managed by Vulkan Memory Allocator (VMA).
  * @author Luke Shore
@@ -17,7 +18,7 @@ import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_INDEX_BUFFER_BIT;
  */
 public final class IndexBuffer extends Buffer{
     /**
-     * Constructs a new ABuffer instance.
+     * Constructs a new IndexBuffer, mapped on demand.
      *
      * @param allocator_in The Vulkan Memory Allocator.
      * @param size         The size of the buffer.
@@ -25,6 +26,19 @@ public final class IndexBuffer extends Buffer{
      * @param vma_usage    The vma usage flags.
      */
     public IndexBuffer(VmaAllocator allocator_in, long size, boolean sharing_mode, VmaMemoryUsage vma_usage) {
-        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_INDEX_BUFFER_BIT, vma_usage.getMemoryType());
+        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_INDEX_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT, vma_usage.getMemoryType());
+    }
+
+    /**
+     * Constructs a new IndexBuffer that can stay persistently mapped.
+     *
+     * @param allocator_in      The Vulkan Memory Allocator.
+     * @param size              The size of the buffer.
+     * @param sharing_mode      The sharing mode.
+     * @param vma_usage         The vma usage flags.
+     * @param persistent_mapped should the buffer stay mapped for its whole lifetime, the memory must be host visible.
+     */
+    public IndexBuffer(VmaAllocator allocator_in, long size, boolean sharing_mode, VmaMemoryUsage vma_usage, boolean persistent_mapped) {
+        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_INDEX_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT, vma_usage.getMemoryType(), persistent_mapped);
     }
 }
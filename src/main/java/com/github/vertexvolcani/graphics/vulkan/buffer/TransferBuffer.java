@@ -18,7 +18,7 @@ import static org.lwjgl.vulkan.VK10.*;
  */
 public final class TransferBuffer extends Buffer{
     /**
-     * Constructs a new ABuffer instance.
+     * Constructs a new TransferBuffer.
      *
      * @param allocator_in The Vulkan Memory Allocator.
      * @param size         The size of the buffer.
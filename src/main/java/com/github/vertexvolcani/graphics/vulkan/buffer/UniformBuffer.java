@@ -9,13 +9,14 @@ package com.github.vertexvolcani.graphics.vulkan.buffer;
 import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
 
 import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT;
+import static org.lwjgl.vulkan.VK10.VK_BUFFER_USAGE_TRANSFER_DST_BIT;
 /* @author Luke Shore
  * @version 1.0
  * @since 2023-12-14
  */
 public final class UniformBuffer extends Buffer{
     /**
-     * Constructs a new ABuffer instance.
+     * Constructs a new UniformBuffer, mapped on demand.
      *
      * @param allocator_in The Vulkan Memory Allocator.
      * @param size         The size of the buffer.
@@ -23,6 +24,19 @@ public final class UniformBuffer extends Buffer{
      * @param vma_usage    The vma usage flags.
      */
     public UniformBuffer(VmaAllocator allocator_in, long size, boolean sharing_mode, VmaMemoryUsage vma_usage) {
-        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT, vma_usage.getMemoryType());
+        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT, vma_usage.getMemoryType());
+    }
+
+    /**
+     * Constructs a new UniformBuffer that can stay persistently mapped.
+     *
+     * @param allocator_in      The Vulkan Memory Allocator.
+     * @param size              The size of the buffer.
+     * @param sharing_mode      The sharing mode.
+     * @param vma_usage         The vma usage flags.
+     * @param persistent_mapped should the buffer stay mapped for its whole lifetime, the memory must be host visible.
+     */
+    public UniformBuffer(VmaAllocator allocator_in, long size, boolean sharing_mode, VmaMemoryUsage vma_usage, boolean persistent_mapped) {
+        super(allocator_in, size, sharing_mode, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT | VK_BUFFER_USAGE_TRANSFER_DST_BIT, vma_usage.getMemoryType(), persistent_mapped);
     }
 }
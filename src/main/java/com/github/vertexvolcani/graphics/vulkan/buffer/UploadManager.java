@@ -0,0 +1,359 @@
+package com.github.vertexvolcani.graphics.vulkan.buffer;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.Image;
+import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Fence;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Queue;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.Semaphore;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.NativeType;
+import org.lwjgl.vulkan.VkBufferCopy;
+import org.lwjgl.vulkan.VkBufferImageCopy;
+import org.lwjgl.vulkan.VkMemoryBarrier;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Batches uploads into device local buffers and images through a staging arena.
+ * <p>
+ * Uploads are copied into a persistently mapped staging buffer and recorded as {@code copyBuffer} /
+ * {@code copyBufferToImage} commands into a single command buffer. {@link #flush()} submits the whole batch with one
+ * queue submission and returns a ticket, completion is tracked with a fence per batch. Batches, with their command
+ * buffer, fence and staging arena, are recycled once the GPU has finished with them.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class UploadManager extends LibCleanable {
+    /**
+     * The number of submitted batches allowed in flight before {@link #flush()} waits on the oldest.
+     */
+    private static final int MAX_BATCHES_IN_FLIGHT = 3;
+    /**
+     * Staging offsets are aligned to this, image uploads to the least common multiple of it and their texel size so
+     * the copy offset stays a multiple of both the texel size and 4 bytes.
+     */
+    private static final long STAGING_ALIGNMENT = 16;
+    private static final Semaphore[] NO_SEMAPHORES = new Semaphore[0];
+    private final Device device;
+    private final VmaAllocator allocator;
+    private final Queue queue;
+    private final CommandPool command_pool;
+    /**
+     * The size in bytes of each batch's staging arena.
+     */
+    private final long arena_size;
+    private final ArrayDeque<Batch> free_batches = new ArrayDeque<>();
+    private final ArrayDeque<Batch> in_flight = new ArrayDeque<>();
+    /**
+     * The batch currently being recorded, or {@code null} if nothing has been uploaded since the last flush.
+     */
+    @Nullable
+    private Batch recording = null;
+    /**
+     * The ticket the next flushed batch will complete with.
+     */
+    private long next_ticket = 1;
+    /**
+     * The highest ticket known to have completed on the GPU.
+     */
+    private long completed_ticket = 0;
+
+    /**
+     * Constructs a new UploadManager.
+     *
+     * @param device_in       The Vulkan device.
+     * @param allocator_in    The Vulkan Memory Allocator used for the staging arenas.
+     * @param queue_in        The queue the upload batches are submitted to.
+     * @param queue_family    The queue family index of {@code queue_in}.
+     * @param arena_size_in   The size in bytes of each batch's staging arena.
+     */
+    public UploadManager(@Nonnull Device device_in, @Nonnull VmaAllocator allocator_in, @Nonnull Queue queue_in, int queue_family, long arena_size_in) {
+        device = device_in;
+        allocator = allocator_in;
+        queue = queue_in;
+        arena_size = arena_size_in;
+        command_pool = new CommandPool(device, queue_family, true);
+        Log.print(Log.Severity.DEBUG, "Vulkan: created upload manager with a " + arena_size + " byte staging arena");
+    }
+
+    /**
+     * Queues an upload of host data into a buffer.
+     *
+     * @param dst        The destination buffer, it must have been created with {@code VK_BUFFER_USAGE_TRANSFER_DST_BIT}.
+     * @param dst_offset The byte offset into the destination buffer.
+     * @param src        The data to upload, it is copied before this method returns.
+     */
+    public void uploadBuffer(@Nonnull Buffer dst, @NativeType("VkDeviceSize") long dst_offset, @Nonnull ByteBuffer src) {
+        uploadBuffer(dst, dst_offset, MemoryUtil.memAddress(src), src.remaining());
+    }
+
+    /**
+     * Queues an upload of raw host memory into a buffer.
+     *
+     * @param dst         The destination buffer, it must have been created with {@code VK_BUFFER_USAGE_TRANSFER_DST_BIT}.
+     * @param dst_offset  The byte offset into the destination buffer.
+     * @param src_address The host address of the data to upload, it is copied before this method returns.
+     * @param bytes       The number of bytes to upload.
+     */
+    public void uploadBuffer(@Nonnull Buffer dst, @NativeType("VkDeviceSize") long dst_offset, long src_address, long bytes) {
+        Batch batch = stage(src_address, bytes, STAGING_ALIGNMENT);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferCopy.Buffer region = VkBufferCopy.calloc(1, stack).srcOffset(batch.last_offset).dstOffset(dst_offset).size(bytes);
+            batch.command_buffer.copyBuffer(batch.last_staging.getBuffer(), dst.getBuffer(), region);
+        }
+    }
+
+    /**
+     * Queues an upload of host data into the first mip level of a 2D image and transitions it to its final layout.
+     *
+     * @param dst          The destination image, it must have been created with {@code VK_IMAGE_USAGE_TRANSFER_DST_BIT}.
+     * @param src          The tightly packed texel data, it is copied before this method returns.
+     * @param width        The width of the image in texels.
+     * @param height       The height of the image in texels.
+     * @param range        The sub resource range to transition, the copy targets its first mip level and layers.
+     * @param final_layout The layout the image is left in once the upload completes.
+     * @throws IllegalStateException If the data is not a whole number of texels for the extent and layers.
+     */
+    public void uploadImage(@Nonnull Image dst, @Nonnull ByteBuffer src, int width, int height, @Nonnull ImageSubResourceRange range, @NativeType("VkImageLayout") int final_layout) {
+        final long texels = (long) width * height * range.layerCount();
+        if (texels <= 0 || src.remaining() % texels != 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: " + src.remaining() + " bytes of image data are not whole texels for " + texels + " texels");
+            throw new IllegalStateException(src.remaining() + " bytes of image data are not whole texels for " + texels + " texels");
+        }
+        Batch batch = stage(MemoryUtil.memAddress(src), src.remaining(), lcm(STAGING_ALIGNMENT, src.remaining() / texels));
+        batch.command_buffer.insertImageMemoryBarrier(dst, 0, VK_ACCESS_TRANSFER_WRITE_BIT, VK_IMAGE_LAYOUT_UNDEFINED,
+                VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, VK_PIPELINE_STAGE_TOP_OF_PIPE_BIT, VK_PIPELINE_STAGE_TRANSFER_BIT, range);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferImageCopy.Buffer region = VkBufferImageCopy.calloc(1, stack).bufferOffset(batch.last_offset);
+            region.imageSubresource().aspectMask(range.aspectMask()).mipLevel(range.baseMipLevel())
+                    .baseArrayLayer(range.baseArrayLayer()).layerCount(range.layerCount());
+            region.imageExtent().set(width, height, 1);
+            batch.command_buffer.copyBufferToImage(batch.last_staging.getBuffer(), dst.getImageHandle(), VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL, region);
+        }
+        batch.command_buffer.insertImageMemoryBarrier(dst, VK_ACCESS_TRANSFER_WRITE_BIT, VK_ACCESS_SHADER_READ_BIT, VK_IMAGE_LAYOUT_TRANSFER_DST_OPTIMAL,
+                final_layout, VK_PIPELINE_STAGE_TRANSFER_BIT, VK_PIPELINE_STAGE_ALL_COMMANDS_BIT, range);
+    }
+
+    /**
+     * Queues a device side copy between two buffers in the current batch.
+     *
+     * @param src        The source buffer, it must have been created with {@code VK_BUFFER_USAGE_TRANSFER_SRC_BIT}.
+     * @param src_offset The byte offset into the source buffer.
+     * @param dst        The destination buffer, it must have been created with {@code VK_BUFFER_USAGE_TRANSFER_DST_BIT}.
+     * @param dst_offset The byte offset into the destination buffer.
+     * @param bytes      The number of bytes to copy.
+     */
+    public void copyBuffer(@Nonnull Buffer src, @NativeType("VkDeviceSize") long src_offset, @Nonnull Buffer dst, @NativeType("VkDeviceSize") long dst_offset, @NativeType("VkDeviceSize") long bytes) {
+        Batch batch = getRecording();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkBufferCopy.Buffer region = VkBufferCopy.calloc(1, stack).srcOffset(src_offset).dstOffset(dst_offset).size(bytes);
+            batch.command_buffer.copyBuffer(src.getBuffer(), dst.getBuffer(), region);
+        }
+    }
+
+    /**
+     * Submits every upload queued since the last flush as a single batch.
+     *
+     * @return The ticket the batch completes with, or the last ticket if nothing was queued.
+     */
+    public long flush() {
+        if (recording == null) {
+            return next_ticket - 1;
+        }
+        final Batch batch = recording;
+        recording = null;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            // make every transfer write visible to whatever consumes the data in later submissions
+            VkMemoryBarrier.Buffer barrier = VkMemoryBarrier.calloc(1, stack).sType$Default()
+                    .srcAccessMask(VK_ACCESS_TRANSFER_WRITE_BIT).dstAccessMask(VK_ACCESS_MEMORY_READ_BIT);
+            batch.command_buffer.pipelineBarrier(VK_PIPELINE_STAGE_TRANSFER_BIT, VK_PIPELINE_STAGE_ALL_COMMANDS_BIT, 0, barrier, null, null);
+            if (batch.command_buffer.end() != VK_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "Vulkan: Failed to end upload command buffer");
+                throw new IllegalStateException("Failed to end upload command buffer");
+            }
+            batch.ticket = next_ticket++;
+            batch.fence.reset();
+            PointerBuffer pCommandBuffers = stack.pointers(batch.command_buffer.getCommandBuffer());
+            if (queue.submit(pCommandBuffers, null, NO_SEMAPHORES, NO_SEMAPHORES, batch.fence) != VK_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "Vulkan: Failed to submit upload batch");
+                throw new IllegalStateException("Failed to submit upload batch");
+            }
+        }
+        in_flight.addLast(batch);
+        while (in_flight.size() > MAX_BATCHES_IN_FLIGHT) {
+            waitFor(in_flight.peekFirst().ticket);
+        }
+        return batch.ticket;
+    }
+
+    /**
+     * Gets the ticket the uploads queued so far will complete with once flushed.
+     *
+     * @return The ticket of the batch being recorded.
+     */
+    public long getCurrentTicket() {
+        return next_ticket;
+    }
+
+    /**
+     * Checks without blocking whether a batch has completed, recycling every completed batch on the way.
+     *
+     * @param ticket The ticket returned by {@link #flush()}.
+     * @return {@code true} if the GPU has finished the batch.
+     */
+    public boolean isComplete(long ticket) {
+        while (!in_flight.isEmpty() && in_flight.peekFirst().fence.isSignaled()) {
+            retire(in_flight.pollFirst());
+        }
+        return completed_ticket >= ticket;
+    }
+
+    /**
+     * Blocks until a batch has completed, flushing it first if it is still being recorded.
+     *
+     * @param ticket The ticket returned by {@link #flush()} or {@link #getCurrentTicket()}.
+     */
+    public void waitFor(long ticket) {
+        if (recording != null && ticket >= next_ticket) {
+            flush();
+        }
+        while (completed_ticket < ticket && !in_flight.isEmpty()) {
+            Batch batch = in_flight.pollFirst();
+            batch.fence.waitFor();
+            retire(batch);
+        }
+    }
+
+    /**
+     * Gets the highest ticket known to have completed.
+     *
+     * @return The completed ticket.
+     */
+    public long getCompletedTicket() {
+        return completed_ticket;
+    }
+
+    private void retire(Batch batch) {
+        completed_ticket = Math.max(completed_ticket, batch.ticket);
+        for (Buffer oversized : batch.oversized) {
+            oversized.close();
+        }
+        batch.oversized.clear();
+        batch.head = 0;
+        free_batches.addLast(batch);
+    }
+
+    private Batch getRecording() {
+        if (recording == null) {
+            if (free_batches.isEmpty() && !in_flight.isEmpty() && in_flight.peekFirst().fence.isSignaled()) {
+                retire(in_flight.pollFirst());
+            }
+            Batch batch = free_batches.pollFirst();
+            if (batch == null) {
+                batch = new Batch();
+            }
+            if (batch.command_buffer.begin(VK_COMMAND_BUFFER_USAGE_ONE_TIME_SUBMIT_BIT) != VK_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "Vulkan: Failed to begin upload command buffer");
+                throw new IllegalStateException("Failed to begin upload command buffer");
+            }
+            recording = batch;
+        }
+        return recording;
+    }
+
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            final long r = x % y;
+            x = y;
+            y = r;
+        }
+        return a / x * b;
+    }
+
+    /**
+     * Copies data into staging memory of the recording batch, flushing first if the arena is full.
+     *
+     * @param alignment The alignment of the staging offset, not necessarily a power of two.
+     */
+    private Batch stage(long src_address, long bytes, long alignment) {
+        Batch batch = getRecording();
+        long offset = (batch.head + alignment - 1) / alignment * alignment;
+        if (bytes > arena_size) {
+            Buffer oversized = new Buffer(allocator, bytes, false, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VmaMemoryUsage.CPU_ONLY.getMemoryType(), true);
+            oversized.write(0, src_address, bytes);
+            batch.oversized.add(oversized);
+            batch.last_staging = oversized;
+            batch.last_offset = 0;
+            return batch;
+        }
+        if (offset + bytes > arena_size) {
+            flush();
+            batch = getRecording();
+            offset = 0;
+        }
+        batch.staging.write(offset, src_address, bytes);
+        batch.head = offset + bytes;
+        batch.last_staging = batch.staging;
+        batch.last_offset = offset;
+        return batch;
+    }
+
+    /**
+     * Waits for every batch and cleans up the staging arenas, fences and command pool.
+     */
+    @Override
+    protected void free() {
+        if (recording != null) {
+            flush();
+        }
+        waitFor(next_ticket - 1);
+        for (Batch batch : free_batches) {
+            batch.free();
+        }
+        free_batches.clear();
+        command_pool.close();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing upload manager");
+    }
+
+    /**
+     * A recyclable upload batch, owning its command buffer, fence and staging arena.
+     */
+    private final class Batch {
+        private final CommandBuffer command_buffer = CommandBuffer.createPrimeryCommandBuffer(device, command_pool);
+        private final Fence fence = new Fence(device, true);
+        private final Buffer staging = new Buffer(allocator, arena_size, false, VK_BUFFER_USAGE_TRANSFER_SRC_BIT, VmaMemoryUsage.CPU_ONLY.getMemoryType(), true);
+        private final ArrayList<Buffer> oversized = new ArrayList<>();
+        private long head = 0;
+        private long ticket = 0;
+        private Buffer last_staging = staging;
+        private long last_offset = 0;
+
+        private void free() {
+            staging.close();
+            fence.close();
+            command_buffer.close();
+        }
+    }
+}
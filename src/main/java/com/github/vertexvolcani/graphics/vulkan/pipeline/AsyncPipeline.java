@@ -0,0 +1,146 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A pipeline being created in the background by an {@link AsyncPipelineCompiler}.
+ * <p>
+ * {@link #get()} returns the fallback pipeline until the real one is ready and the real one afterwards, so draw code
+ * binds whatever it returns and picks up the real pipeline on the first draw after it is created.
+ * {@link #getPipeline()} and {@link #getLayout()} mirror {@link Pipeline} so call sites do not change. If creation
+ * fails the fallback is used for good.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class AsyncPipeline extends LibCleanable {
+    private final AsyncPipelineCompiler compiler;
+    private final CompletableFuture<Pipeline> future;
+    private final Pipeline fallback;
+    private final boolean owns_fallback;
+    /**
+     * the real pipeline once a lookup has seen it finish, so later lookups skip the future
+     */
+    @Nullable
+    private volatile Pipeline ready = null;
+
+    AsyncPipeline(@Nonnull AsyncPipelineCompiler compiler_in, @Nonnull CompletableFuture<Pipeline> future_in, @Nonnull Pipeline fallback_in, boolean owns_fallback_in) {
+        compiler = compiler_in;
+        future = future_in;
+        fallback = fallback_in;
+        owns_fallback = owns_fallback_in;
+    }
+
+    /**
+     * Gets the pipeline to draw with, counting a fallback draw if the real pipeline is not ready.
+     *
+     * @return The real pipeline, or the fallback.
+     */
+    public Pipeline get() {
+        Pipeline pipeline = poll();
+        if (pipeline == null) {
+            compiler.recordFallback();
+            return fallback;
+        }
+        return pipeline;
+    }
+
+    /**
+     * Waits for the real pipeline, the wait is reported as a stall of the current frame.
+     *
+     * @return The real pipeline, or the fallback if creation failed.
+     */
+    public Pipeline join() {
+        Pipeline pipeline = poll();
+        if (pipeline != null || future.isDone()) {
+            return pipeline == null ? fallback : pipeline;
+        }
+        final long start = System.nanoTime();
+        try {
+            pipeline = future.join();
+            ready = pipeline;
+            return pipeline;
+        } catch (CompletionException e) {
+            return fallback;
+        } finally {
+            compiler.recordStall(System.nanoTime() - start);
+        }
+    }
+
+    @Nullable
+    private Pipeline poll() {
+        Pipeline pipeline = ready;
+        if (pipeline == null && future.isDone() && !future.isCompletedExceptionally()) {
+            pipeline = future.join();
+            ready = pipeline;
+        }
+        return pipeline;
+    }
+
+    /**
+     * Gets the handle of the pipeline to draw with.
+     *
+     * @return The handle of the real pipeline, or of the fallback.
+     */
+    public DeviceHandle getPipeline() {
+        return get().getPipeline();
+    }
+
+    /**
+     * Gets the layout of the pipeline to draw with, without counting a fallback draw.
+     *
+     * @return The layout of the real pipeline, or of the fallback.
+     */
+    public PipelineLayout getLayout() {
+        Pipeline pipeline = poll();
+        return pipeline == null ? fallback.getLayout() : pipeline.getLayout();
+    }
+
+    public boolean isReady() {
+        return poll() != null;
+    }
+
+    /**
+     * Checks if creating the real pipeline failed, in which case the fallback is used for good.
+     *
+     * @return {@code true} if creation failed.
+     */
+    public boolean isFailed() {
+        return future.isCompletedExceptionally();
+    }
+
+    public Pipeline getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Closes the real pipeline, or hands it to the compiler to close in {@link AsyncPipelineCompiler#endFrame()} if
+     * it is still in the background. The fallback is closed too if this handle created it.
+     */
+    @Override
+    protected void free() {
+        // never close from the completion stage, that would destroy the pipeline on a background thread
+        if (future.isDone()) {
+            AsyncPipelineCompiler.closeCompleted(future);
+        } else {
+            compiler.closeWhenDone(future);
+        }
+        if (owns_fallback) {
+            fallback.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Creates pipelines on background threads so a material that shows up mid-game does not stall the render thread.
+ * <p>
+ * {@link #request} returns an {@link AsyncPipeline} straight away, draws use its fallback pipeline until the real
+ * one has been created. The compiler counts how often the fallback was drawn and how long the render thread blocked
+ * in {@link AsyncPipeline#join()}, call {@link #endFrame()} once per frame to read those per frame.
+ * </p>
+ * Pipelines of handles closed before they were ready are closed by {@link #endFrame()} on the thread calling it, so
+ * destruction never runs on a background thread.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class AsyncPipelineCompiler extends LibCleanable {
+    private final Device device;
+    @Nullable
+    private final PipelineCache cache;
+    private final ForkJoinPool pool;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong compiled = new AtomicLong();
+    private final AtomicLong compile_nanos = new AtomicLong();
+    private final AtomicLong frame_fallbacks = new AtomicLong();
+    private final AtomicLong frame_stall_nanos = new AtomicLong();
+    private final AtomicLong frame_completed = new AtomicLong();
+    /**
+     * pipelines whose handle was closed while they were still being created
+     */
+    private final ConcurrentLinkedQueue<CompletableFuture<Pipeline>> pending_close = new ConcurrentLinkedQueue<>();
+    private long last_frame_fallbacks = 0;
+    private long last_frame_stall_nanos = 0;
+    private long last_frame_completed = 0;
+
+    /**
+     * Constructs a new AsyncPipelineCompiler leaving one core to the render thread.
+     *
+     * @param device_in The Vulkan device.
+     * @param cache_in  The pipeline cache pipelines are created with, or {@code null} for none.
+     */
+    public AsyncPipelineCompiler(@Nonnull Device device_in, @Nullable PipelineCache cache_in) {
+        this(device_in, cache_in, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Constructs a new AsyncPipelineCompiler.
+     *
+     * @param device_in   The Vulkan device.
+     * @param cache_in    The pipeline cache pipelines are created with, or {@code null} for none.
+     * @param parallelism The number of background threads.
+     */
+    public AsyncPipelineCompiler(@Nonnull Device device_in, @Nullable PipelineCache cache_in, int parallelism) {
+        if (parallelism <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: async pipeline compiler needs at least one thread");
+            throw new IllegalStateException("async pipeline compiler needs at least one thread");
+        }
+        device = device_in;
+        cache = cache_in;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Starts creating a pipeline in the background. The builder must not be changed or closed until the pipeline is
+     * ready.
+     *
+     * @param builder     The pipeline configuration.
+     * @param compute     {@code true} if the pipeline is a compute pipeline.
+     * @param owns_layout {@code true} if the pipeline closes its layout.
+     * @param fallback    The pipeline drawn with until the real one is ready, it must use a compatible layout and is
+     *                    not closed by the handle.
+     * @return The handle draws go through.
+     */
+    public AsyncPipeline request(@Nonnull Pipeline.PipelineBuilder builder, boolean compute, boolean owns_layout, @Nonnull Pipeline fallback) {
+        return submit(() -> new Pipeline(device, builder, cache, compute, owns_layout), fallback, false);
+    }
+
+    /**
+     * Starts creating a pipeline in the background with any creation function.
+     *
+     * @param create        Creates the pipeline on a background thread.
+     * @param fallback      The pipeline drawn with until the real one is ready.
+     * @param owns_fallback {@code true} if the handle closes the fallback.
+     * @return The handle draws go through.
+     */
+    AsyncPipeline submit(@Nonnull Supplier<Pipeline> create, @Nonnull Pipeline fallback, boolean owns_fallback) {
+        pending.incrementAndGet();
+        CompletableFuture<Pipeline> future = CompletableFuture.supplyAsync(() -> {
+            final long start = System.nanoTime();
+            try {
+                return create.get();
+            } finally {
+                compile_nanos.addAndGet(System.nanoTime() - start);
+                pending.decrementAndGet();
+            }
+        }, pool);
+        future.whenComplete((pipeline, error) -> {
+            if (error != null) {
+                Log.print(Log.Severity.ERROR, "Vulkan: async pipeline creation failed, the fallback stays in use: " + error.getMessage());
+            } else {
+                compiled.incrementAndGet();
+                frame_completed.incrementAndGet();
+            }
+        });
+        return new AsyncPipeline(this, future, fallback, owns_fallback);
+    }
+
+    void recordFallback() {
+        frame_fallbacks.incrementAndGet();
+    }
+
+    void recordStall(long nanos) {
+        frame_stall_nanos.addAndGet(nanos);
+    }
+
+    void closeWhenDone(@Nonnull CompletableFuture<Pipeline> future) {
+        pending_close.add(future);
+    }
+
+    /**
+     * Closes the pipeline of a finished future, if creating it succeeded.
+     */
+    static void closeCompleted(@Nonnull CompletableFuture<Pipeline> future) {
+        if (!future.isCompletedExceptionally()) {
+            future.join().close();
+        }
+    }
+
+    private void drainPendingClose() {
+        for (Iterator<CompletableFuture<Pipeline>> it = pending_close.iterator(); it.hasNext(); ) {
+            CompletableFuture<Pipeline> future = it.next();
+            if (future.isDone()) {
+                it.remove();
+                closeCompleted(future);
+            }
+        }
+    }
+
+    /**
+     * Ends the frame's metrics, the counters of the frame that just ended are readable until the next call. Closes
+     * the pipelines of closed handles that have finished since.
+     */
+    public void endFrame() {
+        last_frame_fallbacks = frame_fallbacks.getAndSet(0);
+        last_frame_stall_nanos = frame_stall_nanos.getAndSet(0);
+        last_frame_completed = frame_completed.getAndSet(0);
+        drainPendingClose();
+    }
+
+    /**
+     * Gets the number of times the last frame drew with a fallback pipeline.
+     *
+     * @return The fallback count.
+     */
+    public long getFrameFallbacks() {
+        return last_frame_fallbacks;
+    }
+
+    /**
+     * Gets the time the render thread spent waiting for pipelines in the last frame.
+     *
+     * @return The stall in nanoseconds.
+     */
+    public long getFrameStallNanos() {
+        return last_frame_stall_nanos;
+    }
+
+    /**
+     * Gets the number of pipelines that became ready during the last frame.
+     *
+     * @return The completion count.
+     */
+    public long getFrameCompleted() {
+        return last_frame_completed;
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getCompiled() {
+        return compiled.get();
+    }
+
+    /**
+     * Gets the total time spent creating pipelines on the background threads.
+     *
+     * @return The compile time in nanoseconds.
+     */
+    public long getCompileNanos() {
+        return compile_nanos.get();
+    }
+
+    /**
+     * Waits for queued pipelines to finish, shuts the background threads down and closes the pipelines of closed
+     * handles.
+     */
+    @Override
+    protected void free() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.print(Log.Severity.WARNING, "Vulkan: timed out waiting for async pipelines to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drainPendingClose();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing async pipeline compiler, " + compiled.get() + " pipelines in "
+                + (compile_nanos.get() / 1_000_000) + " ms");
+    }
+}
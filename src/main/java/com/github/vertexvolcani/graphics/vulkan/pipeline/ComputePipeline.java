@@ -0,0 +1,238 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.Image;
+import com.github.vertexvolcani.graphics.vulkan.buffer.Buffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.CommandBuffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.ImageSubResourceRange;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.DescriptorLayout;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.DescriptorSets;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * A compute shader with its layout, ready to dispatch.
+ * <p>
+ * The layout comes from the shader's reflection through a {@link LayoutCache}, so storage buffers, storage images and
+ * push constants need no hand written layout. {@link #dispatch} takes the problem size, e.g. the number of particles,
+ * and works out the workgroup count from the shader's {@code local_size}. Work that reads what a dispatch wrote must
+ * be separated from it by one of the barrier helpers: {@link #barrier} for a later dispatch, {@link #barrierToIndirect}
+ * for indirect draws or dispatches built on the GPU (culling) and {@link #barrierToVertex} for vertex data written by
+ * the GPU (skinning, particles).
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class ComputePipeline extends LibCleanable {
+    private final Pipeline pipeline;
+    private final DescriptorLayout[] descriptor_layouts;
+    private final int[] local_size;
+    private final int push_constant_offset;
+    private final int push_constant_size;
+
+    /**
+     * Constructs a new ComputePipeline. The shader is closed once the pipeline is created.
+     *
+     * @param device_in    The Vulkan device.
+     * @param shader       The compute shader.
+     * @param layouts      The layout cache the pipeline layout is taken from, it must outlive the pipeline.
+     * @param cache        The pipeline cache used for caching, or {@code null} if not used.
+     * @param constants    The specialization constants, or {@code null} for the shader's defaults.
+     * @param overrides    Changes the type reflection found for a binding, e.g. to a dynamic storage buffer.
+     * @throws IllegalStateException If the shader is not a compute shader or the pipeline can not be created.
+     */
+    public ComputePipeline(@Nonnull Device device_in, @Nonnull Shader shader, @Nonnull LayoutCache layouts, @Nullable PipelineCache cache,
+                           @Nullable SpecializationConstants constants, @Nonnull LayoutCache.BindingOverride... overrides) {
+        if (shader.getStage() != ShaderType.COMPUTE) {
+            Log.print(Log.Severity.ERROR, "Vulkan: compute pipeline needs a compute shader, got " + shader.getStage());
+            throw new IllegalStateException("compute pipeline needs a compute shader, got " + shader.getStage());
+        }
+        final Shader[] shaders = {shader};
+        PipelineLayout layout = layouts.getPipelineLayout(shaders, overrides);
+        descriptor_layouts = layouts.getDescriptorLayouts(layout);
+        local_size = shader.getReflection().getLocalSize(constants);
+        push_constant_offset = shader.getReflection().getPushConstantOffset();
+        push_constant_size = shader.getReflection().getPushConstantSize();
+        try (Pipeline.PipelineBuilder builder = new Pipeline.PipelineBuilder(shaders, layout, null, false)) {
+            builder.setSpecialization(constants);
+            pipeline = new Pipeline(device_in, builder, cache, true, false);
+        }
+    }
+
+    /**
+     * Computes how many workgroups cover a problem size.
+     *
+     * @param size       The number of invocations needed along one dimension.
+     * @param local_size The workgroup size along that dimension.
+     * @return The workgroup count, rounded up.
+     */
+    public static int groupCount(int size, int local_size) {
+        return (int) ((Integer.toUnsignedLong(size) + local_size - 1) / local_size);
+    }
+
+    /**
+     * Binds the pipeline and, if given, its descriptor sets starting at set 0.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param sets           The descriptor sets, one per set of the layout, or {@code null} to keep the bound ones.
+     */
+    public void bind(@Nonnull CommandBuffer command_buffer, @Nullable DescriptorSets sets) {
+        command_buffer.bindPipeline(VK_PIPELINE_BIND_POINT_COMPUTE, pipeline.getPipeline());
+        if (sets != null && descriptor_layouts.length > 0) {
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                LongBuffer handles = stack.mallocLong(descriptor_layouts.length);
+                for (int i = 0; i < descriptor_layouts.length; i++) {
+                    handles.put(i, sets.getHandle(i));
+                }
+                command_buffer.bindDescriptorSets(VK_PIPELINE_BIND_POINT_COMPUTE, pipeline.getLayout(), 0, handles, null);
+            }
+        }
+    }
+
+    /**
+     * Pushes the shader's push constant block.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param values         The values, at most the size of the shader's block.
+     */
+    public void pushConstants(@Nonnull CommandBuffer command_buffer, @Nonnull ByteBuffer values) {
+        if (values.remaining() > push_constant_size) {
+            Log.print(Log.Severity.ERROR, "Vulkan: pushing " + values.remaining() + " bytes to a " + push_constant_size + " byte push constant block");
+            throw new IllegalStateException("pushing " + values.remaining() + " bytes to a " + push_constant_size + " byte push constant block");
+        }
+        command_buffer.pushConstants(pipeline.getLayout(), ShaderType.COMPUTE, push_constant_offset, values);
+    }
+
+    /**
+     * Dispatches enough workgroups to cover a one dimensional problem.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param size_x         The number of invocations needed.
+     */
+    public void dispatch(@Nonnull CommandBuffer command_buffer, int size_x) {
+        dispatch(command_buffer, size_x, 1, 1);
+    }
+
+    /**
+     * Dispatches enough workgroups to cover a problem, nothing is recorded if any size is zero.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param size_x         The number of invocations needed along x.
+     * @param size_y         The number of invocations needed along y.
+     * @param size_z         The number of invocations needed along z.
+     */
+    public void dispatch(@Nonnull CommandBuffer command_buffer, int size_x, int size_y, int size_z) {
+        if (size_x == 0 || size_y == 0 || size_z == 0) {
+            return;
+        }
+        command_buffer.dispatch(groupCount(size_x, local_size[0]), groupCount(size_y, local_size[1]), groupCount(size_z, local_size[2]));
+    }
+
+    /**
+     * Dispatches with workgroup counts read from a buffer, e.g. written by an earlier dispatch. The buffer needs
+     * {@code VK_BUFFER_USAGE_INDIRECT_BUFFER_BIT} and the write needs a {@link #barrierToIndirect} first.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param buffer         The buffer holding a {@code VkDispatchIndirectCommand}.
+     * @param offset         The byte offset of the command.
+     */
+    public void dispatchIndirect(@Nonnull CommandBuffer command_buffer, @Nonnull Buffer buffer, long offset) {
+        command_buffer.dispatchIndirect(buffer.getBuffer(), offset);
+    }
+
+    /**
+     * Makes the writes of earlier dispatches to buffers visible to later dispatches.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param buffers        The buffers written.
+     */
+    public static void barrier(@Nonnull CommandBuffer command_buffer, @Nonnull Buffer... buffers) {
+        command_buffer.bufferBarrier(buffers, VK_ACCESS_SHADER_WRITE_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT,
+                VK_ACCESS_SHADER_READ_BIT | VK_ACCESS_SHADER_WRITE_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT);
+    }
+
+    /**
+     * Makes the writes of earlier dispatches to buffers visible as indirect draw or dispatch arguments.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param buffers        The buffers written.
+     */
+    public static void barrierToIndirect(@Nonnull CommandBuffer command_buffer, @Nonnull Buffer... buffers) {
+        command_buffer.bufferBarrier(buffers, VK_ACCESS_SHADER_WRITE_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT,
+                VK_ACCESS_INDIRECT_COMMAND_READ_BIT, VK_PIPELINE_STAGE_DRAW_INDIRECT_BIT);
+    }
+
+    /**
+     * Makes the writes of earlier dispatches to buffers visible as vertex and index data of later draws.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param buffers        The buffers written.
+     */
+    public static void barrierToVertex(@Nonnull CommandBuffer command_buffer, @Nonnull Buffer... buffers) {
+        command_buffer.bufferBarrier(buffers, VK_ACCESS_SHADER_WRITE_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT,
+                VK_ACCESS_VERTEX_ATTRIBUTE_READ_BIT | VK_ACCESS_INDEX_READ_BIT, VK_PIPELINE_STAGE_VERTEX_INPUT_BIT);
+    }
+
+    /**
+     * Makes the writes of earlier dispatches to a storage image in {@code VK_IMAGE_LAYOUT_GENERAL} visible to later
+     * dispatches.
+     *
+     * @param command_buffer The command buffer to record into.
+     * @param image          The image written.
+     * @param range          The part of the image written.
+     */
+    public static void barrier(@Nonnull CommandBuffer command_buffer, @Nonnull Image image, @Nonnull ImageSubResourceRange range) {
+        command_buffer.insertImageMemoryBarrier(image, VK_ACCESS_SHADER_WRITE_BIT, VK_ACCESS_SHADER_READ_BIT | VK_ACCESS_SHADER_WRITE_BIT,
+                VK_IMAGE_LAYOUT_GENERAL, VK_IMAGE_LAYOUT_GENERAL, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT, VK_PIPELINE_STAGE_COMPUTE_SHADER_BIT, range);
+    }
+
+    public Pipeline getPipeline() {
+        return pipeline;
+    }
+
+    public PipelineLayout getLayout() {
+        return pipeline.getLayout();
+    }
+
+    /**
+     * Gets the descriptor set layouts to allocate the pipeline's sets with, indexed by set number.
+     *
+     * @return The descriptor set layouts, owned by the layout cache.
+     */
+    public DescriptorLayout[] getDescriptorLayouts() {
+        return descriptor_layouts.clone();
+    }
+
+    /**
+     * Gets the workgroup size of the shader.
+     *
+     * @return The x, y and z size.
+     */
+    public int[] getLocalSize() {
+        return local_size.clone();
+    }
+
+    /**
+     * Closes the pipeline, the layout stays with the layout cache.
+     */
+    @Override
+    protected void free() {
+        pipeline.close();
+    }
+}
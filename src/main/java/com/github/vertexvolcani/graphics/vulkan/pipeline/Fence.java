@@ -14,6 +14,7 @@ import com.github.vertexvolcani.util.Nonnull;
 import org.lwjgl.vulkan.VkFenceCreateInfo;
 
 import static org.lwjgl.vulkan.VK10.VK_FENCE_CREATE_SIGNALED_BIT;
+import static org.lwjgl.vulkan.VK10.VK_SUCCESS;
 
 /**
  * The Fence class represents a synchronization primitive in Vulkan graphics API.
@@ -74,6 +75,16 @@ public final class Fence extends LibCleanable {
         handle.device().getFenceStatus(handle);
     }
 
+    /**
+     * Checks without blocking whether the fence is signaled.
+     *
+     * @return {@code true} if the fence is signaled.
+     */
+    public boolean isSignaled() {
+        handle.device().getFenceStatus(handle);
+        return handle.device().getResult() == VK_SUCCESS;
+    }
+
     /**
      * Gets the handle to the Vulkan fence object.
      *
@@ -88,8 +99,9 @@ public final class Fence extends LibCleanable {
      */
     @Override
     protected void free() {
-        handle.device().waitIdle();
-        handle.device().destroyFence(handle);
-        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing fence");
+        handle.device().retire(0, () -> {
+            handle.device().destroyFence(handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: done freeing fence");
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.DescriptorLayout;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.DescriptorType;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.LayoutBinding;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Builds descriptor set layouts and pipeline layouts from the {@link ShaderReflection} of a pipeline's shaders and
+ * shares them between every pipeline with the same interface.
+ * <p>
+ * The bindings of all the shaders are merged per set, a binding used by several stages is visible to all of them,
+ * and the push constant blocks are merged into one range visible to every stage that reads push constants. Equal
+ * sets share one {@link DescriptorLayout} and equal pipeline interfaces share one {@link PipelineLayout}, so
+ * descriptor sets stay bound when switching between pipelines built from the same cache.
+ * </p>
+ * The cache owns every layout it returns, pipelines using them must be created with {@code owns_layout} set to
+ * {@code false} and closed before the cache.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class LayoutCache extends LibCleanable {
+    private final Device device;
+    private final HashMap<List<ShaderReflection.Binding>, DescriptorLayout> descriptor_layouts = new HashMap<>();
+    private final HashMap<LayoutKey, PipelineLayout> pipeline_layouts = new HashMap<>();
+    private final IdentityHashMap<PipelineLayout, DescriptorLayout[]> sets_of_layout = new IdentityHashMap<>();
+
+    /**
+     * Constructs a new LayoutCache.
+     *
+     * @param device_in The Vulkan device.
+     */
+    public LayoutCache(@Nonnull Device device_in) {
+        device = device_in;
+    }
+
+    /**
+     * Gets the pipeline layout for the interface of a set of shaders, creating it and its descriptor set layouts if
+     * no shaders with the same interface have asked before.
+     *
+     * @param shaders   The shaders of the pipeline.
+     * @param overrides Changes the type reflection found for a binding, used to make uniform and storage buffers
+     *                  dynamic.
+     * @return The shared pipeline layout, owned by the cache.
+     * @throws IllegalStateException If the shaders disagree on a binding or use a runtime sized descriptor array.
+     */
+    public synchronized PipelineLayout getPipelineLayout(@Nonnull Shader[] shaders, @Nonnull BindingOverride... overrides) {
+        TreeMap<Integer, TreeMap<Integer, ShaderReflection.Binding>> sets = new TreeMap<>();
+        int push_stages = 0;
+        int push_begin = Integer.MAX_VALUE;
+        int push_end = 0;
+        for (Shader shader : shaders) {
+            ShaderReflection reflection = shader.getReflection();
+            for (ShaderReflection.Binding binding : reflection.getBindings()) {
+                sets.computeIfAbsent(binding.set(), set -> new TreeMap<>()).merge(binding.binding(), binding, LayoutCache::mergeBinding);
+            }
+            if (reflection.getPushConstantSize() > 0) {
+                push_stages |= reflection.getStage().getValue();
+                push_begin = Math.min(push_begin, reflection.getPushConstantOffset());
+                push_end = Math.max(push_end, reflection.getPushConstantOffset() + reflection.getPushConstantSize());
+            }
+        }
+        for (BindingOverride override : overrides) {
+            TreeMap<Integer, ShaderReflection.Binding> set = sets.get(override.set());
+            ShaderReflection.Binding binding = set == null ? null : set.get(override.binding());
+            if (binding == null) {
+                Log.print(Log.Severity.ERROR, "Vulkan: layout override for set " + override.set() + " binding " + override.binding() + " matches no shader binding");
+                throw new IllegalStateException("layout override for set " + override.set() + " binding " + override.binding() + " matches no shader binding");
+            }
+            set.put(binding.binding(), new ShaderReflection.Binding(binding.set(), binding.binding(), override.type(), binding.count(), binding.stage_flags()));
+        }
+        // sets the shaders skip still need a layout, an empty one
+        final int set_count = sets.isEmpty() ? 0 : sets.lastKey() + 1;
+        List<DescriptorLayout> set_layouts = new ArrayList<>(set_count);
+        for (int i = 0; i < set_count; i++) {
+            TreeMap<Integer, ShaderReflection.Binding> set = sets.get(i);
+            set_layouts.add(getDescriptorLayout(set == null ? List.of() : new ArrayList<>(set.values())));
+        }
+        final LayoutKey key = push_stages == 0 ? new LayoutKey(set_layouts, 0, 0, 0) : new LayoutKey(set_layouts, push_stages, push_begin, push_end - push_begin);
+        PipelineLayout layout = pipeline_layouts.get(key);
+        if (layout == null) {
+            final DescriptorLayout[] set_array = set_layouts.toArray(new DescriptorLayout[0]);
+            layout = new PipelineLayout(device, set_array, key.push_stages() == 0 ? null :
+                    new PipelineLayout.PushConstant[]{new PipelineLayout.PushConstant(ShaderType.fromValue(key.push_stages()), key.push_offset(), key.push_size())});
+            pipeline_layouts.put(key, layout);
+            sets_of_layout.put(layout, set_array);
+        }
+        return layout;
+    }
+
+    /**
+     * Gets the descriptor set layouts of a pipeline layout created by this cache, indexed by set number.
+     *
+     * @param layout A pipeline layout returned by {@link #getPipelineLayout}.
+     * @return The descriptor set layouts, owned by the cache.
+     */
+    public synchronized DescriptorLayout[] getDescriptorLayouts(@Nonnull PipelineLayout layout) {
+        DescriptorLayout[] sets = sets_of_layout.get(layout);
+        if (sets == null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: pipeline layout was not created by this layout cache");
+            throw new IllegalStateException("pipeline layout was not created by this layout cache");
+        }
+        return sets.clone();
+    }
+
+    public synchronized int getDescriptorLayoutCount() {
+        return descriptor_layouts.size();
+    }
+
+    public synchronized int getPipelineLayoutCount() {
+        return pipeline_layouts.size();
+    }
+
+    private DescriptorLayout getDescriptorLayout(List<ShaderReflection.Binding> bindings) {
+        // the set number is not part of the layout, equal bindings in different sets share one
+        List<ShaderReflection.Binding> key = new ArrayList<>(bindings.size());
+        for (ShaderReflection.Binding binding : bindings) {
+            if (binding.count() == 0) {
+                Log.print(Log.Severity.ERROR, "Vulkan: runtime sized descriptor array at set " + binding.set() + " binding " + binding.binding() + " needs an explicit layout");
+                throw new IllegalStateException("runtime sized descriptor array at set " + binding.set() + " binding " + binding.binding() + " needs an explicit layout");
+            }
+            key.add(new ShaderReflection.Binding(0, binding.binding(), binding.type(), binding.count(), binding.stage_flags()));
+        }
+        DescriptorLayout layout = descriptor_layouts.get(key);
+        if (layout == null) {
+            LayoutBinding[] layout_bindings = new LayoutBinding[key.size()];
+            for (int i = 0; i < layout_bindings.length; i++) {
+                ShaderReflection.Binding binding = key.get(i);
+                layout_bindings[i] = new LayoutBinding(binding.binding(), binding.count(), binding.type(), ShaderType.fromValue(binding.stage_flags()), null);
+            }
+            layout = new DescriptorLayout(device, layout_bindings, 0);
+            descriptor_layouts.put(List.copyOf(key), layout);
+        }
+        return layout;
+    }
+
+    private static ShaderReflection.Binding mergeBinding(ShaderReflection.Binding a, ShaderReflection.Binding b) {
+        if (a.type() != b.type() || a.count() != b.count()) {
+            Log.print(Log.Severity.ERROR, "Vulkan: shaders disagree on set " + a.set() + " binding " + a.binding());
+            throw new IllegalStateException("shaders disagree on set " + a.set() + " binding " + a.binding());
+        }
+        return new ShaderReflection.Binding(a.set(), a.binding(), a.type(), a.count(), a.stage_flags() | b.stage_flags());
+    }
+
+    /**
+     * Closes every pipeline layout and descriptor set layout the cache created.
+     */
+    @Override
+    protected synchronized void free() {
+        for (PipelineLayout layout : pipeline_layouts.values()) {
+            layout.close();
+        }
+        for (DescriptorLayout layout : descriptor_layouts.values()) {
+            layout.close();
+        }
+        pipeline_layouts.clear();
+        sets_of_layout.clear();
+        descriptor_layouts.clear();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing layout cache");
+    }
+
+    /**
+     * Replaces the descriptor type reflection found for one binding.
+     *
+     * @param set     The descriptor set index.
+     * @param binding The binding number in the set.
+     * @param type    The descriptor type to use instead.
+     */
+    public record BindingOverride(int set, int binding, @Nonnull DescriptorType type) {
+    }
+
+    private record LayoutKey(List<DescriptorLayout> sets, int push_stages, int push_offset, int push_size) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates many pipelines at once on a pool of worker threads.
+ * <p>
+ * Drivers compile pipelines on the calling thread, so a level with hundreds of materials spends most of its load
+ * time in pipeline creation on one core. Each worker gets its own {@link PipelineCache} seeded from the shared one,
+ * which keeps workers from contending on a single cache, and once the batch is done the worker caches are merged
+ * back into the shared cache so the next run can save everything that was compiled.
+ * </p>
+ * Every builder must only be used by one batch at a time. Builders may share a layout, but not shaders, as a
+ * builder frees its shader modules when it is closed.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class ParallelPipelineBuilder extends LibCleanable {
+    private final Device device;
+    @Nullable
+    private final PipelineCache cache;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new ParallelPipelineBuilder using every available core.
+     *
+     * @param device_in The Vulkan device.
+     * @param cache_in  The shared cache worker caches are seeded from and merged into, or {@code null} for none.
+     */
+    public ParallelPipelineBuilder(@Nonnull Device device_in, @Nullable PipelineCache cache_in) {
+        this(device_in, cache_in, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new ParallelPipelineBuilder.
+     *
+     * @param device_in   The Vulkan device.
+     * @param cache_in    The shared cache worker caches are seeded from and merged into, or {@code null} for none.
+     * @param parallelism The number of worker threads.
+     */
+    public ParallelPipelineBuilder(@Nonnull Device device_in, @Nullable PipelineCache cache_in, int parallelism) {
+        if (parallelism <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: parallel pipeline builder needs at least one thread");
+            throw new IllegalStateException("parallel pipeline builder needs at least one thread");
+        }
+        device = device_in;
+        cache = cache_in;
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates a pipeline from every builder and waits for all of them. If any creation fails the pipelines that
+     * were created are closed and the failure is rethrown.
+     *
+     * @param builders    The pipeline configurations.
+     * @param compute     {@code true} if the pipelines are compute pipelines.
+     * @param owns_layout {@code true} if each pipeline closes its layout, pass {@code false} when builders share one.
+     * @return The pipelines, in the same order as the builders.
+     */
+    public List<Pipeline> buildAll(@Nonnull List<Pipeline.PipelineBuilder> builders, boolean compute, boolean owns_layout) {
+        final long start = System.nanoTime();
+        // one cache per worker thread for this batch, merged back into the shared cache at the end
+        final Map<Thread, PipelineCache> worker_caches = new ConcurrentHashMap<>();
+        List<CompletableFuture<Pipeline>> futures = new ArrayList<>(builders.size());
+        for (Pipeline.PipelineBuilder builder : builders) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                PipelineCache worker_cache = cache == null ? null :
+                        worker_caches.computeIfAbsent(Thread.currentThread(), thread -> new PipelineCache(device, cache));
+                return new Pipeline(device, builder, worker_cache, compute, owns_layout);
+            }, pool));
+        }
+        List<Pipeline> pipelines = new ArrayList<>(builders.size());
+        RuntimeException failure = null;
+        for (CompletableFuture<Pipeline> future : futures) {
+            try {
+                pipelines.add(future.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (cache != null && !worker_caches.isEmpty()) {
+            cache.merge(worker_caches.values().toArray(new PipelineCache[0]));
+        }
+        for (PipelineCache worker_cache : worker_caches.values()) {
+            worker_cache.close();
+        }
+        if (failure != null) {
+            for (Pipeline pipeline : pipelines) {
+                pipeline.close();
+            }
+            Log.print(Log.Severity.ERROR, "Vulkan: failed to create pipeline batch");
+            throw failure;
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: created " + pipelines.size() + " pipelines on " + pool.getParallelism() + " threads in "
+                + ((System.nanoTime() - start) / 1_000_000) + " ms");
+        return pipelines;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Shuts the worker threads down.
+     */
+    @Override
+    protected void free() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                Log.print(Log.Severity.WARNING, "Vulkan: timed out waiting for pipeline workers to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing parallel pipeline builder");
+    }
+}
@@ -20,6 +20,11 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 
+import static org.lwjgl.vulkan.EXTExtendedDynamicState.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState2.*;
+import static org.lwjgl.vulkan.EXTExtendedDynamicState3.*;
+import static org.lwjgl.vulkan.EXTGraphicsPipelineLibrary.*;
+import static org.lwjgl.vulkan.KHRPipelineLibrary.VK_PIPELINE_CREATE_LIBRARY_BIT_KHR;
 import static org.lwjgl.vulkan.VK10.*;
 
 /**
@@ -43,7 +48,12 @@ public class Pipeline extends LibCleanable {
     private final PipelineLayout layout;
 
     /**
-     * Constructs a new Pipeline object.
+     * whether closing the pipeline also closes its layout
+     */
+    private final boolean owns_layout;
+
+    /**
+     * Constructs a new Pipeline object that owns the builder's layout.
      *
      * @param device_in The Vulkan device associated with this pipeline.
      * @param builder   The builder used to create the pipeline configuration.
@@ -52,29 +62,82 @@ public class Pipeline extends LibCleanable {
      * @throws IllegalStateException If the creation of the Vulkan pipeline fails.
      */
     public Pipeline(@Nonnull Device device_in, @Nonnull PipelineBuilder builder, @Nullable PipelineCache cache, boolean compute) {
+        this(device_in, builder, cache, compute, true);
+    }
+
+    /**
+     * Constructs a new Pipeline object. Pipelines can be created from several threads at once as long as each
+     * thread uses its own builder.
+     *
+     * @param device_in      The Vulkan device associated with this pipeline.
+     * @param builder        The builder used to create the pipeline configuration.
+     * @param cache          The pipeline cache used for caching, or {@code null} if not used.
+     * @param compute        {@code true} if the pipeline is a compute pipeline, {@code false} for a graphics pipeline.
+     * @param owns_layout_in {@code true} to close the layout with the pipeline, {@code false} when the layout is
+     *                       shared with other pipelines and closed by the caller.
+     * @throws IllegalStateException If the creation of the Vulkan pipeline fails.
+     */
+    public Pipeline(@Nonnull Device device_in, @Nonnull PipelineBuilder builder, @Nullable PipelineCache cache, boolean compute, boolean owns_layout_in) {
+        owns_layout = owns_layout_in;
         try (MemoryStack stack = MemoryStack.stackPush()) {
             long[] buffer = new long[1];
+            // creation feedback tells the cache whether the driver found the pipeline in it
+            @Nullable VkPipelineCreationFeedbackEXT feedback = cache != null && device_in.isPipelineCreationFeedbackEnabled() ? VkPipelineCreationFeedbackEXT.calloc(stack) : null;
+            final long start = System.nanoTime();
+            boolean linked = false;
             if (compute) {
                 VkComputePipelineCreateInfo.Buffer pCreateInfo = builder.buildComputePipeline(stack);
+                if (feedback != null) {
+                    pCreateInfo.pNext(createFeedbackInfo(stack, feedback, 1, pCreateInfo.pNext()).address());
+                }
                 device_in.createComputePipelines(cache == null ? null : cache.getPipelineCache(), pCreateInfo, buffer);
                 if (device_in.didErrorOccur()) {
                     Log.print(Log.Severity.ERROR, "Vulkan: failed to create compute pipeline");
                     throw new IllegalStateException("failed to create compute pipeline");
                 }
+            } else if (builder.getPipelineLibrary() != null && builder.getPipelineLibrary().isSupported()) {
+                // linking compiled parts is far cheaper than a full compile, PipelineLibrary.linkAsync adds the optimized link
+                buffer[0] = builder.getPipelineLibrary().link(builder, false);
+                linked = true;
             } else {
                 VkGraphicsPipelineCreateInfo.Buffer pipelineCreateInfo = builder.buildGraphicsPipeline(stack);
+                if (feedback != null) {
+                    pipelineCreateInfo.pNext(createFeedbackInfo(stack, feedback, pipelineCreateInfo.stageCount(), pipelineCreateInfo.pNext()).address());
+                }
                 device_in.createGraphicsPipelines(cache == null ? null : cache.getPipelineCache(), pipelineCreateInfo, buffer);
                 if (device_in.didErrorOccur()) {
                     Log.print(Log.Severity.ERROR, "Vulkan: failed to create graphics pipeline");
                     throw new IllegalStateException("failed to create graphics pipeline");
                 }
             }
+            if (cache != null && !linked) {
+                cache.recordCreation(feedback == null ? 0 : feedback.flags(), System.nanoTime() - start);
+            }
             handle = new DeviceHandle(device_in,buffer[0]);
             layout = builder.layout;
         }
         Log.print(Log.Severity.DEBUG, "Vulkan: created pipeline");
     }
 
+    /**
+     * Wraps a pipeline handle created elsewhere, such as a pipeline linked by a {@link PipelineLibrary}.
+     *
+     * @param handle_in      The handle of the pipeline, owned by the new object.
+     * @param layout_in      The layout of the pipeline.
+     * @param owns_layout_in {@code true} to close the layout with the pipeline.
+     */
+    Pipeline(@Nonnull DeviceHandle handle_in, @Nonnull PipelineLayout layout_in, boolean owns_layout_in) {
+        handle = handle_in;
+        layout = layout_in;
+        owns_layout = owns_layout_in;
+        Log.print(Log.Severity.DEBUG, "Vulkan: created pipeline");
+    }
+
+    private static VkPipelineCreationFeedbackCreateInfoEXT createFeedbackInfo(@Nonnull MemoryStack stack, @Nonnull VkPipelineCreationFeedbackEXT feedback, int stage_count, long next) {
+        return VkPipelineCreationFeedbackCreateInfoEXT.calloc(stack).sType$Default().pNext(next)
+                .pPipelineCreationFeedback(feedback).pPipelineStageCreationFeedbacks(VkPipelineCreationFeedbackEXT.calloc(stage_count, stack));
+    }
+
     /**
      * Gets the handle of the Vulkan pipeline.
      *
@@ -99,9 +162,14 @@ public class Pipeline extends LibCleanable {
      */
     @Override
     public final void free() {
-        layout.free();
-        handle.device().destroyPipeline(handle);
-        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing pipeline");
+        // command buffers still in flight may be bound to the pipeline
+        handle.device().retire(0, () -> {
+            if (owns_layout) {
+                layout.free();
+            }
+            handle.device().destroyPipeline(handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: done freeing pipeline");
+        });
     }
 
     /**
@@ -126,6 +194,20 @@ public class Pipeline extends LibCleanable {
         private final RenderPass render_pass;
 
         private final ByteBuffer entry_name = MemoryUtil.memUTF8("main");
+        /**
+         * the key of the current state, rebuilt on the first lookup after a setter is called
+         */
+        private final PipelineKey key = new PipelineKey();
+        private boolean key_dirty = true;
+        /**
+         * the specialization constants given to every stage, empty for none
+         */
+        private final SpecializationConstants specialization = new SpecializationConstants();
+        /**
+         * the library graphics pipelines are linked from, {@code null} to compile them in full
+         */
+        @Nullable
+        private PipelineLibrary library = null;
 
         /**
          * Constructs a new PipelineBuilder object.
@@ -159,11 +241,13 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setPrimitiveTopology(int topology) {
+            key_dirty = true;
             input_assembly_state.topology(topology);
             return this;
         }
 
         public PipelineBuilder setLineWidth(float line_width) {
+            key_dirty = true;
             rasterization_state.lineWidth(line_width);
             return this;
         }
@@ -175,6 +259,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setVertexInputBinding(@Nullable VkVertexInputBindingDescription.Buffer binding) {
+            key_dirty = true;
             vertex_input_state.pVertexBindingDescriptions(binding);
             return this;
         }
@@ -186,6 +271,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setVertexInputAttribute(@Nullable VkVertexInputAttributeDescription.Buffer attribute) {
+            key_dirty = true;
             vertex_input_state.pVertexAttributeDescriptions(attribute);
             return this;
         }
@@ -197,6 +283,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setPolygonMode(int polygonMode) {
+            key_dirty = true;
             rasterization_state.polygonMode(polygonMode);
             return this;
         }
@@ -208,6 +295,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setCullMode(int cullMode) {
+            key_dirty = true;
             rasterization_state.cullMode(cullMode);
             return this;
         }
@@ -219,6 +307,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setFrontFace(int frontFace) {
+            key_dirty = true;
             rasterization_state.frontFace(frontFace);
             return this;
         }
@@ -230,11 +319,13 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setBlendConstants(@Nonnull FloatBuffer blendConstants) {
+            key_dirty = true;
             color_blend_state.blendConstants(blendConstants);
             return this;
         }
 
         public PipelineBuilder setColourBlendAttachments(@Nonnull VkPipelineColorBlendAttachmentState.Buffer attachments) {
+            key_dirty = true;
             color_blend_state.pAttachments(attachments);
             return this;
         }
@@ -247,6 +338,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setViewport(@Nullable VkViewport.Buffer viewport, int count) {
+            key_dirty = true;
             viewport_state.pViewports(viewport);
             viewport_state.viewportCount(count);
             return this;
@@ -260,6 +352,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setScissor(@Nullable VkRect2D.Buffer scissor, int count) {
+            key_dirty = true;
             viewport_state.pScissors(scissor);
             viewport_state.scissorCount(count);
             return this;
@@ -272,6 +365,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setDynamicStates(@Nonnull IntBuffer dynamicStates) {
+            key_dirty = true;
             dynamic_state.pDynamicStates(dynamicStates);
             return this;
         }
@@ -283,6 +377,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setDepthTestEnable(boolean depthTestEnable) {
+            key_dirty = true;
             depth_stencil_state.depthTestEnable(depthTestEnable);
             return this;
         }
@@ -294,6 +389,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setSampleCount(int sampleCount) {
+            key_dirty = true;
             multi_sample_state.rasterizationSamples(sampleCount);
             return this;
         }
@@ -305,6 +401,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setMinSampleShading(float minSampleShading) {
+            key_dirty = true;
             multi_sample_state.minSampleShading(minSampleShading);
             return this;
         }
@@ -316,6 +413,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setSampleMask(@Nonnull IntBuffer sampleMask) {
+            key_dirty = true;
             multi_sample_state.pSampleMask(sampleMask);
             return this;
         }
@@ -327,6 +425,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setDepthWriteEnable(boolean depthWriteEnable) {
+            key_dirty = true;
             depth_stencil_state.depthWriteEnable(depthWriteEnable);
             return this;
         }
@@ -338,17 +437,20 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setDepthCompareOp(int depthCompareOp) {
+            key_dirty = true;
             depth_stencil_state.depthCompareOp(depthCompareOp);
             return this;
         }
 
         public PipelineBuilder setDepthFront(VkStencilOpState state) {
+            key_dirty = true;
             depth_stencil_state.front(state);
             return this;
         }
 
         public PipelineBuilder setDepthBack(VkStencilOpState state) {
-            depth_stencil_state.front(state);
+            key_dirty = true;
+            depth_stencil_state.back(state);
             return this;
         }
 
@@ -359,6 +461,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setLogicOpEnable(boolean logicOpEnable) {
+            key_dirty = true;
             color_blend_state.logicOpEnable(logicOpEnable);
             return this;
         }
@@ -370,6 +473,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setLogicOp(int logicOp) {
+            key_dirty = true;
             color_blend_state.logicOp(logicOp);
             return this;
         }
@@ -381,11 +485,13 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setAlphaToCoverageEnable(boolean alphaToCoverageEnable) {
+            key_dirty = true;
             multi_sample_state.alphaToCoverageEnable(alphaToCoverageEnable);
             return this;
         }
 
         public PipelineBuilder setDynamicPipelineRenderingState(int[] colour_formats, int depth_format, int stencil_format) {
+            key_dirty = true;
             colour_formats_buffer = MemoryUtil.memAllocInt(colour_formats.length);
             for (int i = 0; i < colour_formats.length; i++) {
                 colour_formats_buffer.put(i, colour_formats[i]);
@@ -406,6 +512,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setAlphaToOneEnable(boolean alphaToOneEnable) {
+            key_dirty = true;
             multi_sample_state.alphaToOneEnable(alphaToOneEnable);
             return this;
         }
@@ -417,6 +524,7 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setStencilTestEnable(boolean stencilTestEnable) {
+            key_dirty = true;
             depth_stencil_state.stencilTestEnable(stencilTestEnable);
             return this;
         }
@@ -429,19 +537,358 @@ public class Pipeline extends LibCleanable {
          * @return This PipelineBuilder for method chaining.
          */
         public PipelineBuilder setStencilOp(@Nonnull VkStencilOpState front, @Nonnull VkStencilOpState back) {
+            key_dirty = true;
             depth_stencil_state.front(front);
             depth_stencil_state.back(back);
             return this;
         }
 
-        private VkPipelineShaderStageCreateInfo.Buffer getShaderInfo(ByteBuffer entry_name) {
-            VkPipelineShaderStageCreateInfo.Buffer buffer = VkPipelineShaderStageCreateInfo.calloc(shader_stages.length);
+        /**
+         * Sets the specialization constants of the pipeline, each shader stage gets the constants its shader
+         * declares. The constants are copied, so the caller may change them afterwards.
+         *
+         * @param constants The constant values, or {@code null} to use the shaders' defaults.
+         * @return This PipelineBuilder for method chaining.
+         */
+        public PipelineBuilder setSpecialization(@Nullable SpecializationConstants constants) {
+            if (constants == null ? specialization.size() == 0 : specialization.equals(constants)) {
+                return this;
+            }
+            key_dirty = true;
+            if (constants == null) {
+                specialization.clear();
+            } else {
+                specialization.assign(constants);
+            }
+            return this;
+        }
+
+        /**
+         * Sets the pipeline library graphics pipelines are linked from. When the device supports
+         * {@code VK_EXT_graphics_pipeline_library} the pipeline is linked from parts the library compiled before,
+         * otherwise it is compiled in full as without a library. The library is not part of the key.
+         *
+         * @param library_in The library, or {@code null} to always compile in full.
+         * @return This PipelineBuilder for method chaining.
+         */
+        public PipelineBuilder setPipelineLibrary(@Nullable PipelineLibrary library_in) {
+            library = library_in;
+            return this;
+        }
+
+        @Nullable
+        PipelineLibrary getPipelineLibrary() {
+            return library;
+        }
+
+        PipelineLayout getLayout() {
+            return layout;
+        }
+
+        /**
+         * Gets the key of the builder's current state, only rebuilding it after the builder has changed. The key is
+         * reused by the builder, use {@link PipelineKey#of} for one that can be kept.
+         * <p>
+         * Buffers passed to the setters are read when the key is built, so they must not be changed afterwards
+         * without calling the setter again.
+         * </p>
+         */
+        PipelineKey getKey() {
+            if (key_dirty) {
+                writeKey();
+                key_dirty = false;
+            }
+            return key;
+        }
+
+        private void writeKey() {
+            key.begin();
+            key.put(layout.getLayout().handle());
+            boolean compute_only = shader_stages.length > 0;
+            for (Shader shader : shader_stages) {
+                compute_only &= shader.getStage().getValue() == VK_SHADER_STAGE_COMPUTE_BIT;
+            }
+            putShaders(key, ~0);
+            // compute pipelines ignore every other state
+            if (compute_only) {
+                key.end();
+                return;
+            }
+            @Nullable IntBuffer dynamic_states = putDynamicStates(key);
+            putVertexInput(key, dynamic_states);
+            putRasterization(key, dynamic_states);
+            putMultisample(key, dynamic_states);
+            putDepthStencil(key, dynamic_states);
+            putBlend(key, dynamic_states);
+            putViewports(key, dynamic_states);
+            putTarget(key);
+            key.end();
+        }
+
+        /**
+         * Writes the key of one graphics pipeline library part, made of only the state that part is compiled from.
+         *
+         * @param part The {@code VK_GRAPHICS_PIPELINE_LIBRARY_*_BIT_EXT} of the part.
+         * @param out  The key to write.
+         */
+        void writeLibraryKey(int part, @Nonnull PipelineKey out) {
+            out.begin();
+            out.put(part);
+            @Nullable IntBuffer dynamic_states = putDynamicStates(out);
+            if (part == VK_GRAPHICS_PIPELINE_LIBRARY_VERTEX_INPUT_INTERFACE_BIT_EXT) {
+                putVertexInput(out, dynamic_states);
+            } else if (part == VK_GRAPHICS_PIPELINE_LIBRARY_PRE_RASTERIZATION_SHADERS_BIT_EXT) {
+                out.put(layout.getLayout().handle());
+                putShaders(out, ~VK_SHADER_STAGE_FRAGMENT_BIT);
+                putRasterization(out, dynamic_states);
+                putViewports(out, dynamic_states);
+                putTarget(out);
+            } else if (part == VK_GRAPHICS_PIPELINE_LIBRARY_FRAGMENT_SHADER_BIT_EXT) {
+                out.put(layout.getLayout().handle());
+                putShaders(out, VK_SHADER_STAGE_FRAGMENT_BIT);
+                putMultisample(out, dynamic_states);
+                putDepthStencil(out, dynamic_states);
+                putTarget(out);
+            } else {
+                putMultisample(out, dynamic_states);
+                putBlend(out, dynamic_states);
+                putTarget(out);
+            }
+            out.end();
+        }
+
+        private void putShaders(@Nonnull PipelineKey out, int stage_mask) {
+            int count = 0;
+            for (Shader shader : shader_stages) {
+                if ((shader.getStage().getValue() & stage_mask) != 0) {
+                    count++;
+                }
+            }
+            out.put(count);
+            for (Shader shader : shader_stages) {
+                if ((shader.getStage().getValue() & stage_mask) != 0) {
+                    out.put(shader.getStage().getValue());
+                    out.put(shader.getShader().handle());
+                    specialization.putKey(out, shader.getReflection());
+                }
+            }
+        }
+
+        /**
+         * Writes the dynamic state list. State that is set on the command buffer does not change the pipeline, so
+         * the other writers leave it out of the key.
+         */
+        @Nullable
+        private IntBuffer putDynamicStates(@Nonnull PipelineKey out) {
+            @Nullable IntBuffer dynamic_states = dynamic_state.pDynamicStates();
+            out.put(dynamic_states == null ? 0 : dynamic_states.remaining());
+            if (dynamic_states != null) {
+                for (int i = dynamic_states.position(); i < dynamic_states.limit(); i++) {
+                    out.put(dynamic_states.get(i));
+                }
+            }
+            return dynamic_states;
+        }
+
+        private void putVertexInput(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            @Nullable VkVertexInputBindingDescription.Buffer bindings = vertex_input_state.pVertexBindingDescriptions();
+            out.put(bindings == null ? 0 : bindings.remaining());
+            if (bindings != null) {
+                final boolean dynamic_stride = isDynamic(dynamic_states, VK_DYNAMIC_STATE_VERTEX_INPUT_BINDING_STRIDE_EXT);
+                for (VkVertexInputBindingDescription binding : bindings) {
+                    out.put(binding.binding());
+                    out.put(dynamic_stride ? 0 : binding.stride());
+                    out.put(binding.inputRate());
+                }
+            }
+            @Nullable VkVertexInputAttributeDescription.Buffer attributes = vertex_input_state.pVertexAttributeDescriptions();
+            out.put(attributes == null ? 0 : attributes.remaining());
+            if (attributes != null) {
+                for (VkVertexInputAttributeDescription attribute : attributes) {
+                    out.put(attribute.location());
+                    out.put(attribute.binding());
+                    out.put(attribute.format());
+                    out.put(attribute.offset());
+                }
+            }
+            // a dynamic topology still has to stay within the pipeline's topology class
+            out.put(isDynamic(dynamic_states, VK_DYNAMIC_STATE_PRIMITIVE_TOPOLOGY_EXT) ? topologyClass(input_assembly_state.topology()) : input_assembly_state.topology());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_PRIMITIVE_RESTART_ENABLE_EXT, input_assembly_state.primitiveRestartEnable() ? 1 : 0);
+        }
+
+        private void putRasterization(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_CLAMP_ENABLE_EXT, rasterization_state.depthClampEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_RASTERIZER_DISCARD_ENABLE_EXT, rasterization_state.rasterizerDiscardEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_POLYGON_MODE_EXT, rasterization_state.polygonMode());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_CULL_MODE_EXT, rasterization_state.cullMode());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_FRONT_FACE_EXT, rasterization_state.frontFace());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_BIAS_ENABLE_EXT, rasterization_state.depthBiasEnable() ? 1 : 0);
+            if (!isDynamic(dynamic_states, VK_DYNAMIC_STATE_DEPTH_BIAS)) {
+                out.put(rasterization_state.depthBiasConstantFactor());
+                out.put(rasterization_state.depthBiasClamp());
+                out.put(rasterization_state.depthBiasSlopeFactor());
+            }
+            if (!isDynamic(dynamic_states, VK_DYNAMIC_STATE_LINE_WIDTH)) {
+                out.put(rasterization_state.lineWidth());
+            }
+        }
+
+        private void putMultisample(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_RASTERIZATION_SAMPLES_EXT, multi_sample_state.rasterizationSamples());
+            out.put(multi_sample_state.sampleShadingEnable());
+            out.put(multi_sample_state.minSampleShading());
+            @Nullable IntBuffer sample_mask = multi_sample_state.pSampleMask((multi_sample_state.rasterizationSamples() + 31) / 32);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_SAMPLE_MASK_EXT, sample_mask == null ? -1L : Integer.toUnsignedLong(sample_mask.get(0)));
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_ALPHA_TO_COVERAGE_ENABLE_EXT, multi_sample_state.alphaToCoverageEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_ALPHA_TO_ONE_ENABLE_EXT, multi_sample_state.alphaToOneEnable() ? 1 : 0);
+        }
+
+        private void putDepthStencil(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_TEST_ENABLE_EXT, depth_stencil_state.depthTestEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_WRITE_ENABLE_EXT, depth_stencil_state.depthWriteEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_COMPARE_OP_EXT, depth_stencil_state.depthCompareOp());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_DEPTH_BOUNDS_TEST_ENABLE_EXT, depth_stencil_state.depthBoundsTestEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_STENCIL_TEST_ENABLE_EXT, depth_stencil_state.stencilTestEnable() ? 1 : 0);
+            putStencilOp(out, dynamic_states, depth_stencil_state.front());
+            putStencilOp(out, dynamic_states, depth_stencil_state.back());
+            if (!isDynamic(dynamic_states, VK_DYNAMIC_STATE_DEPTH_BOUNDS)) {
+                out.put(depth_stencil_state.minDepthBounds());
+                out.put(depth_stencil_state.maxDepthBounds());
+            }
+        }
+
+        private void putBlend(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_LOGIC_OP_ENABLE_EXT, color_blend_state.logicOpEnable() ? 1 : 0);
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_LOGIC_OP_EXT, color_blend_state.logicOp());
+            @Nullable VkPipelineColorBlendAttachmentState.Buffer attachments = color_blend_state.pAttachments();
+            out.put(attachments == null ? 0 : attachments.remaining());
+            if (attachments != null) {
+                final boolean dynamic_equation = isDynamic(dynamic_states, VK_DYNAMIC_STATE_COLOR_BLEND_EQUATION_EXT);
+                for (VkPipelineColorBlendAttachmentState attachment : attachments) {
+                    putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_COLOR_BLEND_ENABLE_EXT, attachment.blendEnable() ? 1 : 0);
+                    if (!dynamic_equation) {
+                        out.put(attachment.srcColorBlendFactor());
+                        out.put(attachment.dstColorBlendFactor());
+                        out.put(attachment.colorBlendOp());
+                        out.put(attachment.srcAlphaBlendFactor());
+                        out.put(attachment.dstAlphaBlendFactor());
+                        out.put(attachment.alphaBlendOp());
+                    }
+                    putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_COLOR_WRITE_MASK_EXT, attachment.colorWriteMask());
+                }
+            }
+            if (!isDynamic(dynamic_states, VK_DYNAMIC_STATE_BLEND_CONSTANTS)) {
+                for (int i = 0; i < 4; i++) {
+                    out.put(color_blend_state.blendConstants(i));
+                }
+            }
+        }
+
+        /**
+         * Writes the viewports and scissors, static ones are baked into the pipeline, dynamic ones only count.
+         */
+        private void putViewports(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states) {
+            final boolean viewport_with_count = isDynamic(dynamic_states, VK_DYNAMIC_STATE_VIEWPORT_WITH_COUNT_EXT);
+            final boolean scissor_with_count = isDynamic(dynamic_states, VK_DYNAMIC_STATE_SCISSOR_WITH_COUNT_EXT);
+            out.put(viewport_with_count ? 0 : viewport_state.viewportCount());
+            @Nullable VkViewport.Buffer viewports = viewport_state.pViewports();
+            if (!viewport_with_count && !isDynamic(dynamic_states, VK_DYNAMIC_STATE_VIEWPORT) && viewports != null) {
+                for (VkViewport viewport : viewports) {
+                    out.put(viewport.x());
+                    out.put(viewport.y());
+                    out.put(viewport.width());
+                    out.put(viewport.height());
+                    out.put(viewport.minDepth());
+                    out.put(viewport.maxDepth());
+                }
+            }
+            out.put(scissor_with_count ? 0 : viewport_state.scissorCount());
+            @Nullable VkRect2D.Buffer scissors = viewport_state.pScissors();
+            if (!scissor_with_count && !isDynamic(dynamic_states, VK_DYNAMIC_STATE_SCISSOR) && scissors != null) {
+                for (VkRect2D scissor : scissors) {
+                    out.put(scissor.offset().x());
+                    out.put(scissor.offset().y());
+                    out.put(scissor.extent().width());
+                    out.put(scissor.extent().height());
+                }
+            }
+        }
+
+        /**
+         * Writes the render pass, or the attachment formats when rendering dynamically.
+         */
+        private void putTarget(@Nonnull PipelineKey out) {
+            if (render_pass != null) {
+                out.put(render_pass.getRenderPass().handle());
+            } else {
+                out.put(VK_NULL_HANDLE);
+                out.put(rendering_info.colorAttachmentCount());
+                if (colour_formats_buffer != null) {
+                    for (int i = 0; i < colour_formats_buffer.remaining(); i++) {
+                        out.put(colour_formats_buffer.get(i));
+                    }
+                }
+                out.put(rendering_info.depthAttachmentFormat());
+                out.put(rendering_info.stencilAttachmentFormat());
+            }
+        }
+
+        private static void putStencilOp(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states, @Nonnull VkStencilOpState op) {
+            if (!isDynamic(dynamic_states, VK_DYNAMIC_STATE_STENCIL_OP_EXT)) {
+                out.put(op.failOp());
+                out.put(op.passOp());
+                out.put(op.depthFailOp());
+                out.put(op.compareOp());
+            }
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_STENCIL_COMPARE_MASK, op.compareMask());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_STENCIL_WRITE_MASK, op.writeMask());
+            putUnlessDynamic(out, dynamic_states, VK_DYNAMIC_STATE_STENCIL_REFERENCE, op.reference());
+        }
+
+        private static void putUnlessDynamic(@Nonnull PipelineKey out, @Nullable IntBuffer dynamic_states, int state, long value) {
+            if (!isDynamic(dynamic_states, state)) {
+                out.put(value);
+            }
+        }
+
+        private static boolean isDynamic(@Nullable IntBuffer dynamic_states, int state) {
+            if (dynamic_states != null) {
+                for (int i = dynamic_states.position(); i < dynamic_states.limit(); i++) {
+                    if (dynamic_states.get(i) == state) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static int topologyClass(int topology) {
+            if (topology == VK_PRIMITIVE_TOPOLOGY_POINT_LIST) {
+                return 0;
+            } else if (topology <= VK_PRIMITIVE_TOPOLOGY_LINE_STRIP || topology == VK_PRIMITIVE_TOPOLOGY_LINE_LIST_WITH_ADJACENCY
+                    || topology == VK_PRIMITIVE_TOPOLOGY_LINE_STRIP_WITH_ADJACENCY) {
+                return 1;
+            } else if (topology == VK_PRIMITIVE_TOPOLOGY_PATCH_LIST) {
+                return 3;
+            }
+            return 2;
+        }
+
+        private VkPipelineShaderStageCreateInfo.Buffer getShaderInfo(@Nonnull MemoryStack stack, int stage_mask) {
+            int count = 0;
+            for (Shader shader : shader_stages) {
+                if ((shader.getStage().getValue() & stage_mask) != 0) {
+                    count++;
+                }
+            }
+            VkPipelineShaderStageCreateInfo.Buffer buffer = VkPipelineShaderStageCreateInfo.calloc(count, stack);
             int index = 0;
-            for (var shaders : shader_stages) {
-                var temp = buffer.get(index);
-                temp.sType$Default().pName(entry_name).stage(shaders.getStage().getValue()).module(shaders.getShader().handle());
-                buffer.put(index, temp);
-                index++;
+            for (Shader shader : shader_stages) {
+                if ((shader.getStage().getValue() & stage_mask) != 0) {
+                    buffer.get(index++).sType$Default().pName(entry_name).stage(shader.getStage().getValue())
+                            .module(shader.getShader().handle())
+                            .pSpecializationInfo(specialization.create(stack, shader.getReflection()));
+                }
             }
             return buffer;
         }
@@ -453,8 +900,29 @@ public class Pipeline extends LibCleanable {
          * @return A VkGraphicsPipelineCreateInfo.Buffer containing the configuration for the graphics pipeline.
          */
         protected VkGraphicsPipelineCreateInfo.Buffer buildGraphicsPipeline(@Nonnull MemoryStack stack) {
-            VkPipelineShaderStageCreateInfo.Buffer shaders = getShaderInfo(entry_name);
-            //Fixme: this leaks memory VkPipelineShaderStageCreateInfo.Buffer
+            return buildGraphicsPipeline(stack, ~0);
+        }
+
+        /**
+         * Builds one graphics pipeline library part. Each part only gets the shader stages it compiles, the state of
+         * the other parts is ignored by the driver.
+         *
+         * @param stack The MemoryStack to use for allocating temporary data.
+         * @param part  The {@code VK_GRAPHICS_PIPELINE_LIBRARY_*_BIT_EXT} of the part.
+         * @param flags Extra pipeline create flags.
+         * @return The create info of the part.
+         */
+        VkGraphicsPipelineCreateInfo.Buffer buildLibraryPart(@Nonnull MemoryStack stack, int part, int flags) {
+            final int stage_mask = part == VK_GRAPHICS_PIPELINE_LIBRARY_PRE_RASTERIZATION_SHADERS_BIT_EXT ? ~VK_SHADER_STAGE_FRAGMENT_BIT
+                    : part == VK_GRAPHICS_PIPELINE_LIBRARY_FRAGMENT_SHADER_BIT_EXT ? VK_SHADER_STAGE_FRAGMENT_BIT : 0;
+            VkGraphicsPipelineCreateInfo.Buffer info = buildGraphicsPipeline(stack, stage_mask);
+            info.flags(flags | VK_PIPELINE_CREATE_LIBRARY_BIT_KHR)
+                    .pNext(VkGraphicsPipelineLibraryCreateInfoEXT.calloc(stack).sType$Default().flags(part).pNext(info.pNext()).address());
+            return info;
+        }
+
+        private VkGraphicsPipelineCreateInfo.Buffer buildGraphicsPipeline(@Nonnull MemoryStack stack, int stage_mask) {
+            VkPipelineShaderStageCreateInfo.Buffer shaders = getShaderInfo(stack, stage_mask);
             var  pipline =VkGraphicsPipelineCreateInfo.calloc(1, stack).sType$Default()
                     .layout(layout.getLayout().handle()).pVertexInputState(vertex_input_state)
                     .pInputAssemblyState(input_assembly_state).pRasterizationState(rasterization_state)
@@ -476,8 +944,7 @@ public class Pipeline extends LibCleanable {
          * @return A VkComputePipelineCreateInfo.Buffer containing the configuration for the compute pipeline.
          */
         protected VkComputePipelineCreateInfo.Buffer buildComputePipeline(@Nonnull MemoryStack stack) {
-            VkPipelineShaderStageCreateInfo.Buffer shaders = getShaderInfo(entry_name);
-            //Fixme: this leaks memory
+            VkPipelineShaderStageCreateInfo.Buffer shaders = getShaderInfo(stack, VK_SHADER_STAGE_COMPUTE_BIT);
             return VkComputePipelineCreateInfo.calloc(1, stack).sType$Default().layout(layout.getLayout().handle()).stage(shaders.get(0)).basePipelineIndex(-1);
         }
 
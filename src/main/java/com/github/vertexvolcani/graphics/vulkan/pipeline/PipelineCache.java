@@ -11,24 +11,61 @@ import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
 import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VkPhysicalDeviceProperties;
 import org.lwjgl.vulkan.VkPipelineCacheCreateInfo;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.vulkan.EXTPipelineCreationFeedback.VK_PIPELINE_CREATION_FEEDBACK_APPLICATION_PIPELINE_CACHE_HIT_BIT_EXT;
+import static org.lwjgl.vulkan.EXTPipelineCreationFeedback.VK_PIPELINE_CREATION_FEEDBACK_VALID_BIT_EXT;
+import static org.lwjgl.vulkan.VK10.VK_PIPELINE_CACHE_HEADER_VERSION_ONE;
 import static org.lwjgl.vulkan.VK10.VK_SUCCESS;
+import static org.lwjgl.vulkan.VK10.VK_UUID_SIZE;
 
 /**
  * Represents a Vulkan Pipeline Cache used for caching pipeline objects.
  *
- * <p>This class manages the creation and destruction of Vulkan pipeline caches.</p>
+ * <p>This class manages the creation and destruction of Vulkan pipeline caches. A cache can be backed by a file so
+ * compiled pipelines survive between runs: the file is loaded on creation if its header matches the current
+ * driver and device, and {@link #save()} writes the cache back atomically so a crash never leaves a torn file.</p>
+ * <p>Every pipeline created with the cache is counted, and when {@link Device#isPipelineCreationFeedbackEnabled()}
+ * the driver also reports whether the pipeline came from the cache.</p>
  *
  * @author Luke Shore
  * @version 1.0
  * @since 2023-12-07
  */
 public final class PipelineCache extends LibCleanable {
+    /**
+     * The size of {@code VkPipelineCacheHeaderVersionOne}, headerSize, headerVersion, vendorID, deviceID and the uuid.
+     */
+    private static final int HEADER_SIZE = 16 + VK_UUID_SIZE;
     /**
      * The handle to the Vulkan pipeline cache.
      */
     private final DeviceHandle handle;
+    /**
+     * The file the cache was loaded from and is saved to, or {@code null} for an in memory cache.
+     */
+    @Nullable
+    private final Path file;
+    private final long loaded_size;
+    private final AtomicLong creations = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong creation_nanos = new AtomicLong();
 
     /**
      * Creates a new PipelineCache object for the specified Vulkan device.
@@ -36,15 +73,292 @@ public final class PipelineCache extends LibCleanable {
      * @param device_in The Vulkan device associated with the pipeline cache.
      */
     public PipelineCache(@Nonnull Device device_in) {
+        this(device_in, (Path) null);
+    }
+
+    /**
+     * Creates a new PipelineCache object backed by a file. The file is loaded if it exists and was written by the
+     * same driver and device, otherwise the cache starts empty and the file is replaced on the next save.
+     *
+     * @param device_in The Vulkan device associated with the pipeline cache.
+     * @param file_in   The cache file, or {@code null} for an in memory cache.
+     */
+    public PipelineCache(@Nonnull Device device_in, @Nullable Path file_in) {
+        file = file_in;
+        @Nullable ByteBuffer initial_data = file == null ? null : load(device_in.getProperties(), file);
+        loaded_size = initial_data == null ? 0 : initial_data.remaining();
+        try {
+            handle = create(device_in, initial_data);
+        } finally {
+            MemoryUtil.memFree(initial_data);
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: created pipeline cache" + (loaded_size > 0 ? " from " + loaded_size + " bytes" : ""));
+    }
+
+    /**
+     * Creates a new in memory PipelineCache holding a copy of another cache, used to give worker threads their own
+     * cache without losing what the shared one already knows.
+     *
+     * @param device_in The Vulkan device associated with the pipeline cache.
+     * @param seed      The cache to copy.
+     */
+    public PipelineCache(@Nonnull Device device_in, @Nonnull PipelineCache seed) {
+        file = null;
+        @Nullable ByteBuffer initial_data = seed.getData();
+        loaded_size = initial_data == null ? 0 : initial_data.remaining();
+        try {
+            handle = create(device_in, initial_data);
+        } finally {
+            MemoryUtil.memFree(initial_data);
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: created pipeline cache from a " + loaded_size + " byte seed");
+    }
+
+    private static DeviceHandle create(@Nonnull Device device_in, @Nullable ByteBuffer initial_data) {
         try(VkPipelineCacheCreateInfo.Buffer pCreateInfo = VkPipelineCacheCreateInfo.calloc(1)) {
             pCreateInfo.sType$Default();
-            handle = device_in.createPipelineCache(pCreateInfo.get(0));
+            if (initial_data != null) {
+                pCreateInfo.pInitialData(initial_data);
+            }
+            DeviceHandle created = device_in.createPipelineCache(pCreateInfo.get(0));
             if (device_in.getResult() != VK_SUCCESS) {
                 Log.print(Log.Severity.ERROR, "Vulkan: failed to create pipeline cache");
                 throw new IllegalStateException("failed to create pipeline cache");
             }
+            return created;
+        }
+    }
+
+    /**
+     * Reads a cache file and checks its header against the device, the driver rejects or may even crash on data
+     * from another device so mismatches are treated as a cold cache.
+     *
+     * @return The cache data, or {@code null} if there is no usable file.
+     */
+    @Nullable
+    private static ByteBuffer load(@Nonnull VkPhysicalDeviceProperties properties, @Nonnull Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                Log.print(Log.Severity.WARNING, "Vulkan: ignoring pipeline cache file " + file + " with invalid size " + size);
+                return null;
+            }
+            // read rather than map so the file is not held open and can be replaced by the next save
+            ByteBuffer data = MemoryUtil.memAlloc((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    MemoryUtil.memFree(data);
+                    return null;
+                }
+            }
+            data.flip();
+            if (!isHeaderValid(properties, file, data, size)) {
+                MemoryUtil.memFree(data);
+                return null;
+            }
+            return data;
+        } catch (IOException e) {
+            Log.print(Log.Severity.WARNING, "Vulkan: failed to read pipeline cache file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isHeaderValid(@Nonnull VkPhysicalDeviceProperties properties, @Nonnull Path file, @Nonnull ByteBuffer data, long size) {
+        // the header is written in host byte order, which is the default for MemoryUtil buffers
+        final int header_size = data.getInt(0);
+        final int header_version = data.getInt(4);
+        if (header_size < HEADER_SIZE || header_size > size || header_version != VK_PIPELINE_CACHE_HEADER_VERSION_ONE) {
+            Log.print(Log.Severity.WARNING, "Vulkan: ignoring pipeline cache file " + file + " with unknown header");
+            return false;
+        }
+        if (data.getInt(8) != properties.vendorID() || data.getInt(12) != properties.deviceID()) {
+            Log.print(Log.Severity.WARNING, "Vulkan: ignoring pipeline cache file " + file + " written for another device");
+            return false;
+        }
+        ByteBuffer uuid = properties.pipelineCacheUUID();
+        for (int i = 0; i < VK_UUID_SIZE; i++) {
+            if (data.get(16 + i) != uuid.get(i)) {
+                Log.print(Log.Severity.WARNING, "Vulkan: ignoring pipeline cache file " + file + " written by another driver");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the cache to the file it was created with.
+     *
+     * @return {@code true} if the cache was written, {@code false} if it has no file or writing failed.
+     */
+    public boolean save() {
+        return file != null && save(file);
+    }
+
+    /**
+     * Writes the cache to a file. The data goes to a temporary file next to the target which is then moved over it,
+     * so readers see either the old or the new cache and never a partial one.
+     *
+     * @param target The file to write.
+     * @return {@code true} if the cache was written, {@code false} if writing failed.
+     */
+    public boolean save(@Nonnull Path target) {
+        final ByteBuffer data = getData();
+        if (data == null) {
+            return false;
         }
-        Log.print(Log.Severity.DEBUG, "Vulkan: created pipeline cache");
+        final Path directory = target.toAbsolutePath().getParent();
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Log.print(Log.Severity.DEBUG, "Vulkan: saved " + data.capacity() + " bytes of pipeline cache to " + target);
+            return true;
+        } catch (IOException e) {
+            Log.print(Log.Severity.WARNING, "Vulkan: failed to save pipeline cache to " + target + ": " + e.getMessage());
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+            return false;
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    /**
+     * Reads the cache contents from the driver.
+     *
+     * @return The cache data, the caller must free it, or {@code null} on failure.
+     */
+    @Nullable
+    private ByteBuffer getData() {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer pDataSize = stack.mallocPointer(1);
+            handle.device().getPipelineCacheData(handle, pDataSize, null);
+            if (handle.device().didErrorOccur()) {
+                Log.print(Log.Severity.WARNING, "Vulkan: failed to query pipeline cache size");
+                return null;
+            }
+            ByteBuffer data = MemoryUtil.memAlloc((int) pDataSize.get(0));
+            handle.device().getPipelineCacheData(handle, pDataSize, data);
+            if (handle.device().didErrorOccur()) {
+                MemoryUtil.memFree(data);
+                Log.print(Log.Severity.WARNING, "Vulkan: failed to read pipeline cache data");
+                return null;
+            }
+            data.limit((int) pDataSize.get(0));
+            return data;
+        }
+    }
+
+    /**
+     * Merges other caches into this one, the pipeline statistics of the sources are added to this cache's.
+     *
+     * @param sources The caches to merge, they stay valid and must be closed by the caller.
+     */
+    public void merge(@Nonnull PipelineCache... sources) {
+        if (sources.length == 0) {
+            return;
+        }
+        long[] handles = new long[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            handles[i] = sources[i].handle.handle();
+            creations.addAndGet(sources[i].creations.get());
+            hits.addAndGet(sources[i].hits.get());
+            misses.addAndGet(sources[i].misses.get());
+            creation_nanos.addAndGet(sources[i].creation_nanos.get());
+        }
+        handle.device().mergePipelineCaches(handle, handles);
+        if (handle.device().didErrorOccur()) {
+            Log.print(Log.Severity.ERROR, "Vulkan: failed to merge pipeline caches");
+            throw new IllegalStateException("failed to merge pipeline caches");
+        }
+    }
+
+    /**
+     * Records a pipeline created with this cache.
+     *
+     * @param feedback_flags The {@code VkPipelineCreationFeedbackFlags} reported by the driver, or 0 without feedback.
+     * @param nanos          The time spent creating the pipeline.
+     */
+    void recordCreation(int feedback_flags, long nanos) {
+        creations.incrementAndGet();
+        creation_nanos.addAndGet(nanos);
+        if ((feedback_flags & VK_PIPELINE_CREATION_FEEDBACK_VALID_BIT_EXT) != 0) {
+            if ((feedback_flags & VK_PIPELINE_CREATION_FEEDBACK_APPLICATION_PIPELINE_CACHE_HIT_BIT_EXT) != 0) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of pipelines created with this cache.
+     *
+     * @return The pipeline count.
+     */
+    public long getCreations() {
+        return creations.get();
+    }
+
+    /**
+     * Gets the number of pipelines the driver reported as served from the cache, only counted with creation
+     * feedback enabled.
+     *
+     * @return The cache hit count.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of pipelines the driver reported as compiled from scratch, only counted with creation
+     * feedback enabled.
+     *
+     * @return The cache miss count.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the total time spent creating pipelines with this cache.
+     *
+     * @return The creation time in nanoseconds.
+     */
+    public long getCreationNanos() {
+        return creation_nanos.get();
+    }
+
+    /**
+     * Gets the size of the data loaded from the cache file.
+     *
+     * @return The loaded size in bytes, 0 if the cache started empty.
+     */
+    public long getLoadedSize() {
+        return loaded_size;
+    }
+
+    @Nullable
+    public Path getFile() {
+        return file;
     }
 
     /**
@@ -64,7 +378,9 @@ public final class PipelineCache extends LibCleanable {
      */
     @Override
     protected void free() {
+        Log.print(Log.Severity.DEBUG, "Vulkan: pipeline cache created " + creations.get() + " pipelines, " + hits.get() + " hits, "
+                + misses.get() + " misses, " + (creation_nanos.get() / 1_000_000) + " ms");
         handle.device().destroyPipelineCache(handle);
         Log.print(Log.Severity.DEBUG, "Vulkan: destroyed pipeline cache");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.util.Nonnull;
+
+import java.util.Arrays;
+
+/**
+ * A canonical, hashable description of the state a {@link Pipeline.PipelineBuilder} would create a pipeline from:
+ * shader modules, vertex input, input assembly, rasterization, multisampling, depth and stencil, blending, viewport
+ * state, dynamic states, the layout and the render pass or dynamic rendering formats.
+ * <p>
+ * Two builders with equal keys create interchangeable pipelines. The key is a flat array of 64 bit words, so
+ * comparing and hashing it never touches the builder's native structs. State the builder lists as dynamic is left
+ * out, so builders that only differ in, for example, cull mode or depth test share one pipeline when those states
+ * are dynamic.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class PipelineKey {
+    private long[] data;
+    private int length = 0;
+    private int hash = 0;
+
+    PipelineKey() {
+        data = new long[64];
+    }
+
+    private PipelineKey(long[] data_in, int hash_in) {
+        data = data_in;
+        length = data_in.length;
+        hash = hash_in;
+    }
+
+    /**
+     * Creates the key of a builder's current state.
+     *
+     * @param builder The pipeline builder.
+     * @return A key that stays valid when the builder changes.
+     */
+    public static PipelineKey of(@Nonnull Pipeline.PipelineBuilder builder) {
+        return builder.getKey().copy();
+    }
+
+    /**
+     * Clears the key before the builder writes its state.
+     */
+    void begin() {
+        length = 0;
+    }
+
+    void put(long value) {
+        if (length == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[length++] = value;
+    }
+
+    void put(boolean value) {
+        put(value ? 1L : 0L);
+    }
+
+    void put(float value) {
+        put(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Finishes the key once the builder has written its state.
+     */
+    void end() {
+        long h = length;
+        for (int i = 0; i < length; i++) {
+            h = h * 0x9E3779B97F4A7C15L + data[i];
+            h ^= h >>> 29;
+        }
+        hash = (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Makes an immutable copy, used when a key kept by a builder must outlive the builder's next change.
+     *
+     * @return The copy.
+     */
+    PipelineKey copy() {
+        return new PipelineKey(Arrays.copyOf(data, length), hash);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PipelineKey key) || key.hash != hash || key.length != length) {
+            return false;
+        }
+        return Arrays.equals(data, 0, length, key.data, 0, length);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineKey[" + length + " words, hash " + Integer.toHexString(hash) + "]";
+    }
+}
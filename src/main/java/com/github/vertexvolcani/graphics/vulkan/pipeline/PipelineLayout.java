@@ -29,6 +29,10 @@ public final class PipelineLayout extends LibCleanable {
      * The handle to the Vulkan pipeline layout.
      */
     private final DeviceHandle handle;
+    /**
+     * The push constant ranges the layout was created with.
+     */
+    private final PushConstant[] push_constants;
     /**
      * Constructs a new PipelineLayout object.
      *
@@ -38,6 +42,7 @@ public final class PipelineLayout extends LibCleanable {
      * @throws IllegalStateException If the creation of the pipeline layout fails.
      */
     public PipelineLayout(Device device_in, @Nullable DescriptorLayout[] layouts, @Nullable PushConstant[] push_constant) {
+        push_constants = push_constant == null ? new PushConstant[0] : push_constant.clone();
         try (MemoryStack stack = MemoryStack.stackPush()) {
             LongBuffer handles = stack.mallocLong(layouts == null ? 0 : layouts.length);
             if (layouts != null) {
@@ -49,10 +54,9 @@ public final class PipelineLayout extends LibCleanable {
                     .setLayoutCount(layouts == null ? 0 : layouts.length).pSetLayouts(handles);
                     if(push_constant != null) {
                         VkPushConstantRange.Buffer push_constant_range = VkPushConstantRange.calloc(push_constant.length, stack);
-                        final boolean is_debug = device_in.isDebug();
-                        for (PushConstant pushConstant : push_constant) {
-                            push_constant_range.stageFlags(pushConstant.stage.getValue())
-                                    .offset(pushConstant.offset).size(pushConstant.size);
+                        for (int i = 0; i < push_constant.length; i++) {
+                            push_constant_range.get(i).stageFlags(push_constant[i].stage.getValue())
+                                    .offset(push_constant[i].offset).size(push_constant[i].size);
                         }
                         create_info.pPushConstantRanges(push_constant_range);
                     } else {
@@ -75,6 +79,16 @@ public final class PipelineLayout extends LibCleanable {
         return handle;
     }
 
+    /**
+     * Gets the push constant ranges of the layout, the stages of a range are the stages push constant updates to it
+     * must name.
+     *
+     * @return A copy of the push constant ranges.
+     */
+    public PushConstant[] getPushConstants() {
+        return push_constants.clone();
+    }
+
     /**
      * Cleans up and destroys the Vulkan pipeline layout.
      */
@@ -0,0 +1,195 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkGraphicsPipelineCreateInfo;
+import org.lwjgl.vulkan.VkPipelineLibraryCreateInfoKHR;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.vulkan.EXTGraphicsPipelineLibrary.*;
+
+/**
+ * Links graphics pipelines from separately compiled parts with {@code VK_EXT_graphics_pipeline_library}.
+ * <p>
+ * A graphics pipeline is split into its vertex input, pre-rasterization shaders, fragment shader and fragment output
+ * parts. Each part is compiled once and cached on the state it is made of, so a new combination of known parts is
+ * only a link, which is far cheaper than compiling the whole pipeline. A fast link is not fully optimized across the
+ * parts, {@link #linkAsync} draws with the fast link while the optimized link is made in the background.
+ * </p>
+ * Builders use the library through {@link Pipeline.PipelineBuilder#setPipelineLibrary}. When the device does not
+ * support the extension {@link #isSupported()} is {@code false} and pipelines are compiled in full. Parts share the
+ * builder's pipeline layout, so linked pipelines are created against the same layout as their parts. The library
+ * must be closed after every pipeline linked from it.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class PipelineLibrary extends LibCleanable {
+    private static final int[] PARTS = {
+            VK_GRAPHICS_PIPELINE_LIBRARY_VERTEX_INPUT_INTERFACE_BIT_EXT,
+            VK_GRAPHICS_PIPELINE_LIBRARY_PRE_RASTERIZATION_SHADERS_BIT_EXT,
+            VK_GRAPHICS_PIPELINE_LIBRARY_FRAGMENT_SHADER_BIT_EXT,
+            VK_GRAPHICS_PIPELINE_LIBRARY_FRAGMENT_OUTPUT_INTERFACE_BIT_EXT
+    };
+    private final Device device;
+    @Nullable
+    private final PipelineCache cache;
+    private final HashMap<PipelineKey, DeviceHandle> parts = new HashMap<>();
+    private final PipelineKey probe = new PipelineKey();
+    private long part_hits = 0;
+    private long part_misses = 0;
+    private long links = 0;
+
+    /**
+     * Constructs a new PipelineLibrary.
+     *
+     * @param device_in The Vulkan device.
+     * @param cache_in  The pipeline cache parts and links are created with, or {@code null} for none.
+     */
+    public PipelineLibrary(@Nonnull Device device_in, @Nullable PipelineCache cache_in) {
+        device = device_in;
+        cache = cache_in;
+        if (!isSupported()) {
+            Log.print(Log.Severity.DEBUG, "Vulkan: graphics pipeline library is not enabled, pipelines are compiled in full");
+        }
+    }
+
+    /**
+     * Checks if pipelines can be linked, if not builders using the library compile pipelines in full.
+     *
+     * @return {@code true} if the device has graphics pipeline library enabled.
+     */
+    public boolean isSupported() {
+        return device.isGraphicsPipelineLibraryEnabled();
+    }
+
+    /**
+     * Links a graphics pipeline, compiling the parts that are not cached yet.
+     *
+     * @param builder  The pipeline configuration.
+     * @param optimize {@code true} for a link time optimized pipeline, which takes about as long as a full compile.
+     * @return The handle of the linked pipeline.
+     * @throws IllegalStateException If a part or the link fails.
+     */
+    long link(@Nonnull Pipeline.PipelineBuilder builder, boolean optimize) {
+        final long[] libraries = new long[PARTS.length];
+        synchronized (this) {
+            for (int i = 0; i < PARTS.length; i++) {
+                libraries[i] = getPart(builder, PARTS[i]).handle();
+            }
+            links++;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkPipelineLibraryCreateInfoKHR library_info = VkPipelineLibraryCreateInfoKHR.calloc(stack).sType$Default()
+                    .pLibraries(stack.longs(libraries));
+            VkGraphicsPipelineCreateInfo.Buffer info = VkGraphicsPipelineCreateInfo.calloc(1, stack).sType$Default()
+                    .pNext(library_info).layout(builder.getLayout().getLayout().handle()).basePipelineIndex(-1)
+                    .flags(optimize ? VK_PIPELINE_CREATE_LINK_TIME_OPTIMIZATION_BIT_EXT : 0);
+            long[] buffer = new long[1];
+            device.createGraphicsPipelines(cache == null ? null : cache.getPipelineCache(), info, buffer);
+            if (device.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: failed to link graphics pipeline");
+                throw new IllegalStateException("failed to link graphics pipeline");
+            }
+            return buffer[0];
+        }
+    }
+
+    /**
+     * Links a graphics pipeline now and starts the optimized link in the background. The returned pipeline draws
+     * with the fast link until the optimized one is ready. The builder must not be changed or closed until then.
+     * <p>
+     * If the library is not supported the pipeline is compiled in full straight away and the returned pipeline is
+     * ready at once.
+     * </p>
+     *
+     * @param builder     The pipeline configuration.
+     * @param compiler    The compiler the optimized link runs on.
+     * @param owns_layout {@code true} if the optimized pipeline closes its layout.
+     * @return The handle draws go through, it closes the fast link too.
+     */
+    public AsyncPipeline linkAsync(@Nonnull Pipeline.PipelineBuilder builder, @Nonnull AsyncPipelineCompiler compiler, boolean owns_layout) {
+        final PipelineLayout layout = builder.getLayout();
+        if (!isSupported()) {
+            Pipeline pipeline = new Pipeline(device, builder, cache, false, owns_layout);
+            return new AsyncPipeline(compiler, CompletableFuture.completedFuture(pipeline), pipeline, false);
+        }
+        Pipeline fast = new Pipeline(new DeviceHandle(device, link(builder, false)), layout, false);
+        return compiler.submit(() -> new Pipeline(new DeviceHandle(device, link(builder, true)), layout, owns_layout), fast, true);
+    }
+
+    private DeviceHandle getPart(@Nonnull Pipeline.PipelineBuilder builder, int part) {
+        builder.writeLibraryKey(part, probe);
+        DeviceHandle handle = parts.get(probe);
+        if (handle != null) {
+            part_hits++;
+            return handle;
+        }
+        part_misses++;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            // keeping the link time optimization info lets the same parts make an optimized link later
+            VkGraphicsPipelineCreateInfo.Buffer info = builder.buildLibraryPart(stack, part, VK_PIPELINE_CREATE_RETAIN_LINK_TIME_OPTIMIZATION_INFO_BIT_EXT);
+            long[] buffer = new long[1];
+            device.createGraphicsPipelines(cache == null ? null : cache.getPipelineCache(), info, buffer);
+            if (device.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: failed to create graphics pipeline library part " + part);
+                throw new IllegalStateException("failed to create graphics pipeline library part " + part);
+            }
+            handle = new DeviceHandle(device, buffer[0]);
+        }
+        parts.put(probe.copy(), handle);
+        return handle;
+    }
+
+    public synchronized int getPartCount() {
+        return parts.size();
+    }
+
+    /**
+     * Gets the number of parts served from the library when linking.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getPartHits() {
+        return part_hits;
+    }
+
+    /**
+     * Gets the number of parts compiled when linking.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getPartMisses() {
+        return part_misses;
+    }
+
+    public synchronized long getLinks() {
+        return links;
+    }
+
+    /**
+     * Destroys every compiled part.
+     */
+    @Override
+    protected synchronized void free() {
+        for (DeviceHandle part : parts.values()) {
+            device.retire(0, () -> device.destroyPipeline(part));
+        }
+        parts.clear();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing pipeline library, " + links + " links, " + part_misses + " parts compiled");
+    }
+}
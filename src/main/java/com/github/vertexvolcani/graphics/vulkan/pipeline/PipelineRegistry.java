@@ -0,0 +1,157 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Shares pipelines between every user that asks for the same state.
+ * <p>
+ * Pipelines are keyed on the {@link PipelineKey} of the builder that asked for them and reference counted, the
+ * first {@link #acquire} creates the pipeline and the last {@link #release} retires it. A lookup for a builder whose
+ * key has not changed is a hash map probe with no allocation, so it can be done per draw.
+ * </p>
+ * Pipelines created by the registry do not own their layouts, the caller keeps layouts alive for as long as the
+ * pipelines using them. Creating a new pipeline holds the registry lock while the driver compiles it.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class PipelineRegistry extends LibCleanable {
+    private final Device device;
+    @Nullable
+    private final PipelineCache cache;
+    private final HashMap<PipelineKey, Entry> by_key = new HashMap<>();
+    private final IdentityHashMap<Pipeline, Entry> by_pipeline = new IdentityHashMap<>();
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Constructs a new PipelineRegistry.
+     *
+     * @param device_in The Vulkan device.
+     * @param cache_in  The pipeline cache new pipelines are created with, or {@code null} for none.
+     */
+    public PipelineRegistry(@Nonnull Device device_in, @Nullable PipelineCache cache_in) {
+        device = device_in;
+        cache = cache_in;
+    }
+
+    /**
+     * Gets the pipeline for a builder's state, creating it if no equal state has been acquired.
+     *
+     * @param builder The pipeline builder.
+     * @param compute {@code true} if the pipeline is a compute pipeline.
+     * @return The shared pipeline, pass it to {@link #release} when done with it.
+     */
+    public synchronized Pipeline acquire(@Nonnull Pipeline.PipelineBuilder builder, boolean compute) {
+        Entry entry = by_key.get(builder.getKey());
+        if (entry == null) {
+            Pipeline pipeline = new Pipeline(device, builder, cache, compute, false);
+            entry = new Entry(builder.getKey().copy(), pipeline);
+            by_key.put(entry.key, entry);
+            by_pipeline.put(pipeline, entry);
+            misses++;
+        } else {
+            hits++;
+        }
+        entry.references++;
+        return entry.pipeline;
+    }
+
+    /**
+     * Gets an existing pipeline by key without creating one.
+     *
+     * @param key The key from {@link PipelineKey#of}.
+     * @return The shared pipeline, or {@code null} if no pipeline with the key is alive.
+     */
+    @Nullable
+    public synchronized Pipeline acquire(@Nonnull PipelineKey key) {
+        Entry entry = by_key.get(key);
+        if (entry == null) {
+            return null;
+        }
+        hits++;
+        entry.references++;
+        return entry.pipeline;
+    }
+
+    /**
+     * Drops a reference to a pipeline, the pipeline is retired once nothing references it.
+     *
+     * @param pipeline A pipeline returned by {@link #acquire}.
+     */
+    public synchronized void release(@Nonnull Pipeline pipeline) {
+        Entry entry = by_pipeline.get(pipeline);
+        if (entry == null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: released a pipeline the registry does not own");
+            throw new IllegalStateException("released a pipeline the registry does not own");
+        }
+        if (--entry.references == 0) {
+            by_key.remove(entry.key);
+            by_pipeline.remove(pipeline);
+            pipeline.close();
+        }
+    }
+
+    public synchronized int getPipelineCount() {
+        return by_key.size();
+    }
+
+    /**
+     * Gets the number of acquires served by an existing pipeline.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of acquires that created a pipeline.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Closes every pipeline still in the registry.
+     */
+    @Override
+    protected synchronized void free() {
+        if (!by_pipeline.isEmpty()) {
+            Log.print(Log.Severity.WARNING, "Vulkan: closing pipeline registry with " + by_pipeline.size() + " pipelines still referenced");
+        }
+        for (Pipeline pipeline : by_pipeline.keySet()) {
+            pipeline.close();
+        }
+        by_pipeline.clear();
+        by_key.clear();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing pipeline registry, " + hits + " hits, " + misses + " misses");
+    }
+
+    private static final class Entry {
+        private final PipelineKey key;
+        private final Pipeline pipeline;
+        private int references = 0;
+
+        private Entry(PipelineKey key_in, Pipeline pipeline_in) {
+            key = key_in;
+            pipeline = pipeline_in;
+        }
+    }
+}
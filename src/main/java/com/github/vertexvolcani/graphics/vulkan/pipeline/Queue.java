@@ -10,15 +10,20 @@ import com.github.vertexvolcani.util.Nonnull;
 import com.github.vertexvolcani.util.Nullable;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.NativeType;
 import org.lwjgl.vulkan.VkQueue;
 import org.lwjgl.vulkan.VkSubmitInfo;
+import org.lwjgl.vulkan.VkSubmitInfo2;
+import org.lwjgl.vulkan.VkTimelineSemaphoreSubmitInfoKHR;
 
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
+import static org.lwjgl.vulkan.KHRSynchronization2.vkQueueSubmit2KHR;
 import static org.lwjgl.vulkan.VK10.*;
 
 public final class Queue {
+    private static final Semaphore[] NO_SEMAPHORES = new Semaphore[0];
     private final VkQueue queue;
 
     public Queue(@Nonnull Device device, int family, int index) {
@@ -41,6 +46,92 @@ public final class Queue {
         }
     }
 
+    /**
+     * Submits command buffers that wait on and signal timeline semaphore values.
+     *
+     * @param command_buffers The command buffers to submit.
+     * @param waits           The (semaphore, value) pairs to wait on, with the stages that wait.
+     * @param signals         The (semaphore, value) pairs to signal once the command buffers complete.
+     * @param fence           An optional fence to signal.
+     * @return The result of the submission.
+     */
+    public int submit(@Nonnull PointerBuffer command_buffers, @Nonnull TimelineSemaphore.Point[] waits, @Nonnull TimelineSemaphore.Point[] signals, @Nullable Fence fence) {
+        return submit(command_buffers, null, NO_SEMAPHORES, NO_SEMAPHORES, waits, signals, fence);
+    }
+
+    /**
+     * Submits command buffers that wait on and signal both binary semaphores and timeline semaphore values,
+     * e.g. a frame waiting on the swap chain image while also signalling a per queue timeline.
+     *
+     * @param command_buffers     The command buffers to submit.
+     * @param wait_dst_stage_mask The stages waiting on each binary semaphore.
+     * @param wait_semaphores     The binary semaphores to wait on.
+     * @param signal_semaphores   The binary semaphores to signal.
+     * @param timeline_waits      The (semaphore, value) pairs to wait on, with the stages that wait.
+     * @param timeline_signals    The (semaphore, value) pairs to signal.
+     * @param fence               An optional fence to signal.
+     * @return The result of the submission.
+     */
+    public int submit(@Nonnull PointerBuffer command_buffers, @Nullable IntBuffer wait_dst_stage_mask, @Nonnull Semaphore[] wait_semaphores, @Nonnull Semaphore[] signal_semaphores,
+                      @Nonnull TimelineSemaphore.Point[] timeline_waits, @Nonnull TimelineSemaphore.Point[] timeline_signals, @Nullable Fence fence) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            final int wait_count = wait_semaphores.length + timeline_waits.length;
+            final int signal_count = signal_semaphores.length + timeline_signals.length;
+            LongBuffer wait_handles = stack.mallocLong(wait_count);
+            LongBuffer wait_values = stack.callocLong(wait_count);
+            IntBuffer wait_stages = stack.mallocInt(wait_count);
+            LongBuffer signal_handles = stack.mallocLong(signal_count);
+            LongBuffer signal_values = stack.callocLong(signal_count);
+            // binary semaphores come first, their values are ignored by the driver
+            for (int i = 0; i < wait_semaphores.length; i++) {
+                wait_handles.put(i, wait_semaphores[i].getSemaphore().handle());
+                wait_stages.put(i, wait_dst_stage_mask != null ? wait_dst_stage_mask.get(i) : VK_PIPELINE_STAGE_ALL_COMMANDS_BIT);
+            }
+            for (int i = 0; i < timeline_waits.length; i++) {
+                final int index = wait_semaphores.length + i;
+                wait_handles.put(index, timeline_waits[i].semaphore().getSemaphore().handle());
+                wait_values.put(index, timeline_waits[i].value());
+                wait_stages.put(index, timeline_waits[i].stage_mask());
+            }
+            for (int i = 0; i < signal_semaphores.length; i++) {
+                signal_handles.put(i, signal_semaphores[i].getSemaphore().handle());
+            }
+            for (int i = 0; i < timeline_signals.length; i++) {
+                final int index = signal_semaphores.length + i;
+                signal_handles.put(index, timeline_signals[i].semaphore().getSemaphore().handle());
+                signal_values.put(index, timeline_signals[i].value());
+            }
+            VkTimelineSemaphoreSubmitInfoKHR timeline_info = VkTimelineSemaphoreSubmitInfoKHR.calloc(stack).sType$Default()
+                    .waitSemaphoreValueCount(wait_count).pWaitSemaphoreValues(wait_values)
+                    .signalSemaphoreValueCount(signal_count).pSignalSemaphoreValues(signal_values);
+            VkSubmitInfo submitInfo = VkSubmitInfo.calloc(stack).sType$Default().pNext(timeline_info).waitSemaphoreCount(wait_count).pWaitSemaphores(wait_handles)
+                    .pWaitDstStageMask(wait_stages).pCommandBuffers(command_buffers).pSignalSemaphores(signal_handles);
+            return vkQueueSubmit(queue, submitInfo, fence != null ? fence.getFence().handle() : VK_NULL_HANDLE);
+        }
+    }
+
+    /**
+     * Submits prebuilt submit infos in a single call.
+     *
+     * @param pSubmits The submissions, from the buffer's position to its limit.
+     * @param fence    An optional fence to signal once every submission completes.
+     * @return The result of the submission.
+     */
+    public int submit(@Nonnull @NativeType("VkSubmitInfo const *") VkSubmitInfo.Buffer pSubmits, @Nullable Fence fence) {
+        return vkQueueSubmit(queue, pSubmits, fence != null ? fence.getFence().handle() : VK_NULL_HANDLE);
+    }
+
+    /**
+     * Submits prebuilt synchronization2 submit infos in a single call, requires {@link Device#isSynchronization2Enabled()}.
+     *
+     * @param pSubmits The submissions, from the buffer's position to its limit.
+     * @param fence    An optional fence to signal once every submission completes.
+     * @return The result of the submission.
+     */
+    public int submit2(@Nonnull @NativeType("VkSubmitInfo2 const *") VkSubmitInfo2.Buffer pSubmits, @Nullable Fence fence) {
+        return vkQueueSubmit2KHR(queue, pSubmits, fence != null ? fence.getFence().handle() : VK_NULL_HANDLE);
+    }
+
     public void waitIdle() {
         vkQueueWaitIdle(queue);
     }
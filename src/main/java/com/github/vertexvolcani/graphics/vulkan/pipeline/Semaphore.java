@@ -54,8 +54,9 @@ public final class Semaphore extends LibCleanable {
      */
     @Override
     protected void free() {
-        handle.device().waitIdle();
-        handle.device().destroySemaphore(handle);
-        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing semaphore");
+        handle.device().retire(0, () -> {
+            handle.device().destroySemaphore(handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: done freeing semaphore");
+        });
     }
 }
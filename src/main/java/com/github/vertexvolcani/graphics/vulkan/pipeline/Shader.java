@@ -11,7 +11,9 @@ import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
 import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
 import com.github.vertexvolcani.util.ShaderCUtil;
+import com.github.vertexvolcani.util.SpirvCache;
 import org.lwjgl.vulkan.VkShaderModuleCreateInfo;
 
 import java.io.IOException;
@@ -37,6 +39,11 @@ public final class Shader extends LibCleanable {
      */
     private final ShaderType stage;
 
+    /**
+     * The resources the shader module uses, read from its SPIR-V when it is created.
+     */
+    private final ShaderReflection reflection;
+
     /**
      * Creates a new Shader object for the specified Vulkan device.
      *
@@ -46,6 +53,7 @@ public final class Shader extends LibCleanable {
      */
     public Shader(@Nonnull Device device_in, @Nonnull ByteBuffer spriv, ShaderType stage_in) {
         stage = stage_in;
+        reflection = new ShaderReflection(spriv, stage_in);
         try (VkShaderModuleCreateInfo.Buffer moduleCreateInfo = VkShaderModuleCreateInfo.calloc(1)) {
             moduleCreateInfo.sType$Default().pCode(spriv);
             handle = device_in.createShaderModule(moduleCreateInfo.get(0));
@@ -65,9 +73,24 @@ public final class Shader extends LibCleanable {
      * @param stage_in The shader stage.
      */
     public Shader(@Nonnull Device device_in, @Nonnull String source_file_path, ShaderType stage_in) {
+        this(device_in, source_file_path, stage_in, null);
+    }
+
+    /**
+     * Creates a new Shader object for the specified Vulkan device, loading the SPIR-V from a cache when the source
+     * and its includes have not changed since they were last compiled.
+     *
+     * @param device_in The Vulkan device associated with the shader module.
+     * @param source_file_path The shader glsl.
+     * @param stage_in The shader stage.
+     * @param cache The SPIR-V cache, or {@code null} to always compile.
+     */
+    public Shader(@Nonnull Device device_in, @Nonnull String source_file_path, ShaderType stage_in, @Nullable SpirvCache cache) {
         stage = stage_in;
         try (VkShaderModuleCreateInfo.Buffer moduleCreateInfo = VkShaderModuleCreateInfo.calloc(1)) {
-            moduleCreateInfo.sType$Default().pCode(ShaderCUtil.glslToSpirv(source_file_path,stage.getValue(),device_in.isDebug()));
+            ByteBuffer spirv = ShaderCUtil.glslToSpirv(source_file_path,stage.getValue(),device_in.isDebug(), cache);
+            reflection = new ShaderReflection(spirv, stage_in);
+            moduleCreateInfo.sType$Default().pCode(spirv);
             handle = device_in.createShaderModule(moduleCreateInfo.get(0));
             if (device_in.didErrorOccur()) {
                 Log.print(Log.Severity.ERROR, "Vulkan: Failed to create shader module");
@@ -89,6 +112,15 @@ public final class Shader extends LibCleanable {
         return stage;
     }
 
+    /**
+     * Retrieves the descriptor bindings, push constants and vertex inputs the shader module uses.
+     *
+     * @return The shader's reflection.
+     */
+    public ShaderReflection getReflection() {
+        return reflection;
+    }
+
     /**
      * Retrieves the Vulkan handle of the shader module.
      *
@@ -0,0 +1,378 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.DescriptorType;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.util.spvc.SpvcReflectedResource;
+import org.lwjgl.util.spvc.SpvcSpecializationConstant;
+import org.lwjgl.vulkan.VkVertexInputAttributeDescription;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.lwjgl.util.spvc.Spv.*;
+import static org.lwjgl.util.spvc.Spvc.*;
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * The resource interface of one SPIR-V shader, read with spirv-cross: the descriptor bindings it uses, the push
+ * constant range it reads, the specialization constants it declares and, for vertex shaders, its vertex inputs.
+ * <p>
+ * Reflection can not tell a dynamic uniform or storage buffer from a plain one, those bindings are reported as the
+ * plain type and {@link LayoutCache} can override them. Runtime sized descriptor arrays are reported with a count of
+ * zero and vertex inputs of types without a single vertex format with {@code VK_FORMAT_UNDEFINED}, reflecting such a
+ * shader works but building a layout or attributes from it does not.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class ShaderReflection {
+    private final ShaderType stage;
+    private final List<Binding> bindings;
+    private final List<VertexInput> vertex_inputs;
+    private final int[] specialization_ids;
+    private final int push_constant_offset;
+    private final int push_constant_size;
+    private final int[] local_size = {1, 1, 1};
+    /**
+     * the specialization constant id of each workgroup size dimension, -1 where the size is a literal
+     */
+    private final int[] local_size_ids = {-1, -1, -1};
+
+    /**
+     * Reflects a SPIR-V module.
+     *
+     * @param spirv    The SPIR-V, from its position to its limit.
+     * @param stage_in The stage the module is used as.
+     * @throws IllegalStateException If the module can not be parsed.
+     */
+    public ShaderReflection(@Nonnull ByteBuffer spirv, @Nonnull ShaderType stage_in) {
+        stage = stage_in;
+        List<Binding> bindings_out = new ArrayList<>();
+        List<VertexInput> inputs_out = new ArrayList<>();
+        int[] push_constant = {0, 0};
+        int[] specialization_out;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            PointerBuffer p = stack.mallocPointer(1);
+            check(spvc_context_create(p), 0L, "failed to create spvc context");
+            final long context = p.get(0);
+            try {
+                IntBuffer words = MemoryUtil.memIntBuffer(MemoryUtil.memAddress(spirv), spirv.remaining() >> 2);
+                check(spvc_context_parse_spirv(context, words, words.remaining(), p), context, "failed to parse SPIR-V");
+                final long ir = p.get(0);
+                check(spvc_context_create_compiler(context, SPVC_BACKEND_NONE, ir, SPVC_CAPTURE_MODE_TAKE_OWNERSHIP, p), context, "failed to create reflection compiler");
+                final long compiler = p.get(0);
+                check(spvc_compiler_create_shader_resources(compiler, p), context, "failed to read shader resources");
+                final long resources = p.get(0);
+                reflectBindings(stack, compiler, resources, bindings_out);
+                reflectPushConstants(stack, compiler, resources, push_constant);
+                if (stage_in == ShaderType.VERTEX) {
+                    reflectVertexInputs(stack, compiler, resources, inputs_out);
+                }
+                specialization_out = reflectSpecializationIds(stack, compiler, context);
+                if (stage_in == ShaderType.COMPUTE) {
+                    reflectLocalSize(stack, compiler);
+                }
+            } finally {
+                spvc_context_destroy(context);
+            }
+        }
+        bindings_out.sort(Comparator.comparingInt(Binding::set).thenComparingInt(Binding::binding));
+        inputs_out.sort(Comparator.comparingInt(VertexInput::location));
+        bindings = Collections.unmodifiableList(bindings_out);
+        vertex_inputs = Collections.unmodifiableList(inputs_out);
+        push_constant_offset = push_constant[0];
+        push_constant_size = push_constant[1];
+        specialization_ids = specialization_out;
+    }
+
+    private static void check(int result, long context, String message) {
+        if (result != SPVC_SUCCESS) {
+            final String detail = context == 0L ? message : message + ": " + spvc_context_get_last_error_string(context);
+            Log.print(Log.Severity.ERROR, "spvc: " + detail);
+            throw new IllegalStateException(detail);
+        }
+    }
+
+    /**
+     * Reads the workgroup size, from the specialization constants behind {@code local_size_x_id} and friends where
+     * the shader uses them and from the {@code LocalSize} execution mode otherwise.
+     */
+    private void reflectLocalSize(MemoryStack stack, long compiler) {
+        final SpvcSpecializationConstant[] constants = {SpvcSpecializationConstant.calloc(stack), SpvcSpecializationConstant.calloc(stack),
+                SpvcSpecializationConstant.calloc(stack)};
+        spvc_compiler_get_work_group_size_specialization_constants(compiler, constants[0], constants[1], constants[2]);
+        for (int i = 0; i < local_size.length; i++) {
+            if (constants[i].id() != 0) {
+                local_size_ids[i] = constants[i].constant_id();
+                local_size[i] = spvc_constant_get_scalar_u32(spvc_compiler_get_constant_handle(compiler, constants[i].id()), 0, 0);
+            } else {
+                local_size[i] = spvc_compiler_get_execution_mode_argument_by_index(compiler, SpvExecutionModeLocalSize, i);
+            }
+            if (local_size[i] <= 0) {
+                // LocalSizeId with plain constants leaves the LocalSize arguments at 0
+                Log.print(Log.Severity.ERROR, "spvc: compute workgroup size is neither a literal nor a specialization constant");
+                throw new IllegalStateException("compute workgroup size is neither a literal nor a specialization constant");
+            }
+        }
+    }
+
+    private void reflectBindings(MemoryStack stack, long compiler, long resources, List<Binding> out) {
+        final int[] resource_types = {SPVC_RESOURCE_TYPE_UNIFORM_BUFFER, SPVC_RESOURCE_TYPE_STORAGE_BUFFER, SPVC_RESOURCE_TYPE_SAMPLED_IMAGE,
+                SPVC_RESOURCE_TYPE_SEPARATE_IMAGE, SPVC_RESOURCE_TYPE_SEPARATE_SAMPLERS, SPVC_RESOURCE_TYPE_STORAGE_IMAGE, SPVC_RESOURCE_TYPE_SUBPASS_INPUT};
+        for (int resource_type : resource_types) {
+            for (SpvcReflectedResource resource : resourceList(stack, resources, resource_type)) {
+                final long type = spvc_compiler_get_type_handle(compiler, resource.type_id());
+                int count = 1;
+                for (int i = 0; i < spvc_type_get_num_array_dimensions(type); i++) {
+                    final int dimension = spvc_type_get_array_dimension(type, i);
+                    // a runtime sized array has no count, it is reported as zero
+                    count *= dimension;
+                }
+                final boolean texel_buffer = resource_type != SPVC_RESOURCE_TYPE_UNIFORM_BUFFER && resource_type != SPVC_RESOURCE_TYPE_STORAGE_BUFFER
+                        && resource_type != SPVC_RESOURCE_TYPE_SEPARATE_SAMPLERS
+                        && spvc_type_get_image_dimension(spvc_compiler_get_type_handle(compiler, resource.base_type_id())) == SpvDimBuffer;
+                out.add(new Binding(spvc_compiler_get_decoration(compiler, resource.id(), SpvDecorationDescriptorSet),
+                        spvc_compiler_get_decoration(compiler, resource.id(), SpvDecorationBinding),
+                        descriptorType(resource_type, texel_buffer), count, stage.getValue()));
+            }
+        }
+    }
+
+    private static DescriptorType descriptorType(int resource_type, boolean texel_buffer) {
+        if (resource_type == SPVC_RESOURCE_TYPE_UNIFORM_BUFFER) {
+            return DescriptorType.UNIFORM_BUFFER;
+        } else if (resource_type == SPVC_RESOURCE_TYPE_STORAGE_BUFFER) {
+            return DescriptorType.STORAGE_BUFFER;
+        } else if (resource_type == SPVC_RESOURCE_TYPE_SAMPLED_IMAGE) {
+            return texel_buffer ? DescriptorType.UNIFORM_TEXEL_BUFFER : DescriptorType.COMBINED_IMAGE_SAMPLER;
+        } else if (resource_type == SPVC_RESOURCE_TYPE_SEPARATE_IMAGE) {
+            return texel_buffer ? DescriptorType.UNIFORM_TEXEL_BUFFER : DescriptorType.SAMPLED_IMAGE;
+        } else if (resource_type == SPVC_RESOURCE_TYPE_SEPARATE_SAMPLERS) {
+            return DescriptorType.SAMPLER;
+        } else if (resource_type == SPVC_RESOURCE_TYPE_STORAGE_IMAGE) {
+            return texel_buffer ? DescriptorType.STORAGE_TEXEL_BUFFER : DescriptorType.STORAGE_IMAGE;
+        }
+        return DescriptorType.INPUT_ATTACHMENT;
+    }
+
+    /**
+     * Finds the byte range of the push constant block the shader declares, starting at the first member's offset.
+     */
+    private static void reflectPushConstants(MemoryStack stack, long compiler, long resources, int[] out) {
+        for (SpvcReflectedResource resource : resourceList(stack, resources, SPVC_RESOURCE_TYPE_PUSH_CONSTANT)) {
+            final long type = spvc_compiler_get_type_handle(compiler, resource.base_type_id());
+            PointerBuffer size = stack.mallocPointer(1);
+            IntBuffer offset = stack.mallocInt(1);
+            if (spvc_compiler_get_declared_struct_size(compiler, type, size) != SPVC_SUCCESS
+                    || spvc_compiler_type_struct_member_offset(compiler, type, 0, offset) != SPVC_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "spvc: failed to read push constant block " + resource.nameString());
+                throw new IllegalStateException("failed to read push constant block " + resource.nameString());
+            }
+            out[0] = offset.get(0);
+            out[1] = (int) size.get(0) - offset.get(0);
+        }
+    }
+
+    private static void reflectVertexInputs(MemoryStack stack, long compiler, long resources, List<VertexInput> out) {
+        for (SpvcReflectedResource resource : resourceList(stack, resources, SPVC_RESOURCE_TYPE_STAGE_INPUT)) {
+            final long type = spvc_compiler_get_type_handle(compiler, resource.type_id());
+            final int format = spvc_type_get_columns(type) != 1 || spvc_type_get_num_array_dimensions(type) != 0 ? VK_FORMAT_UNDEFINED
+                    : vertexFormat(spvc_type_get_basetype(type), spvc_type_get_vector_size(type));
+            out.add(new VertexInput(spvc_compiler_get_decoration(compiler, resource.id(), SpvDecorationLocation), format,
+                    spvc_type_get_vector_size(type) * 4));
+        }
+    }
+
+    private static int[] reflectSpecializationIds(MemoryStack stack, long compiler, long context) {
+        PointerBuffer list = stack.mallocPointer(1);
+        PointerBuffer count = stack.mallocPointer(1);
+        check(spvc_compiler_get_specialization_constants(compiler, list, count), context, "failed to list specialization constants");
+        SpvcSpecializationConstant.Buffer constants = SpvcSpecializationConstant.create(list.get(0), (int) count.get(0));
+        int[] ids = new int[constants.remaining()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = constants.get(i).constant_id();
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static int vertexFormat(int base_type, int components) {
+        final int[] formats;
+        if (base_type == SPVC_BASETYPE_FP32) {
+            formats = new int[]{VK_FORMAT_R32_SFLOAT, VK_FORMAT_R32G32_SFLOAT, VK_FORMAT_R32G32B32_SFLOAT, VK_FORMAT_R32G32B32A32_SFLOAT};
+        } else if (base_type == SPVC_BASETYPE_INT32) {
+            formats = new int[]{VK_FORMAT_R32_SINT, VK_FORMAT_R32G32_SINT, VK_FORMAT_R32G32B32_SINT, VK_FORMAT_R32G32B32A32_SINT};
+        } else if (base_type == SPVC_BASETYPE_UINT32) {
+            formats = new int[]{VK_FORMAT_R32_UINT, VK_FORMAT_R32G32_UINT, VK_FORMAT_R32G32B32_UINT, VK_FORMAT_R32G32B32A32_UINT};
+        } else {
+            return VK_FORMAT_UNDEFINED;
+        }
+        return components >= 1 && components <= 4 ? formats[components - 1] : VK_FORMAT_UNDEFINED;
+    }
+
+    private static SpvcReflectedResource.Buffer resourceList(MemoryStack stack, long resources, int resource_type) {
+        PointerBuffer list = stack.mallocPointer(1);
+        PointerBuffer count = stack.mallocPointer(1);
+        if (spvc_resources_get_resource_list_for_type(resources, resource_type, list, count) != SPVC_SUCCESS) {
+            Log.print(Log.Severity.ERROR, "spvc: failed to list shader resources");
+            throw new IllegalStateException("failed to list shader resources");
+        }
+        return SpvcReflectedResource.create(list.get(0), (int) count.get(0));
+    }
+
+    public ShaderType getStage() {
+        return stage;
+    }
+
+    /**
+     * Gets the descriptor bindings the shader declares, sorted by set then binding.
+     *
+     * @return The bindings.
+     */
+    public List<Binding> getBindings() {
+        return bindings;
+    }
+
+    /**
+     * Gets the vertex inputs of a vertex shader, sorted by location, empty for every other stage.
+     *
+     * @return The vertex inputs.
+     */
+    public List<VertexInput> getVertexInputs() {
+        return vertex_inputs;
+    }
+
+    public int getPushConstantOffset() {
+        return push_constant_offset;
+    }
+
+    /**
+     * Gets the size of the push constant block.
+     *
+     * @return The size in bytes, {@code 0} if the shader reads no push constants.
+     */
+    public int getPushConstantSize() {
+        return push_constant_size;
+    }
+
+    /**
+     * Gets the ids of the specialization constants the shader declares.
+     *
+     * @return The constant ids, sorted.
+     */
+    public int[] getSpecializationConstantIds() {
+        return specialization_ids.clone();
+    }
+
+    /**
+     * Gets the workgroup size of a compute shader, as declared with {@code layout(local_size_x = ...)}. Sizes set by
+     * specialization constants are their default values.
+     *
+     * @return The x, y and z size, all 1 for other stages.
+     */
+    public int[] getLocalSize() {
+        return local_size.clone();
+    }
+
+    /**
+     * Gets the workgroup size of a compute shader once specialized.
+     *
+     * @param constants The specialization constants the pipeline is created with, or {@code null} for the defaults.
+     * @return The x, y and z size, all 1 for other stages.
+     */
+    public int[] getLocalSize(@Nullable SpecializationConstants constants) {
+        final int[] size = local_size.clone();
+        for (int i = 0; constants != null && i < size.length; i++) {
+            if (local_size_ids[i] >= 0) {
+                size[i] = constants.get(local_size_ids[i], size[i]);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Checks if the shader declares a specialization constant.
+     *
+     * @param constant_id The constant id.
+     * @return {@code true} if the shader declares the constant.
+     */
+    public boolean usesSpecializationConstant(int constant_id) {
+        return Arrays.binarySearch(specialization_ids, constant_id) >= 0;
+    }
+
+    /**
+     * Gets the size of one vertex when every input is read from a single tightly packed binding.
+     *
+     * @return The stride in bytes.
+     */
+    public int getVertexStride() {
+        int stride = 0;
+        for (VertexInput input : vertex_inputs) {
+            stride += input.size();
+        }
+        return stride;
+    }
+
+    /**
+     * Creates the vertex attributes of a vertex shader, reading every input from one binding with the inputs packed
+     * in location order. The caller must free the returned buffer.
+     *
+     * @param binding The vertex buffer binding the attributes read from.
+     * @return The attribute descriptions.
+     */
+    public VkVertexInputAttributeDescription.Buffer createVertexAttributes(int binding) {
+        VkVertexInputAttributeDescription.Buffer attributes = VkVertexInputAttributeDescription.calloc(vertex_inputs.size());
+        int offset = 0;
+        for (int i = 0; i < vertex_inputs.size(); i++) {
+            VertexInput input = vertex_inputs.get(i);
+            if (input.format() == VK_FORMAT_UNDEFINED) {
+                attributes.free();
+                Log.print(Log.Severity.ERROR, "spvc: vertex input at location " + input.location() + " has no single vertex format");
+                throw new IllegalStateException("vertex input at location " + input.location() + " has no single vertex format");
+            }
+            attributes.get(i).binding(binding).location(input.location()).format(input.format()).offset(offset);
+            offset += input.size();
+        }
+        return attributes;
+    }
+
+    /**
+     * A descriptor binding used by a shader.
+     *
+     * @param set         The descriptor set index.
+     * @param binding     The binding number in the set.
+     * @param type        The descriptor type.
+     * @param count       The number of descriptors, the product of the array dimensions or {@code 0} if runtime sized.
+     * @param stage_flags The Vulkan stages using the binding.
+     */
+    public record Binding(int set, int binding, DescriptorType type, int count, int stage_flags) {
+    }
+
+    /**
+     * A vertex shader input.
+     *
+     * @param location The input location.
+     * @param format   The Vulkan format matching the input's type, {@code VK_FORMAT_UNDEFINED} for matrices and arrays.
+     * @param size     The size of the input in bytes.
+     */
+    public record VertexInput(int location, int format, int size) {
+    }
+}
@@ -17,7 +17,9 @@ public enum ShaderType {
     VERTEX_AND_COMPUTE(VK_SHADER_STAGE_VERTEX_BIT | VK_SHADER_STAGE_COMPUTE_BIT),
     FRAGMENT_AND_GEOMETRY(VK_SHADER_STAGE_FRAGMENT_BIT | VK_SHADER_STAGE_GEOMETRY_BIT),
     FRAGMENT_AND_COMPUTE(VK_SHADER_STAGE_FRAGMENT_BIT | VK_SHADER_STAGE_COMPUTE_BIT),
-    GEOMETRY_AND_COMPUTE(VK_SHADER_STAGE_GEOMETRY_BIT | VK_SHADER_STAGE_COMPUTE_BIT);
+    GEOMETRY_AND_COMPUTE(VK_SHADER_STAGE_GEOMETRY_BIT | VK_SHADER_STAGE_COMPUTE_BIT),
+    ALL_GRAPHICS(VK_SHADER_STAGE_ALL_GRAPHICS),
+    ALL(VK_SHADER_STAGE_ALL);
 
     private final int value;
 
@@ -28,4 +30,20 @@ public enum ShaderType {
     public int getValue() {
         return value;
     }
+
+    /**
+     * Gets the shader type for a mask of Vulkan stage bits, stage combinations without their own constant widen to
+     * {@link #ALL_GRAPHICS} or {@link #ALL}.
+     *
+     * @param value_in The Vulkan shader stage flags.
+     * @return The matching shader type.
+     */
+    public static ShaderType fromValue(int value_in) {
+        for (ShaderType type : values()) {
+            if (type.value == value_in) {
+                return type;
+            }
+        }
+        return (value_in & ~VK_SHADER_STAGE_ALL_GRAPHICS) == 0 ? ALL_GRAPHICS : ALL;
+    }
 }
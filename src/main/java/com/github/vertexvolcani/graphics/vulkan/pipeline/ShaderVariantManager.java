@@ -0,0 +1,137 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Creates shader permutations on demand from specialization constants.
+ * <p>
+ * A material with a few switches (lighting model, alpha test, skinning) has more permutations than it ever draws,
+ * so instead of compiling every combination at startup a permutation's pipeline is only created the first time it
+ * is asked for. Created pipelines are kept in a least recently used cache, once more than the budget are alive the
+ * least recently used one is retired, and asking for it again recreates it, usually from the {@link PipelineCache}.
+ * </p>
+ * A returned pipeline stays valid until a later {@link #get} evicts it, so look pipelines up when recording instead of
+ * keeping them. Pipelines do not own their layouts, the caller keeps the builders' layouts alive.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class ShaderVariantManager extends LibCleanable {
+    private final Device device;
+    @Nullable
+    private final PipelineCache cache;
+    private final int budget;
+    /**
+     * the live permutations in access order, the first entry is the least recently used
+     */
+    private final LinkedHashMap<PipelineKey, Pipeline> variants = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Constructs a new ShaderVariantManager.
+     *
+     * @param device_in The Vulkan device.
+     * @param cache_in  The pipeline cache permutations are created with, or {@code null} for none.
+     * @param budget_in The number of permutations kept alive at once.
+     */
+    public ShaderVariantManager(@Nonnull Device device_in, @Nullable PipelineCache cache_in, int budget_in) {
+        if (budget_in <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: shader variant budget must be at least one");
+            throw new IllegalStateException("shader variant budget must be at least one");
+        }
+        device = device_in;
+        cache = cache_in;
+        budget = budget_in;
+    }
+
+    /**
+     * Gets the pipeline for a permutation, creating it if it is not alive.
+     *
+     * @param builder   The builder of the material, its specialization constants are replaced.
+     * @param constants The permutation's constant values.
+     * @param compute   {@code true} if the pipeline is a compute pipeline.
+     * @return The permutation's pipeline, owned by the manager.
+     */
+    public synchronized Pipeline get(@Nonnull Pipeline.PipelineBuilder builder, @Nonnull SpecializationConstants constants, boolean compute) {
+        builder.setSpecialization(constants);
+        Pipeline pipeline = variants.get(builder.getKey());
+        if (pipeline != null) {
+            hits++;
+            return pipeline;
+        }
+        misses++;
+        pipeline = new Pipeline(device, builder, cache, compute, false);
+        variants.put(builder.getKey().copy(), pipeline);
+        Iterator<Map.Entry<PipelineKey, Pipeline>> eldest = variants.entrySet().iterator();
+        while (variants.size() > budget) {
+            eldest.next().getValue().close();
+            eldest.remove();
+            evictions++;
+        }
+        return pipeline;
+    }
+
+    public synchronized int getVariantCount() {
+        return variants.size();
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Gets the number of lookups served by a live permutation.
+     *
+     * @return The hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that created a permutation.
+     *
+     * @return The miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of permutations retired to stay within the budget.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Closes every live permutation.
+     */
+    @Override
+    protected synchronized void free() {
+        for (Pipeline pipeline : variants.values()) {
+            pipeline.close();
+        }
+        variants.clear();
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing shader variants, " + hits + " hits, " + misses + " misses, " + evictions + " evictions");
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkSpecializationInfo;
+import org.lwjgl.vulkan.VkSpecializationMapEntry;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A set of specialization constant values, applied to the shader stages of a pipeline through
+ * {@link Pipeline.PipelineBuilder#setSpecialization}.
+ * <p>
+ * One SPIR-V module with {@code layout(constant_id = n)} constants replaces a GLSL file per permutation, the driver
+ * folds the values in when the pipeline is created. Every value is 32 bits wide, which covers {@code int},
+ * {@code uint}, {@code float} and {@code bool} constants. Each stage is only given the constants its shader declares.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class SpecializationConstants {
+    private int[] ids = new int[8];
+    private int[] values = new int[8];
+    private int count = 0;
+
+    /**
+     * Sets an {@code int} or {@code uint} constant.
+     *
+     * @param constant_id The constant id.
+     * @param value       The value.
+     * @return This SpecializationConstants for method chaining.
+     */
+    public SpecializationConstants set(int constant_id, int value) {
+        int index = Arrays.binarySearch(ids, 0, count, constant_id);
+        if (index < 0) {
+            index = -index - 1;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, count - index);
+            System.arraycopy(values, index, values, index + 1, count - index);
+            ids[index] = constant_id;
+            count++;
+        }
+        values[index] = value;
+        return this;
+    }
+
+    /**
+     * Sets a {@code float} constant.
+     *
+     * @param constant_id The constant id.
+     * @param value       The value.
+     * @return This SpecializationConstants for method chaining.
+     */
+    public SpecializationConstants set(int constant_id, float value) {
+        return set(constant_id, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Sets a {@code bool} constant.
+     *
+     * @param constant_id The constant id.
+     * @param value       The value.
+     * @return This SpecializationConstants for method chaining.
+     */
+    public SpecializationConstants set(int constant_id, boolean value) {
+        return set(constant_id, value ? 1 : 0);
+    }
+
+    /**
+     * Removes every constant.
+     *
+     * @return This SpecializationConstants for method chaining.
+     */
+    public SpecializationConstants clear() {
+        count = 0;
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Gets the raw 32 bit value of a constant.
+     *
+     * @param constant_id   The constant id.
+     * @param default_value The value returned if the constant is not set.
+     * @return The value.
+     */
+    int get(int constant_id, int default_value) {
+        final int index = Arrays.binarySearch(ids, 0, count, constant_id);
+        return index >= 0 ? values[index] : default_value;
+    }
+
+    /**
+     * Replaces the constants with another set's, reusing this set's arrays when they are large enough.
+     */
+    void assign(@Nonnull SpecializationConstants other) {
+        if (ids.length < other.count) {
+            ids = new int[other.ids.length];
+            values = new int[other.ids.length];
+        }
+        System.arraycopy(other.ids, 0, ids, 0, other.count);
+        System.arraycopy(other.values, 0, values, 0, other.count);
+        count = other.count;
+    }
+
+    /**
+     * Writes the constants a shader declares to its stage's key, as id and value pairs.
+     */
+    void putKey(@Nonnull PipelineKey key, @Nonnull ShaderReflection reflection) {
+        for (int i = 0; i < count; i++) {
+            if (reflection.usesSpecializationConstant(ids[i])) {
+                key.put(ids[i]);
+                key.put(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Creates the specialization info for one stage on a stack.
+     *
+     * @param stack      The stack the info is allocated on.
+     * @param reflection The reflection of the stage's shader, only the constants it declares are written.
+     * @return The specialization info, or {@code null} if the shader declares none of the constants.
+     */
+    @Nullable
+    VkSpecializationInfo create(@Nonnull MemoryStack stack, @Nonnull ShaderReflection reflection) {
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            if (reflection.usesSpecializationConstant(ids[i])) {
+                used++;
+            }
+        }
+        if (used == 0) {
+            return null;
+        }
+        VkSpecializationMapEntry.Buffer entries = VkSpecializationMapEntry.calloc(used, stack);
+        ByteBuffer data = stack.malloc(used * Integer.BYTES);
+        int entry = 0;
+        for (int i = 0; i < count; i++) {
+            if (reflection.usesSpecializationConstant(ids[i])) {
+                entries.get(entry).constantID(ids[i]).offset(entry * Integer.BYTES).size(Integer.BYTES);
+                data.putInt(entry * Integer.BYTES, values[i]);
+                entry++;
+            }
+        }
+        return VkSpecializationInfo.calloc(stack).pMapEntries(entries).pData(data);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof SpecializationConstants constants) || constants.count != count) {
+            return false;
+        }
+        return Arrays.equals(ids, 0, count, constants.ids, 0, count) && Arrays.equals(values, 0, count, constants.values, 0, count);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = count;
+        for (int i = 0; i < count; i++) {
+            hash = hash * 31 + ids[i];
+            hash = hash * 31 + values[i];
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,351 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.buffer.CommandBuffer;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.NativeType;
+import org.lwjgl.system.Pointer;
+import org.lwjgl.vulkan.*;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.vulkan.KHRSynchronization2.VK_PIPELINE_STAGE_2_ALL_COMMANDS_BIT_KHR;
+import static org.lwjgl.vulkan.VK10.VK_SUCCESS;
+
+/**
+ * Accumulates several queue submissions and flushes them with a single {@code vkQueueSubmit}, or
+ * {@code vkQueueSubmit2KHR} when synchronization2 is enabled on the device.
+ * <p>
+ * Every submit info, semaphore array and command buffer array lives in off-heap memory allocated once at
+ * construction, and entries are written straight into it, so building and flushing a batch allocates nothing.
+ * Submissions are started with {@link #next()} and filled with command buffers, waits and signals; a batch can be
+ * reused after {@link #flush(Queue, Fence)}.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class SubmitBatch extends LibCleanable {
+    private final boolean use_submit2;
+    private final int max_submits;
+    private final int max_command_buffers;
+    private final int max_semaphores;
+    /*
+     * where each submission starts in the shared arrays, entry i + 1 is where submission i ends
+     */
+    private final int[] command_buffer_start;
+    private final int[] wait_start;
+    private final int[] signal_start;
+    private final boolean[] has_timeline;
+    // vkQueueSubmit storage
+    private VkSubmitInfo.Buffer submit_infos;
+    private VkTimelineSemaphoreSubmitInfo.Buffer timeline_infos;
+    private PointerBuffer command_buffers;
+    private LongBuffer wait_handles;
+    private LongBuffer wait_values;
+    private IntBuffer wait_stages;
+    private LongBuffer signal_handles;
+    private LongBuffer signal_values;
+    // vkQueueSubmit2KHR storage
+    private VkSubmitInfo2.Buffer submit2_infos;
+    private VkCommandBufferSubmitInfo.Buffer command_buffer_infos;
+    private VkSemaphoreSubmitInfo.Buffer wait_infos;
+    private VkSemaphoreSubmitInfo.Buffer signal_infos;
+    private int submit_count = 0;
+    private int command_buffer_count = 0;
+    private int wait_count = 0;
+    private int signal_count = 0;
+
+    /**
+     * Constructs a new SubmitBatch.
+     *
+     * @param device_in           The Vulkan device, used to pick the submission path.
+     * @param max_submits_in      The maximum number of submissions per flush.
+     * @param max_command_buffers The maximum number of command buffers across all submissions.
+     * @param max_semaphores      The maximum number of wait, and separately signal, semaphores across all submissions.
+     */
+    public SubmitBatch(@Nonnull Device device_in, int max_submits_in, int max_command_buffers, int max_semaphores) {
+        if (max_submits_in <= 0 || max_command_buffers <= 0 || max_semaphores < 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch needs room for at least one submission and command buffer");
+            throw new IllegalStateException("submit batch needs room for at least one submission and command buffer");
+        }
+        use_submit2 = device_in.isSynchronization2Enabled();
+        max_submits = max_submits_in;
+        this.max_command_buffers = max_command_buffers;
+        this.max_semaphores = max_semaphores;
+        command_buffer_start = new int[max_submits + 1];
+        wait_start = new int[max_submits + 1];
+        signal_start = new int[max_submits + 1];
+        has_timeline = new boolean[max_submits];
+        if (use_submit2) {
+            submit2_infos = VkSubmitInfo2.calloc(max_submits);
+            command_buffer_infos = VkCommandBufferSubmitInfo.calloc(max_command_buffers);
+            wait_infos = VkSemaphoreSubmitInfo.calloc(Math.max(1, max_semaphores));
+            signal_infos = VkSemaphoreSubmitInfo.calloc(Math.max(1, max_semaphores));
+            submit2_infos.forEach(VkSubmitInfo2::sType$Default);
+            command_buffer_infos.forEach(VkCommandBufferSubmitInfo::sType$Default);
+            wait_infos.forEach(VkSemaphoreSubmitInfo::sType$Default);
+            signal_infos.forEach(VkSemaphoreSubmitInfo::sType$Default);
+        } else {
+            submit_infos = VkSubmitInfo.calloc(max_submits);
+            timeline_infos = VkTimelineSemaphoreSubmitInfo.calloc(max_submits);
+            submit_infos.forEach(VkSubmitInfo::sType$Default);
+            timeline_infos.forEach(VkTimelineSemaphoreSubmitInfo::sType$Default);
+            command_buffers = memCallocPointer(max_command_buffers);
+            wait_handles = memCallocLong(Math.max(1, max_semaphores));
+            wait_values = memCallocLong(Math.max(1, max_semaphores));
+            wait_stages = memCallocInt(Math.max(1, max_semaphores));
+            signal_handles = memCallocLong(Math.max(1, max_semaphores));
+            signal_values = memCallocLong(Math.max(1, max_semaphores));
+        }
+    }
+
+    /**
+     * Starts a new submission, following calls add to it until the next call.
+     *
+     * @return This batch for chaining.
+     */
+    public SubmitBatch next() {
+        if (submit_count == max_submits) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch is full, " + max_submits + " submissions");
+            throw new IllegalStateException("submit batch is full");
+        }
+        has_timeline[submit_count] = false;
+        submit_count++;
+        command_buffer_start[submit_count] = command_buffer_count;
+        wait_start[submit_count] = wait_count;
+        signal_start[submit_count] = signal_count;
+        return this;
+    }
+
+    /**
+     * Adds a command buffer to the current submission.
+     *
+     * @param command_buffer The command buffer, it must have finished recording.
+     * @return This batch for chaining.
+     */
+    public SubmitBatch commandBuffer(@Nonnull CommandBuffer command_buffer) {
+        checkSubmission();
+        if (command_buffer_count == max_command_buffers) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch is out of command buffer slots");
+            throw new IllegalStateException("submit batch is out of command buffer slots");
+        }
+        final long address = command_buffer.getCommandBuffer().address();
+        if (use_submit2) {
+            final long info = command_buffer_infos.address() + (long) command_buffer_count * VkCommandBufferSubmitInfo.SIZEOF;
+            memPutAddress(info + VkCommandBufferSubmitInfo.COMMANDBUFFER, address);
+        } else {
+            command_buffers.put(command_buffer_count, address);
+        }
+        command_buffer_start[submit_count] = ++command_buffer_count;
+        return this;
+    }
+
+    /**
+     * Makes the current submission wait on a binary semaphore.
+     *
+     * @param semaphore  The semaphore to wait on.
+     * @param stage_mask The pipeline stages that wait.
+     * @return This batch for chaining.
+     */
+    public SubmitBatch waitSemaphore(@Nonnull Semaphore semaphore, @NativeType("VkPipelineStageFlags") int stage_mask) {
+        addWait(semaphore.getSemaphore().handle(), 0, stage_mask);
+        return this;
+    }
+
+    /**
+     * Makes the current submission wait on a timeline semaphore value.
+     *
+     * @param point The (semaphore, value, stage) to wait on.
+     * @return This batch for chaining.
+     */
+    public SubmitBatch waitSemaphore(@Nonnull TimelineSemaphore.Point point) {
+        has_timeline[submit_count - 1] = true;
+        addWait(point.semaphore().getSemaphore().handle(), point.value(), point.stage_mask());
+        return this;
+    }
+
+    /**
+     * Makes the current submission signal a binary semaphore.
+     *
+     * @param semaphore The semaphore to signal.
+     * @return This batch for chaining.
+     */
+    public SubmitBatch signalSemaphore(@Nonnull Semaphore semaphore) {
+        addSignal(semaphore.getSemaphore().handle(), 0);
+        return this;
+    }
+
+    /**
+     * Makes the current submission signal a timeline semaphore value.
+     *
+     * @param point The (semaphore, value) to signal.
+     * @return This batch for chaining.
+     */
+    public SubmitBatch signalSemaphore(@Nonnull TimelineSemaphore.Point point) {
+        has_timeline[submit_count - 1] = true;
+        addSignal(point.semaphore().getSemaphore().handle(), point.value());
+        return this;
+    }
+
+    /**
+     * Submits every accumulated submission in a single call and resets the batch.
+     *
+     * @param queue The queue to submit to.
+     * @param fence An optional fence signalled once every submission completes.
+     * @return The result of the submission, {@code VK_SUCCESS} if the batch was empty.
+     */
+    @NativeType("VkResult")
+    public int flush(@Nonnull Queue queue, @Nullable Fence fence) {
+        if (submit_count == 0) {
+            return VK_SUCCESS;
+        }
+        final int result;
+        if (use_submit2) {
+            for (int i = 0; i < submit_count; i++) {
+                final long info = submit2_infos.address() + (long) i * VkSubmitInfo2.SIZEOF;
+                memPutInt(info + VkSubmitInfo2.WAITSEMAPHOREINFOCOUNT, wait_start[i + 1] - wait_start[i]);
+                memPutAddress(info + VkSubmitInfo2.PWAITSEMAPHOREINFOS, wait_infos.address() + (long) wait_start[i] * VkSemaphoreSubmitInfo.SIZEOF);
+                memPutInt(info + VkSubmitInfo2.COMMANDBUFFERINFOCOUNT, command_buffer_start[i + 1] - command_buffer_start[i]);
+                memPutAddress(info + VkSubmitInfo2.PCOMMANDBUFFERINFOS, command_buffer_infos.address() + (long) command_buffer_start[i] * VkCommandBufferSubmitInfo.SIZEOF);
+                memPutInt(info + VkSubmitInfo2.SIGNALSEMAPHOREINFOCOUNT, signal_start[i + 1] - signal_start[i]);
+                memPutAddress(info + VkSubmitInfo2.PSIGNALSEMAPHOREINFOS, signal_infos.address() + (long) signal_start[i] * VkSemaphoreSubmitInfo.SIZEOF);
+            }
+            submit2_infos.limit(submit_count);
+            result = queue.submit2(submit2_infos, fence);
+            submit2_infos.limit(max_submits);
+        } else {
+            for (int i = 0; i < submit_count; i++) {
+                final long info = submit_infos.address() + (long) i * VkSubmitInfo.SIZEOF;
+                final int waits = wait_start[i + 1] - wait_start[i];
+                final int signals = signal_start[i + 1] - signal_start[i];
+                memPutInt(info + VkSubmitInfo.WAITSEMAPHORECOUNT, waits);
+                memPutAddress(info + VkSubmitInfo.PWAITSEMAPHORES, memAddress(wait_handles) + (long) wait_start[i] * Long.BYTES);
+                memPutAddress(info + VkSubmitInfo.PWAITDSTSTAGEMASK, memAddress(wait_stages) + (long) wait_start[i] * Integer.BYTES);
+                memPutInt(info + VkSubmitInfo.COMMANDBUFFERCOUNT, command_buffer_start[i + 1] - command_buffer_start[i]);
+                memPutAddress(info + VkSubmitInfo.PCOMMANDBUFFERS, memAddress(command_buffers) + (long) command_buffer_start[i] * Pointer.POINTER_SIZE);
+                memPutInt(info + VkSubmitInfo.SIGNALSEMAPHORECOUNT, signals);
+                memPutAddress(info + VkSubmitInfo.PSIGNALSEMAPHORES, memAddress(signal_handles) + (long) signal_start[i] * Long.BYTES);
+                if (has_timeline[i]) {
+                    // binary semaphores in the same submission get ignored values from the parallel arrays
+                    final long timeline = timeline_infos.address() + (long) i * VkTimelineSemaphoreSubmitInfo.SIZEOF;
+                    memPutInt(timeline + VkTimelineSemaphoreSubmitInfo.WAITSEMAPHOREVALUECOUNT, waits);
+                    memPutAddress(timeline + VkTimelineSemaphoreSubmitInfo.PWAITSEMAPHOREVALUES, memAddress(wait_values) + (long) wait_start[i] * Long.BYTES);
+                    memPutInt(timeline + VkTimelineSemaphoreSubmitInfo.SIGNALSEMAPHOREVALUECOUNT, signals);
+                    memPutAddress(timeline + VkTimelineSemaphoreSubmitInfo.PSIGNALSEMAPHOREVALUES, memAddress(signal_values) + (long) signal_start[i] * Long.BYTES);
+                    memPutAddress(info + VkSubmitInfo.PNEXT, timeline);
+                } else {
+                    memPutAddress(info + VkSubmitInfo.PNEXT, NULL);
+                }
+            }
+            submit_infos.limit(submit_count);
+            result = queue.submit(submit_infos, fence);
+            submit_infos.limit(max_submits);
+        }
+        reset();
+        return result;
+    }
+
+    /**
+     * Drops every accumulated submission without submitting.
+     */
+    public void reset() {
+        submit_count = 0;
+        command_buffer_count = 0;
+        wait_count = 0;
+        signal_count = 0;
+    }
+
+    public int getSubmitCount() {
+        return submit_count;
+    }
+
+    /**
+     * Checks which submission path the batch uses.
+     *
+     * @return {@code true} if flushes go through {@code vkQueueSubmit2KHR}.
+     */
+    public boolean usesSubmit2() {
+        return use_submit2;
+    }
+
+    private void checkSubmission() {
+        if (submit_count == 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch entry added before next()");
+            throw new IllegalStateException("submit batch entry added before next()");
+        }
+    }
+
+    private void addWait(long semaphore, long value, int stage_mask) {
+        checkSubmission();
+        if (wait_count == max_semaphores) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch is out of wait semaphore slots");
+            throw new IllegalStateException("submit batch is out of wait semaphore slots");
+        }
+        if (use_submit2) {
+            final long info = wait_infos.address() + (long) wait_count * VkSemaphoreSubmitInfo.SIZEOF;
+            memPutLong(info + VkSemaphoreSubmitInfo.SEMAPHORE, semaphore);
+            memPutLong(info + VkSemaphoreSubmitInfo.VALUE, value);
+            // the 32 bit stage bits have the same values in the 64 bit synchronization2 masks
+            memPutLong(info + VkSemaphoreSubmitInfo.STAGEMASK, stage_mask & 0xFFFFFFFFL);
+        } else {
+            wait_handles.put(wait_count, semaphore);
+            wait_values.put(wait_count, value);
+            wait_stages.put(wait_count, stage_mask);
+        }
+        wait_start[submit_count] = ++wait_count;
+    }
+
+    private void addSignal(long semaphore, long value) {
+        checkSubmission();
+        if (signal_count == max_semaphores) {
+            Log.print(Log.Severity.ERROR, "Vulkan: submit batch is out of signal semaphore slots");
+            throw new IllegalStateException("submit batch is out of signal semaphore slots");
+        }
+        if (use_submit2) {
+            final long info = signal_infos.address() + (long) signal_count * VkSemaphoreSubmitInfo.SIZEOF;
+            memPutLong(info + VkSemaphoreSubmitInfo.SEMAPHORE, semaphore);
+            memPutLong(info + VkSemaphoreSubmitInfo.VALUE, value);
+            memPutLong(info + VkSemaphoreSubmitInfo.STAGEMASK, VK_PIPELINE_STAGE_2_ALL_COMMANDS_BIT_KHR);
+        } else {
+            signal_handles.put(signal_count, semaphore);
+            signal_values.put(signal_count, value);
+        }
+        signal_start[submit_count] = ++signal_count;
+    }
+
+    /**
+     * Frees the off-heap submission storage.
+     */
+    @Override
+    protected void free() {
+        if (use_submit2) {
+            submit2_infos.free();
+            command_buffer_infos.free();
+            wait_infos.free();
+            signal_infos.free();
+        } else {
+            submit_infos.free();
+            timeline_infos.free();
+            memFree(command_buffers);
+            memFree(wait_handles);
+            memFree(wait_values);
+            memFree(wait_stages);
+            memFree(signal_handles);
+            memFree(signal_values);
+        }
+    }
+}
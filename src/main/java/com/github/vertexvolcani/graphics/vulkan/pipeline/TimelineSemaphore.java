@@ -0,0 +1,205 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.NativeType;
+import org.lwjgl.vulkan.VkSemaphoreCreateInfo;
+import org.lwjgl.vulkan.VkSemaphoreSignalInfo;
+import org.lwjgl.vulkan.VkSemaphoreTypeCreateInfoKHR;
+import org.lwjgl.vulkan.VkSemaphoreWaitInfo;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.vulkan.KHRTimelineSemaphore.VK_SEMAPHORE_TYPE_TIMELINE_KHR;
+import static org.lwjgl.vulkan.VK10.VK_SUCCESS;
+import static org.lwjgl.vulkan.VK10.VK_TIMEOUT;
+
+/**
+ * A Vulkan timeline semaphore, a 64 bit counter that only increases.
+ * <p>
+ * Submissions signal and wait on values of the counter through
+ * {@link Queue#submit(org.lwjgl.PointerBuffer, Point[], Point[], Fence)}, and the host can wait on, signal or read
+ * it directly. The last value read from the device is cached, so checking whether work tagged with a value has
+ * completed is usually a single compare.
+ * </p>
+ * Requires {@link Device#isTimelineSemaphoreEnabled()}.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class TimelineSemaphore extends LibCleanable {
+    /**
+     * The handle to the Vulkan semaphore.
+     */
+    private final DeviceHandle handle;
+    /**
+     * The highest counter value known to have been reached, only ever raised so concurrent readers can not move it
+     * back.
+     */
+    private final AtomicLong completed_value;
+
+    /**
+     * Constructs a new TimelineSemaphore.
+     *
+     * @param device_in     The Vulkan device, it must have timeline semaphores enabled.
+     * @param initial_value The starting value of the counter.
+     */
+    public TimelineSemaphore(@Nonnull Device device_in, long initial_value) {
+        if (!device_in.isTimelineSemaphoreEnabled()) {
+            Log.print(Log.Severity.ERROR, "Vulkan: timeline semaphores are not enabled on this device");
+            throw new IllegalStateException("timeline semaphores are not enabled on this device");
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkSemaphoreTypeCreateInfoKHR type_info = VkSemaphoreTypeCreateInfoKHR.calloc(stack).sType$Default()
+                    .semaphoreType(VK_SEMAPHORE_TYPE_TIMELINE_KHR).initialValue(initial_value);
+            VkSemaphoreCreateInfo pCreateInfo = VkSemaphoreCreateInfo.calloc(stack).sType$Default().pNext(type_info).flags(0);
+            handle = device_in.createSemaphore(pCreateInfo);
+            if (device_in.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: could not create timeline semaphore");
+                throw new IllegalStateException("could not create timeline semaphore");
+            }
+        }
+        completed_value = new AtomicLong(initial_value);
+        Log.print(Log.Severity.DEBUG, "Vulkan: created timeline semaphore");
+    }
+
+    /**
+     * Reads the current counter value from the device.
+     *
+     * @return The current value.
+     * @throws IllegalStateException If the value can not be read, such as after a device loss.
+     */
+    public long getValue() {
+        final long value = handle.device().getSemaphoreCounterValue(handle);
+        if (handle.device().didErrorOccur()) {
+            Log.print(Log.Severity.ERROR, "Vulkan: could not read timeline semaphore value, VkResult " + handle.device().getResult());
+            throw new IllegalStateException("could not read timeline semaphore value, VkResult " + handle.device().getResult());
+        }
+        return completed_value.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the last value read from the device without querying it.
+     *
+     * @return The cached completed value.
+     */
+    public long getCompletedValue() {
+        return completed_value.get();
+    }
+
+    /**
+     * Checks whether the counter has reached a value, only querying the device if the cached value is behind.
+     *
+     * @param value The value to check.
+     * @return {@code true} if the counter is at or past the value.
+     */
+    public boolean isComplete(long value) {
+        return value <= completed_value.get() || value <= getValue();
+    }
+
+    /**
+     * Blocks until the counter reaches a value.
+     *
+     * @param value The value to wait for.
+     */
+    public void waitFor(long value) {
+        waitFor(value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Blocks until the counter reaches a value or the timeout expires.
+     *
+     * @param value   The value to wait for.
+     * @param timeout The timeout in nanoseconds.
+     * @return {@code true} if the value was reached, {@code false} on timeout.
+     */
+    public boolean waitFor(long value, @NativeType("uint64_t") long timeout) {
+        if (value <= completed_value.get()) {
+            return true;
+        }
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkSemaphoreWaitInfo wait_info = VkSemaphoreWaitInfo.calloc(stack).sType$Default().semaphoreCount(1)
+                    .pSemaphores(stack.longs(handle.handle())).pValues(stack.longs(value));
+            handle.device().waitSemaphores(wait_info, timeout);
+            final int result = handle.device().getResult();
+            if (result == VK_TIMEOUT) {
+                return false;
+            }
+            if (result != VK_SUCCESS) {
+                Log.print(Log.Severity.ERROR, "Vulkan: failed to wait on timeline semaphore");
+                throw new IllegalStateException("failed to wait on timeline semaphore");
+            }
+        }
+        completed_value.accumulateAndGet(value, Math::max);
+        return true;
+    }
+
+    /**
+     * Sets the counter from the host, the value must be greater than the current one.
+     *
+     * @param value The new value.
+     */
+    public void signal(long value) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkSemaphoreSignalInfo signal_info = VkSemaphoreSignalInfo.calloc(stack).sType$Default().semaphore(handle.handle()).value(value);
+            handle.device().signalSemaphore(signal_info);
+            if (handle.device().didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: failed to signal timeline semaphore");
+                throw new IllegalStateException("failed to signal timeline semaphore");
+            }
+        }
+        completed_value.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Creates a wait or signal point on this semaphore for a submission.
+     *
+     * @param value      The counter value.
+     * @param stage_mask The pipeline stages that wait on the value, ignored for signal points.
+     * @return The submission point.
+     */
+    public Point at(long value, @NativeType("VkPipelineStageFlags") int stage_mask) {
+        return new Point(this, value, stage_mask);
+    }
+
+    /**
+     * Gets the handle to the Vulkan semaphore.
+     *
+     * @return The handle to the Vulkan semaphore.
+     */
+    public DeviceHandle getSemaphore() {
+        return handle;
+    }
+
+    /**
+     * Cleans up resources associated with the semaphore.
+     */
+    @Override
+    protected void free() {
+        handle.device().retire(0, () -> {
+            handle.device().destroySemaphore(handle);
+            Log.print(Log.Severity.DEBUG, "Vulkan: done freeing timeline semaphore");
+        });
+    }
+
+    /**
+     * A (semaphore, value) pair a submission waits on or signals.
+     *
+     * @param semaphore  The timeline semaphore.
+     * @param value      The counter value.
+     * @param stage_mask The pipeline stages that wait on the value, ignored for signal points.
+     */
+    public record Point(@Nonnull TimelineSemaphore semaphore, long value, @NativeType("VkPipelineStageFlags") int stage_mask) {
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.Image;
+import com.github.vertexvolcani.graphics.vulkan.buffer.Buffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.CommandBuffer;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.PipelineLayout;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.ShaderType;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import static org.lwjgl.vulkan.EXTDescriptorIndexing.*;
+import static org.lwjgl.vulkan.VK10.VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT;
+import static org.lwjgl.vulkan.VK10.VK_NULL_HANDLE;
+import static org.lwjgl.vulkan.VK10.VK_WHOLE_SIZE;
+
+/**
+ * One descriptor set holding every texture and storage buffer of a scene in two large arrays, so shaders pick
+ * resources by index and changing material needs no descriptor bind.
+ * <p>
+ * Binding {@link #IMAGE_BINDING} is an array of combined image samplers and binding {@link #BUFFER_BINDING} an array
+ * of storage buffers, e.g. {@code layout(set = 0, binding = 0) uniform sampler2D textures[];} indexed with
+ * {@code nonuniformEXT} where the index varies within a draw. {@link #register(Image, long, int)} and
+ * {@link #register(Buffer)} return the index, which stays the same until the resource is closed. The bindings are
+ * partially bound and update after bind, so registering while frames using the set are in flight is allowed; the
+ * writes are collected and applied by {@link #flush()} or {@link #bind}, which must happen before the frame reading
+ * the new indices is submitted. When a resource closes its index is retired with the device and only reused once
+ * the GPU has finished every frame that could still read it.
+ * </p>
+ * Needs {@link Device#isDescriptorIndexingEnabled()}, requested with
+ * {@link Device.DeviceFeaturesToEnabled#descriptor_indexing}. The heap is thread safe.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class BindlessHeap extends LibCleanable {
+    public static final int IMAGE_BINDING = 0;
+    public static final int BUFFER_BINDING = 1;
+    private static final int BINDING_FLAGS = VK_DESCRIPTOR_BINDING_PARTIALLY_BOUND_BIT_EXT | VK_DESCRIPTOR_BINDING_UPDATE_AFTER_BIND_BIT_EXT
+            | VK_DESCRIPTOR_BINDING_UPDATE_UNUSED_WHILE_PENDING_BIT_EXT;
+    private final Device device;
+    private final DescriptorLayout layout;
+    private final DescriptorPool pool;
+    private final DescriptorSets set;
+    private final DescriptorWriter writer;
+    private final Slots image_slots;
+    private final Slots buffer_slots;
+    /**
+     * the slot of each registered resource with the close listener registered on it
+     */
+    private final IdentityHashMap<LibCleanable, Registration> registered = new IdentityHashMap<>();
+    /**
+     * resources registered since the last flush, their descriptors are only written on flush so a resource closed
+     * before then is never written
+     */
+    private final ArrayList<Registration> pending = new ArrayList<>();
+    private boolean closed = false;
+
+    private record Registration(LibCleanable resource, int index, long sampler, int image_layout, Runnable listener) {
+    }
+
+    /**
+     * A free list of array indices, indices never handed out are taken in order.
+     */
+    private static final class Slots {
+        private final int capacity;
+        private int[] free = new int[16];
+        private int free_count = 0;
+        private int next = 0;
+
+        private Slots(int capacity_in) {
+            capacity = capacity_in;
+        }
+
+        private int acquire() {
+            if (free_count > 0) {
+                return free[--free_count];
+            }
+            return next < capacity ? next++ : -1;
+        }
+
+        private void release(int index) {
+            if (free_count == free.length) {
+                free = Arrays.copyOf(free, free.length * 2);
+            }
+            free[free_count++] = index;
+        }
+
+        private int used() {
+            return next - free_count;
+        }
+    }
+
+    /**
+     * Constructs a new BindlessHeap.
+     *
+     * @param device_in   The Vulkan device.
+     * @param max_images  The size of the image array, clamped to {@link Device#getMaxBindlessSampledImages()}.
+     * @param max_buffers The size of the buffer array, clamped to {@link Device#getMaxBindlessStorageBuffers()}.
+     * @param stages      The shader stages reading the arrays.
+     * @throws IllegalStateException If descriptor indexing is not enabled.
+     */
+    public BindlessHeap(@Nonnull Device device_in, int max_images, int max_buffers, @Nonnull ShaderType stages) {
+        if (!device_in.isDescriptorIndexingEnabled()) {
+            Log.print(Log.Severity.ERROR, "Vulkan: bindless heap needs descriptor indexing, request it in DeviceFeaturesToEnabled");
+            throw new IllegalStateException("bindless heap needs descriptor indexing, request it in DeviceFeaturesToEnabled");
+        }
+        device = device_in;
+        final int image_count = Math.max(1, Math.min(max_images, device_in.getMaxBindlessSampledImages()));
+        final int buffer_count = Math.max(1, Math.min(max_buffers, device_in.getMaxBindlessStorageBuffers()));
+        image_slots = new Slots(image_count);
+        buffer_slots = new Slots(buffer_count);
+        layout = new DescriptorLayout(device_in, new LayoutBinding[]{
+                new LayoutBinding(IMAGE_BINDING, image_count, DescriptorType.COMBINED_IMAGE_SAMPLER, stages, null),
+                new LayoutBinding(BUFFER_BINDING, buffer_count, DescriptorType.STORAGE_BUFFER, stages, null)},
+                VK_DESCRIPTOR_SET_LAYOUT_CREATE_UPDATE_AFTER_BIND_POOL_BIT_EXT, new int[]{BINDING_FLAGS, BINDING_FLAGS});
+        pool = new DescriptorPool(device_in, new DescriptorPoolSize[]{new DescriptorPoolSize(DescriptorType.COMBINED_IMAGE_SAMPLER, image_count),
+                new DescriptorPoolSize(DescriptorType.STORAGE_BUFFER, buffer_count)}, 1,
+                VK_DESCRIPTOR_POOL_CREATE_UPDATE_AFTER_BIND_BIT_EXT | VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT);
+        set = new DescriptorSets(device_in, pool, new DescriptorLayout[]{layout});
+        writer = new DescriptorWriter(device_in);
+        Log.print(Log.Severity.DEBUG, "Vulkan: created bindless heap with " + image_count + " images and " + buffer_count + " buffers");
+    }
+
+    /**
+     * Registers a sampled image, registering it again returns the same index.
+     *
+     * @param image        The image.
+     * @param sampler      The sampler handle.
+     * @param image_layout The layout the image is in when sampled.
+     * @return The index into the image array.
+     * @throws IllegalStateException If the image array is full.
+     */
+    public synchronized int register(@Nonnull Image image, long sampler, int image_layout) {
+        @Nullable Registration registration = registered.get(image);
+        if (registration != null) {
+            return registration.index();
+        }
+        final int index = acquire(image_slots, "image");
+        registration = new Registration(image, index, sampler, image_layout, () -> onClosed(image, image_slots));
+        registered.put(image, registration);
+        pending.add(registration);
+        image.addCloseListener(registration.listener());
+        return index;
+    }
+
+    /**
+     * Registers the whole of a storage buffer, registering it again returns the same index.
+     *
+     * @param buffer The buffer, created with {@code VK_BUFFER_USAGE_STORAGE_BUFFER_BIT}.
+     * @return The index into the buffer array.
+     * @throws IllegalStateException If the buffer array is full.
+     */
+    public synchronized int register(@Nonnull Buffer buffer) {
+        @Nullable Registration registration = registered.get(buffer);
+        if (registration != null) {
+            return registration.index();
+        }
+        final int index = acquire(buffer_slots, "buffer");
+        registration = new Registration(buffer, index, VK_NULL_HANDLE, 0, () -> onClosed(buffer, buffer_slots));
+        registered.put(buffer, registration);
+        pending.add(registration);
+        buffer.addCloseListener(registration.listener());
+        return index;
+    }
+
+    private static int acquire(Slots slots, String kind) {
+        final int index = slots.acquire();
+        if (index < 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: bindless heap " + kind + " array of " + slots.capacity + " is full");
+            throw new IllegalStateException("bindless heap " + kind + " array of " + slots.capacity + " is full");
+        }
+        return index;
+    }
+
+    /**
+     * Frees the index of a closed resource once the GPU is done with the frames that may read it. The descriptor is
+     * left in place, the binding is partially bound so a stale descriptor nobody indexes is valid. A resource closed
+     * before its descriptor was flushed is dropped from the pending writes, its index was never visible to the GPU.
+     */
+    private synchronized void onClosed(LibCleanable resource, Slots slots) {
+        @Nullable Registration registration = registered.remove(resource);
+        if (registration == null || closed) {
+            return;
+        }
+        if (pending.remove(registration)) {
+            slots.release(registration.index());
+            return;
+        }
+        device.retire(0, () -> {
+            synchronized (this) {
+                slots.release(registration.index());
+            }
+        });
+    }
+
+    /**
+     * Applies the descriptor writes of every resource registered since the last flush with one
+     * {@code vkUpdateDescriptorSets} call.
+     */
+    public synchronized void flush() {
+        final long handle = set.getHandle(0);
+        for (Registration registration : pending) {
+            if (registration.resource() instanceof Image image) {
+                writer.writeImage(handle, IMAGE_BINDING, registration.index(), DescriptorType.COMBINED_IMAGE_SAMPLER, registration.sampler(),
+                        image.getImageView().handle(), registration.image_layout());
+            } else {
+                writer.writeBuffer(handle, BUFFER_BINDING, registration.index(), DescriptorType.STORAGE_BUFFER, ((Buffer) registration.resource()).getBuffer(),
+                        0, VK_WHOLE_SIZE);
+            }
+        }
+        pending.clear();
+        writer.flush();
+    }
+
+    /**
+     * Flushes pending writes and binds the heap's set.
+     *
+     * @param command_buffer  The command buffer to record into.
+     * @param bind_point      The {@code VK_PIPELINE_BIND_POINT_*} value.
+     * @param pipeline_layout A pipeline layout made with {@link #getLayout()} as the set at {@code set_index}.
+     * @param set_index       The set number the shaders declare the arrays in.
+     */
+    public void bind(@Nonnull CommandBuffer command_buffer, int bind_point, @Nonnull PipelineLayout pipeline_layout, int set_index) {
+        flush();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            command_buffer.bindDescriptorSets(bind_point, pipeline_layout, set_index, stack.longs(set.getHandle(0)), null);
+        }
+    }
+
+    /**
+     * Gets the layout to build pipeline layouts reading the heap with.
+     *
+     * @return The descriptor set layout, owned by the heap.
+     */
+    public DescriptorLayout getLayout() {
+        return layout;
+    }
+
+    public long getSet() {
+        return set.getHandle(0);
+    }
+
+    public int getImageCapacity() {
+        return image_slots.capacity;
+    }
+
+    public int getBufferCapacity() {
+        return buffer_slots.capacity;
+    }
+
+    /**
+     * Gets the number of image indices in use, including those waiting for the GPU before they are reused.
+     *
+     * @return The image count.
+     */
+    public synchronized int getImageCount() {
+        return image_slots.used();
+    }
+
+    /**
+     * Gets the number of buffer indices in use, including those waiting for the GPU before they are reused.
+     *
+     * @return The buffer count.
+     */
+    public synchronized int getBufferCount() {
+        return buffer_slots.used();
+    }
+
+    /**
+     * Removes the close listeners and destroys the set, its pool and layout once the GPU is done with them. Pending
+     * writes are dropped.
+     */
+    @Override
+    protected synchronized void free() {
+        closed = true;
+        registered.forEach((resource, registration) -> {
+            if (resource instanceof Buffer buffer) {
+                buffer.removeCloseListener(registration.listener());
+            } else {
+                ((Image) resource).removeCloseListener(registration.listener());
+            }
+        });
+        registered.clear();
+        pending.clear();
+        writer.close();
+        // command buffers still in flight may have the set bound
+        device.retire(0, () -> {
+            set.close();
+            pool.close();
+            layout.close();
+        });
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing bindless heap");
+    }
+}
@@ -0,0 +1,219 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.vulkan.VkDescriptorSetAllocateInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import static org.lwjgl.vulkan.VK10.VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT;
+import static org.lwjgl.vulkan.VK10.VK_ERROR_FRAGMENTED_POOL;
+import static org.lwjgl.vulkan.VK11.VK_ERROR_OUT_OF_POOL_MEMORY;
+
+/**
+ * A growable descriptor set allocator that frees a whole frame's sets with one pool reset.
+ * <p>
+ * Sets are allocated from the current pool of the current frame. When a pool runs out
+ * ({@code VK_ERROR_OUT_OF_POOL_MEMORY} or {@code VK_ERROR_FRAGMENTED_POOL}) another pool is taken, a reset one if
+ * there is one and otherwise a new one twice the size of the last, so running out of descriptors is never fatal.
+ * {@link #beginFrame(int)} resets every pool the frame used, which frees all of its sets at once instead of one
+ * {@code vkFreeDescriptorSets} per set. It must only be called once the GPU has finished with that frame.
+ * </p>
+ * Long lived sets can come from an allocator with one frame that is never reset. The returned {@link DescriptorSets}
+ * do nothing when closed, unless the allocator was created to free sets one by one, which only an allocator with one
+ * frame that is never reset can be.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class DescriptorAllocator extends LibCleanable {
+    private static final int MAX_SETS_PER_POOL = 4096;
+    private final Device device;
+    /**
+     * the descriptors of each type a pool holds per set it holds
+     */
+    private final DescriptorPoolSize[] sizes_per_set;
+    /**
+     * whether sets can be freed one by one, the pools are then created with
+     * {@code VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT}
+     */
+    private final boolean free_sets;
+    /**
+     * the pools each frame allocated from, the last one is the frame's current pool
+     */
+    private final ArrayList<DescriptorPool>[] used;
+    /**
+     * reset pools ready for any frame
+     */
+    private final ArrayDeque<DescriptorPool> ready = new ArrayDeque<>();
+    private final ArrayList<DescriptorPool> pools = new ArrayList<>();
+    private int next_pool_sets;
+    private int frame_index = 0;
+    private long allocated = 0;
+
+    /**
+     * Constructs a new DescriptorAllocator.
+     *
+     * @param device_in        The Vulkan device.
+     * @param frame_count      The number of frames in flight, 1 for sets that are never reset.
+     * @param initial_sets     The number of sets the first pool holds.
+     * @param sizes_per_set_in The descriptors of each type a pool holds for each set, e.g. 2 combined image samplers
+     *                         if an average set has two textures.
+     */
+    public DescriptorAllocator(@Nonnull Device device_in, int frame_count, int initial_sets, @Nonnull DescriptorPoolSize[] sizes_per_set_in) {
+        this(device_in, frame_count, initial_sets, sizes_per_set_in, false);
+    }
+
+    /**
+     * Constructs a new DescriptorAllocator.
+     *
+     * @param device_in        The Vulkan device.
+     * @param frame_count      The number of frames in flight, 1 for sets that are never reset.
+     * @param initial_sets     The number of sets the first pool holds.
+     * @param sizes_per_set_in The descriptors of each type a pool holds for each set.
+     * @param free_sets_in     {@code true} if closing a returned {@link DescriptorSets} frees its sets, for long lived
+     *                         sets that come and go such as those of a {@link DescriptorSetCache}. The frame count
+     *                         must then be 1, as a reset pool would leave the sets freeing handles it already freed.
+     */
+    DescriptorAllocator(@Nonnull Device device_in, int frame_count, int initial_sets, @Nonnull DescriptorPoolSize[] sizes_per_set_in, boolean free_sets_in) {
+        if (frame_count <= 0 || initial_sets <= 0) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor allocator needs at least one frame and one set per pool");
+            throw new IllegalStateException("descriptor allocator needs at least one frame and one set per pool");
+        }
+        if (free_sets_in && frame_count != 1) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor allocator freeing sets one by one needs exactly one frame");
+            throw new IllegalStateException("descriptor allocator freeing sets one by one needs exactly one frame");
+        }
+        device = device_in;
+        sizes_per_set = sizes_per_set_in.clone();
+        free_sets = free_sets_in;
+        next_pool_sets = Math.min(initial_sets, MAX_SETS_PER_POOL);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ArrayList<DescriptorPool>[] frames = new ArrayList[frame_count];
+        used = frames;
+        for (int i = 0; i < frame_count; i++) {
+            used[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Starts allocating for a frame, freeing every set allocated the last time the frame was used.
+     *
+     * @param frame_index_in The frame index, e.g. {@code FrameScheduler.Frame.getIndex()}.
+     * @throws IllegalStateException If the allocator frees sets one by one, its pools are never reset.
+     */
+    public void beginFrame(int frame_index_in) {
+        if (free_sets) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor allocator freeing sets one by one can not begin a frame");
+            throw new IllegalStateException("descriptor allocator freeing sets one by one can not begin a frame");
+        }
+        frame_index = frame_index_in % used.length;
+        for (DescriptorPool pool : used[frame_index]) {
+            device.resetDescriptorPool(pool.getHandle(), 0);
+            ready.add(pool);
+        }
+        used[frame_index].clear();
+    }
+
+    /**
+     * Allocates one set per layout for the current frame, taking another pool if the current one is full.
+     *
+     * @param layouts The layouts of the sets.
+     * @return The sets, valid until the frame is begun again.
+     * @throws IllegalStateException If the sets do not fit even in a new pool, or allocation fails otherwise.
+     */
+    public DescriptorSets allocate(@Nonnull DescriptorLayout[] layouts) {
+        final long[] handles = new long[layouts.length];
+        @Nullable DescriptorPool pool;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorSetAllocateInfo info = VkDescriptorSetAllocateInfo.calloc(stack).sType$Default()
+                    .pSetLayouts(DescriptorSets.layoutHandles(stack, layouts));
+            ArrayList<DescriptorPool> frame = used[frame_index];
+            pool = frame.isEmpty() ? null : frame.get(frame.size() - 1);
+            if (pool != null) {
+                device.allocateDescriptorSets(info.descriptorPool(pool.getHandle().handle()), handles);
+            }
+            // sets freed one by one leave room in older pools of the frame
+            for (int i = frame.size() - 2; free_sets && i >= 0 && isPoolFull(device.getResult()); i--) {
+                pool = frame.get(i);
+                device.allocateDescriptorSets(info.descriptorPool(pool.getHandle().handle()), handles);
+            }
+            if (pool == null || isPoolFull(device.getResult())) {
+                pool = ready.poll();
+                if (pool != null) {
+                    frame.add(pool);
+                    device.allocateDescriptorSets(info.descriptorPool(pool.getHandle().handle()), handles);
+                }
+            }
+            // a reset pool may be too small for the batch, a new pool is sized to hold it
+            if (pool == null || isPoolFull(device.getResult())) {
+                pool = createPool(layouts.length);
+                frame.add(pool);
+                device.allocateDescriptorSets(info.descriptorPool(pool.getHandle().handle()), handles);
+            }
+            if (device.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: failed to allocate " + layouts.length + " descriptor sets, VkResult " + device.getResult());
+                throw new IllegalStateException("failed to allocate " + layouts.length + " descriptor sets, VkResult " + device.getResult());
+            }
+        }
+        allocated += layouts.length;
+        return new DescriptorSets(device, free_sets ? pool : null, handles);
+    }
+
+    private static boolean isPoolFull(int result) {
+        return result == VK_ERROR_OUT_OF_POOL_MEMORY || result == VK_ERROR_FRAGMENTED_POOL;
+    }
+
+    private DescriptorPool createPool(int min_sets) {
+        final int pool_sets = Math.max(next_pool_sets, min_sets);
+        DescriptorPoolSize[] sizes = new DescriptorPoolSize[sizes_per_set.length];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = new DescriptorPoolSize(sizes_per_set[i].type(), sizes_per_set[i].size() * pool_sets);
+        }
+        DescriptorPool pool = new DescriptorPool(device, sizes, pool_sets, free_sets ? VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT : 0);
+        pools.add(pool);
+        next_pool_sets = Math.min(next_pool_sets * 2, MAX_SETS_PER_POOL);
+        return pool;
+    }
+
+    public int getPoolCount() {
+        return pools.size();
+    }
+
+    /**
+     * Gets the number of sets allocated since the allocator was created.
+     *
+     * @return The set count.
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Destroys every pool, freeing all the sets allocated from them.
+     */
+    @Override
+    protected void free() {
+        for (DescriptorPool pool : pools) {
+            pool.close();
+        }
+        pools.clear();
+        ready.clear();
+        for (ArrayList<DescriptorPool> frame : used) {
+            frame.clear();
+        }
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing descriptor allocator, " + allocated + " sets allocated");
+    }
+}
@@ -4,14 +4,37 @@ import com.github.vertexvolcani.graphics.vulkan.Device;
 import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.VkDescriptorSetLayoutBinding;
+import org.lwjgl.vulkan.VkDescriptorSetLayoutBindingFlagsCreateInfoEXT;
 import org.lwjgl.vulkan.VkDescriptorSetLayoutCreateInfo;
 
 public final class DescriptorLayout extends LibCleanable {
 
     private final DeviceHandle handle;
+    private final LayoutBinding[] bindings;
     public DescriptorLayout(Device device_in,LayoutBinding [] bindings_in,int flags) {
-        try(VkDescriptorSetLayoutCreateInfo pCreateInfo = VkDescriptorSetLayoutCreateInfo.calloc()) {
+        this(device_in, bindings_in, flags, null);
+    }
+
+    /**
+     * Constructs a new DescriptorLayout with per binding flags, e.g. partially bound and update after bind bindings
+     * of a bindless layout, which needs {@link Device#isDescriptorIndexingEnabled()}.
+     *
+     * @param device_in     The Vulkan device.
+     * @param bindings_in   The bindings.
+     * @param flags         The layout create flags.
+     * @param binding_flags The {@code VkDescriptorBindingFlagsEXT} of each binding, or {@code null} for none.
+     * @throws IllegalStateException If there is not one binding flags value per binding.
+     */
+    public DescriptorLayout(Device device_in, LayoutBinding[] bindings_in, int flags, @Nullable int[] binding_flags) {
+        if (binding_flags != null && binding_flags.length != bindings_in.length) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor layout has " + bindings_in.length + " bindings but " + binding_flags.length + " binding flags");
+            throw new IllegalStateException("descriptor layout has " + bindings_in.length + " bindings but " + binding_flags.length + " binding flags");
+        }
+        bindings = bindings_in.clone();
+        try(MemoryStack stack = MemoryStack.stackPush(); VkDescriptorSetLayoutCreateInfo pCreateInfo = VkDescriptorSetLayoutCreateInfo.calloc()) {
             try(VkDescriptorSetLayoutBinding.Buffer bindings = VkDescriptorSetLayoutBinding.calloc(bindings_in.length)) {
                 for (int i = 0; i < bindings_in.length; i++) {
                     bindings.get(i).binding(bindings_in[i].binding()).descriptorType(bindings_in[i].descriptorType().getDescriptorType())
@@ -21,6 +44,10 @@ public final class DescriptorLayout extends LibCleanable {
                 pCreateInfo.sType$Default();
                 pCreateInfo.flags(flags);
                 pCreateInfo.pBindings(bindings);
+                if (binding_flags != null) {
+                    pCreateInfo.pNext(VkDescriptorSetLayoutBindingFlagsCreateInfoEXT.calloc(stack).sType$Default()
+                            .pBindingFlags(stack.ints(binding_flags)));
+                }
                 handle = device_in.createDescriptorSetLayout(pCreateInfo);
                 if (device_in.didErrorOccur()) {
                     Log.print(Log.Severity.ERROR, "Vulkan: could not create descriptor set layout");
@@ -34,6 +61,19 @@ public final class DescriptorLayout extends LibCleanable {
         return handle;
     }
 
+    public LayoutBinding[] getBindings() {
+        return bindings.clone();
+    }
+
+    /**
+     * Creates an update template that writes every binding of a set with this layout from one packed struct.
+     *
+     * @return The template, closed by the caller before the layout.
+     */
+    public DescriptorUpdateTemplate createUpdateTemplate() {
+        return new DescriptorUpdateTemplate(handle.device(), this);
+    }
+
     @Override
     protected void free() {
         handle.device().destroyDescriptorSetLayout(handle);
@@ -0,0 +1,310 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.Image;
+import com.github.vertexvolcani.graphics.vulkan.buffer.Buffer;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import static org.lwjgl.vulkan.VK10.VK_NULL_HANDLE;
+
+/**
+ * Hands out descriptor sets by what they contain, so a set with the same layout and the same buffers, images,
+ * offsets and ranges as one made before is reused without a {@code vkUpdateDescriptorSets} call.
+ * <p>
+ * A set is described with {@link #begin}, one call per descriptor and {@link #end}, which returns the set handle.
+ * The description is written into a reused probe key, so a hit allocates nothing. A miss allocates a set, writes it
+ * and keeps it under a copy of the key. Sets stay alive until a {@link Buffer} or {@link Image} they refer to is
+ * closed, the cache then drops them and frees them once the GPU is done with them. Texel buffer views are not
+ * tracked, sets using them live until the cache is closed. Samplers are not tracked either and are keyed by their
+ * raw handle, so a sampler destroyed while the cache still holds sets using it must not be replaced by one that may
+ * reuse the handle, a set described with the new sampler would hit the stale set.
+ * </p>
+ * Describing a set is not thread safe, {@link #end} and the eviction of sets are.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class DescriptorSetCache extends LibCleanable {
+    private static final DescriptorType[] TYPES = DescriptorType.values();
+    private final Device device;
+    private final DescriptorAllocator allocator;
+    private final DescriptorWriter writer;
+    private final HashMap<DescriptorSetKey, Entry> sets = new HashMap<>();
+    /**
+     * the entries referring to each buffer or image, with the close listener registered on it
+     */
+    private final IdentityHashMap<LibCleanable, Tracked> tracked = new IdentityHashMap<>();
+    private final DescriptorSetKey probe = new DescriptorSetKey();
+    private final ArrayList<LibCleanable> probe_resources = new ArrayList<>();
+    @Nullable
+    private DescriptorLayout probe_layout = null;
+    private boolean closed = false;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    private record Entry(DescriptorSetKey key, DescriptorSets sets, LibCleanable[] resources) {
+    }
+
+    private final class Tracked {
+        private final ArrayList<Entry> entries = new ArrayList<>(1);
+        private final Runnable listener;
+
+        private Tracked(LibCleanable resource) {
+            listener = () -> onClosed(resource);
+        }
+    }
+
+    /**
+     * Constructs a new DescriptorSetCache.
+     *
+     * @param device_in     The Vulkan device.
+     * @param initial_sets  The number of sets the first descriptor pool holds.
+     * @param sizes_per_set The descriptors of each type a pool holds for each set.
+     */
+    public DescriptorSetCache(@Nonnull Device device_in, int initial_sets, @Nonnull DescriptorPoolSize[] sizes_per_set) {
+        device = device_in;
+        allocator = new DescriptorAllocator(device_in, 1, initial_sets, sizes_per_set, true);
+        writer = new DescriptorWriter(device_in);
+    }
+
+    /**
+     * Starts describing a set.
+     *
+     * @param layout The layout of the set.
+     * @return This DescriptorSetCache for method chaining.
+     */
+    public DescriptorSetCache begin(@Nonnull DescriptorLayout layout) {
+        probe_layout = layout;
+        probe.begin(layout.getHandle().handle());
+        probe_resources.clear();
+        return this;
+    }
+
+    /**
+     * Adds a buffer descriptor to the set being described.
+     *
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A uniform or storage buffer type, dynamic or not.
+     * @param buffer        The buffer, closing it drops the set.
+     * @param offset        The byte offset of the range the descriptor sees.
+     * @param range         The size of the range, or {@code VK_WHOLE_SIZE}.
+     * @return This DescriptorSetCache for method chaining.
+     */
+    public DescriptorSetCache buffer(int binding, int array_element, @Nonnull DescriptorType type, @Nonnull Buffer buffer, long offset, long range) {
+        putDescriptor(type, DescriptorWriter.BUFFER, binding, array_element, buffer.getBuffer().handle(), offset, range);
+        probe_resources.add(buffer);
+        return this;
+    }
+
+    /**
+     * Adds a sampler, image or input attachment descriptor to the set being described.
+     *
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A sampler, image or input attachment type.
+     * @param sampler       The sampler handle, {@code VK_NULL_HANDLE} for types without one.
+     * @param image         The image, closing it drops the set, or {@code null} for {@link DescriptorType#SAMPLER}.
+     * @param image_layout  The layout the image is in when accessed.
+     * @return This DescriptorSetCache for method chaining.
+     */
+    public DescriptorSetCache image(int binding, int array_element, @Nonnull DescriptorType type, long sampler, @Nullable Image image, int image_layout) {
+        putDescriptor(type, DescriptorWriter.IMAGE, binding, array_element, sampler, image == null ? VK_NULL_HANDLE : image.getImageView().handle(), image_layout);
+        if (image != null) {
+            probe_resources.add(image);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a texel buffer descriptor to the set being described.
+     *
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A uniform or storage texel buffer type.
+     * @param buffer_view   The buffer view handle.
+     * @return This DescriptorSetCache for method chaining.
+     */
+    public DescriptorSetCache texelBuffer(int binding, int array_element, @Nonnull DescriptorType type, long buffer_view) {
+        putDescriptor(type, DescriptorWriter.TEXEL, binding, array_element, buffer_view, 0, 0);
+        return this;
+    }
+
+    private void putDescriptor(DescriptorType type, int kind, int binding, int array_element, long a, long b, long c) {
+        if (probe_layout == null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor set cache needs begin before adding descriptors");
+            throw new IllegalStateException("descriptor set cache needs begin before adding descriptors");
+        }
+        if (DescriptorWriter.kindOf(type) != kind) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor type " + type + " does not match the descriptor added");
+            throw new IllegalStateException("descriptor type " + type + " does not match the descriptor added");
+        }
+        probe.put(type.ordinal());
+        probe.put(binding);
+        probe.put(array_element);
+        probe.put(a);
+        probe.put(b);
+        probe.put(c);
+    }
+
+    /**
+     * Finishes describing a set and returns the matching set, creating and writing it if there is none.
+     *
+     * @return The descriptor set handle, valid until a buffer or image it refers to is closed.
+     */
+    public synchronized long end() {
+        if (probe_layout == null) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor set cache end called without begin");
+            throw new IllegalStateException("descriptor set cache end called without begin");
+        }
+        probe.end();
+        final DescriptorLayout layout = probe_layout;
+        probe_layout = null;
+        @Nullable Entry entry = sets.get(probe);
+        if (entry != null) {
+            hits++;
+            return entry.sets().getHandle(0);
+        }
+        misses++;
+        DescriptorSets allocated = allocator.allocate(new DescriptorLayout[]{layout});
+        final long handle = allocated.getHandle(0);
+        for (int i = 1; i < probe.length(); i += DescriptorSetKey.DESCRIPTOR_WORDS) {
+            final DescriptorType type = TYPES[(int) probe.get(i)];
+            final int binding = (int) probe.get(i + 1);
+            final int array_element = (int) probe.get(i + 2);
+            switch (DescriptorWriter.kindOf(type)) {
+                case DescriptorWriter.BUFFER -> writer.writeBuffer(handle, binding, array_element, type, probe.get(i + 3), probe.get(i + 4), probe.get(i + 5));
+                case DescriptorWriter.IMAGE -> writer.writeImage(handle, binding, array_element, type, probe.get(i + 3), probe.get(i + 4), (int) probe.get(i + 5));
+                default -> writer.writeTexelBuffer(handle, binding, array_element, type, probe.get(i + 3));
+            }
+        }
+        writer.flush();
+        entry = new Entry(probe.copy(), allocated, distinctResources());
+        sets.put(entry.key(), entry);
+        for (LibCleanable resource : entry.resources()) {
+            @Nullable Tracked resource_entries = tracked.get(resource);
+            if (resource_entries == null) {
+                resource_entries = new Tracked(resource);
+                tracked.put(resource, resource_entries);
+                addCloseListener(resource, resource_entries.listener);
+            }
+            resource_entries.entries.add(entry);
+        }
+        return handle;
+    }
+
+    private LibCleanable[] distinctResources() {
+        ArrayList<LibCleanable> distinct = new ArrayList<>(probe_resources.size());
+        for (LibCleanable resource : probe_resources) {
+            boolean seen = false;
+            for (LibCleanable other : distinct) {
+                seen |= other == resource;
+            }
+            if (!seen) {
+                distinct.add(resource);
+            }
+        }
+        return distinct.toArray(new LibCleanable[0]);
+    }
+
+    private static void addCloseListener(LibCleanable resource, Runnable listener) {
+        if (resource instanceof Buffer buffer) {
+            buffer.addCloseListener(listener);
+        } else {
+            ((Image) resource).addCloseListener(listener);
+        }
+    }
+
+    private static void removeCloseListener(LibCleanable resource, Runnable listener) {
+        if (resource instanceof Buffer buffer) {
+            buffer.removeCloseListener(listener);
+        } else {
+            ((Image) resource).removeCloseListener(listener);
+        }
+    }
+
+    /**
+     * Drops every set referring to a resource that is being closed.
+     */
+    private synchronized void onClosed(LibCleanable resource) {
+        @Nullable Tracked resource_entries = tracked.remove(resource);
+        if (resource_entries == null || closed) {
+            return;
+        }
+        for (Entry entry : resource_entries.entries) {
+            sets.remove(entry.key());
+            for (LibCleanable other : entry.resources()) {
+                if (other == resource) {
+                    continue;
+                }
+                Tracked other_entries = tracked.get(other);
+                other_entries.entries.remove(entry);
+                if (other_entries.entries.isEmpty()) {
+                    tracked.remove(other);
+                    removeCloseListener(other, other_entries.listener);
+                }
+            }
+            evictions++;
+            // command buffers still in flight may use the set
+            device.retire(0, () -> {
+                synchronized (this) {
+                    if (!closed) {
+                        entry.sets().close();
+                    }
+                }
+            });
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of sets dropped because a resource they referred to was closed.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getSize() {
+        return sets.size();
+    }
+
+    /**
+     * Removes the close listeners and destroys the descriptor pools once the GPU is done with them, freeing every
+     * cached set.
+     */
+    @Override
+    protected synchronized void free() {
+        closed = true;
+        tracked.forEach((resource, resource_entries) -> removeCloseListener(resource, resource_entries.listener));
+        tracked.clear();
+        sets.clear();
+        writer.close();
+        // command buffers still in flight may use the cached sets
+        device.retire(0, allocator::close);
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing descriptor set cache, " + hits + " hits, " + misses + " misses, " + evictions + " evictions");
+    }
+}
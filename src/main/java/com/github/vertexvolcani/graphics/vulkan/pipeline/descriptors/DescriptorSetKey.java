@@ -0,0 +1,106 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import java.util.Arrays;
+
+/**
+ * A hashable description of a descriptor set's contents: its layout and, for every written descriptor, the type,
+ * binding, array element and the bound handles, offsets, ranges or image layouts.
+ * <p>
+ * Like the pipeline key it is a flat array of 64 bit words. A {@link DescriptorSetCache} rewrites one probe key for
+ * every lookup, so looking up a set allocates nothing, and only copies it when a new set is created.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class DescriptorSetKey {
+    /**
+     * the number of words each descriptor takes after the layout word
+     */
+    static final int DESCRIPTOR_WORDS = 6;
+    private long[] data;
+    private int length = 0;
+    private int hash = 0;
+
+    DescriptorSetKey() {
+        data = new long[1 + 8 * DESCRIPTOR_WORDS];
+    }
+
+    private DescriptorSetKey(long[] data_in, int hash_in) {
+        data = data_in;
+        length = data_in.length;
+        hash = hash_in;
+    }
+
+    /**
+     * Clears the key and starts it with the set's layout.
+     */
+    void begin(long layout) {
+        length = 0;
+        put(layout);
+    }
+
+    void put(long value) {
+        if (length == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[length++] = value;
+    }
+
+    /**
+     * Finishes the key once every descriptor has been written.
+     */
+    void end() {
+        long h = length;
+        for (int i = 0; i < length; i++) {
+            h = h * 0x9E3779B97F4A7C15L + data[i];
+            h ^= h >>> 29;
+        }
+        hash = (int) (h ^ (h >>> 32));
+    }
+
+    long get(int index) {
+        return data[index];
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Makes an immutable copy, used when the probe key becomes the key of a new set.
+     *
+     * @return The copy.
+     */
+    DescriptorSetKey copy() {
+        return new DescriptorSetKey(Arrays.copyOf(data, length), hash);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof DescriptorSetKey key) || key.hash != hash || key.length != length) {
+            return false;
+        }
+        return Arrays.equals(data, 0, length, key.data, 0, length);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "DescriptorSetKey[" + length + " words, hash " + Integer.toHexString(hash) + "]";
+    }
+}
@@ -1,23 +1,29 @@
 package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
 
 import com.github.vertexvolcani.graphics.vulkan.Device;
-import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
 import com.github.vertexvolcani.util.LibCleanable;
 import com.github.vertexvolcani.util.Log;
 import com.github.vertexvolcani.util.Nonnull;
+import com.github.vertexvolcani.util.Nullable;
+import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.vulkan.VkDescriptorBufferInfo;
 import org.lwjgl.vulkan.VkDescriptorImageInfo;
 import org.lwjgl.vulkan.VkDescriptorSetAllocateInfo;
 import org.lwjgl.vulkan.VkWriteDescriptorSet;
 
+import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
 
-import static org.lwjgl.vulkan.VK11.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER;
-import static org.lwjgl.vulkan.VK11.VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC;
+import static org.lwjgl.vulkan.VK10.VK_ERROR_FRAGMENTED_POOL;
+import static org.lwjgl.vulkan.VK11.VK_ERROR_OUT_OF_POOL_MEMORY;
 
 public final class DescriptorSets extends LibCleanable {
     private final Device device;
+    /**
+     * the pool the sets are freed to, {@code null} when a {@link DescriptorAllocator} reclaims them by resetting
+     */
+    @Nullable
     private final DescriptorPool pool;
     private final long[] handles;
 
@@ -25,15 +31,14 @@ public final class DescriptorSets extends LibCleanable {
         handles = new long[layouts.length];
         device = device_in;
         pool = pool_in;
-        try (VkDescriptorSetAllocateInfo.Buffer pCreateInfo = VkDescriptorSetAllocateInfo.calloc(1)) {
-            pCreateInfo.sType$Default();
-            pCreateInfo.descriptorPool(pool.getHandle().handle());
-            LongBuffer pBuffer = MemoryUtil.memCallocLong(layouts.length);
-            for (int i = 0; i < layouts.length; i++) {
-                pBuffer.put(i, layouts[i].getHandle().handle());
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorSetAllocateInfo pCreateInfo = VkDescriptorSetAllocateInfo.calloc(stack).sType$Default()
+                    .descriptorPool(pool_in.getHandle().handle()).pSetLayouts(layoutHandles(stack, layouts));
+            device_in.allocateDescriptorSets(pCreateInfo, handles);
+            if (device_in.getResult() == VK_ERROR_OUT_OF_POOL_MEMORY || device_in.getResult() == VK_ERROR_FRAGMENTED_POOL) {
+                Log.print(Log.Severity.ERROR, "Vulkan: Failed to allocate descriptor sets due to out of pool memory");
+                throw new IllegalStateException("Failed to allocate descriptor sets due to out of pool memory");
             }
-            pCreateInfo.pSetLayouts(pBuffer);
-            device_in.allocateDescriptorSets(pCreateInfo.get(0), handles);
             if (device_in.didErrorOccur()) {
                 Log.print(Log.Severity.ERROR, "Vulkan: Failed to allocate descriptor sets");
                 throw new IllegalStateException("Failed to allocate descriptor sets");
@@ -41,19 +46,46 @@ public final class DescriptorSets extends LibCleanable {
         }
     }
 
+    /**
+     * Wraps sets allocated by a {@link DescriptorAllocator}.
+     *
+     * @param pool_in The pool closing frees the sets to, {@code null} if the allocator frees them all at once.
+     */
+    DescriptorSets(@Nonnull Device device_in, @Nullable DescriptorPool pool_in, @Nonnull long[] handles_in) {
+        device = device_in;
+        pool = pool_in;
+        handles = handles_in;
+    }
+
+    static LongBuffer layoutHandles(@Nonnull MemoryStack stack, @Nonnull DescriptorLayout[] layouts) {
+        LongBuffer pBuffer = stack.mallocLong(layouts.length);
+        for (int i = 0; i < layouts.length; i++) {
+            pBuffer.put(i, layouts[i].getHandle().handle());
+        }
+        return pBuffer;
+    }
+
     public DescriptorSets writeBuffer(int dstSet, int dstBinding, int dstArrayElement, int descriptor_count, boolean dynamic, @Nonnull VkDescriptorBufferInfo.Buffer buffer) {
+        return writeBuffer(dstSet, dstBinding, dstArrayElement, descriptor_count, dynamic ? DescriptorType.UNIFORM_BUFFER_DYNAMIC : DescriptorType.UNIFORM_BUFFER, buffer);
+    }
+
+    /**
+     * Writes buffer descriptors of any buffer type, such as the storage buffers of a compute shader. Each write is
+     * its own update call, use a {@link DescriptorWriter} to apply many writes at once.
+     */
+    public DescriptorSets writeBuffer(int dstSet, int dstBinding, int dstArrayElement, int descriptor_count, @Nonnull DescriptorType type, @Nonnull VkDescriptorBufferInfo.Buffer buffer) {
         if (device.isDebug()) {
             if (descriptor_count < 0) {
                 Log.print(Log.Severity.ERROR, "Vulkan: Descriptor count must be greater than 0 for buffers");
                 throw new IllegalStateException("Descriptor count must be greater than 0 for buffers");
             }
         }
-        try (VkWriteDescriptorSet.Buffer descriptorWrite = VkWriteDescriptorSet.calloc(1)) {
-            descriptorWrite.sType$Default();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkWriteDescriptorSet.Buffer descriptorWrite = VkWriteDescriptorSet.calloc(1, stack).sType$Default();
             descriptorWrite.dstSet(handles[dstSet]);
             descriptorWrite.dstBinding(dstBinding);
             descriptorWrite.dstArrayElement(dstArrayElement);
-            descriptorWrite.descriptorType(dynamic ? VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER_DYNAMIC : VK_DESCRIPTOR_TYPE_UNIFORM_BUFFER);
+            descriptorWrite.descriptorType(type.getDescriptorType());
             descriptorWrite.descriptorCount(descriptor_count);
             descriptorWrite.pBufferInfo(buffer);
             device.updateDescriptorSets(descriptorWrite, null);
@@ -68,8 +100,8 @@ public final class DescriptorSets extends LibCleanable {
                 throw new IllegalStateException("Descriptor count must be greater than 0 for buffers");
             }
         }
-        try (VkWriteDescriptorSet.Buffer descriptorWrite = VkWriteDescriptorSet.calloc(1)) {
-            descriptorWrite.sType$Default();
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkWriteDescriptorSet.Buffer descriptorWrite = VkWriteDescriptorSet.calloc(1, stack).sType$Default();
             descriptorWrite.dstSet(handles[dstSet]);
             descriptorWrite.dstBinding(dstBinding);
             descriptorWrite.dstArrayElement(dstArrayElement);
@@ -81,14 +113,47 @@ public final class DescriptorSets extends LibCleanable {
         }
     }
 
+    /**
+     * Writes every binding of the first set from packed data in one {@code vkUpdateDescriptorSetWithTemplate} call.
+     *
+     * @param template The update template of the set's layout.
+     * @param data     The packed data, filled through the template.
+     * @return This DescriptorSets for method chaining.
+     */
+    public DescriptorSets update(@Nonnull DescriptorUpdateTemplate template, @Nonnull ByteBuffer data) {
+        return update(0, template, data);
+    }
+
+    /**
+     * Writes every binding of a set from packed data in one {@code vkUpdateDescriptorSetWithTemplate} call.
+     *
+     * @param dstSet   The index of the set.
+     * @param template The update template of the set's layout.
+     * @param data     The packed data, filled through the template.
+     * @return This DescriptorSets for method chaining.
+     */
+    public DescriptorSets update(int dstSet, @Nonnull DescriptorUpdateTemplate template, @Nonnull ByteBuffer data) {
+        template.checkData(data);
+        device.updateDescriptorSetWithTemplate(handles[dstSet], template.getHandle(), MemoryUtil.memAddress(data));
+        return this;
+    }
+
     public long getHandle(int index) {
         return handles[index];
     }
 
+    public int getCount() {
+        return handles.length;
+    }
+
+    /**
+     * Frees every set in one call, the pool must have been created with
+     * {@code VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT}.
+     */
     @Override
     protected void free() {
-        for (long handle : handles) {
-            device.freeDescriptorSets(pool.getHandle(), new DeviceHandle(device, handle));
+        if (pool != null) {
+            device.freeDescriptorSets(pool.getHandle(), handles);
         }
     }
 }
@@ -0,0 +1,206 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VkDescriptorBufferInfo;
+import org.lwjgl.vulkan.VkDescriptorImageInfo;
+import org.lwjgl.vulkan.VkDescriptorUpdateTemplateCreateInfo;
+import org.lwjgl.vulkan.VkDescriptorUpdateTemplateEntry;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.vulkan.VK11.VK_DESCRIPTOR_UPDATE_TEMPLATE_TYPE_DESCRIPTOR_SET;
+
+/**
+ * A {@code VkDescriptorUpdateTemplate} that writes every binding of a set with one layout from one packed struct,
+ * applied with {@link DescriptorSets#update}.
+ * <p>
+ * The packed data holds the bindings in the layout's order, each binding one entry per array element: a
+ * {@code VkDescriptorBufferInfo} for buffers, a {@code VkDescriptorImageInfo} for samplers, images and input
+ * attachments and a buffer view handle for texel buffers. {@link #putBuffer}, {@link #putImage} and
+ * {@link #putTexelBuffer} fill an entry, the data is {@link #getSize()} bytes and can be kept and refilled each
+ * frame. Compared to {@code VkWriteDescriptorSet}s nothing is built per update, the driver reads the entries straight
+ * from the data.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class DescriptorUpdateTemplate extends LibCleanable {
+    private final DeviceHandle handle;
+    private final int[] bindings;
+    private final int[] kinds;
+    private final int[] counts;
+    private final int[] offsets;
+    private final int size;
+
+    /**
+     * Constructs a new DescriptorUpdateTemplate.
+     *
+     * @param device_in The Vulkan device.
+     * @param layout    The layout of the sets the template writes.
+     * @throws IllegalStateException If the template can not be created.
+     */
+    public DescriptorUpdateTemplate(@Nonnull Device device_in, @Nonnull DescriptorLayout layout) {
+        final LayoutBinding[] layout_bindings = layout.getBindings();
+        int entry_count = 0;
+        for (LayoutBinding binding : layout_bindings) {
+            if (binding.descriptorCount() > 0) {
+                entry_count++;
+            }
+        }
+        bindings = new int[entry_count];
+        kinds = new int[entry_count];
+        counts = new int[entry_count];
+        offsets = new int[entry_count];
+        int offset = 0;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkDescriptorUpdateTemplateEntry.Buffer entries = VkDescriptorUpdateTemplateEntry.calloc(entry_count, stack);
+            int entry = 0;
+            for (LayoutBinding binding : layout_bindings) {
+                if (binding.descriptorCount() <= 0) {
+                    continue;
+                }
+                final int kind = DescriptorWriter.kindOf(binding.descriptorType());
+                final int stride = stride(kind);
+                bindings[entry] = binding.binding();
+                kinds[entry] = kind;
+                counts[entry] = binding.descriptorCount();
+                offsets[entry] = offset;
+                entries.get(entry).dstBinding(binding.binding()).dstArrayElement(0).descriptorCount(binding.descriptorCount())
+                        .descriptorType(binding.descriptorType().getDescriptorType()).offset(offset).stride(stride);
+                offset += stride * binding.descriptorCount();
+                entry++;
+            }
+            VkDescriptorUpdateTemplateCreateInfo info = VkDescriptorUpdateTemplateCreateInfo.calloc(stack).sType$Default()
+                    .pDescriptorUpdateEntries(entries).templateType(VK_DESCRIPTOR_UPDATE_TEMPLATE_TYPE_DESCRIPTOR_SET)
+                    .descriptorSetLayout(layout.getHandle().handle());
+            handle = device_in.createDescriptorUpdateTemplate(info);
+            if (device_in.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: could not create descriptor update template");
+                throw new IllegalStateException("could not create descriptor update template");
+            }
+        }
+        size = offset;
+        Log.print(Log.Severity.DEBUG, "Vulkan: created descriptor update template");
+    }
+
+    private static int stride(int kind) {
+        return switch (kind) {
+            case DescriptorWriter.BUFFER -> VkDescriptorBufferInfo.SIZEOF;
+            case DescriptorWriter.IMAGE -> VkDescriptorImageInfo.SIZEOF;
+            default -> Long.BYTES;
+        };
+    }
+
+    /**
+     * Fills the buffer entry of a binding.
+     *
+     * @param data          The packed data, at least {@link #getSize()} bytes from its position.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param buffer        The buffer.
+     * @param offset        The byte offset of the range the descriptor sees.
+     * @param range         The size of the range, or {@code VK_WHOLE_SIZE}.
+     * @return This DescriptorUpdateTemplate for method chaining.
+     */
+    public DescriptorUpdateTemplate putBuffer(@Nonnull ByteBuffer data, int binding, int array_element, @Nonnull DeviceHandle buffer, long offset, long range) {
+        final long address = entryAddress(data, binding, array_element, DescriptorWriter.BUFFER);
+        MemoryUtil.memPutLong(address + VkDescriptorBufferInfo.BUFFER, buffer.handle());
+        MemoryUtil.memPutLong(address + VkDescriptorBufferInfo.OFFSET, offset);
+        MemoryUtil.memPutLong(address + VkDescriptorBufferInfo.RANGE, range);
+        return this;
+    }
+
+    /**
+     * Fills the sampler, image or input attachment entry of a binding.
+     *
+     * @param data          The packed data, at least {@link #getSize()} bytes from its position.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param sampler       The sampler handle, {@code VK_NULL_HANDLE} for types without one.
+     * @param image_view    The image view handle, {@code VK_NULL_HANDLE} for {@link DescriptorType#SAMPLER}.
+     * @param image_layout  The layout the image is in when accessed.
+     * @return This DescriptorUpdateTemplate for method chaining.
+     */
+    public DescriptorUpdateTemplate putImage(@Nonnull ByteBuffer data, int binding, int array_element, long sampler, long image_view, int image_layout) {
+        final long address = entryAddress(data, binding, array_element, DescriptorWriter.IMAGE);
+        MemoryUtil.memPutLong(address + VkDescriptorImageInfo.SAMPLER, sampler);
+        MemoryUtil.memPutLong(address + VkDescriptorImageInfo.IMAGEVIEW, image_view);
+        MemoryUtil.memPutInt(address + VkDescriptorImageInfo.IMAGELAYOUT, image_layout);
+        return this;
+    }
+
+    /**
+     * Fills the texel buffer entry of a binding.
+     *
+     * @param data          The packed data, at least {@link #getSize()} bytes from its position.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param buffer_view   The buffer view handle.
+     * @return This DescriptorUpdateTemplate for method chaining.
+     */
+    public DescriptorUpdateTemplate putTexelBuffer(@Nonnull ByteBuffer data, int binding, int array_element, long buffer_view) {
+        MemoryUtil.memPutLong(entryAddress(data, binding, array_element, DescriptorWriter.TEXEL), buffer_view);
+        return this;
+    }
+
+    private long entryAddress(ByteBuffer data, int binding, int array_element, int kind) {
+        checkData(data);
+        for (int i = 0; i < bindings.length; i++) {
+            if (bindings[i] != binding) {
+                continue;
+            }
+            if (kinds[i] != kind || array_element < 0 || array_element >= counts[i]) {
+                Log.print(Log.Severity.ERROR, "Vulkan: binding " + binding + " element " + array_element + " does not match the descriptor put");
+                throw new IllegalStateException("binding " + binding + " element " + array_element + " does not match the descriptor put");
+            }
+            return MemoryUtil.memAddress(data) + offsets[i] + (long) array_element * stride(kind);
+        }
+        Log.print(Log.Severity.ERROR, "Vulkan: descriptor update template has no binding " + binding);
+        throw new IllegalStateException("descriptor update template has no binding " + binding);
+    }
+
+    /**
+     * Checks the data is direct and large enough for the template.
+     *
+     * @param data The packed data.
+     */
+    void checkData(@Nonnull ByteBuffer data) {
+        if (!data.isDirect() || data.remaining() < size) {
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor update template needs " + size + " bytes of direct memory, got " + data.remaining());
+            throw new IllegalStateException("descriptor update template needs " + size + " bytes of direct memory, got " + data.remaining());
+        }
+    }
+
+    public DeviceHandle getHandle() {
+        return handle;
+    }
+
+    /**
+     * Gets the size of the packed data the template reads.
+     *
+     * @return The size in bytes.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    protected void free() {
+        handle.device().destroyDescriptorUpdateTemplate(handle);
+        Log.print(Log.Severity.DEBUG, "Vulkan: done freeing descriptor update template");
+    }
+}
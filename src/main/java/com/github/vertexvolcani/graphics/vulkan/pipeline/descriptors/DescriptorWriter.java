@@ -0,0 +1,257 @@
+package com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.util.LibCleanable;
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.Nonnull;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.StructBuffer;
+import org.lwjgl.vulkan.VkDescriptorBufferInfo;
+import org.lwjgl.vulkan.VkDescriptorImageInfo;
+import org.lwjgl.vulkan.VkWriteDescriptorSet;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects descriptor writes to any number of sets and applies them with one {@code vkUpdateDescriptorSets} call.
+ * <p>
+ * Writes are recorded into off-heap scratch memory that is kept between flushes, so a writer reused every frame
+ * does not allocate once it has grown to the frame's size. A write to the array element right after the previous
+ * write's last element, in the same set, binding and type, extends the previous write instead of adding one. Every
+ * {@link DescriptorType} is supported: buffers with {@link #writeBuffer}, samplers, images and input attachments
+ * with {@link #writeImage} and texel buffers with {@link #writeTexelBuffer}.
+ * </p>
+ * The writer is not thread safe.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class DescriptorWriter extends LibCleanable {
+    static final int BUFFER = 0;
+    static final int IMAGE = 1;
+    static final int TEXEL = 2;
+    private final Device device;
+    private VkWriteDescriptorSet.Buffer writes;
+    private VkDescriptorBufferInfo.Buffer buffer_infos;
+    private VkDescriptorImageInfo.Buffer image_infos;
+    private LongBuffer texel_views;
+    /**
+     * the info array each write points into and the index of its first info, the pointers are set on flush as the
+     * arrays may move when they grow
+     */
+    private int[] write_kinds;
+    private int[] write_first_info;
+    private int write_count = 0;
+    private int buffer_count = 0;
+    private int image_count = 0;
+    private int texel_count = 0;
+
+    /**
+     * Constructs a new DescriptorWriter.
+     *
+     * @param device_in The Vulkan device.
+     */
+    public DescriptorWriter(@Nonnull Device device_in) {
+        device = device_in;
+        writes = VkWriteDescriptorSet.calloc(16);
+        buffer_infos = VkDescriptorBufferInfo.calloc(16);
+        image_infos = VkDescriptorImageInfo.calloc(16);
+        texel_views = MemoryUtil.memCallocLong(16);
+        write_kinds = new int[16];
+        write_first_info = new int[16];
+    }
+
+    /**
+     * Writes a buffer descriptor.
+     *
+     * @param set           The descriptor set handle.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A uniform or storage buffer type, dynamic or not.
+     * @param buffer        The buffer.
+     * @param offset        The byte offset of the range the descriptor sees.
+     * @param range         The size of the range, or {@code VK_WHOLE_SIZE}.
+     * @return This DescriptorWriter for method chaining.
+     */
+    public DescriptorWriter writeBuffer(long set, int binding, int array_element, @Nonnull DescriptorType type, @Nonnull DeviceHandle buffer, long offset, long range) {
+        return writeBuffer(set, binding, array_element, type, buffer.handle(), offset, range);
+    }
+
+    /**
+     * Writes a buffer descriptor from a raw buffer handle.
+     *
+     * @param set           The descriptor set handle.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A uniform or storage buffer type, dynamic or not.
+     * @param buffer        The buffer handle.
+     * @param offset        The byte offset of the range the descriptor sees.
+     * @param range         The size of the range, or {@code VK_WHOLE_SIZE}.
+     * @return This DescriptorWriter for method chaining.
+     */
+    public DescriptorWriter writeBuffer(long set, int binding, int array_element, @Nonnull DescriptorType type, long buffer, long offset, long range) {
+        checkKind(type, BUFFER);
+        if (buffer_count == buffer_infos.capacity()) {
+            buffer_infos = grow(buffer_infos, VkDescriptorBufferInfo.SIZEOF, VkDescriptorBufferInfo::create);
+        }
+        buffer_infos.get(buffer_count).buffer(buffer).offset(offset).range(range);
+        addWrite(set, binding, array_element, type, BUFFER, buffer_count++);
+        return this;
+    }
+
+    /**
+     * Writes a sampler, image or input attachment descriptor.
+     *
+     * @param set           The descriptor set handle.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A sampler, image or input attachment type.
+     * @param sampler       The sampler handle, {@code VK_NULL_HANDLE} for types without one.
+     * @param image_view    The image view handle, {@code VK_NULL_HANDLE} for {@link DescriptorType#SAMPLER}.
+     * @param image_layout  The layout the image is in when accessed.
+     * @return This DescriptorWriter for method chaining.
+     */
+    public DescriptorWriter writeImage(long set, int binding, int array_element, @Nonnull DescriptorType type, long sampler, long image_view, int image_layout) {
+        checkKind(type, IMAGE);
+        if (image_count == image_infos.capacity()) {
+            image_infos = grow(image_infos, VkDescriptorImageInfo.SIZEOF, VkDescriptorImageInfo::create);
+        }
+        image_infos.get(image_count).sampler(sampler).imageView(image_view).imageLayout(image_layout);
+        addWrite(set, binding, array_element, type, IMAGE, image_count++);
+        return this;
+    }
+
+    /**
+     * Writes a texel buffer descriptor.
+     *
+     * @param set           The descriptor set handle.
+     * @param binding       The binding.
+     * @param array_element The array element of the binding.
+     * @param type          A uniform or storage texel buffer type.
+     * @param buffer_view   The buffer view handle.
+     * @return This DescriptorWriter for method chaining.
+     */
+    public DescriptorWriter writeTexelBuffer(long set, int binding, int array_element, @Nonnull DescriptorType type, long buffer_view) {
+        checkKind(type, TEXEL);
+        if (texel_count == texel_views.capacity()) {
+            texel_views = MemoryUtil.memRealloc(texel_views, texel_views.capacity() * 2);
+        }
+        texel_views.put(texel_count, buffer_view);
+        addWrite(set, binding, array_element, type, TEXEL, texel_count++);
+        return this;
+    }
+
+    private void addWrite(long set, int binding, int array_element, DescriptorType type, int kind, int info) {
+        if (write_count > 0) {
+            VkWriteDescriptorSet last = writes.get(write_count - 1);
+            if (write_kinds[write_count - 1] == kind && last.dstSet() == set && last.dstBinding() == binding
+                    && last.descriptorType() == type.getDescriptorType() && last.dstArrayElement() + last.descriptorCount() == array_element) {
+                last.descriptorCount(last.descriptorCount() + 1);
+                return;
+            }
+        }
+        if (write_count == writes.capacity()) {
+            writes = grow(writes, VkWriteDescriptorSet.SIZEOF, VkWriteDescriptorSet::create);
+            write_kinds = Arrays.copyOf(write_kinds, writes.capacity());
+            write_first_info = Arrays.copyOf(write_first_info, writes.capacity());
+        }
+        VkWriteDescriptorSet write = writes.get(write_count);
+        MemoryUtil.memSet(write.address(), 0, VkWriteDescriptorSet.SIZEOF);
+        write.sType$Default().dstSet(set).dstBinding(binding).dstArrayElement(array_element)
+                .descriptorType(type.getDescriptorType()).descriptorCount(1);
+        write_kinds[write_count] = kind;
+        write_first_info[write_count] = info;
+        write_count++;
+    }
+
+    static int kindOf(@Nonnull DescriptorType type) {
+        return switch (type) {
+            case UNIFORM_BUFFER, STORAGE_BUFFER, UNIFORM_BUFFER_DYNAMIC, STORAGE_BUFFER_DYNAMIC -> BUFFER;
+            case UNIFORM_TEXEL_BUFFER, STORAGE_TEXEL_BUFFER -> TEXEL;
+            default -> IMAGE;
+        };
+    }
+
+    private static void checkKind(DescriptorType type, int kind) {
+        if (kindOf(type) != kind) {
+            final String method = kind == BUFFER ? "writeBuffer" : kind == IMAGE ? "writeImage" : "writeTexelBuffer";
+            Log.print(Log.Severity.ERROR, "Vulkan: descriptor type " + type + " can not be written with " + method);
+            throw new IllegalStateException("descriptor type " + type + " can not be written with " + method);
+        }
+    }
+
+    private interface StructFactory<T> {
+        T create(long address, int capacity);
+    }
+
+    private static <T extends StructBuffer<?, T>> T grow(T old, int sizeof, StructFactory<T> factory) {
+        final int capacity = old.capacity() * 2;
+        final long address = MemoryUtil.nmemReallocChecked(old.address(), (long) capacity * sizeof);
+        return factory.create(address, capacity);
+    }
+
+    /**
+     * Applies every recorded write with one {@code vkUpdateDescriptorSets} call and clears the writer. Does nothing
+     * if there are no writes.
+     */
+    public void flush() {
+        if (write_count == 0) {
+            return;
+        }
+        for (int i = 0; i < write_count; i++) {
+            VkWriteDescriptorSet write = writes.get(i);
+            final int first = write_first_info[i];
+            final int count = write.descriptorCount();
+            if (write_kinds[i] == BUFFER) {
+                write.pBufferInfo(VkDescriptorBufferInfo.create(buffer_infos.address(first), count));
+            } else if (write_kinds[i] == IMAGE) {
+                write.pImageInfo(VkDescriptorImageInfo.create(image_infos.address(first), count));
+            } else {
+                write.pTexelBufferView(MemoryUtil.memLongBuffer(MemoryUtil.memAddress(texel_views, first), count));
+            }
+            // the info setters may size the count from the info array, which is the same count
+            write.descriptorCount(count);
+        }
+        device.updateDescriptorSets(VkWriteDescriptorSet.create(writes.address(), write_count), null);
+        clear();
+    }
+
+    /**
+     * Drops every recorded write without applying it.
+     */
+    public void clear() {
+        write_count = 0;
+        buffer_count = 0;
+        image_count = 0;
+        texel_count = 0;
+    }
+
+    /**
+     * Gets the number of {@code VkWriteDescriptorSet} structs the next flush applies, after merging.
+     *
+     * @return The write count.
+     */
+    public int getPendingWrites() {
+        return write_count;
+    }
+
+    /**
+     * Frees the scratch memory, pending writes are dropped.
+     */
+    @Override
+    protected void free() {
+        writes.free();
+        buffer_infos.free();
+        image_infos.free();
+        MemoryUtil.memFree(texel_views);
+    }
+}
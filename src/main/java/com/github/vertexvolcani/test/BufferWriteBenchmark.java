@@ -0,0 +1,77 @@
+package com.github.vertexvolcani.test;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.Instance;
+import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.graphics.vulkan.buffer.UniformBuffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.VmaMemoryUsage;
+import com.github.vertexvolcani.util.Log;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Measures {@code Buffer.write} on a buffer mapped on demand against the same write on a persistently mapped
+ * buffer, for a per draw sized write and a per frame sized write. The mapped on demand path maps and unmaps the
+ * memory on every call. Needs a Vulkan device but no window.
+ */
+public class BufferWriteBenchmark {
+    private static final int WARMUP_ROUNDS = 10_000;
+    private static final int ROUNDS = 100_000;
+    private static final int[] WRITE_SIZES = {256, 64 * 1024};
+
+    public static void main(String[] args) {
+        try (Instance instance = new Instance(false, "BufferWriteBenchmark");
+             Device device = new Device(instance, new Device.DeviceFeaturesToEnabled(false));
+             VmaAllocator allocator = new VmaAllocator(instance, device)) {
+            for (int write_size : WRITE_SIZES) {
+                run(allocator, write_size);
+            }
+        }
+    }
+
+    private static void run(VmaAllocator allocator, int write_size) {
+        final ByteBuffer data = MemoryUtil.memCalloc(write_size);
+        try (UniformBuffer on_demand = new UniformBuffer(allocator, write_size, false, VmaMemoryUsage.CPU_TO_GPU);
+             UniformBuffer persistent = new UniformBuffer(allocator, write_size, false, VmaMemoryUsage.CPU_TO_GPU, true)) {
+            final double on_demand_ns = time(round -> {
+                data.put(0, (byte) round);
+                on_demand.write(data);
+            });
+            final double persistent_ns = time(round -> {
+                data.put(0, (byte) round);
+                persistent.write(data);
+            });
+            Log.print(Log.Severity.INFO, String.format("buffers: %d byte write, mapped on demand %.0f ns, persistently mapped %.0f ns (%.2fx)",
+                    write_size, on_demand_ns, persistent_ns, on_demand_ns / persistent_ns));
+        } finally {
+            MemoryUtil.memFree(data);
+        }
+    }
+
+    private interface Round {
+        void run(int round);
+    }
+
+    /**
+     * Runs the warm up rounds, so the JIT has compiled the path, then times the measured rounds.
+     *
+     * @return The average time of one round in nanoseconds.
+     */
+    private static double time(Round round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run(i);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run(i);
+        }
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.vertexvolcani.test;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.DeviceHandle;
+import com.github.vertexvolcani.graphics.vulkan.Image;
+import com.github.vertexvolcani.graphics.vulkan.Instance;
+import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
+import com.github.vertexvolcani.graphics.vulkan.buffer.Buffer;
+import com.github.vertexvolcani.graphics.vulkan.buffer.VmaMemoryUsage;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.ShaderType;
+import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.*;
+import com.github.vertexvolcani.util.Log;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.vulkan.VkDescriptorBufferInfo;
+import org.lwjgl.vulkan.VkDescriptorImageInfo;
+import org.lwjgl.vulkan.VkExtent3D;
+import org.lwjgl.vulkan.VkImageSubresourceRange;
+import org.lwjgl.vulkan.VkSamplerCreateInfo;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.vulkan.VK10.*;
+
+/**
+ * Measures the cost of rewriting a whole descriptor set of 8, 12 and 16 bindings three ways: one
+ * {@code DescriptorSets.writeBuffer} or {@code writeImage} call per binding, one {@link DescriptorWriter} flush and
+ * one {@link DescriptorUpdateTemplate} update. Every third binding is a combined image sampler, the others uniform
+ * and storage buffers. Every round changes the offsets and the image, the way a per draw set would. Needs a Vulkan
+ * device but no window.
+ */
+public class DescriptorUpdateBenchmark {
+    private static final int WARMUP_ROUNDS = 10_000;
+    private static final int ROUNDS = 100_000;
+    private static final int[] BINDING_COUNTS = {8, 12, 16};
+    /**
+     * a multiple of every device's minimum uniform and storage buffer offset alignment
+     */
+    private static final long OFFSET_STEP = 256;
+    private static final long RANGE = 256;
+    private static final int IMAGE_SIZE = 4;
+
+    public static void main(String[] args) {
+        try (Instance instance = new Instance(false, "DescriptorUpdateBenchmark");
+             Device device = new Device(instance, new Device.DeviceFeaturesToEnabled(false));
+             VmaAllocator allocator = new VmaAllocator(instance, device);
+             Buffer buffer = new Buffer(allocator, OFFSET_STEP * 4 + RANGE, false, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT | VK_BUFFER_USAGE_STORAGE_BUFFER_BIT,
+                     VmaMemoryUsage.GPU_ONLY.getMemoryType());
+             Image first = createImage(allocator);
+             Image second = createImage(allocator)) {
+            final DeviceHandle sampler = createSampler(device);
+            try {
+                final long[] image_views = {first.getImageView().handle(), second.getImageView().handle()};
+                for (int binding_count : BINDING_COUNTS) {
+                    run(device, buffer, image_views, sampler.handle(), binding_count);
+                }
+            } finally {
+                device.destroySampler(sampler);
+            }
+        }
+    }
+
+    private static Image createImage(VmaAllocator allocator) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            Image.ImageInformation info = new Image.ImageInformation().setExtent(VkExtent3D.calloc(stack).set(IMAGE_SIZE, IMAGE_SIZE, 1))
+                    .setSubResourceRange(VkImageSubresourceRange.calloc(stack).aspectMask(VK_IMAGE_ASPECT_COLOR_BIT).levelCount(1).layerCount(1));
+            return new Image(allocator, info, (long) IMAGE_SIZE * IMAGE_SIZE * 4, VmaMemoryUsage.GPU_ONLY.getMemoryType());
+        }
+    }
+
+    private static DeviceHandle createSampler(Device device) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            VkSamplerCreateInfo info = VkSamplerCreateInfo.calloc(stack).sType$Default().magFilter(VK_FILTER_LINEAR).minFilter(VK_FILTER_LINEAR)
+                    .mipmapMode(VK_SAMPLER_MIPMAP_MODE_LINEAR).addressModeU(VK_SAMPLER_ADDRESS_MODE_REPEAT).addressModeV(VK_SAMPLER_ADDRESS_MODE_REPEAT)
+                    .addressModeW(VK_SAMPLER_ADDRESS_MODE_REPEAT).maxLod(1.0f);
+            final DeviceHandle sampler = device.createSampler(info);
+            if (device.didErrorOccur()) {
+                Log.print(Log.Severity.ERROR, "Vulkan: could not create benchmark sampler");
+                throw new IllegalStateException("could not create benchmark sampler");
+            }
+            return sampler;
+        }
+    }
+
+    private static void run(Device device, Buffer buffer, long[] image_views, long sampler, int binding_count) {
+        LayoutBinding[] bindings = new LayoutBinding[binding_count];
+        for (int i = 0; i < binding_count; i++) {
+            bindings[i] = new LayoutBinding(i, 1, type(i), ShaderType.COMPUTE, null);
+        }
+        try (DescriptorLayout layout = new DescriptorLayout(device, bindings, 0);
+             DescriptorPool pool = new DescriptorPool(device, new DescriptorPoolSize[]{new DescriptorPoolSize(DescriptorType.UNIFORM_BUFFER, binding_count),
+                     new DescriptorPoolSize(DescriptorType.STORAGE_BUFFER, binding_count), new DescriptorPoolSize(DescriptorType.COMBINED_IMAGE_SAMPLER, binding_count)},
+                     1, VK_DESCRIPTOR_POOL_CREATE_FREE_DESCRIPTOR_SET_BIT);
+             DescriptorSets sets = new DescriptorSets(device, pool, new DescriptorLayout[]{layout});
+             DescriptorWriter writer = new DescriptorWriter(device);
+             DescriptorUpdateTemplate template = layout.createUpdateTemplate();
+             VkDescriptorBufferInfo.Buffer info = VkDescriptorBufferInfo.calloc(1);
+             VkDescriptorImageInfo.Buffer image_info = VkDescriptorImageInfo.calloc(1)) {
+            final ByteBuffer data = MemoryUtil.memCalloc(template.getSize());
+            final long set = sets.getHandle(0);
+            try {
+                final double write_ns = time(round -> {
+                    info.buffer(buffer.getBuffer().handle()).offset(offset(round)).range(RANGE);
+                    image_info.sampler(sampler).imageView(image_views[round & 1]).imageLayout(VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL);
+                    for (int i = 0; i < binding_count; i++) {
+                        if (type(i) == DescriptorType.COMBINED_IMAGE_SAMPLER) {
+                            sets.writeImage(0, i, 0, 1, type(i), image_info);
+                        } else {
+                            sets.writeBuffer(0, i, 0, 1, type(i), info);
+                        }
+                    }
+                });
+                final double writer_ns = time(round -> {
+                    for (int i = 0; i < binding_count; i++) {
+                        if (type(i) == DescriptorType.COMBINED_IMAGE_SAMPLER) {
+                            writer.writeImage(set, i, 0, type(i), sampler, image_views[round & 1], VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL);
+                        } else {
+                            writer.writeBuffer(set, i, 0, type(i), buffer.getBuffer(), offset(round), RANGE);
+                        }
+                    }
+                    writer.flush();
+                });
+                final double template_ns = time(round -> {
+                    for (int i = 0; i < binding_count; i++) {
+                        if (type(i) == DescriptorType.COMBINED_IMAGE_SAMPLER) {
+                            template.putImage(data, i, 0, sampler, image_views[round & 1], VK_IMAGE_LAYOUT_SHADER_READ_ONLY_OPTIMAL);
+                        } else {
+                            template.putBuffer(data, i, 0, buffer.getBuffer(), offset(round), RANGE);
+                        }
+                    }
+                    sets.update(template, data);
+                });
+                Log.print(Log.Severity.INFO, String.format("descriptors: %d bindings, writeBuffer/writeImage %.0f ns, DescriptorWriter %.0f ns (%.2fx), update template %.0f ns (%.2fx)",
+                        binding_count, write_ns, writer_ns, write_ns / writer_ns, template_ns, write_ns / template_ns));
+            } finally {
+                MemoryUtil.memFree(data);
+            }
+        }
+    }
+
+    private static DescriptorType type(int binding) {
+        return switch (binding % 3) {
+            case 0 -> DescriptorType.UNIFORM_BUFFER;
+            case 1 -> DescriptorType.STORAGE_BUFFER;
+            default -> DescriptorType.COMBINED_IMAGE_SAMPLER;
+        };
+    }
+
+    private static long offset(int round) {
+        return (round & 3) * OFFSET_STEP;
+    }
+
+    private interface Round {
+        void run(int round);
+    }
+
+    /**
+     * Runs the warm up rounds, so the JIT has compiled the path, then times the measured rounds.
+     *
+     * @return The average time of one round in nanoseconds.
+     */
+    private static double time(Round round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run(i);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            round.run(i);
+        }
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+}
@@ -2,6 +2,7 @@ package com.github.vertexvolcani.test;
 
 import com.github.vertexvolcani.graphics.VVWindow;
 import com.github.vertexvolcani.graphics.vulkan.Device;
+import com.github.vertexvolcani.graphics.vulkan.FrameScheduler;
 import com.github.vertexvolcani.graphics.vulkan.Instance;
 import com.github.vertexvolcani.graphics.vulkan.SwapChain;
 import com.github.vertexvolcani.graphics.vulkan.VmaAllocator;
@@ -9,8 +10,8 @@ import com.github.vertexvolcani.graphics.vulkan.buffer.*;
 import com.github.vertexvolcani.graphics.vulkan.pipeline.*;
 import com.github.vertexvolcani.test.util.Vertices;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.ShaderCUtil;
 import com.github.vertexvolcani.util.Time;
-import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.vulkan.*;
 
@@ -19,7 +20,6 @@ import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 
-import static com.github.vertexvolcani.graphics.vulkan.buffer.CommandBuffer.destroyCommandBuffers;
 import static org.lwjgl.vulkan.KHRDynamicRendering.VK_STRUCTURE_TYPE_RENDERING_ATTACHMENT_INFO_KHR;
 import static org.lwjgl.vulkan.KHRSurface.VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR;
 import static org.lwjgl.vulkan.KHRSurface.VK_PRESENT_MODE_FIFO_KHR;
@@ -28,8 +28,6 @@ import static org.lwjgl.vulkan.KHRSynchronization2.VK_IMAGE_LAYOUT_ATTACHMENT_OP
 import static org.lwjgl.vulkan.VK11.*;
 
 public class DynamicTriangleDemo {
-    private CommandBuffer[] command_buffers;
-
     public static void main(String[] args) {
         final DynamicTriangleDemo demo = new DynamicTriangleDemo();
         demo.run();
@@ -80,137 +78,103 @@ public class DynamicTriangleDemo {
         }
     }
 
-    private void createCommandBuffers(Device device, VVWindow surface, CommandPool commandPool, Pipeline pipeline, Buffer buffer) {
+    private void recordCommandBuffer(CommandBuffer command_buffer, VVWindow surface, Pipeline pipeline, Buffer buffer, int image_index) {
         var img_view = surface.getSwapChain().getImages();
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            command_buffers = CommandBuffer.createCommandBuffers(device, commandPool, img_view.length, VK_COMMAND_BUFFER_LEVEL_PRIMARY);
-            for (int i = 0; i < command_buffers.length; ++i) {
-                if (command_buffers[i].begin(VK_COMMAND_BUFFER_USAGE_SIMULTANEOUS_USE_BIT) != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to begin render command buffer");
-                    throw new IllegalStateException("Failed to begin render command buffer");
-                }
-                command_buffers[i].insertImageMemoryBarrier(
-                        surface.getSwapChain().getImages()[i],
-                        VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT,
-                        0,
-                        VK_IMAGE_LAYOUT_UNDEFINED,
-                        VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
-                        VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
-                        VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
-                        new ImageSubResourceRange(VK_IMAGE_ASPECT_COLOR_BIT, 0, 1, 0, 1));
-                // Use dynamic rendering
-                VkClearValue clearColor = VkClearValue.calloc(stack);
-                clearColor.color().float32(0, 0.392156863f).float32(1, 0.584313725f).float32(2, 0.929411765f).float32(3, 1.0f);
-                VkRenderingAttachmentInfoKHR.Buffer colorAttachment = VkRenderingAttachmentInfoKHR.calloc(1, stack)
-                        .sType(VK_STRUCTURE_TYPE_RENDERING_ATTACHMENT_INFO_KHR)
-                        .imageView(img_view[i].getImageView().handle())
-                        .imageLayout(VK_IMAGE_LAYOUT_ATTACHMENT_OPTIMAL_KHR)
-                        .loadOp(VK_ATTACHMENT_LOAD_OP_CLEAR)
-                        .storeOp(VK_ATTACHMENT_STORE_OP_STORE)
-                        .clearValue(clearColor);
-                VkRect2D.Buffer window_size = VkRect2D.calloc(1, stack);
-                window_size.extent().set(surface.getSurface().getSurfaceSize());
-                window_size.offset().set(0, 0);
-
-                command_buffers[i].beginDynamicRendering(window_size.get(), 1, 0, colorAttachment, null, null);
-                // Set viewport and scissor
-                VkExtent2D size = surface.getSurface().getSurfaceSize();
-                command_buffers[i].setViewport(size.width(), size.height(),0.0f,1.0f);
-                command_buffers[i].setScissor(0, 0,size.width(), size.height());
-
-                // Bind pipeline
-                command_buffers[i].bindPipeline(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getPipeline());
-                // Draw call
-                LongBuffer offsets = stack.callocLong(1);
-                offsets.put(0, 0L);
-                LongBuffer pBuffers = stack.callocLong(1);
-                pBuffers.put(0, buffer.getBuffer().handle());
-                command_buffers[i].bindVertexBuffers(0, pBuffers, offsets);
-                command_buffers[i].draw(3, 1, 0, 0);
-                // End dynamic rendering
-                command_buffers[i].endDynamicRendering();
-                command_buffers[i].insertImageMemoryBarrier(
-                        surface.getSwapChain().getImages()[i],
-                        VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT,
-                        0,
-                        VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
-                        VK_IMAGE_LAYOUT_PRESENT_SRC_KHR,
-                        VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
-                        VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT,
-                        new ImageSubResourceRange(VK_IMAGE_ASPECT_COLOR_BIT, 0, 1, 0, 1));
-
-                if (command_buffers[i].end() != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to end render command buffer");
-                    throw new IllegalStateException("Failed to end render command buffer");
-                }
-            }
+            command_buffer.insertImageMemoryBarrier(
+                    img_view[image_index],
+                    VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT,
+                    0,
+                    VK_IMAGE_LAYOUT_UNDEFINED,
+                    VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
+                    VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
+                    VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
+                    new ImageSubResourceRange(VK_IMAGE_ASPECT_COLOR_BIT, 0, 1, 0, 1));
+            // Use dynamic rendering
+            VkClearValue clearColor = VkClearValue.calloc(stack);
+            clearColor.color().float32(0, 0.392156863f).float32(1, 0.584313725f).float32(2, 0.929411765f).float32(3, 1.0f);
+            VkRenderingAttachmentInfoKHR.Buffer colorAttachment = VkRenderingAttachmentInfoKHR.calloc(1, stack)
+                    .sType(VK_STRUCTURE_TYPE_RENDERING_ATTACHMENT_INFO_KHR)
+                    .imageView(img_view[image_index].getImageView().handle())
+                    .imageLayout(VK_IMAGE_LAYOUT_ATTACHMENT_OPTIMAL_KHR)
+                    .loadOp(VK_ATTACHMENT_LOAD_OP_CLEAR)
+                    .storeOp(VK_ATTACHMENT_STORE_OP_STORE)
+                    .clearValue(clearColor);
+            VkRect2D.Buffer window_size = VkRect2D.calloc(1, stack);
+            window_size.extent().set(surface.getSurface().getSurfaceSize());
+            window_size.offset().set(0, 0);
+
+            command_buffer.beginDynamicRendering(window_size.get(), 1, 0, colorAttachment, null, null);
+            // Set viewport and scissor
+            VkExtent2D size = surface.getSurface().getSurfaceSize();
+            command_buffer.setViewport(size.width(), size.height(),0.0f,1.0f);
+            command_buffer.setScissor(0, 0,size.width(), size.height());
+
+            // Bind pipeline
+            command_buffer.bindPipeline(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getPipeline());
+            // Draw call
+            LongBuffer offsets = stack.callocLong(1);
+            offsets.put(0, 0L);
+            LongBuffer pBuffers = stack.callocLong(1);
+            pBuffers.put(0, buffer.getBuffer().handle());
+            command_buffer.bindVertexBuffers(0, pBuffers, offsets);
+            command_buffer.draw(3, 1, 0, 0);
+            // End dynamic rendering
+            command_buffer.endDynamicRendering();
+            command_buffer.insertImageMemoryBarrier(
+                    img_view[image_index],
+                    VK_ACCESS_COLOR_ATTACHMENT_WRITE_BIT,
+                    0,
+                    VK_IMAGE_LAYOUT_COLOR_ATTACHMENT_OPTIMAL,
+                    VK_IMAGE_LAYOUT_PRESENT_SRC_KHR,
+                    VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT,
+                    VK_PIPELINE_STAGE_BOTTOM_OF_PIPE_BIT,
+                    new ImageSubResourceRange(VK_IMAGE_ASPECT_COLOR_BIT, 0, 1, 0, 1));
         }
     }
 
     public void run() {
         final Time.Limiter time = new Time.Limiter(60);
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            VVWindow.PrimeGLFW();
-            SwapChain.SwapChainBuilder builder = new SwapChain.SwapChainBuilder();
-            builder.imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT).imageArrayLayers(1)
-                    .presentMode(VK_PRESENT_MODE_FIFO_KHR).clipped().compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
-            // Create the Vulkan instance
-            final Instance instance = new Instance(true, "TriangleDemo");
-            final Device device = new Device(instance, new Device.DeviceFeaturesToEnabled(true));
-            final VVWindow window = new VVWindow(800, 600, "GLFW Vulkan Demo - Dynamic Triangle", (event) -> {
-            }, instance, device, builder);
-
-            // Create static Vulkan resources
-            final CommandPool commandPool = new CommandPool(device, device.getGraphicsIndex(), true);
-            final Queue queue = new Queue(device, device.getGraphicsIndex(), 0);
-            final Vertices vertices = createVertices(window.getAllocator());
-            final Pipeline pipeline = createPipeline(device, window, vertices);
-
-            final class SwapChainHelper {
-                void recreate() {
-                    if (command_buffers != null) {
-                        destroyCommandBuffers(command_buffers);
-                        command_buffers = null;
-                        commandPool.reset(0);
-                    }
-                    createCommandBuffers(device, window, commandPool, pipeline, vertices.buffer());
-                }
+        VVWindow.PrimeGLFW();
+        SwapChain.SwapChainBuilder builder = new SwapChain.SwapChainBuilder();
+        builder.imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT).imageArrayLayers(1)
+                .presentMode(VK_PRESENT_MODE_FIFO_KHR).clipped().compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
+        // Create the Vulkan instance
+        final Instance instance = new Instance(true, "TriangleDemo");
+        final Device device = new Device(instance, new Device.DeviceFeaturesToEnabled(true));
+        final VVWindow window = new VVWindow(800, 600, "GLFW Vulkan Demo - Dynamic Triangle", (event) -> {
+        }, instance, device, builder);
+
+        // Create static Vulkan resources
+        final Queue queue = new Queue(device, device.getGraphicsIndex(), 0);
+        final Vertices vertices = createVertices(window.getAllocator());
+        final Pipeline pipeline = createPipeline(device, window, vertices);
+        final FrameScheduler scheduler = new FrameScheduler(device, window.getSwapChain(), queue, device.getGraphicsIndex(), FrameScheduler.DEFAULT_FRAMES_IN_FLIGHT, null);
+        window.refreshSwapChain();
+
+        while (!window.ShouldClose()) {
+            window.poll();
+            FrameScheduler.Frame frame = scheduler.beginFrame();
+            if (frame == null) {
+                scheduler.waitAll();
+                window.refreshSwapChain();
+                continue;
             }
-            final SwapChainHelper swap_chain_helper = new SwapChainHelper();
-            window.refreshSwapChain();
-            swap_chain_helper.recreate();
-
-            final IntBuffer pImageIndex = stack.callocInt(1);
-            final PointerBuffer pCommandBuffers = stack.callocPointer(1);
-            final Semaphore image_acquired = new Semaphore(device);
-            final Semaphore render_complete = new Semaphore(device);
-            final IntBuffer pWaitDstStageMask = stack.callocInt(1);
-            pWaitDstStageMask.put(0, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
-
-            while (!window.ShouldClose()) {
-                window.poll();
-                window.getSwapChain().acquireNextImage(null, image_acquired, pImageIndex);
-                pCommandBuffers.put(0, command_buffers[pImageIndex.get(0)].getCommandBuffer());
-                if (queue.submit(pCommandBuffers, pWaitDstStageMask, new Semaphore[]{image_acquired}, new Semaphore[]{render_complete}, null) != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to submit render queue");
-                    throw new IllegalStateException("Failed to submit render queue");
-                }
-                if (window.swapBuffers(queue, new Semaphore[]{render_complete}, pImageIndex) != VK_SUCCESS) {
-                    swap_chain_helper.recreate();
-                }
-                //time.timeControl();
+            recordCommandBuffer(frame.getCommandBuffer(), window, pipeline, vertices.buffer(), frame.getImageIndex());
+            if (scheduler.endFrame() != VK_SUCCESS) {
+                scheduler.waitAll();
+                window.refreshSwapChain();
             }
-            image_acquired.close();
-            render_complete.close();
-            destroyCommandBuffers(command_buffers);
-            commandPool.close();
-            pipeline.close();
-            vertices.buffer().close();
-            vertices.attributeDescriptions().close();
-            vertices.bindingDescriptor().close();
-            window.close();
-            device.close();
-            instance.close();
+            //time.timeControl();
         }
+        scheduler.close();
+        pipeline.close();
+        vertices.buffer().close();
+        vertices.attributeDescriptions().close();
+        vertices.bindingDescriptor().close();
+        window.close();
+        ShaderCUtil.close();
+        device.close();
+        instance.close();
     }
 }
\ No newline at end of file
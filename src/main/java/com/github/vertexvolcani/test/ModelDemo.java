@@ -14,6 +14,8 @@ import com.github.vertexvolcani.graphics.vulkan.pipeline.*;
 import com.github.vertexvolcani.graphics.vulkan.pipeline.descriptors.*;
 import com.github.vertexvolcani.test.util.Camera;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.ShaderCUtil;
+import com.github.vertexvolcani.util.SpirvCache;
 import com.github.vertexvolcani.util.Time;
 import com.github.vertexvolcani.test.util.Vertices;
 import de.javagl.obj.Obj;
@@ -21,7 +23,6 @@ import de.javagl.obj.ObjData;
 import de.javagl.obj.ObjReader;
 import de.javagl.obj.ObjUtils;
 import org.joml.Matrix4f;
-import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
 import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.vulkan.*;
@@ -30,6 +31,7 @@ import java.io.InputStream;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
+import java.nio.file.Path;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.vulkan.KHRSurface.VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR;
@@ -41,8 +43,6 @@ public class ModelDemo {
     private final Camera camera = new Camera();
     private VVWindow window;
     private FrameBuffer[] frame_buffers;
-    private CommandBuffer[] command_buffers;
-    private Buffer uniform_buffer;
 
     public static void main(String[] args) throws Exception {
         System.setProperty("LWJGL_DISABLE_RENDEROCD", "false");
@@ -69,14 +69,14 @@ public class ModelDemo {
         }
     }
 
-    private DescriptorLayout createDescriptorLayout(Device device) {
-        LayoutBinding[] bindings = new LayoutBinding[]{
-                new LayoutBinding(0, 1, DescriptorType.UNIFORM_BUFFER, ShaderType.VERTEX,null),
-        };
-        return new DescriptorLayout(device, bindings, 0);
+    private Shader[] createShaders(Device device, SpirvCache spirv_cache) {
+        Shader[] shaders = new Shader[2];
+        shaders[0] = new Shader(device, "shader.vert", ShaderType.VERTEX, spirv_cache);
+        shaders[1] = new Shader(device, "shader.frag", ShaderType.FRAGMENT, spirv_cache);
+        return shaders;
     }
 
-    private Vertices createVertices(VmaAllocator allocator) throws Exception {
+    private Vertices createVertices(VmaAllocator allocator, UploadManager uploads) throws Exception {
         Obj obj;
         try (InputStream file_data = Thread.currentThread().getContextClassLoader().getResourceAsStream("./model/sponza/sponza.obj")) {
             assert file_data != null;
@@ -87,9 +87,13 @@ public class ModelDemo {
             obj = ObjUtils.convertToRenderable(obj);
 
         }
-        IntBuffer index = ObjData.getFaceVertexIndices(obj, 4);
-        Buffer buffer = new VertexBuffer(allocator, ObjData.getTotalNumFaceVertices(obj) * 3L, false, VmaMemoryUsage.CPU_TO_GPU).write(ObjData.getVertices(obj));
-        Buffer index_buffer = new IndexBuffer(allocator, index.remaining(), false, VmaMemoryUsage.CPU_TO_GPU).write(index);
+        IntBuffer index = ObjData.getFaceVertexIndices(obj);
+        FloatBuffer vertex = ObjData.getVertices(obj);
+        Buffer buffer = new VertexBuffer(allocator, (long) vertex.remaining() * Float.BYTES, false, VmaMemoryUsage.GPU_ONLY);
+        Buffer index_buffer = new IndexBuffer(allocator, (long) index.remaining() * Integer.BYTES, false, VmaMemoryUsage.GPU_ONLY);
+        uploads.uploadBuffer(buffer, 0, MemoryUtil.memAddress(vertex), buffer.getSize());
+        uploads.uploadBuffer(index_buffer, 0, MemoryUtil.memAddress(index), index_buffer.getSize());
+        uploads.waitFor(uploads.flush());
 
         VkVertexInputBindingDescription.Buffer bindingDescriptor = VkVertexInputBindingDescription.calloc(1);
         bindingDescriptor.binding(0).stride(3 * Float.BYTES).inputRate(VK_VERTEX_INPUT_RATE_VERTEX);
@@ -100,14 +104,8 @@ public class ModelDemo {
         return new Vertices(buffer, index_buffer, bindingDescriptor, attributeDescriptions);
     }
 
-    private Pipeline createPipeline(Device device, RenderPass renderPass, Vertices vertices, DescriptorLayout descriptorLayout) {
+    private Pipeline createPipeline(Device device, RenderPass renderPass, Vertices vertices, Shader[] shaders, PipelineLayout layout, PipelineCache cache) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            PipelineLayout.PushConstant[] pushConstant = new PipelineLayout.PushConstant[1];
-            pushConstant[0] = new PipelineLayout.PushConstant(ShaderType.VERTEX, 0, Float.BYTES * ((4 * 4) * 2));
-            PipelineLayout layout = new PipelineLayout(device, new DescriptorLayout[]{descriptorLayout}, pushConstant);
-            Shader[] shaders = new Shader[2];
-            shaders[0] = new Shader(device, "shader.vert", ShaderType.VERTEX);
-            shaders[1] = new Shader(device, "shader.frag", ShaderType.FRAGMENT);
             try (Pipeline.PipelineBuilder builder = new Pipeline.PipelineBuilder(shaders, layout, renderPass, true)) {
                 VkPipelineColorBlendAttachmentState.Buffer colorWriteMask = VkPipelineColorBlendAttachmentState.calloc(1, stack).colorWriteMask(0xF); // <- RGBA
                 builder.setColourBlendAttachments(colorWriteMask);
@@ -122,200 +120,171 @@ public class ModelDemo {
                 IntBuffer pDynamicStates = stack.callocInt(2);
                 pDynamicStates.put(VK_DYNAMIC_STATE_VIEWPORT).put(VK_DYNAMIC_STATE_SCISSOR).flip();
                 builder.setDynamicStates(pDynamicStates);
-                return new Pipeline(device, builder, null, false);
+                // the layout belongs to the layout cache
+                return new Pipeline(device, builder, cache, false, false);
             }
         }
     }
 
-    private CommandBuffer[] createCommandBuffers(Device device, Surface surface, CommandPool commandPool, RenderPass renderPass, Pipeline pipeline, Vertices buffer, DescriptorSets[] descriptorSets) {
-        CommandBuffer[] renderCommandBuffers = new CommandBuffer[frame_buffers.length];
+    private void recordCommandBuffer(CommandBuffer command_buffer, Surface surface, RenderPass renderPass, Pipeline pipeline, Vertices buffer, DescriptorSets descriptorSets, int image_index, int uniform_offset) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            for (int i = 0; i < frame_buffers.length; i++) {
-                renderCommandBuffers[i] = new CommandBuffer(device, commandPool, VK_COMMAND_BUFFER_LEVEL_PRIMARY);
-            }
-
             VkExtent2D extent = VkExtent2D.calloc(stack);
             extent.set(surface.getSurfaceSize());
             VkOffset2D offset = VkOffset2D.calloc(stack);
 
-            for (int i = 0; i < renderCommandBuffers.length; ++i) {
-                if (renderCommandBuffers[i].begin(VK_COMMAND_BUFFER_USAGE_SIMULTANEOUS_USE_BIT) != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to begin render command buffer");
-                    throw new IllegalStateException("Failed to begin render command buffer");
-                }
-
-                renderCommandBuffers[i].beginRenderPass(renderPass, extent, offset, frame_buffers[i], VK_SUBPASS_CONTENTS_INLINE);
-
-                VkExtent2D size = surface.getSurfaceSize();
-                command_buffers[i].setViewport(size.width(), size.height(),0.0f,1.0f);
-                command_buffers[i].setScissor(0, 0,size.width(), size.height());
+            command_buffer.beginRenderPass(renderPass, extent, offset, frame_buffers[image_index], VK_SUBPASS_CONTENTS_INLINE);
 
-                renderCommandBuffers[i].bindPipeline(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getPipeline());
-                LongBuffer pDescriptorSets = stack.callocLong(1);
-                pDescriptorSets.put(0, descriptorSets[i].getHandle(0));
-                renderCommandBuffers[i].bindDescriptorSets(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getLayout(), 0, pDescriptorSets, null);
+            VkExtent2D size = surface.getSurfaceSize();
+            command_buffer.setViewport(size.width(), size.height(),0.0f,1.0f);
+            command_buffer.setScissor(0, 0,size.width(), size.height());
 
-                PushConstants pushConstants = new PushConstants();
-                pushConstants.projection = window.getProjection();
-                pushConstants.view = camera.getViewMatrix();
+            command_buffer.bindPipeline(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getPipeline());
+            LongBuffer pDescriptorSets = stack.callocLong(1);
+            pDescriptorSets.put(0, descriptorSets.getHandle(0));
+            // the model matrix lives in this frame's slice of the ring buffer
+            command_buffer.bindDescriptorSets(VK_PIPELINE_BIND_POINT_GRAPHICS, pipeline.getLayout(), 0, pDescriptorSets, stack.ints(uniform_offset));
 
-                var data = pushConstants.toFloatBuffer();
-                renderCommandBuffers[i].pushConstants(pipeline.getLayout(), ShaderType.VERTEX, 0, data);
-                MemoryUtil.memFree(data);
+            PushConstants pushConstants = new PushConstants();
+            pushConstants.projection = window.getProjection();
+            pushConstants.view = camera.getViewMatrix();
 
-                LongBuffer offsets = stack.callocLong(1);
-                offsets.put(0, 0L);
-                LongBuffer pBuffers = stack.callocLong(1);
-                pBuffers.put(0, buffer.buffer().getBuffer().handle());
-                renderCommandBuffers[i].bindVertexBuffers(0, pBuffers, offsets);
-                renderCommandBuffers[i].bindIndexBuffer(buffer.index_buffer().getBuffer(), 0, VK_INDEX_TYPE_UINT32);
-                // this is done like this due to the way buffer size is stored
-                renderCommandBuffers[i].drawIndexed((int) buffer.index_buffer().getSize() / 4, 1, 0, 0, 0);
-                renderCommandBuffers[i].endRenderPass();
+            var data = pushConstants.toFloatBuffer();
+            command_buffer.pushConstants(pipeline.getLayout(), ShaderType.VERTEX, 0, data);
+            MemoryUtil.memFree(data);
 
-                if (renderCommandBuffers[i].end() != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to begin render command buffer");
-                    throw new IllegalStateException("Failed to begin render command buffer");
-                }
-            }
+            LongBuffer offsets = stack.callocLong(1);
+            offsets.put(0, 0L);
+            LongBuffer pBuffers = stack.callocLong(1);
+            pBuffers.put(0, buffer.buffer().getBuffer().handle());
+            command_buffer.bindVertexBuffers(0, pBuffers, offsets);
+            command_buffer.bindIndexBuffer(buffer.index_buffer().getBuffer(), 0, VK_INDEX_TYPE_UINT32);
+            // buffer size is stored in bytes so divide down to the index count
+            command_buffer.drawIndexed((int) buffer.index_buffer().getSize() / Integer.BYTES, 1, 0, 0, 0);
+            command_buffer.endRenderPass();
         }
-        return renderCommandBuffers;
     }
 
     public void run() throws Exception {
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            VVWindow.PrimeGLFW();
-            // Create the Vulkan instance
-            final Instance instance = new Instance(true, "TriangleDemo");
-            final Device device = new Device(instance,new Device.DeviceFeaturesToEnabled(false));
-            SwapChain.SwapChainBuilder builder = new SwapChain.SwapChainBuilder();
-            builder.imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT)
-                    .imageArrayLayers(1).presentMode(VK_PRESENT_MODE_FIFO_KHR)
-                    .clipped().compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
-            window = new VVWindow(800, 600, "GLFW Vulkan Demo", (event) -> {
-                if (event.getID() == KeyEvent.ID) {
-                    KeyEvent keyEvent = (KeyEvent) event;
-                    if (keyEvent.key == GLFW_KEY_W) {
-                        camera.update(0, 0, 0.1f, 0, 0, 0);
-                    } else if (keyEvent.key == GLFW_KEY_S) {
-                        camera.update(0, 0, -0.1f, 0, 0, 0);
-                    } else if (keyEvent.key == GLFW_KEY_A) {
-                        camera.update(0.1f, 0, 0, 0, 0, 0);
-                    } else if (keyEvent.key == GLFW_KEY_D) {
-                        camera.update(0.1f, 0, 0, 0, 0, 0);
-                    } else if (keyEvent.key == GLFW_KEY_Q) {
-                        camera.update(0, 0, 0, 0, 0.1f, 0);
-                    } else if (keyEvent.key == GLFW_KEY_E) {
-                        camera.update(0, 0, 0, 0, -0.1f, 0);
-                    }
+        VVWindow.PrimeGLFW();
+        // Create the Vulkan instance
+        final Instance instance = new Instance(true, "TriangleDemo");
+        final Device device = new Device(instance,new Device.DeviceFeaturesToEnabled(false));
+        SwapChain.SwapChainBuilder builder = new SwapChain.SwapChainBuilder();
+        builder.imageUsage(VK_IMAGE_USAGE_COLOR_ATTACHMENT_BIT)
+                .imageArrayLayers(1).presentMode(VK_PRESENT_MODE_FIFO_KHR)
+                .clipped().compositeAlpha(VK_COMPOSITE_ALPHA_OPAQUE_BIT_KHR);
+        window = new VVWindow(800, 600, "GLFW Vulkan Demo", (event) -> {
+            if (event.getID() == KeyEvent.ID) {
+                KeyEvent keyEvent = (KeyEvent) event;
+                if (keyEvent.key == GLFW_KEY_W) {
+                    camera.update(0, 0, 0.1f, 0, 0, 0);
+                } else if (keyEvent.key == GLFW_KEY_S) {
+                    camera.update(0, 0, -0.1f, 0, 0, 0);
+                } else if (keyEvent.key == GLFW_KEY_A) {
+                    camera.update(0.1f, 0, 0, 0, 0, 0);
+                } else if (keyEvent.key == GLFW_KEY_D) {
+                    camera.update(0.1f, 0, 0, 0, 0, 0);
+                } else if (keyEvent.key == GLFW_KEY_Q) {
+                    camera.update(0, 0, 0, 0, 0.1f, 0);
+                } else if (keyEvent.key == GLFW_KEY_E) {
+                    camera.update(0, 0, 0, 0, -0.1f, 0);
                 }
-            }, instance, device, builder);
-            // Create static Vulkan resources
-            DescriptorPoolSize [] descriptorPoolSizes = {
-                    new DescriptorPoolSize(DescriptorType.UNIFORM_BUFFER, 3),
-            };
+            }
+        }, instance, device, builder);
+        // Create static Vulkan resources
+        // the sets live as long as the demo, so the allocator has one frame that is never reset
+        final DescriptorAllocator descriptorAllocator = new DescriptorAllocator(device, 1, 4,
+                new DescriptorPoolSize[]{new DescriptorPoolSize(DescriptorType.UNIFORM_BUFFER_DYNAMIC, 1)});
+        final SpirvCache spirv_cache = new SpirvCache(Path.of("shader_cache"));
+        final Shader[] shaders = createShaders(device, spirv_cache);
+        // the descriptor and push constant layouts come from the shaders, only the dynamic offset is our choice
+        final LayoutCache layouts = new LayoutCache(device);
+        final PipelineLayout pipeline_layout = layouts.getPipelineLayout(shaders, new LayoutCache.BindingOverride(0, 0, DescriptorType.UNIFORM_BUFFER_DYNAMIC));
+        final DescriptorLayout descriptorLayout = layouts.getDescriptorLayouts(pipeline_layout)[0];
+        final DescriptorSets[] descriptorSets = new DescriptorSets[3];
+        for (int i = 0; i < 3; i++) {
+            descriptorSets[i] = descriptorAllocator.allocate(new DescriptorLayout[]{descriptorLayout});
+        }
+        final Queue queue = new Queue(device, device.getGraphicsIndex(), 0);
+        final RenderPass renderPass = createRenderPass(device, window.getSurface());
+        final UploadManager uploads = new UploadManager(device, window.getAllocator(), queue, device.getGraphicsIndex(), 16L * 1024 * 1024);
+        final Vertices vertices = createVertices(window.getAllocator(), uploads);
+        // reusing the driver's compiled pipelines from the last run skips most of the cold start
+        final PipelineCache pipeline_cache = new PipelineCache(device, Path.of("model_demo.pipeline_cache"));
+        final Pipeline pipeline = createPipeline(device, renderPass, vertices, shaders, pipeline_layout, pipeline_cache);
+        Log.print(Log.Severity.DEBUG, "shaderc: spirv cache " + spirv_cache.getHitCount() + " hits, " + spirv_cache.getMissCount() + " misses");
+        pipeline_cache.save();
 
-            final DescriptorPool descriptorPool = new DescriptorPool(device, descriptorPoolSizes, 4,0);
-            final DescriptorLayout descriptorLayout = createDescriptorLayout(device);
-            final DescriptorSets[] descriptorSets = new DescriptorSets[3];
-            for (int i = 0; i < 3; i++) {
-                descriptorSets[i] = new DescriptorSets(device, descriptorPool, new DescriptorLayout[]{descriptorLayout});
+        final FrameRingAllocator ring = new FrameRingAllocator(device, window.getAllocator(), FrameScheduler.DEFAULT_FRAMES_IN_FLIGHT, 64 * 1024, VK_BUFFER_USAGE_UNIFORM_BUFFER_BIT);
+        final FrameScheduler scheduler = new FrameScheduler(device, window.getSwapChain(), queue, device.getGraphicsIndex(), FrameScheduler.DEFAULT_FRAMES_IN_FLIGHT, ring);
+        try (DescriptorWriter writer = new DescriptorWriter(device)) {
+            for (int i = 0; i < ring.getFrameCount(); i++) {
+                // each frame slot gets a set pointing at its ring buffer, the per draw offset is dynamic
+                writer.writeBuffer(descriptorSets[i].getHandle(0), 0, 0, DescriptorType.UNIFORM_BUFFER_DYNAMIC, ring.getBuffer(i).getBuffer(), 0, Float.BYTES * 16);
             }
-            final CommandPool commandPool = new CommandPool(device, device.getGraphicsIndex(), true);
-            final Queue queue = new Queue(device, device.getGraphicsIndex(), 0);
-            final RenderPass renderPass = createRenderPass(device, window.getSurface());
-            final Vertices vertices = createVertices(window.getAllocator());
-            final Pipeline pipeline = createPipeline(device, renderPass, vertices, descriptorLayout);
+            writer.flush();
+        }
+        final Matrix4f model = new Matrix4f().identity().scale(1.0f);
+        final FloatBuffer modelBuffer = MemoryUtil.memCallocFloat(16);
 
-            final class SwapChainHelper {
-                void recreate() {
-                    if (frame_buffers != null) {
-                        for (var frame_buffer : frame_buffers) {
-                            try {
-                                frame_buffer.close();
-                            } catch (Exception e) {
-                                throw new RuntimeException(e);
-                            }
+        final class SwapChainHelper {
+            void recreate() {
+                if (frame_buffers != null) {
+                    for (var frame_buffer : frame_buffers) {
+                        try {
+                            frame_buffer.close();
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
                         }
-                        frame_buffers = null;
                     }
-                    frame_buffers = createFrameBuffers(device,window.getSurface(),window.getSwapChain(), renderPass);
-                    if (command_buffers != null) {
-                        for (var c:command_buffers){
-                            c.close();
-                        }
-                        command_buffers = null;
-                        commandPool.reset(0);
-                    }
-                    if(uniform_buffer != null) {
-                        uniform_buffer.close();
-                    }
-                    {
-                        final Matrix4f model = new Matrix4f().identity().scale(1.0f);
-                        FloatBuffer modelBuffer = MemoryUtil.memCallocFloat(16);
-                        modelBuffer = model.get(modelBuffer);
-                        uniform_buffer = new UniformBuffer(window.getAllocator(), (Float.BYTES * 16), false, VmaMemoryUsage.CPU_TO_GPU).write(modelBuffer);
-                        MemoryUtil.memFree(modelBuffer);
-                        for (int i = 0; i < 3; i++) {
-                            VkDescriptorBufferInfo.Buffer buffer_info = VkDescriptorBufferInfo.calloc(1);
-                            buffer_info.buffer(uniform_buffer.getBuffer().handle());
-                            buffer_info.offset(0);
-                            buffer_info.range((Float.BYTES * 16));
-                            descriptorSets[i].writeBuffer(0, 0, 0, 1,false, buffer_info);
-                            buffer_info.free();
-                        }
-                    }
-                    command_buffers = createCommandBuffers(device, window.getSurface(), commandPool, renderPass, pipeline, vertices, descriptorSets);
+                    frame_buffers = null;
                 }
+                frame_buffers = createFrameBuffers(device,window.getSurface(),window.getSwapChain(), renderPass);
             }
-            final SwapChainHelper swap_chain_helper = new SwapChainHelper();
-            window.refreshSwapChain();
-            swap_chain_helper.recreate();
-            final IntBuffer pImageIndex = stack.callocInt(1);
-            final PointerBuffer pCommandBuffers = stack.callocPointer(1);
-            final Semaphore image_acquired = new Semaphore(device);
-            final Semaphore render_complete = new Semaphore(device);
-            final IntBuffer pWaitDstStageMask = stack.callocInt(1);
-
-            pWaitDstStageMask.put(0, VK_PIPELINE_STAGE_COLOR_ATTACHMENT_OUTPUT_BIT);
-            final Time.Limiter limiter = new Time.Limiter(60);
+        }
+        final SwapChainHelper swap_chain_helper = new SwapChainHelper();
+        window.refreshSwapChain();
+        swap_chain_helper.recreate();
+        final Time.Limiter limiter = new Time.Limiter(60);
 
-            while (!window.ShouldClose()) {
-                window.poll();
-                window.getSwapChain().acquireNextImage(null, image_acquired, pImageIndex);
-                pCommandBuffers.put(0, command_buffers[pImageIndex.get(0)].getCommandBuffer());
-                if (queue.submit(pCommandBuffers, pWaitDstStageMask, new Semaphore[]{image_acquired}, new Semaphore[]{render_complete}, null) != VK_SUCCESS) {
-                    Log.print(Log.Severity.ERROR, "Vulkan: Failed to submit render queue");
-                    throw new IllegalStateException("Failed to submit render queue");
-                }
-                if (window.getSwapChain().queuePresent(queue.getQueue(), new Semaphore[]{render_complete}, pImageIndex) != VK_SUCCESS) {
-                    swap_chain_helper.recreate();
-                }
-                device.waitIdle();
-                //limiter.timeControl();
+        while (!window.ShouldClose()) {
+            window.poll();
+            FrameScheduler.Frame frame = scheduler.beginFrame();
+            if (frame == null) {
+                scheduler.waitAll();
+                window.refreshSwapChain();
+                swap_chain_helper.recreate();
+                continue;
             }
-            image_acquired.close();
-            render_complete.close();
-            for (var f : frame_buffers) {
-                f.close();
+            final int uniform_offset = ring.push(model.get(modelBuffer));
+            recordCommandBuffer(frame.getCommandBuffer(), window.getSurface(), renderPass, pipeline, vertices, descriptorSets[frame.getIndex()], frame.getImageIndex(), uniform_offset);
+            if (scheduler.endFrame() != VK_SUCCESS) {
+                scheduler.waitAll();
+                window.refreshSwapChain();
+                swap_chain_helper.recreate();
             }
-            uniform_buffer.close();
-            commandPool.close();
-            for (var d : descriptorSets) {
-                d.close();
-            }
-            descriptorLayout.close();
-            descriptorPool.close();
-            renderPass.close();
-            pipeline.close();
-            vertices.buffer().close();
-            vertices.index_buffer().close();
-            vertices.attributeDescriptions().close();
-            vertices.bindingDescriptor().close();
-            device.close();
-            instance.close();
-            window.close();
+            //limiter.timeControl();
+        }
+        scheduler.close();
+        ring.close();
+        MemoryUtil.memFree(modelBuffer);
+        for (var f : frame_buffers) {
+            f.close();
         }
+        uploads.close();
+        descriptorAllocator.close();
+        renderPass.close();
+        pipeline.close();
+        layouts.close();
+        pipeline_cache.close();
+        vertices.buffer().close();
+        vertices.index_buffer().close();
+        vertices.attributeDescriptions().close();
+        vertices.bindingDescriptor().close();
+        window.close();
+        ShaderCUtil.close();
+        device.close();
+        instance.close();
     }
 
     private static class PushConstants {
@@ -0,0 +1,61 @@
+package com.github.vertexvolcani.test;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.ShaderCompiler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.vulkan.VK10.VK_SHADER_STAGE_FRAGMENT_BIT;
+import static org.lwjgl.vulkan.VK10.VK_SHADER_STAGE_VERTEX_BIT;
+
+/**
+ * Measures how startup shader compilation scales with the number of compile threads. The demo shaders are compiled
+ * {@code ROUNDS} times each with 1, 2, 4 ... up to every core, without a spirv cache so every compile is real work.
+ */
+public class ShaderCompileBenchmark {
+    private static final int ROUNDS = 32;
+    private static final List<ShaderCompiler.ShaderSource> SHADERS = List.of(
+            new ShaderCompiler.ShaderSource("shader.vert", VK_SHADER_STAGE_VERTEX_BIT),
+            new ShaderCompiler.ShaderSource("shader.frag", VK_SHADER_STAGE_FRAGMENT_BIT),
+            new ShaderCompiler.ShaderSource("shader/triangle.vert", VK_SHADER_STAGE_VERTEX_BIT),
+            new ShaderCompiler.ShaderSource("shader/triangle.frag", VK_SHADER_STAGE_FRAGMENT_BIT));
+
+    public static void main(String[] args) {
+        List<ShaderCompiler.ShaderSource> sources = new ArrayList<>(SHADERS.size() * ROUNDS);
+        for (int i = 0; i < ROUNDS; i++) {
+            sources.addAll(SHADERS);
+        }
+        final int cores = Runtime.getRuntime().availableProcessors();
+        double single_ms = 0;
+        for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+            try (ShaderCompiler compiler = new ShaderCompiler(false, null, threads)) {
+                // the first batch creates each thread's compiler, keep it out of the timing
+                join(compiler.compileAll(SHADERS));
+                final long start = System.nanoTime();
+                join(compiler.compileAll(sources));
+                final double ms = (System.nanoTime() - start) / 1_000_000.0;
+                if (threads == 1) {
+                    single_ms = ms;
+                }
+                Log.print(Log.Severity.INFO, String.format("shaderc: %d shaders on %d threads took %.1f ms, %.2fx speed up",
+                        sources.size(), threads, ms, single_ms / ms));
+            }
+            if (threads == cores) {
+                break;
+            }
+        }
+    }
+
+    private static void join(List<CompletableFuture<ByteBuffer>> futures) {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+}
@@ -5,6 +5,7 @@ import com.github.vertexvolcani.graphics.vulkan.*;
 import com.github.vertexvolcani.graphics.vulkan.buffer.*;
 import com.github.vertexvolcani.graphics.vulkan.pipeline.*;
 import com.github.vertexvolcani.util.Log;
+import com.github.vertexvolcani.util.ShaderCUtil;
 import com.github.vertexvolcani.test.util.Vertices;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
@@ -217,6 +218,7 @@ public class TriangleDemo {
             vertices.attributeDescriptions().close();
             vertices.bindingDescriptor().close();
             window.close();
+            ShaderCUtil.close();
             device.close();
             instance.close();
         }
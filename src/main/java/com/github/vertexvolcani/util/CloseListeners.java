@@ -0,0 +1,59 @@
+package com.github.vertexvolcani.util;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import java.util.ArrayList;
+
+/**
+ * The callbacks a resource runs when it is closed, used by caches that have to drop entries referring to it.
+ * <p>
+ * Listeners run on the thread closing the resource, outside the list's lock, so a listener may take its own locks
+ * without ordering problems against threads adding listeners.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class CloseListeners {
+    private final ArrayList<Runnable> listeners = new ArrayList<>(0);
+
+    public synchronized void add(@Nonnull Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added before, compared by identity.
+     *
+     * @param listener The listener.
+     */
+    public synchronized void remove(@Nonnull Runnable listener) {
+        for (int i = 0; i < listeners.size(); i++) {
+            if (listeners.get(i) == listener) {
+                listeners.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs and removes every listener.
+     */
+    public void fire() {
+        final Runnable[] fired;
+        synchronized (this) {
+            if (listeners.isEmpty()) {
+                return;
+            }
+            fired = listeners.toArray(new Runnable[0]);
+            listeners.clear();
+        }
+        for (Runnable listener : fired) {
+            listener.run();
+        }
+    }
+}
@@ -1,19 +1,12 @@
 package com.github.vertexvolcani.util;
 
 import org.lwjgl.BufferUtils;
-import org.lwjgl.system.MemoryStack;
-import org.lwjgl.util.shaderc.ShadercIncludeResolve;
-import org.lwjgl.util.shaderc.ShadercIncludeResult;
-import org.lwjgl.util.shaderc.ShadercIncludeResultRelease;
 
 import java.io.*;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
-import static org.lwjgl.BufferUtils.createByteBuffer;
-import static org.lwjgl.system.MemoryUtil.memFree;
-import static org.lwjgl.system.MemoryUtil.memUTF8;
 import static org.lwjgl.util.shaderc.Shaderc.*;
 import static org.lwjgl.vulkan.KHRRayTracingPipeline.*;
 import static org.lwjgl.vulkan.VK10.*;
@@ -22,6 +15,13 @@ import static org.lwjgl.vulkan.VK10.*;
  * @author Kai Burjack
  */
 public class ShaderCUtil {
+    /**
+     * The compiler behind {@link #glslToSpirv}, created on first use and kept until {@link #close()} so its per thread
+     * compilers are reused across every shader loaded.
+     */
+    @Nullable
+    private static ShaderCompiler shared_compiler = null;
+
     private static ByteBuffer resizeBuffer(ByteBuffer buffer, int newCapacity) {
         ByteBuffer newBuffer = BufferUtils.createByteBuffer(newCapacity);
         buffer.flip();
@@ -62,7 +62,7 @@ public class ShaderCUtil {
         return buffer;
     }
 
-    private static int vulkanStageToShadercKind(int stage) {
+    static int vulkanStageToShadercKind(int stage) {
         return switch (stage) {
             case VK_SHADER_STAGE_VERTEX_BIT -> shaderc_vertex_shader;
             case VK_SHADER_STAGE_TESSELLATION_CONTROL_BIT -> shaderc_tess_control_shader;
@@ -81,50 +81,39 @@ public class ShaderCUtil {
     }
 
     public static ByteBuffer glslToSpirv(String classPath, int vulkanStage,boolean debug) throws IOException {
-        ByteBuffer src = ioResourceToByteBuffer(classPath, 1024);
-        long compiler = shaderc_compiler_initialize();
-        long options = shaderc_compile_options_initialize();
-        ShadercIncludeResolve resolver;
-        ShadercIncludeResultRelease releaser;
-        shaderc_compile_options_set_target_env(options, shaderc_target_env_vulkan, shaderc_env_version_vulkan_1_2);
-        shaderc_compile_options_set_target_spirv(options, shaderc_spirv_version_1_5);
-        shaderc_compile_options_set_optimization_level(options, debug ?shaderc_optimization_level_zero:shaderc_optimization_level_performance);
-        shaderc_compile_options_set_include_callbacks(options, resolver = new ShadercIncludeResolve() {
-            public long invoke(long user_data, long requested_source, int type, long requesting_source, long include_depth) {
-                ShadercIncludeResult res = ShadercIncludeResult.calloc();
-                try {
-                    String src = classPath.substring(0, classPath.lastIndexOf('/')) + "/" + memUTF8(requested_source);
-                    res.content(ioResourceToByteBuffer(src, 1024));
-                    res.source_name(memUTF8(src));
-                    return res.address();
-                } catch (IOException e) {
-                    throw new AssertionError("Failed to resolve include: " + src);
-                }
-            }
-        }, releaser = new ShadercIncludeResultRelease() {
-            public void invoke(long user_data, long include_result) {
-                ShadercIncludeResult result = ShadercIncludeResult.create(include_result);
-                memFree(result.source_name());
-                result.free();
-            }
-        }, 0L);
-        long res;
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            res = shaderc_compile_into_spv(compiler, src, vulkanStageToShadercKind(vulkanStage), stack.UTF8(classPath), stack.UTF8("main"), options);
-            if (res == 0L)
-                throw new AssertionError("Internal error during compilation!");
+        return glslToSpirv(classPath, vulkanStage, debug, null);
+    }
+
+    /**
+     * Compiles a shader, reusing the SPIR-V from a previous run when the source and every file it includes are
+     * unchanged. Compiles run on the calling thread with a compiler kept for that thread, use a
+     * {@link ShaderCompiler} directly to compile in parallel.
+     *
+     * @param classPath   The class path of the GLSL source.
+     * @param vulkanStage The Vulkan shader stage.
+     * @param debug       Disables optimization when {@code true}.
+     * @param cache       The SPIR-V cache, or {@code null} to always compile.
+     * @return The SPIR-V, memory mapped on a cache hit.
+     */
+    public static ByteBuffer glslToSpirv(String classPath, int vulkanStage, boolean debug, @Nullable SpirvCache cache) throws IOException {
+        return sharedCompiler().compile(classPath, vulkanStage, debug, cache);
+    }
+
+    private static synchronized ShaderCompiler sharedCompiler() {
+        if (shared_compiler == null) {
+            shared_compiler = new ShaderCompiler(false, null, 1);
         }
-        if (shaderc_result_get_compilation_status(res) != shaderc_compilation_status_success) {
-            throw new AssertionError("Shader compilation failed: " + shaderc_result_get_error_message(res));
+        return shared_compiler;
+    }
+
+    /**
+     * Releases the compiler behind {@link #glslToSpirv}, call it once no shader is being compiled, e.g. when shutting
+     * down. A later {@link #glslToSpirv} creates a new compiler.
+     */
+    public static synchronized void close() {
+        if (shared_compiler != null) {
+            shared_compiler.close();
+            shared_compiler = null;
         }
-        int size = (int) shaderc_result_get_length(res);
-        ByteBuffer resultBytes = createByteBuffer(size);
-        resultBytes.put(shaderc_result_get_bytes(res));
-        resultBytes.flip();
-        shaderc_result_release(res);
-        shaderc_compiler_release(compiler);
-        releaser.free();
-        resolver.free();
-        return resultBytes;
     }
 }
\ No newline at end of file
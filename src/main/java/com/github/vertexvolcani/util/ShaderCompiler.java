@@ -0,0 +1,316 @@
+package com.github.vertexvolcani.util;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.util.shaderc.ShadercIncludeResolve;
+import org.lwjgl.util.shaderc.ShadercIncludeResult;
+import org.lwjgl.util.shaderc.ShadercIncludeResultRelease;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.BufferUtils.createByteBuffer;
+import static org.lwjgl.system.MemoryUtil.memUTF8;
+import static org.lwjgl.util.shaderc.Shaderc.*;
+
+/**
+ * Compiles GLSL to SPIR-V with shaderc, reusing one compiler and one set of options per thread.
+ * <p>
+ * A shaderc compiler is not safe to share between concurrent compiles, so every thread that compiles gets its own
+ * compiler, options and include callbacks the first time it compiles, and keeps them until the ShaderCompiler is
+ * closed. {@link #compileAll(List)} spreads a batch of shaders over a {@link ForkJoinPool} so startup compile time
+ * scales with the number of cores. Includes are resolved relative to the file that includes them.
+ * </p>
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class ShaderCompiler extends LibCleanable {
+    /**
+     * Describes the target environment set on every compile, part of the spirv cache key.
+     */
+    static final String TARGET_ENV = "vulkan_1_2/spirv_1_5";
+    private final boolean debug;
+    @Nullable
+    private final SpirvCache cache;
+    private final int parallelism;
+    private final ThreadLocal<Context> context = ThreadLocal.withInitial(this::createContext);
+    /**
+     * Every context created, so closing releases the ones owned by threads other than the closing one.
+     */
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
+    @Nullable
+    private ForkJoinPool pool = null;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a new ShaderCompiler using every available core.
+     *
+     * @param debug_in Disables optimization when {@code true}.
+     * @param cache_in The SPIR-V cache, or {@code null} to always compile.
+     */
+    public ShaderCompiler(boolean debug_in, @Nullable SpirvCache cache_in) {
+        this(debug_in, cache_in, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new ShaderCompiler.
+     *
+     * @param debug_in       Disables optimization when {@code true}.
+     * @param cache_in       The SPIR-V cache, or {@code null} to always compile.
+     * @param parallelism_in The number of threads {@link #compileAll(List)} uses, the pool is created on first use.
+     */
+    public ShaderCompiler(boolean debug_in, @Nullable SpirvCache cache_in, int parallelism_in) {
+        if (parallelism_in <= 0) {
+            Log.print(Log.Severity.ERROR, "shaderc: compiler parallelism must be at least one");
+            throw new IllegalStateException("compiler parallelism must be at least one");
+        }
+        debug = debug_in;
+        cache = cache_in;
+        parallelism = parallelism_in;
+    }
+
+    /**
+     * Compiles a shader on the calling thread.
+     *
+     * @param class_path   The class path of the GLSL source.
+     * @param vulkan_stage The Vulkan shader stage.
+     * @return The SPIR-V, memory mapped on a cache hit.
+     * @throws IOException If the source can not be read.
+     */
+    public ByteBuffer compile(@Nonnull String class_path, int vulkan_stage) throws IOException {
+        return compile(class_path, vulkan_stage, debug, cache);
+    }
+
+    /**
+     * Compiles a shader on the compiler's pool.
+     *
+     * @param source The shader to compile.
+     * @return A future completing with the SPIR-V, or exceptionally if the shader can not be read or compiled.
+     */
+    public CompletableFuture<ByteBuffer> compileAsync(@Nonnull ShaderSource source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // queued compiles still run while close waits for the pool, so they skip the closed check
+                return compileOnThread(source.class_path(), source.vulkan_stage(), debug, cache);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, getPool());
+    }
+
+    /**
+     * Compiles a batch of shaders in parallel.
+     *
+     * @param sources The shaders to compile.
+     * @return One future per source, in the same order.
+     */
+    public List<CompletableFuture<ByteBuffer>> compileAll(@Nonnull List<ShaderSource> sources) {
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<>(sources.size());
+        for (ShaderSource source : sources) {
+            futures.add(compileAsync(source));
+        }
+        return futures;
+    }
+
+    /**
+     * Compiles a shader with explicit settings, used by {@link ShaderCUtil} which shares one compiler.
+     */
+    ByteBuffer compile(@Nonnull String class_path, int vulkan_stage, boolean debug_in, @Nullable SpirvCache cache_in) throws IOException {
+        if (closed) {
+            Log.print(Log.Severity.ERROR, "shaderc: compile called on a closed shader compiler");
+            throw new IllegalStateException("compile called on a closed shader compiler");
+        }
+        return compileOnThread(class_path, vulkan_stage, debug_in, cache_in);
+    }
+
+    private ByteBuffer compileOnThread(@Nonnull String class_path, int vulkan_stage, boolean debug_in, @Nullable SpirvCache cache_in) throws IOException {
+        ByteBuffer src = ShaderCUtil.ioResourceToByteBuffer(class_path, 1024);
+        final int optimization_level = debug_in ? shaderc_optimization_level_zero : shaderc_optimization_level_performance;
+        if (cache_in == null) {
+            return context.get().compile(class_path, src, vulkan_stage, optimization_level, null);
+        }
+        final String key = cache_in.manifestKey(class_path, src, vulkan_stage, optimization_level, TARGET_ENV);
+        ByteBuffer cached = cache_in.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, ByteBuffer> includes = new LinkedHashMap<>();
+        ByteBuffer spirv = context.get().compile(class_path, src, vulkan_stage, optimization_level, includes);
+        cache_in.put(key, includes, spirv);
+        return spirv;
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (closed) {
+            Log.print(Log.Severity.ERROR, "shaderc: compile called on a closed shader compiler");
+            throw new IllegalStateException("compile called on a closed shader compiler");
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    private Context createContext() {
+        Context created = new Context();
+        contexts.add(created);
+        return created;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Nullable
+    public SpirvCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Waits for queued compiles, then releases the pool and every thread's compiler.
+     */
+    @Override
+    protected void free() {
+        synchronized (this) {
+            closed = true;
+            if (pool != null) {
+                pool.shutdown();
+                try {
+                    if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                        Log.print(Log.Severity.WARNING, "shaderc: timed out waiting for shader compiles to finish");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        Context released;
+        while ((released = contexts.poll()) != null) {
+            released.free();
+        }
+        context.remove();
+        Log.print(Log.Severity.DEBUG, "shaderc: done freeing shader compiler");
+    }
+
+    /**
+     * A shader to compile.
+     *
+     * @param class_path   The class path of the GLSL source.
+     * @param vulkan_stage The Vulkan shader stage.
+     */
+    public record ShaderSource(@Nonnull String class_path, int vulkan_stage) {
+    }
+
+    /**
+     * The shaderc objects owned by one thread.
+     */
+    private static final class Context {
+        private final long compiler = shaderc_compiler_initialize();
+        private final long options = shaderc_compile_options_initialize();
+        private final ShadercIncludeResolve resolver;
+        private final ShadercIncludeResultRelease releaser;
+        /**
+         * Collects the includes of the compile in progress, or {@code null} when nobody asked for them.
+         */
+        @Nullable
+        private Map<String, ByteBuffer> includes = null;
+
+        private Context() {
+            if (compiler == 0L || options == 0L) {
+                Log.print(Log.Severity.ERROR, "shaderc: failed to create compiler");
+                throw new IllegalStateException("failed to create compiler");
+            }
+            shaderc_compile_options_set_target_env(options, shaderc_target_env_vulkan, shaderc_env_version_vulkan_1_2);
+            shaderc_compile_options_set_target_spirv(options, shaderc_spirv_version_1_5);
+            resolver = new ShadercIncludeResolve() {
+                public long invoke(long user_data, long requested_source, int type, long requesting_source, long include_depth) {
+                    return resolve(memUTF8(requested_source), memUTF8(requesting_source));
+                }
+            };
+            releaser = new ShadercIncludeResultRelease() {
+                public void invoke(long user_data, long include_result) {
+                    ShadercIncludeResult result = ShadercIncludeResult.create(include_result);
+                    if (result.source_name_length() == 0) {
+                        // failed includes have no source name and own their error message
+                        MemoryUtil.memFree(result.content());
+                    } else {
+                        MemoryUtil.memFree(result.source_name());
+                    }
+                    result.free();
+                }
+            };
+            shaderc_compile_options_set_include_callbacks(options, resolver, releaser, 0L);
+        }
+
+        /**
+         * Resolves an include relative to the directory of the file including it. On failure shaderc expects an
+         * empty source name and the error message as the content.
+         */
+        private long resolve(@Nonnull String requested, @Nonnull String requesting) {
+            ShadercIncludeResult res = ShadercIncludeResult.calloc();
+            final String path = requesting.substring(0, requesting.lastIndexOf('/') + 1) + requested;
+            try {
+                ByteBuffer content = ShaderCUtil.ioResourceToByteBuffer(path, 1024);
+                if (includes != null) {
+                    includes.put(path, content);
+                }
+                res.content(content);
+                res.source_name(memUTF8(path));
+            } catch (IOException e) {
+                res.content(memUTF8("failed to resolve include " + path, false));
+            }
+            return res.address();
+        }
+
+        private ByteBuffer compile(@Nonnull String class_path, @Nonnull ByteBuffer src, int vulkan_stage, int optimization_level, @Nullable Map<String, ByteBuffer> includes_out) {
+            shaderc_compile_options_set_optimization_level(options, optimization_level);
+            includes = includes_out;
+            long res;
+            try (MemoryStack stack = MemoryStack.stackPush()) {
+                res = shaderc_compile_into_spv(compiler, src, ShaderCUtil.vulkanStageToShadercKind(vulkan_stage), stack.UTF8(class_path), stack.UTF8("main"), options);
+            } finally {
+                includes = null;
+            }
+            if (res == 0L) {
+                Log.print(Log.Severity.ERROR, "shaderc: internal error compiling " + class_path);
+                throw new IllegalStateException("internal error compiling " + class_path);
+            }
+            try {
+                if (shaderc_result_get_compilation_status(res) != shaderc_compilation_status_success) {
+                    Log.print(Log.Severity.ERROR, "shaderc: failed to compile " + class_path + ": " + shaderc_result_get_error_message(res));
+                    throw new IllegalStateException("failed to compile " + class_path + ": " + shaderc_result_get_error_message(res));
+                }
+                ByteBuffer result_bytes = createByteBuffer((int) shaderc_result_get_length(res));
+                result_bytes.put(shaderc_result_get_bytes(res));
+                result_bytes.flip();
+                return result_bytes;
+            } finally {
+                shaderc_result_release(res);
+            }
+        }
+
+        private void free() {
+            shaderc_compile_options_release(options);
+            shaderc_compiler_release(compiler);
+            releaser.free();
+            resolver.free();
+        }
+    }
+}
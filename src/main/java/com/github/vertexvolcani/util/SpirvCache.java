@@ -0,0 +1,263 @@
+package com.github.vertexvolcani.util;
+/* Vertex Volcani - LICENCE
+ *
+ * GNU Lesser General Public License Version 3.0
+ *
+ * Copyright Luke Shore (c) 2023, 2024
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A content addressed on disk cache of compiled SPIR-V.
+ * <p>
+ * Lookups happen in two steps. The manifest key hashes everything known before compiling: the source path and
+ * contents, the stage, the optimization level and the target environment. The manifest it names lists every file
+ * the last compile included together with a hash of its contents, and the key of the SPIR-V entry. A lookup only
+ * hits when every listed include still hashes the same, so editing a shared header invalidates every shader using
+ * it. Entries are memory mapped so a hit hands the file straight to {@code VkShaderModuleCreateInfo} without a copy.
+ * </p>
+ * The cache is safe to use from several threads, files are written to a temporary name and moved into place.
+ *
+ * @author Luke Shore
+ * @version 1.0
+ * @since 2026-10-16
+ */
+public final class SpirvCache {
+    /**
+     * Bumped whenever the key, the file layout or how includes resolve changes so old caches are ignored.
+     */
+    private static final String FORMAT = "vv-spirv-cache-2";
+    private static final int SPIRV_MAGIC = 0x07230203;
+    private static final HexFormat HEX = HexFormat.of();
+    private final Path directory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Constructs a new SpirvCache.
+     *
+     * @param directory_in The directory holding the manifests and SPIR-V entries, created if missing.
+     */
+    public SpirvCache(@Nonnull Path directory_in) {
+        directory = directory_in;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            Log.print(Log.Severity.ERROR, "shaderc: could not create spirv cache directory " + directory + ": " + e.getMessage());
+            throw new IllegalStateException("could not create spirv cache directory " + directory);
+        }
+    }
+
+    /**
+     * Computes the manifest key of a shader from everything known before it is compiled.
+     *
+     * @param class_path         The class path of the source, includes are resolved relative to it.
+     * @param source             The GLSL source.
+     * @param stage              The Vulkan shader stage.
+     * @param optimization_level The shaderc optimization level.
+     * @param target_env         A description of the target environment and SPIR-V version.
+     * @return The manifest key as a hex string.
+     */
+    @Nonnull
+    public String manifestKey(@Nonnull String class_path, @Nonnull ByteBuffer source, int stage, int optimization_level, @Nonnull String target_env) {
+        MessageDigest digest = newDigest();
+        digest.update(FORMAT.getBytes(StandardCharsets.UTF_8));
+        update(digest, class_path);
+        update(digest, target_env);
+        digest.update(ByteBuffer.allocate(8).putInt(stage).putInt(optimization_level).flip());
+        digest.update(source.duplicate());
+        return HEX.formatHex(digest.digest());
+    }
+
+    /**
+     * Looks up a compiled shader.
+     *
+     * @param manifest_key The key from {@link #manifestKey}.
+     * @return The SPIR-V mapped read only, or {@code null} if the shader or one of its includes changed.
+     */
+    @Nullable
+    public ByteBuffer get(@Nonnull String manifest_key) {
+        final Path manifest = directory.resolve(manifest_key + ".manifest");
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (lines.isEmpty()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        // every line after the entry key is "<hash> <include name>"
+        for (int i = 1; i < lines.size(); i++) {
+            final String line = lines.get(i);
+            final int split = line.indexOf(' ');
+            if (split < 0 || !isIncludeCurrent(line.substring(split + 1), line.substring(0, split))) {
+                stale.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        final ByteBuffer spirv = map(directory.resolve(lines.get(0) + ".spv"));
+        if (spirv == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return spirv;
+    }
+
+    /**
+     * Stores a compiled shader.
+     *
+     * @param manifest_key The key from {@link #manifestKey}.
+     * @param includes     Every file the compile included, by the name it was resolved with, and its contents.
+     * @param spirv        The compiled SPIR-V.
+     */
+    public void put(@Nonnull String manifest_key, @Nonnull Map<String, ByteBuffer> includes, @Nonnull ByteBuffer spirv) {
+        MessageDigest entry_digest = newDigest();
+        update(entry_digest, manifest_key);
+        StringBuilder manifest = new StringBuilder();
+        for (Map.Entry<String, ByteBuffer> include : includes.entrySet()) {
+            final String hash = hash(include.getValue());
+            update(entry_digest, include.getKey());
+            update(entry_digest, hash);
+            manifest.append(hash).append(' ').append(include.getKey()).append('\n');
+        }
+        final String entry_key = HEX.formatHex(entry_digest.digest());
+        manifest.insert(0, entry_key + '\n');
+        try {
+            // the entry goes first so a manifest never names a missing entry
+            final Path entry = directory.resolve(entry_key + ".spv");
+            if (!Files.isRegularFile(entry)) {
+                write(entry, spirv.duplicate());
+            }
+            write(directory.resolve(manifest_key + ".manifest"), StandardCharsets.UTF_8.encode(manifest.toString()));
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            Log.print(Log.Severity.WARNING, "shaderc: failed to write spirv cache entry: " + e.getMessage());
+        }
+    }
+
+    private boolean isIncludeCurrent(@Nonnull String name, @Nonnull String expected_hash) {
+        try {
+            return hash(ShaderCUtil.ioResourceToByteBuffer(name, 1024)).equals(expected_hash);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Nullable
+    private static ByteBuffer map(@Nonnull Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < Integer.BYTES || size % Integer.BYTES != 0 || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.nativeOrder());
+            return data.getInt(0) == SPIRV_MAGIC ? data : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void write(@Nonnull Path target, @Nonnull ByteBuffer data) throws IOException {
+        final Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Nonnull
+    private static String hash(@Nonnull ByteBuffer data) {
+        MessageDigest digest = newDigest();
+        digest.update(data.duplicate());
+        return HEX.formatHex(digest.digest());
+    }
+
+    private static void update(@Nonnull MessageDigest digest, @Nonnull String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separates fields so ("ab", "c") and ("a", "bc") hash differently
+        digest.update((byte) 0);
+    }
+
+    @Nonnull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to compile, including stale ones.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of lookups that found a manifest whose includes had changed.
+     *
+     * @return The stale count.
+     */
+    public long getStaleCount() {
+        return stale.get();
+    }
+
+    /**
+     * Gets the number of entries written.
+     *
+     * @return The write count.
+     */
+    public long getWriteCount() {
+        return writes.get();
+    }
+
+    @Nonnull
+    public Path getDirectory() {
+        return directory;
+    }
+}